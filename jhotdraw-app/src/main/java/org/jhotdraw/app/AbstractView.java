@@ -25,7 +25,8 @@ public abstract class AbstractView extends JPanel implements View {
 
   /**
    * The executor used to perform background tasks for the View in a controlled manner. This
-   * executor ensures that all background tasks are executed sequentually.
+   * executor ensures that all background tasks are executed sequentually. The tasks run on the
+   * threads of the shared {@link ViewIOScheduler}.
    */
   protected ExecutorService executor;
 
@@ -169,7 +170,7 @@ public abstract class AbstractView extends JPanel implements View {
   @Override
   public void execute(Runnable worker) {
     if (executor == null) {
-      executor = Executors.newSingleThreadExecutor();
+      executor = ViewIOScheduler.getInstance().createSequentialExecutor();
     }
     executor.execute(worker);
   }
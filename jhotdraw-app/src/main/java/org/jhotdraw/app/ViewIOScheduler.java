@@ -0,0 +1,314 @@
+/*
+ * @(#)ViewIOScheduler.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.app;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import org.jhotdraw.api.app.View;
+import org.jhotdraw.api.gui.URIChooser;
+import org.jhotdraw.gui.DefaultActivityModel;
+import org.jhotdraw.net.URIUtil;
+import org.jhotdraw.util.ResourceBundleUtil;
+
+/**
+ * Schedules background tasks which read and write views, such as opening and saving documents.
+ *
+ * <p>All views and file actions of an application share one scheduler, which runs at most a
+ * bounded number of tasks concurrently. This allows to parse several documents at the same time,
+ * for example when the user opens many files at once, without starting an unbounded number of
+ * threads. If the Java runtime supports virtual threads, each task runs on its own virtual thread;
+ * otherwise the tasks run on a pool of daemon threads.
+ *
+ * <p>Each task is reported to the {@link org.jhotdraw.gui.ActivityManager} through a {@link
+ * DefaultActivityModel}. Tasks which only read, such as opening a document, can be canceled from
+ * there; cancellation interrupts the thread of the task. Tasks which write can not be canceled,
+ * because interrupting them could leave a partially written file behind.
+ *
+ * <p>The completion callback is always invoked on the AWT Event Dispatcher Thread, so that only
+ * the final step, such as setting the drawing of a view, touches Swing. It is invoked after the
+ * task has returned, even if the task has been canceled while it was running.
+ *
+ * <p><hr> <b>Design Patterns</b>
+ *
+ * <p><em>Singleton</em><br>
+ * The shared scheduler is obtained with {@link #getInstance}.
+ */
+public class ViewIOScheduler {
+
+  private static final Logger LOG = Logger.getLogger(ViewIOScheduler.class.getName());
+  private static ViewIOScheduler instance;
+
+  public static synchronized ViewIOScheduler getInstance() {
+    if (instance == null) {
+      instance = new ViewIOScheduler(Runtime.getRuntime().availableProcessors());
+    }
+    return instance;
+  }
+
+  private final ExecutorService executor;
+
+  /** Limits the number of concurrently running tasks. */
+  private final Semaphore permits;
+
+  private final int maxConcurrency;
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param maxConcurrency the maximal number of tasks which run concurrently
+   */
+  public ViewIOScheduler(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+    permits = new Semaphore(maxConcurrency, true);
+    executor = createExecutor(maxConcurrency);
+  }
+
+  /** Returns the maximal number of tasks which run concurrently. */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Creates a virtual thread per task executor if the runtime supports it, and a fixed pool of
+   * daemon threads otherwise.
+   */
+  private static ExecutorService createExecutor(int maxConcurrency) {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.log(Level.FINE, "Virtual threads are not available, using a thread pool", e);
+    }
+    final AtomicInteger count = new AtomicInteger();
+    ThreadFactory factory = r -> {
+      Thread t = new Thread(r, "ViewIOScheduler-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        maxConcurrency,
+        maxConcurrency,
+        30,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        factory);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Reads the specified URI into the view in the background.
+   *
+   * @param view the view
+   * @param uri the URI
+   * @param chooser the chooser which was used for selecting the URI, or null
+   * @param done invoked on the AWT Event Dispatcher Thread when the task is finished. The argument
+   *     is null on success, a {@code CancellationException} if the task was canceled, or the
+   *     exception which was thrown by {@link View#read}. A canceled task may have read a part of
+   *     the URI into the view.
+   */
+  public Future<Void> read(View view, URI uri, URIChooser chooser, Consumer<Throwable> done) {
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    return submit(
+        view,
+        labels.getFormatted("file.open.activity.text", URIUtil.getName(uri)),
+        true,
+        () -> {
+          view.read(uri, chooser);
+          return null;
+        },
+        (result, error) -> done.accept(error));
+  }
+
+  /**
+   * Writes the view to the specified URI in the background. The task can not be canceled.
+   *
+   * @param view the view
+   * @param uri the URI
+   * @param chooser the chooser which was used for selecting the URI, or null
+   * @param done invoked on the AWT Event Dispatcher Thread when the task is finished. The argument
+   *     is null on success, a {@code CancellationException} if the task was canceled, or the
+   *     exception which was thrown by {@link View#write}.
+   */
+  public Future<Void> write(View view, URI uri, URIChooser chooser, Consumer<Throwable> done) {
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    return submit(
+        view,
+        labels.getFormatted("file.save.activity.text", URIUtil.getName(uri)),
+        false,
+        () -> {
+          view.write(uri, chooser);
+          return null;
+        },
+        (result, error) -> done.accept(error));
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param owner the owner of the activity model of the task, usually a view
+   * @param title the title of the activity model
+   * @param cancelable whether the user may cancel the task. Cancellation interrupts the thread of
+   *     the task, and must therefore only be allowed for tasks which do not write files.
+   * @param task the task
+   * @param done invoked on the AWT Event Dispatcher Thread when the task has returned, with the
+   *     result of the task, a {@code CancellationException} if the task was canceled, or the
+   *     exception which was thrown by the task.
+   */
+  public <T> Future<T> submit(
+      Object owner,
+      String title,
+      boolean cancelable,
+      Callable<T> task,
+      BiConsumer<T, Throwable> done) {
+    final DefaultActivityModel pm = new DefaultActivityModel(owner, title, null, true);
+    pm.setCancelable(cancelable);
+    final FutureTask<T> future = new FutureTask<T>(() -> {
+      permits.acquire();
+      try {
+        return task.call();
+      } finally {
+        permits.release();
+      }
+    });
+    if (cancelable) {
+      pm.setDoCancel(() -> future.cancel(true));
+    }
+    executor.execute(() -> {
+      try {
+        future.run();
+      } finally {
+        // The future is done as soon as it is canceled, but the task may still be running
+        // until it notices the interrupt. The callback is only invoked after the task has
+        // returned.
+        pm.close();
+        SwingUtilities.invokeLater(() -> {
+          T result = null;
+          Throwable error = null;
+          try {
+            result = future.get();
+          } catch (ExecutionException e) {
+            error = e.getCause();
+          } catch (CancellationException | InterruptedException e) {
+            error = e;
+          }
+          done.accept(result, error);
+        });
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Creates an executor service which executes its tasks sequentially, in the order in which they
+   * have been submitted, but runs them on the threads of this scheduler.
+   *
+   * <p>Shutting down the returned executor service does not affect the scheduler.
+   */
+  public ExecutorService createSequentialExecutor() {
+    return new SequentialExecutor();
+  }
+
+  /** Executes tasks one at a time on the shared executor. */
+  private class SequentialExecutor extends AbstractExecutorService {
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+    private boolean shutdown;
+
+    @Override
+    public synchronized void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Executor has been shut down");
+      }
+      tasks.add(() -> {
+        try {
+          permits.acquireUninterruptibly();
+          try {
+            command.run();
+          } finally {
+            permits.release();
+          }
+        } finally {
+          scheduleNext();
+        }
+      });
+      if (active == null) {
+        scheduleNext();
+      }
+    }
+
+    private synchronized void scheduleNext() {
+      active = tasks.poll();
+      if (active != null) {
+        executor.execute(active);
+      } else if (shutdown) {
+        notifyAll();
+      }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> pending = new ArrayList<>(tasks);
+      tasks.clear();
+      return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return shutdown && active == null;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
+    }
+  }
+}
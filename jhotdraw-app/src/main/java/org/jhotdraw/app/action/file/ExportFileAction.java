@@ -12,20 +12,19 @@ import java.awt.event.ActionEvent;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import org.jhotdraw.action.AbstractViewAction;
 import org.jhotdraw.api.app.Application;
 import org.jhotdraw.api.app.ApplicationModel;
 import org.jhotdraw.api.app.View;
 import org.jhotdraw.api.gui.URIChooser;
+import org.jhotdraw.app.ViewIOScheduler;
 import org.jhotdraw.gui.JFileURIChooser;
 import org.jhotdraw.gui.JSheet;
 import org.jhotdraw.gui.event.SheetEvent;
@@ -140,7 +139,8 @@ public class ExportFileAction extends AbstractViewAction {
     fileChooser.setSelectedURI(proposedURI);
   }
 
-  private void showExportChooser(final View view, ResourceBundleUtil labels, URIChooser fileChooser) {
+  private void showExportChooser(
+      final View view, ResourceBundleUtil labels, URIChooser fileChooser) {
     JSheet.showSheet(
         fileChooser,
         view.getComponent(),
@@ -194,39 +194,31 @@ public class ExportFileAction extends AbstractViewAction {
   }
 
   protected void exportView(final View view, final URI uri, final URIChooser chooser) {
-    new SwingWorker() {
-      @Override
-      protected Object doInBackground() throws Exception {
-        view.write(uri, chooser);
-        return null;
-      }
-
-      @Override
-      protected void done() {
-        try {
-          get();
-        } catch (InterruptedException | ExecutionException ex) {
-          Logger.getLogger(ExportFileAction.class.getName()).log(Level.SEVERE, null, ex);
-          System.out.flush();
-          ex.printStackTrace();
-          // FIXME localize this error messsage
-          JSheet.showMessageSheet(
-              view.getComponent(),
-              "<html>"
-                  + UIManager.getString("OptionPane.css")
-                  + "<b>Couldn't export to the file \""
-                  + URIUtil.getName(uri)
-                  + "\".<p>"
-                  + "Reason: "
-                  + ex,
-              JOptionPane.ERROR_MESSAGE);
-        }
-        view.setEnabled(true);
-        SwingUtilities.getWindowAncestor(view.getComponent()).toFront();
-        if (oldFocusOwner != null) {
-          oldFocusOwner.requestFocus();
-        }
-      }
-    }.execute();
+    ViewIOScheduler.getInstance()
+        .write(
+            view,
+            uri,
+            chooser,
+            error -> {
+              if (error != null) {
+                Logger.getLogger(ExportFileAction.class.getName()).log(Level.SEVERE, null, error);
+                // FIXME localize this error messsage
+                JSheet.showMessageSheet(
+                    view.getComponent(),
+                    "<html>"
+                        + UIManager.getString("OptionPane.css")
+                        + "<b>Couldn't export to the file \""
+                        + URIUtil.getName(uri)
+                        + "\".<p>"
+                        + "Reason: "
+                        + error,
+                    JOptionPane.ERROR_MESSAGE);
+              }
+              view.setEnabled(true);
+              SwingUtilities.getWindowAncestor(view.getComponent()).toFront();
+              if (oldFocusOwner != null) {
+                oldFocusOwner.requestFocus();
+              }
+            });
   }
 }
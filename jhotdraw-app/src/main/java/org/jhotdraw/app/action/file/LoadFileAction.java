@@ -10,17 +10,17 @@ package org.jhotdraw.app.action.file;
 import java.awt.Component;
 import java.awt.Window;
 import java.net.URI;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import org.jhotdraw.api.app.Application;
 import org.jhotdraw.api.app.View;
 import org.jhotdraw.api.gui.URIChooser;
+import org.jhotdraw.app.ViewIOScheduler;
 import org.jhotdraw.app.action.AbstractSaveUnsavedChangesAction;
 import org.jhotdraw.gui.JSheet;
 import org.jhotdraw.gui.event.SheetEvent;
@@ -124,46 +124,56 @@ public class LoadFileAction extends AbstractSaveUnsavedChangesAction {
   public void loadViewFromURI(final View view, final URI uri, final URIChooser chooser) {
     view.setEnabled(false);
     // Open the file
-    new SwingWorker() {
-      @Override
-      protected Object doInBackground() throws Exception {
-        view.read(uri, chooser);
-        return null;
-      }
-
-      @Override
-      protected void done() {
-        try {
-          get();
-          view.setURI(uri);
-          view.setEnabled(true);
-          getApplication().addRecentURI(uri);
-        } catch (InterruptedException | ExecutionException ex) {
-          Logger.getLogger(LoadFileAction.class.getName()).log(Level.SEVERE, null, ex);
-          failed(ex);
-        }
-      }
-
-      protected void failed(Throwable value) {
-        value.printStackTrace();
-        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
-        JSheet.showMessageSheet(
-            view.getComponent(),
-            "<html>"
-                + UIManager.getString("OptionPane.css")
-                + "<b>"
-                + labels.getFormatted("file.load.couldntLoad.message", URIUtil.getName(uri))
-                + "</b><p>"
-                + ((value == null) ? "" : value),
-            JOptionPane.ERROR_MESSAGE,
-            new SheetListener() {
-              @Override
-              public void optionSelected(SheetEvent evt) {
-                view.clear();
+    ViewIOScheduler.getInstance()
+        .read(
+            view,
+            uri,
+            chooser,
+            error -> {
+              if (error == null) {
+                view.setURI(uri);
                 view.setEnabled(true);
+                getApplication().addRecentURI(uri);
+              } else if (error instanceof CancellationException) {
+                canceled(view);
+              } else {
+                Logger.getLogger(LoadFileAction.class.getName()).log(Level.SEVERE, null, error);
+                failed(view, uri, error);
               }
             });
+  }
+
+  /**
+   * Clears the partially loaded document of a view whose loading has been canceled by the user,
+   * and enables the view again.
+   */
+  protected void canceled(final View view) {
+    view.execute(() -> {
+      try {
+        view.clear();
+      } finally {
+        SwingUtilities.invokeLater(() -> view.setEnabled(true));
       }
-    }.execute();
+    });
+  }
+
+  protected void failed(final View view, URI uri, Throwable value) {
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    JSheet.showMessageSheet(
+        view.getComponent(),
+        "<html>"
+            + UIManager.getString("OptionPane.css")
+            + "<b>"
+            + labels.getFormatted("file.load.couldntLoad.message", URIUtil.getName(uri))
+            + "</b><p>"
+            + ((value == null) ? "" : value),
+        JOptionPane.ERROR_MESSAGE,
+        new SheetListener() {
+          @Override
+          public void optionSelected(SheetEvent evt) {
+            view.clear();
+            view.setEnabled(true);
+          }
+        });
   }
 }
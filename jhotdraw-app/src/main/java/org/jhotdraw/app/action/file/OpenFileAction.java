@@ -18,7 +18,7 @@ import java.awt.event.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -27,12 +27,12 @@ import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JRootPane;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import org.jhotdraw.action.AbstractApplicationAction;
 import org.jhotdraw.api.app.Application;
 import org.jhotdraw.api.app.View;
 import org.jhotdraw.api.gui.URIChooser;
+import org.jhotdraw.app.ViewIOScheduler;
 import org.jhotdraw.gui.JSheet;
 import org.jhotdraw.net.URIUtil;
 import org.jhotdraw.util.ResourceBundleUtil;
@@ -137,56 +137,74 @@ public class OpenFileAction extends AbstractApplicationAction {
     view.setEnabled(false);
 
     // Open the file
-    new SwingWorker<Object, Object>() {
-      @Override
-      protected Object doInBackground() throws Exception {
-        if (new File(uri).exists()) {
-          view.read(uri, chooser);
-        } else {
-          ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
-          throw new IOException(
-                  labels.getFormatted("file.open.fileDoesNotExist.message", URIUtil.getName(uri)));
-        }
-        return null;
-      }
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    ViewIOScheduler.getInstance()
+        .submit(
+            view,
+            labels.getFormatted("file.open.activity.text", URIUtil.getName(uri)),
+            true,
+            () -> {
+              if (new File(uri).exists()) {
+                view.read(uri, chooser);
+              } else {
+                throw new IOException(
+                    labels.getFormatted(
+                        "file.open.fileDoesNotExist.message", URIUtil.getName(uri)));
+              }
+              return null;
+            },
+            (result, error) -> {
+              if (error == null) {
+                view.setURI(uri);
+                view.setEnabled(true);
+                Frame w = (Frame) SwingUtilities.getWindowAncestor(view.getComponent());
+                if (w != null) {
+                  w.setExtendedState(w.getExtendedState() & ~Frame.ICONIFIED);
+                  w.toFront();
+                }
+                view.getComponent().requestFocus();
+                app.addRecentURI(uri);
+                app.setEnabled(true);
+              } else if (error instanceof CancellationException) {
+                canceled(view);
+              } else {
+                Logger.getLogger(OpenFileAction.class.getName()).log(Level.SEVERE, null, error);
+                failed(view, uri, error);
+              }
+            });
+  }
 
-      @Override
-      protected void done() {
-        try {
-          get();
-          view.setURI(uri);
+  /**
+   * Clears the partially read document of a view whose reading has been canceled by the user,
+   * and enables the view again.
+   */
+  private void canceled(final View view) {
+    view.execute(() -> {
+      try {
+        view.clear();
+      } finally {
+        SwingUtilities.invokeLater(() -> {
           view.setEnabled(true);
-          Frame w = (Frame) SwingUtilities.getWindowAncestor(view.getComponent());
-          if (w != null) {
-            w.setExtendedState(w.getExtendedState() & ~Frame.ICONIFIED);
-            w.toFront();
-          }
-          view.getComponent().requestFocus();
-          app.addRecentURI(uri);
-          app.setEnabled(true);
-        } catch (InterruptedException | ExecutionException ex) {
-          Logger.getLogger(OpenFileAction.class.getName()).log(Level.SEVERE, null, ex);
-          failed(ex);
-        }
+          getApplication().setEnabled(true);
+        });
       }
+    });
+  }
 
-      private void failed(Throwable value) {
-        value.printStackTrace();
-        view.setEnabled(true);
-        app.setEnabled(true);
-        String message = value.getMessage() != null ? value.getMessage() : value.toString();
-        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
-        JSheet.showMessageSheet(
-                view.getComponent(),
-                "<html>"
-                + UIManager.getString("OptionPane.css")
-                + "<b>"
-                + labels.getFormatted("file.open.couldntOpen.message", URIUtil.getName(uri))
-                + "</b><p>"
-                + ((message == null) ? "" : message),
-                JOptionPane.ERROR_MESSAGE);
-      }
-    }.execute();
+  private void failed(View view, URI uri, Throwable value) {
+    view.setEnabled(true);
+    getApplication().setEnabled(true);
+    String message = value.getMessage() != null ? value.getMessage() : value.toString();
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    JSheet.showMessageSheet(
+        view.getComponent(),
+        "<html>"
+            + UIManager.getString("OptionPane.css")
+            + "<b>"
+            + labels.getFormatted("file.open.couldntOpen.message", URIUtil.getName(uri))
+            + "</b><p>"
+            + ((message == null) ? "" : message),
+        JOptionPane.ERROR_MESSAGE);
   }
 
   private int calculateMultipleOpenId(Application app, View view) {
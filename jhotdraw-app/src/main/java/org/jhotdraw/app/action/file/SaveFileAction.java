@@ -10,19 +10,18 @@ package org.jhotdraw.app.action.file;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.net.URI;
-import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import org.jhotdraw.action.AbstractViewAction;
 import org.jhotdraw.api.app.Application;
 import org.jhotdraw.api.app.ApplicationModel;
 import org.jhotdraw.api.app.View;
 import org.jhotdraw.api.gui.URIChooser;
+import org.jhotdraw.app.ViewIOScheduler;
 import org.jhotdraw.gui.JSheet;
 import org.jhotdraw.gui.event.SheetEvent;
 import org.jhotdraw.gui.event.SheetListener;
@@ -172,56 +171,46 @@ public class SaveFileAction extends AbstractViewAction {
   }
 
   protected void saveViewToURI(final View view, final URI file, final URIChooser chooser) {
-    new SwingWorker() {
-      @Override
-      protected Object doInBackground() throws Exception {
-        view.write(file, chooser);
-        return null;
-      }
-
-      @Override
-      protected void done() {
-        try {
-          get();
-          view.setURI(file);
-          view.markChangesAsSaved();
-          int multiOpenId = 1;
-          for (View p : view.getApplication().views()) {
-            if (p != view && p.getURI() != null && p.getURI().equals(file)) {
-              multiOpenId = Math.max(multiOpenId, p.getMultipleOpenId() + 1);
-            }
-          }
-          getApplication().addRecentURI(file);
-          view.setMultipleOpenId(multiOpenId);
-        } catch (InterruptedException | ExecutionException ex) {
-          Logger.getLogger(SaveFileAction.class.getName()).log(Level.SEVERE, null, ex);
-          failed(ex);
-        }
-        finished();
-      }
-
-      protected void failed(Throwable value) {
-        value.printStackTrace();
-        String message = value.getMessage() != null ? value.getMessage() : value.toString();
-        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
-        JSheet.showMessageSheet(
-            getActiveView().getComponent(),
-            "<html>"
-                + UIManager.getString("OptionPane.css")
-                + "<b>"
-                + labels.getFormatted("file.save.couldntSave.message", URIUtil.getName(file))
-                + "</b><p>"
-                + ((message == null) ? "" : message),
-            JOptionPane.ERROR_MESSAGE);
-      }
+    ViewIOScheduler.getInstance()
+        .write(
+            view,
+            file,
+            chooser,
+            error -> {
+              if (error == null) {
+                view.setURI(file);
+                view.markChangesAsSaved();
+                int multiOpenId = 1;
+                for (View p : view.getApplication().views()) {
+                  if (p != view && p.getURI() != null && p.getURI().equals(file)) {
+                    multiOpenId = Math.max(multiOpenId, p.getMultipleOpenId() + 1);
+                  }
+                }
+                getApplication().addRecentURI(file);
+                view.setMultipleOpenId(multiOpenId);
+              } else {
+                Logger.getLogger(SaveFileAction.class.getName()).log(Level.SEVERE, null, error);
+                failed(file, error);
+              }
+              view.setEnabled(true);
+              SwingUtilities.getWindowAncestor(view.getComponent()).toFront();
+              if (oldFocusOwner != null) {
+                oldFocusOwner.requestFocus();
+              }
+            });
+  }
 
-      protected void finished() {
-        view.setEnabled(true);
-        SwingUtilities.getWindowAncestor(view.getComponent()).toFront();
-        if (oldFocusOwner != null) {
-          oldFocusOwner.requestFocus();
-        }
-      }
-    }.execute();
+  protected void failed(URI file, Throwable value) {
+    String message = value.getMessage() != null ? value.getMessage() : value.toString();
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
+    JSheet.showMessageSheet(
+        getActiveView().getComponent(),
+        "<html>"
+            + UIManager.getString("OptionPane.css")
+            + "<b>"
+            + labels.getFormatted("file.save.couldntSave.message", URIUtil.getName(file))
+            + "</b><p>"
+            + ((message == null) ? "" : message),
+        JOptionPane.ERROR_MESSAGE);
   }
 }
@@ -46,6 +46,7 @@ public abstract class AbstractDrawing implements Drawing {
   protected EventListenerList listenerList = new EventListenerList();
   private Attributes attributes = new Attributes(this::fireDrawingAttributeChanged);
   private transient FontRenderContext fontRenderContext;
+  private transient ImageStore imageStore;
   private List<InputFormat> inputFormats = new ArrayList<>();
   private List<OutputFormat> outputFormats = new ArrayList<>();
 
@@ -153,6 +154,7 @@ public abstract class AbstractDrawing implements Drawing {
     }
     that.attributes = Attributes.from(attributes, that::fireDrawingAttributeChanged);
     that.listenerList = new EventListenerList();
+    that.imageStore = null;
 
     that.inputFormats = (this.inputFormats == null) ? null : new ArrayList<>(this.inputFormats);
     that.outputFormats = (this.outputFormats == null) ? null : new ArrayList<>(this.outputFormats);
@@ -232,6 +234,14 @@ public abstract class AbstractDrawing implements Drawing {
     fontRenderContext = frc;
   }
 
+  @Override
+  public synchronized ImageStore getImageStore() {
+    if (imageStore == null) {
+      imageStore = new ImageStore();
+    }
+    return imageStore;
+  }
+
   @Override
   public List<InputFormat> getInputFormats() {
     return inputFormats;
@@ -68,6 +68,7 @@ import javax.swing.undo.CannotUndoException;
 import org.jhotdraw.api.gui.EditableComponent;
 import org.jhotdraw.draw.constrainer.Constrainer;
 import org.jhotdraw.draw.constrainer.GridConstrainer;
+import org.jhotdraw.draw.event.DeleteEdit;
 import org.jhotdraw.draw.event.DrawingEvent;
 import org.jhotdraw.draw.event.DrawingListener;
 import org.jhotdraw.draw.event.FigureEvent;
@@ -929,34 +930,8 @@ public abstract class AbstractDrawingView implements DrawingView, EditableCompon
     }
     clearSelection();
     drawing.removeAll(deletedFigures);
-    drawing.fireUndoableEditHappened(new AbstractUndoableEdit() {
-      private static final long serialVersionUID = 1L;
-
-      @Override
-      public String getPresentationName() {
-        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
-        return labels.getString("edit.delete.text");
-      }
-
-      @Override
-      public void undo() throws CannotUndoException {
-        super.undo();
-        clearSelection();
-        Drawing d = drawing;
-        for (int i = 0; i < deletedFigureIndices.length; i++) {
-          d.add(deletedFigureIndices[i], deletedFigures.get(i));
-        }
-        addToSelection(deletedFigures);
-      }
-
-      @Override
-      public void redo() throws CannotRedoException {
-        super.redo();
-        for (int i = 0; i < deletedFigureIndices.length; i++) {
-          drawing.remove(deletedFigures.get(i));
-        }
-      }
-    });
+    drawing.fireUndoableEditHappened(
+        new DeleteEdit(this, deletedFigures, deletedFigureIndices));
   }
 
   @Override
@@ -15,6 +15,7 @@ import org.jhotdraw.draw.decoration.LineDecoration;
 import org.jhotdraw.draw.figure.AbstractAttributedFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.liner.Liner;
+import org.jhotdraw.draw.text.TextLayoutCache;
 import org.jhotdraw.geom.Dimension2DDouble;
 import org.jhotdraw.geom.DoubleStroke;
 import org.jhotdraw.geom.Insets2D;
@@ -603,11 +604,12 @@ public class AttributeKeys {
     if (prototype == null) {
       return null;
     }
-    if (getFontStyle(f) != Font.PLAIN) {
-      return prototype.deriveFont(getFontStyle(f), f.attr().get(FONT_SIZE).floatValue());
-    } else {
-      return prototype.deriveFont(f.attr().get(FONT_SIZE).floatValue());
+    int style = getFontStyle(f);
+    if (style == Font.PLAIN) {
+      style = prototype.getStyle();
     }
+    return TextLayoutCache.getInstance()
+        .getFont(prototype, style, f.attr().get(FONT_SIZE).floatValue());
   }
 
   public static int getFontStyle(Figure f) {
@@ -53,6 +53,10 @@ public class DefaultDrawing extends AbstractDrawing {
       List<Figure> toDraw = new ArrayList<>(getChildren().size());
       Rectangle clipRect = g.getClipBounds();
       double scale = AttributeKeys.getScaleFactorFromGraphics(g);
+      RenderRecorder recorder = RenderRecorder.get(g);
+      if (recorder != null) {
+        recorder.addFigures(getChildren().size());
+      }
       for (Figure f : getChildren()) {
         if (f.getDrawingArea(scale).intersects(clipRect)) {
           toDraw.add(f);
@@ -65,21 +69,30 @@ public class DefaultDrawing extends AbstractDrawing {
   public void draw(Graphics2D g, Collection<Figure> children) {
     Rectangle2D clipBounds = g.getClipBounds();
     double scale = AttributeKeys.getScaleFactorFromGraphics(g);
+    RenderRecorder recorder = RenderRecorder.get(g);
     if (clipBounds != null) {
       for (Figure f : children) {
         if (f.isVisible() && f.getDrawingArea(scale).intersects(clipBounds)) {
-          f.draw(g);
+          drawFigure(f, g, recorder);
         }
       }
     } else {
       for (Figure f : children) {
         if (f.isVisible()) {
-          f.draw(g);
+          drawFigure(f, g, recorder);
         }
       }
     }
   }
 
+  private static void drawFigure(Figure f, Graphics2D g, RenderRecorder recorder) {
+    if (recorder == null) {
+      f.draw(g);
+    } else {
+      recorder.draw(f, g);
+    }
+  }
+
   @Override
   public List<Figure> sort(Collection<? extends Figure> c) {
     Set<Figure> unsorted = new HashSet<>();
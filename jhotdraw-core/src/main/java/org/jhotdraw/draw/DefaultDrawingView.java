@@ -13,6 +13,7 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
@@ -48,6 +49,7 @@ import javax.swing.undo.CannotUndoException;
 import org.jhotdraw.api.gui.EditableComponent;
 import org.jhotdraw.draw.constrainer.Constrainer;
 import org.jhotdraw.draw.constrainer.GridConstrainer;
+import org.jhotdraw.draw.event.DeleteEdit;
 import org.jhotdraw.draw.event.DrawingEvent;
 import org.jhotdraw.draw.event.DrawingListener;
 import org.jhotdraw.draw.event.FigureEvent;
@@ -57,6 +59,8 @@ import org.jhotdraw.draw.event.FigureSelectionEvent;
 import org.jhotdraw.draw.event.FigureSelectionListener;
 import org.jhotdraw.draw.event.HandleEvent;
 import org.jhotdraw.draw.event.HandleListener;
+import org.jhotdraw.draw.event.RenderMetricsEvent;
+import org.jhotdraw.draw.event.RenderMetricsListener;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.io.DefaultDrawingViewTransferHandler;
@@ -130,6 +134,15 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
   private Rectangle dirtyArea = new Rectangle(0, 0, -1, -1);
 
   private boolean paintEnabled = true;
+
+  /** Records the render metrics of the frames, or null if recording is disabled. */
+  private transient RenderRecorder renderRecorder;
+
+  /** The render metrics of the most recently painted frame. */
+  private transient RenderMetrics renderMetrics;
+
+  private boolean isRenderMetricsOverlayVisible;
+
   private static final boolean IS_WINDOWS;
 
   static {
@@ -375,10 +388,23 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
   @Override
   public void paintComponent(Graphics gr) {
     Graphics2D g = (Graphics2D) gr;
+    RenderRecorder recorder = renderRecorder;
+    if (recorder != null) {
+      recorder.beginFrame();
+    }
     setViewRenderingHints(g);
     drawBackground(g);
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.BACKGROUND);
+    }
     drawCanvas(g);
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.CANVAS);
+    }
     drawConstrainer(g);
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.CONSTRAINER);
+    }
     if (isDrawingDoubleBuffered()) {
       if (IS_WINDOWS) {
         drawDrawingNonvolatileBuffered(g);
@@ -386,10 +412,47 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
         drawDrawingVolatileBuffered(g);
       }
     } else {
+      if (recorder != null) {
+        recorder.addDirtyArea(g.getClipBounds());
+      }
       drawDrawing(g);
     }
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.DRAWING);
+    }
     drawHandles(g);
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.HANDLES);
+    }
     drawTool(g);
+    if (recorder != null) {
+      recorder.endPhase(RenderMetrics.Phase.TOOL);
+      renderMetrics = recorder.endFrame();
+      if (isRenderMetricsOverlayVisible) {
+        drawRenderMetricsOverlay(g, renderMetrics);
+      }
+      fireFrameRendered(renderMetrics);
+    }
+  }
+
+  /** Draws the render metrics in the upper left corner of the visible area. */
+  protected void drawRenderMetricsOverlay(Graphics2D g, RenderMetrics metrics) {
+    java.util.List<String> lines = metrics.toLines();
+    FontMetrics fm = g.getFontMetrics();
+    int width = 0;
+    for (String line : lines) {
+      width = Math.max(width, fm.stringWidth(line));
+    }
+    Rectangle vr = getVisibleRect();
+    int lineHeight = fm.getHeight();
+    g.setColor(new Color(0, 0, 0, 160));
+    g.fillRect(vr.x + 4, vr.y + 4, width + 8, lines.size() * lineHeight + 8);
+    g.setColor(Color.WHITE);
+    int y = vr.y + 8 + fm.getAscent();
+    for (String line : lines) {
+      g.drawString(line, vr.x + 8, y);
+      y += lineHeight;
+    }
   }
 
   /** Draws the drawing double buffered using a volatile image. */
@@ -453,6 +516,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
           try {
             drawingBufferV = getGraphicsConfiguration()
                 .createCompatibleVolatileImage(vr.width, vr.height, Transparency.TRANSLUCENT);
+            if (renderRecorder != null) {
+              renderRecorder.bufferReallocated();
+            }
           } catch (OutOfMemoryError e) {
             drawingBufferV = null;
           }
@@ -466,6 +532,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       if (drawingBufferV == null) {
         // There is not enough memory available for a drawing buffer;
         // draw without buffering.
+        if (renderRecorder != null) {
+          renderRecorder.addDirtyArea(g.getClipBounds());
+        }
         drawDrawing(g);
         break;
       }
@@ -494,6 +563,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
         gBuf.clearRect(dirtyArea.x, dirtyArea.y, dirtyArea.width, dirtyArea.height);
         gBuf.setComposite(AlphaComposite.SrcOver);
         // Repaint the dirty area
+        if (renderRecorder != null) {
+          renderRecorder.addDirtyArea(dirtyArea);
+        }
         drawDrawing(gBuf);
         gBuf.dispose();
       }
@@ -568,6 +640,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
         try {
           drawingBufferNV = getGraphicsConfiguration()
               .createCompatibleImage(vr.width, vr.height, Transparency.TRANSLUCENT);
+          if (renderRecorder != null) {
+            renderRecorder.bufferReallocated();
+          }
         } catch (OutOfMemoryError e) {
           drawingBufferNV = null;
         }
@@ -577,6 +652,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     if (drawingBufferNV == null) {
       // There is not enough memory available for a drawing buffer;
       // draw without buffering.
+      if (renderRecorder != null) {
+        renderRecorder.addDirtyArea(g.getClipBounds());
+      }
       drawDrawing(g);
       return;
     }
@@ -605,6 +683,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       gBuf.clearRect(dirtyArea.x, dirtyArea.y, dirtyArea.width, dirtyArea.height);
       gBuf.setComposite(AlphaComposite.SrcOver);
       // Repaint the dirty area
+      if (renderRecorder != null) {
+        renderRecorder.addDirtyArea(dirtyArea);
+      }
       drawDrawing(gBuf);
       gBuf.dispose();
     }
@@ -647,6 +728,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
     g.setRenderingHint(
         RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    if (renderRecorder != null) {
+      renderRecorder.install(g);
+    }
   }
 
   /**
@@ -1089,6 +1173,83 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     listenerList.remove(FigureSelectionListener.class, fsl);
   }
 
+  @Override
+  public void setRenderMetricsEnabled(boolean newValue) {
+    if (newValue != isRenderMetricsEnabled()) {
+      setRenderRecorder(newValue ? new RenderRecorder() : null);
+    }
+  }
+
+  /**
+   * Sets the recorder, which records the render metrics of the frames. This can be used to record
+   * the frames with a subclass of RenderRecorder, such as a {@link FigureProfiler}.
+   *
+   * @param newValue the recorder, or null to disable recording
+   */
+  public void setRenderRecorder(RenderRecorder newValue) {
+    if (newValue != renderRecorder) {
+      renderRecorder = newValue;
+      if (newValue == null) {
+        renderMetrics = null;
+      }
+      // The drawing buffer must be repainted, so that the figures are recorded.
+      dirtyArea.setBounds(bufferedArea);
+      repaint();
+    }
+  }
+
+  /** Returns the recorder, or null if render metrics are not recorded. */
+  public RenderRecorder getRenderRecorder() {
+    return renderRecorder;
+  }
+
+  @Override
+  public boolean isRenderMetricsEnabled() {
+    return renderRecorder != null;
+  }
+
+  @Override
+  public RenderMetrics getRenderMetrics() {
+    return renderMetrics;
+  }
+
+  @Override
+  public void setRenderMetricsOverlayVisible(boolean newValue) {
+    isRenderMetricsOverlayVisible = newValue;
+    repaint();
+  }
+
+  @Override
+  public boolean isRenderMetricsOverlayVisible() {
+    return isRenderMetricsOverlayVisible;
+  }
+
+  @Override
+  public void addRenderMetricsListener(RenderMetricsListener l) {
+    listenerList.add(RenderMetricsListener.class, l);
+  }
+
+  @Override
+  public void removeRenderMetricsListener(RenderMetricsListener l) {
+    listenerList.remove(RenderMetricsListener.class, l);
+  }
+
+  /** Notifies all render metrics listeners that a frame has been recorded. */
+  protected void fireFrameRendered(RenderMetrics metrics) {
+    if (listenerList.getListenerCount() > 0) {
+      RenderMetricsEvent event = null;
+      Object[] listeners = listenerList.getListenerList();
+      for (int i = listeners.length - 2; i >= 0; i -= 2) {
+        if (listeners[i] == RenderMetricsListener.class) {
+          if (event == null) {
+            event = new RenderMetricsEvent(this, metrics);
+          }
+          ((RenderMetricsListener) listeners[i + 1]).frameRendered(event);
+        }
+      }
+    }
+  }
+
   /**
    * Notify all listenerList that have registered interest for notification on this event type. Also
    * notify listeners who listen for {@link EditableComponent#SELECTION_EMPTY_PROPERTY}.
@@ -1339,34 +1500,8 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     }
     clearSelection();
     getDrawing().removeAll(deletedFigures);
-    getDrawing().fireUndoableEditHappened(new AbstractUndoableEdit() {
-      private static final long serialVersionUID = 1L;
-
-      @Override
-      public String getPresentationName() {
-        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
-        return labels.getString("edit.delete.text");
-      }
-
-      @Override
-      public void undo() throws CannotUndoException {
-        super.undo();
-        clearSelection();
-        Drawing d = getDrawing();
-        for (int i = 0; i < deletedFigureIndices.length; i++) {
-          d.add(deletedFigureIndices[i], deletedFigures.get(i));
-        }
-        addToSelection(deletedFigures);
-      }
-
-      @Override
-      public void redo() throws CannotRedoException {
-        super.redo();
-        for (int i = 0; i < deletedFigureIndices.length; i++) {
-          drawing.remove(deletedFigures.get(i));
-        }
-      }
-    });
+    getDrawing().fireUndoableEditHappened(
+        new DeleteEdit(this, deletedFigures, deletedFigureIndices));
   }
 
   @Override
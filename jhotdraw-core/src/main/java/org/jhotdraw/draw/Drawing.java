@@ -336,6 +336,18 @@ public interface Drawing {
   /** Sets the font render context used to do text layout and text drawing. */
   void setFontRenderContext(FontRenderContext frc);
 
+  /**
+   * Returns the store which shares the images of the figures of the drawing. Image holder figures
+   * add their image to this store, when they are added to the drawing.
+   *
+   * <p>This default implementation returns null, and the figures keep their own images.
+   *
+   * @return the image store, or null if the drawing does not share images
+   */
+  default ImageStore getImageStore() {
+    return null;
+  }
+
   /** Adds a listener for this composite figure. */
   public void addDrawingListener(DrawingListener listener);
 
@@ -23,6 +23,7 @@ import java.util.Set;
 import javax.swing.JComponent;
 import org.jhotdraw.draw.constrainer.Constrainer;
 import org.jhotdraw.draw.event.FigureSelectionListener;
+import org.jhotdraw.draw.event.RenderMetricsListener;
 import org.jhotdraw.draw.figure.CompositeFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.handle.Handle;
@@ -404,4 +405,42 @@ public interface DrawingView {
   public void addMouseWheelListener(MouseWheelListener l);
 
   public void removeMouseWheelListener(MouseWheelListener l);
+
+  /**
+   * Enables or disables the recording of {@link RenderMetrics} for each painted frame. Recording is
+   * disabled by default, and does not cost anything while disabled. Drawing views which do not
+   * support recording ignore this.
+   */
+  public default void setRenderMetricsEnabled(boolean newValue) {}
+
+  /** Returns true, if render metrics are recorded. */
+  public default boolean isRenderMetricsEnabled() {
+    return false;
+  }
+
+  /**
+   * Returns the render metrics of the most recently painted frame.
+   *
+   * @return the metrics, or null if no frame has been recorded
+   */
+  public default RenderMetrics getRenderMetrics() {
+    return null;
+  }
+
+  /**
+   * Shows or hides an overlay with the render metrics of the most recently painted frame. The
+   * overlay is only shown, while render metrics are recorded.
+   */
+  public default void setRenderMetricsOverlayVisible(boolean newValue) {}
+
+  /** Returns true, if the render metrics overlay is visible. */
+  public default boolean isRenderMetricsOverlayVisible() {
+    return false;
+  }
+
+  /** Adds a listener, which is notified each time a frame has been recorded. */
+  public default void addRenderMetricsListener(RenderMetricsListener l) {}
+
+  /** Removes a render metrics listener. */
+  public default void removeRenderMetricsListener(RenderMetricsListener l) {}
 }
@@ -0,0 +1,379 @@
+/*
+ * @(#)FigureProfiler.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.InputFormat;
+
+/**
+ * A {@link RenderRecorder} which profiles the {@code draw} method of each figure class.
+ *
+ * <p>The profiler times every figure which is drawn, including the children of composite figures,
+ * and aggregates the times by the concrete class of the figures. For each class, it records the
+ * number of draws, the total time and the self time (the total time minus the time spent drawing
+ * children), the longest draw, and the number of bytes allocated while drawing. Allocations are
+ * measured with {@code com.sun.management.ThreadMXBean}, which is looked up reflectively; on a
+ * virtual machine which does not support this, the allocated bytes are reported as 0.
+ *
+ * <p>The profiler accumulates the figures of all frames until it is {@link #reset}. It can be used
+ * with a drawing view, see {@link DefaultDrawingView#setRenderRecorder}, or headless with {@link
+ * #profile}. Run {@code java org.jhotdraw.draw.FigureProfiler} for the command line usage.
+ *
+ * <p>If figures of the same class are nested, the total time of the outer figure includes the
+ * total time of the inner figure, and is counted for the class twice. The self times always add up.
+ */
+public class FigureProfiler extends RenderRecorder {
+
+  /** The columns by which the report can be sorted. */
+  public enum SortKey {
+    SELF_TIME(Comparator.comparingLong(Entry::getSelfNanos).reversed()),
+    TOTAL_TIME(Comparator.comparingLong(Entry::getTotalNanos).reversed()),
+    MEAN_TIME(Comparator.comparingLong(Entry::getMeanNanos).reversed()),
+    MAX_TIME(Comparator.comparingLong(Entry::getMaxNanos).reversed()),
+    COUNT(Comparator.comparingLong(Entry::getDrawCount).reversed()),
+    ALLOCATION(Comparator.comparingLong(Entry::getSelfAllocatedBytes).reversed()),
+    CLASS(Comparator.comparing(e -> e.getFigureClass().getName()));
+
+    private final Comparator<Entry> comparator;
+
+    private SortKey(Comparator<Entry> comparator) {
+      this.comparator = comparator;
+    }
+
+    /** Returns the comparator, which sorts the entries of the report by this key. */
+    public Comparator<Entry> getComparator() {
+      return comparator;
+    }
+  }
+
+  /** The profile of a figure class. */
+  public static final class Entry {
+
+    private final Class<?> figureClass;
+    private long drawCount;
+    private long totalNanos;
+    private long selfNanos;
+    private long maxNanos;
+    private long totalAllocatedBytes;
+    private long selfAllocatedBytes;
+
+    private Entry(Class<?> figureClass) {
+      this.figureClass = figureClass;
+    }
+
+    private Entry(Entry that) {
+      this.figureClass = that.figureClass;
+      this.drawCount = that.drawCount;
+      this.totalNanos = that.totalNanos;
+      this.selfNanos = that.selfNanos;
+      this.maxNanos = that.maxNanos;
+      this.totalAllocatedBytes = that.totalAllocatedBytes;
+      this.selfAllocatedBytes = that.selfAllocatedBytes;
+    }
+
+    public Class<?> getFigureClass() {
+      return figureClass;
+    }
+
+    /** Returns the number of times a figure of the class has been drawn. */
+    public long getDrawCount() {
+      return drawCount;
+    }
+
+    /** Returns the time spent drawing figures of the class, including their children. */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /** Returns the time spent drawing figures of the class, excluding their children. */
+    public long getSelfNanos() {
+      return selfNanos;
+    }
+
+    /** Returns the mean self time of a draw. */
+    public long getMeanNanos() {
+      return (drawCount == 0) ? 0 : selfNanos / drawCount;
+    }
+
+    /** Returns the longest time a single figure of the class took to draw. */
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /** Returns the bytes allocated while drawing figures of the class, including their children. */
+    public long getTotalAllocatedBytes() {
+      return totalAllocatedBytes;
+    }
+
+    /** Returns the bytes allocated while drawing figures of the class, excluding their children. */
+    public long getSelfAllocatedBytes() {
+      return selfAllocatedBytes;
+    }
+  }
+
+  /** Measures the allocations of the current thread, or null if this is not supported. */
+  private static final ThreadMXBean ALLOCATION_BEAN;
+
+  /**
+   * Invokes {@code getCurrentThreadAllocatedBytes} on {@link #ALLOCATION_BEAN}, or null if this
+   * is not supported.
+   */
+  private static final MethodHandle ALLOCATED_BYTES;
+
+  static {
+    ThreadMXBean bean = null;
+    MethodHandle allocatedBytes = null;
+    try {
+      bean = ManagementFactory.getThreadMXBean();
+      Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+      if (type.isInstance(bean)
+          && (Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) {
+        type.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+        MethodType returnsLong = MethodType.methodType(long.class);
+        allocatedBytes =
+            MethodHandles.publicLookup()
+                .findVirtual(type, "getCurrentThreadAllocatedBytes", returnsLong)
+                .asType(returnsLong.insertParameterTypes(0, ThreadMXBean.class));
+      }
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      // allocation tracking is optional
+      allocatedBytes = null;
+    }
+    ALLOCATION_BEAN = (allocatedBytes == null) ? null : bean;
+    ALLOCATED_BYTES = allocatedBytes;
+  }
+
+  private final HashMap<Class<?>, Entry> entries = new HashMap<>();
+
+  /**
+   * The allocated bytes at the start of the draw, the time and the allocated bytes of the children,
+   * indexed by the depth of the figure which is being drawn.
+   */
+  private long[] startBytes = new long[8];
+
+  private long[] childNanos = new long[9];
+  private long[] childBytes = new long[9];
+
+  /** Returns true, if the virtual machine supports measuring the allocated bytes. */
+  public static boolean isAllocationTrackingSupported() {
+    return ALLOCATION_BEAN != null;
+  }
+
+  private static long allocatedBytes() {
+    if (ALLOCATION_BEAN == null) {
+      return 0L;
+    }
+    try {
+      // invokeExact does not box the result, so that it does not allocate itself
+      return (long) ALLOCATED_BYTES.invokeExact(ALLOCATION_BEAN);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void draw(Figure f, Graphics2D g) {
+    int depth = getDepth();
+    if (depth + 1 >= childNanos.length) {
+      startBytes = Arrays.copyOf(startBytes, depth * 2 + 2);
+      childNanos = Arrays.copyOf(childNanos, depth * 2 + 3);
+      childBytes = Arrays.copyOf(childBytes, depth * 2 + 3);
+    }
+    childNanos[depth + 1] = 0;
+    childBytes[depth + 1] = 0;
+    startBytes[depth] = allocatedBytes();
+    super.draw(f, g);
+  }
+
+  @Override
+  protected void figureDrawn(Figure f, long nanos) {
+    int depth = getDepth();
+    long bytes = allocatedBytes() - startBytes[depth];
+    Entry entry = entries.get(f.getClass());
+    if (entry == null) {
+      entries.put(f.getClass(), entry = new Entry(f.getClass()));
+    }
+    entry.drawCount++;
+    entry.totalNanos += nanos;
+    entry.selfNanos += nanos - childNanos[depth + 1];
+    entry.maxNanos = Math.max(entry.maxNanos, nanos);
+    entry.totalAllocatedBytes += bytes;
+    entry.selfAllocatedBytes += bytes - childBytes[depth + 1];
+    childNanos[depth] += nanos;
+    childBytes[depth] += bytes;
+    super.figureDrawn(f, nanos);
+  }
+
+  /** Discards the profiles of all figure classes. */
+  public void reset() {
+    entries.clear();
+  }
+
+  /**
+   * Returns a snapshot of the profiles of the figure classes.
+   *
+   * @param sortKey the order of the entries
+   */
+  public List<Entry> getEntries(SortKey sortKey) {
+    List<Entry> list = new ArrayList<>(entries.size());
+    for (Entry entry : entries.values()) {
+      list.add(new Entry(entry));
+    }
+    list.sort(sortKey.getComparator());
+    return list;
+  }
+
+  /**
+   * Returns the profiles of the figure classes as a table of text.
+   *
+   * @param sortKey the order of the rows
+   */
+  public String getReport(SortKey sortKey) {
+    List<Entry> list = getEntries(sortKey);
+    int nameWidth = 6;
+    for (Entry entry : list) {
+      nameWidth = Math.max(nameWidth, entry.getFigureClass().getSimpleName().length());
+    }
+    String format = "%-" + nameWidth + "s %9s %11s %11s %10s %10s %12s %12s%n";
+    StringBuilder buf = new StringBuilder();
+    buf.append(String.format(
+        Locale.ENGLISH,
+        format,
+        "figure",
+        "draws",
+        "self ms",
+        "total ms",
+        "mean us",
+        "max us",
+        "self bytes",
+        "total bytes"));
+    for (Entry entry : list) {
+      buf.append(String.format(
+          Locale.ENGLISH,
+          format,
+          entry.getFigureClass().getSimpleName(),
+          entry.getDrawCount(),
+          String.format(Locale.ENGLISH, "%.3f", entry.getSelfNanos() / 1e6),
+          String.format(Locale.ENGLISH, "%.3f", entry.getTotalNanos() / 1e6),
+          String.format(Locale.ENGLISH, "%.1f", entry.getMeanNanos() / 1e3),
+          String.format(Locale.ENGLISH, "%.1f", entry.getMaxNanos() / 1e3),
+          entry.getSelfAllocatedBytes(),
+          entry.getTotalAllocatedBytes()));
+    }
+    if (!isAllocationTrackingSupported()) {
+      buf.append("(allocation tracking is not supported by this virtual machine)\n");
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Draws a drawing repeatedly into an image, and profiles the figures. The image covers the
+   * drawing area of the drawing, at most {@code maxSize} pixels wide and high. All figures are
+   * drawn in each frame. Nothing is displayed, so this can be done headless.
+   *
+   * @param drawing the drawing
+   * @param warmupFrames the number of frames which are drawn before profiling, so that the code is
+   *     compiled and the caches are filled
+   * @param frames the number of frames which are profiled
+   * @param maxSize the maximal width and height of the image
+   * @return the profiler
+   */
+  public static FigureProfiler profile(
+      Drawing drawing, int warmupFrames, int frames, int maxSize) {
+    Rectangle2D.Double area = drawing.getDrawingArea();
+    double scale = 1;
+    if (area.width > maxSize || area.height > maxSize) {
+      scale = maxSize / Math.max(area.width, area.height);
+    }
+    int width = Math.max(1, (int) Math.ceil(area.width * scale));
+    int height = Math.max(1, (int) Math.ceil(area.height * scale));
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    FigureProfiler profiler = new FigureProfiler();
+    for (int i = 0; i < warmupFrames + frames; i++) {
+      if (i == warmupFrames) {
+        profiler.reset();
+      }
+      Graphics2D g = image.createGraphics();
+      try {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(
+            RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.scale(scale, scale);
+        g.translate(-area.x, -area.y);
+        g.setClip(area);
+        profiler.install(g);
+        profiler.beginFrame();
+        drawing.draw(g);
+        profiler.endPhase(RenderMetrics.Phase.DRAWING);
+        profiler.endFrame();
+      } finally {
+        g.dispose();
+      }
+    }
+    return profiler;
+  }
+
+  /**
+   * Profiles a drawing file from the command line.
+   *
+   * <p>Usage: {@code FigureProfiler <input format class> <file> [frames [sort key]]}. The input
+   * format must have a public no-argument constructor. The sort key is one of the {@link SortKey}
+   * names.
+   */
+  public static void main(String[] args) throws IOException, ReflectiveOperationException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: FigureProfiler <input format class> <file> [frames [" + sortKeyNames() + "]]");
+      System.exit(1);
+    }
+    System.setProperty("java.awt.headless", "true");
+    InputFormat format =
+        (InputFormat) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+    int frames = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+    SortKey sortKey =
+        (args.length > 3)
+            ? SortKey.valueOf(args[3].toUpperCase(Locale.ENGLISH))
+            : SortKey.SELF_TIME;
+    Drawing drawing = new DefaultDrawing();
+    format.read(new File(args[1]), drawing);
+    FigureProfiler profiler = profile(drawing, frames, frames, 4096);
+    System.out.printf(
+        Locale.ENGLISH, "%s: %d figures, %d frames%n", args[1], drawing.getChildCount(), frames);
+    System.out.print(profiler.getReport(sortKey));
+  }
+
+  private static String sortKeyNames() {
+    StringBuilder buf = new StringBuilder();
+    for (SortKey key : SortKey.values()) {
+      if (buf.length() > 0) {
+        buf.append('|');
+      }
+      buf.append(key.name().toLowerCase(Locale.ENGLISH));
+    }
+    return buf.toString();
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * @(#)ImageStore.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javax.imageio.ImageIO;
+import org.jhotdraw.draw.figure.ImageHolderFigure;
+
+/**
+ * Shares the images of the {@link ImageHolderFigure}s of a drawing.
+ *
+ * <p>Images are identified by a digest of their data. Image data which is added several times, for
+ * example a logo which has been pasted many times, is stored only once, and all figures which show
+ * it share one {@link Entry}. The pixels of an entry are decoded when they are requested for the
+ * first time, which usually happens when the image is painted. Downsampled variants of the pixels
+ * for painting at small scale factors are created on demand, and are cached with the entry.
+ *
+ * <p>Decoded pixels are evicted in least recently used order, when they exceed the memory budget
+ * of the store. The image data stays in memory, so an evicted image is decoded again when it is
+ * needed. Entries which have been created from pixels without image data are never evicted.
+ *
+ * <p>The store references entries weakly, they are discarded when no figure uses them anymore and
+ * their pixels have been evicted. All methods are thread safe.
+ *
+ * @see Drawing#getImageStore
+ */
+public class ImageStore {
+
+  /** The default memory budget for decoded pixels: 64 MB. */
+  public static final long DEFAULT_MAX_DECODED_BYTES = 64L << 20;
+
+  /** Entries with image data by digest. */
+  private final HashMap<ByteBuffer, EntryReference> entries = new HashMap<>();
+
+  private final ReferenceQueue<Entry> queue = new ReferenceQueue<>();
+
+  /** Entries with decoded pixels in least recently used order. */
+  private final LinkedHashMap<Entry, Boolean> decoded = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long decodedBytes;
+  private long maxDecodedBytes;
+
+  private static class EntryReference extends WeakReference<Entry> {
+
+    final ByteBuffer key;
+
+    EntryReference(Entry entry, ByteBuffer key, ReferenceQueue<Entry> queue) {
+      super(entry, queue);
+      this.key = key;
+    }
+  }
+
+  /** Creates a store with a memory budget of {@link #DEFAULT_MAX_DECODED_BYTES}. */
+  public ImageStore() {
+    this(DEFAULT_MAX_DECODED_BYTES);
+  }
+
+  /**
+   * Creates a store.
+   *
+   * @param maxDecodedBytes the memory budget for decoded pixels
+   */
+  public ImageStore(long maxDecodedBytes) {
+    this.maxDecodedBytes = maxDecodedBytes;
+  }
+
+  /**
+   * Creates an entry which does not belong to a store. Figures which are not part of a drawing use
+   * such entries. They are never evicted, and they are added to the store of the drawing with
+   * {@link #add(Entry)} when the figure is added to a drawing.
+   *
+   * @param data the image data, or null if the image has been created from pixels
+   * @param image the decoded pixels, or null if they have not been decoded yet
+   */
+  public static Entry createEntry(byte[] data, BufferedImage image) {
+    if (data == null && image == null) {
+      throw new IllegalArgumentException("data and image are null");
+    }
+    return new Entry(null, data, image);
+  }
+
+  /**
+   * Returns the entry of this store for the specified image data. If the store already has an
+   * entry with the same data, that entry is returned.
+   *
+   * <p>Note: The store keeps a reference to the data array. Do not modify the array after invoking
+   * this method.
+   */
+  public Entry add(byte[] data) {
+    return add(data, null);
+  }
+
+  /**
+   * Returns the entry of this store for the image of the specified entry. If the entry has image
+   * data, and the store already has an entry with the same data, that entry is returned. Pixels
+   * which have already been decoded are taken over.
+   */
+  public Entry add(Entry entry) {
+    if (entry.store == this) {
+      return entry;
+    }
+    byte[] data;
+    BufferedImage image;
+    synchronized (entry.getLock()) {
+      data = entry.data;
+      image = entry.image;
+    }
+    if (data == null) {
+      return new Entry(this, null, image);
+    }
+    return add(data, image);
+  }
+
+  private synchronized Entry add(byte[] data, BufferedImage image) {
+    expungeStaleEntries();
+    ByteBuffer key = ByteBuffer.wrap(digest(data));
+    EntryReference ref = entries.get(key);
+    Entry entry = (ref == null) ? null : ref.get();
+    if (entry == null) {
+      entry = new Entry(this, data, null);
+      entries.put(key, new EntryReference(entry, key, queue));
+    }
+    if (image != null && entry.image == null) {
+      entry.setImage(image);
+    }
+    return entry;
+  }
+
+  private static byte[] digest(byte[] data) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(data);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new InternalError("SHA-256 is not supported", ex);
+    }
+  }
+
+  private void expungeStaleEntries() {
+    for (EntryReference ref; (ref = (EntryReference) queue.poll()) != null; ) {
+      if (entries.get(ref.key) == ref) {
+        entries.remove(ref.key);
+      }
+    }
+  }
+
+  /** Returns the number of entries with image data in the store. */
+  public synchronized int size() {
+    expungeStaleEntries();
+    return entries.size();
+  }
+
+  /** Returns the number of bytes of decoded pixels of the entries with image data. */
+  public synchronized long getDecodedBytes() {
+    return decodedBytes;
+  }
+
+  /** Returns the memory budget for decoded pixels. */
+  public synchronized long getMaxDecodedBytes() {
+    return maxDecodedBytes;
+  }
+
+  /** Sets the memory budget for decoded pixels, and evicts pixels if necessary. */
+  public synchronized void setMaxDecodedBytes(long newValue) {
+    maxDecodedBytes = newValue;
+    evict(null);
+  }
+
+  /** Evicts the least recently used pixels until the decoded bytes are within the budget. */
+  private void evict(Entry keep) {
+    for (Iterator<Entry> i = decoded.keySet().iterator();
+        decodedBytes > maxDecodedBytes && i.hasNext(); ) {
+      Entry entry = i.next();
+      if (entry != keep) {
+        decodedBytes -= entry.decodedBytes;
+        entry.release();
+        i.remove();
+      }
+    }
+  }
+
+  /** Returns the number of bytes of the pixels of an image. */
+  private static long sizeOf(BufferedImage image) {
+    return (long) image.getWidth() * image.getHeight() * 4;
+  }
+
+  /**
+   * An image of a store. An entry holds the image data and the decoded pixels of an image, and
+   * downsampled variants of the pixels.
+   */
+  public static class Entry {
+
+    private final ImageStore store;
+
+    /** The image data. This is null, if the entry has been created from pixels. */
+    private byte[] data;
+
+    /** The decoded pixels. This is null, if they have not been decoded or have been evicted. */
+    private BufferedImage image;
+
+    /** Downsampled variants. Element k is downsampled by the factor 2^(k+1). */
+    private final ArrayList<BufferedImage> variants = new ArrayList<>();
+
+    /** The number of bytes of the pixels and variants which are accounted in the store. */
+    private long decodedBytes;
+
+    /** Set to true, if the image data can not be decoded. */
+    private boolean isBroken;
+
+    /**
+     * Held while the image data is decoded, so that concurrent requests for the same entry decode
+     * it only once, while the lock of the store stays available to other entries.
+     */
+    private final Object decodeLock = new Object();
+
+    private Entry(ImageStore store, byte[] data, BufferedImage image) {
+      this.store = store;
+      this.data = data;
+      this.image = image;
+    }
+
+    private Object getLock() {
+      return (store == null) ? this : store;
+    }
+
+    /**
+     * Gets the image data. If necessary, this method creates the image data from the pixels in
+     * PNG format.
+     *
+     * <p>Note: For performance reasons this method returns a reference to the internally used
+     * image data array instead of cloning it. Do not modify this array.
+     *
+     * @return the image data, or null if it can not be created
+     */
+    public byte[] getData() {
+      synchronized (getLock()) {
+        if (data == null && image != null) {
+          try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            ImageIO.write(image, "PNG", bout);
+            data = bout.toByteArray();
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }
+        return data;
+      }
+    }
+
+    /**
+     * Gets the pixels of the image. If necessary, this method decodes the image data.
+     *
+     * @return the pixels, or null if the image data can not be decoded
+     */
+    public BufferedImage getImage() {
+      synchronized (getLock()) {
+        if (image != null || data == null || isBroken) {
+          touch();
+          return image;
+        }
+      }
+      synchronized (decodeLock) {
+        byte[] d;
+        synchronized (getLock()) {
+          // Another thread may have decoded the image while we were waiting
+          if (image != null || isBroken) {
+            touch();
+            return image;
+          }
+          d = data;
+        }
+        BufferedImage decodedImage = null;
+        try {
+          decodedImage = ImageIO.read(new ByteArrayInputStream(d));
+          if (decodedImage == null) {
+            throw new IOException("Unsupported image format");
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        synchronized (getLock()) {
+          if (decodedImage == null) {
+            // If we can't create the pixels from the image data,
+            // there is no use to try again.
+            isBroken = true;
+          } else if (image == null) {
+            setImage(decodedImage);
+          }
+          return image;
+        }
+      }
+    }
+
+    /**
+     * Gets the pixels of the image for painting at the specified scale. If the image is painted at
+     * half of its size or less, this method returns a downsampled variant of the pixels.
+     *
+     * @param scale the number of device pixels per image pixel
+     * @return the pixels, or null if the image data can not be decoded
+     */
+    public BufferedImage getImage(double scale) {
+      BufferedImage full = getImage();
+      if (full == null || !(scale > 0)) {
+        return full;
+      }
+      synchronized (getLock()) {
+        if (image != full) {
+          // The pixels have been evicted in the meantime
+          return full;
+        }
+        // The smallest variant which is not smaller than the painted image
+        int level = 0;
+        for (double s = scale * 2; s <= 1 && level < 30; s *= 2) {
+          level++;
+        }
+        BufferedImage variant = full;
+        for (int k = 0; k < level; k++) {
+          if (k < variants.size()) {
+            variant = variants.get(k);
+          } else {
+            if (variant.getWidth() < 2 || variant.getHeight() < 2) {
+              break;
+            }
+            variant = halve(variant);
+            variants.add(variant);
+            account(sizeOf(variant));
+          }
+        }
+        return variant;
+      }
+    }
+
+    /** Returns true, if the pixels of the image are in memory. */
+    public boolean isDecoded() {
+      synchronized (getLock()) {
+        return image != null;
+      }
+    }
+
+    private void setImage(BufferedImage newValue) {
+      image = newValue;
+      account(sizeOf(newValue));
+    }
+
+    /** Adds decoded bytes to the store, and evicts other entries if necessary. */
+    private void account(long bytes) {
+      if (store != null && data != null) {
+        decodedBytes += bytes;
+        store.decodedBytes += bytes;
+        store.decoded.put(this, Boolean.TRUE);
+        store.evict(this);
+      }
+    }
+
+    private void touch() {
+      if (store != null && image != null && data != null) {
+        store.decoded.get(this);
+      }
+    }
+
+    /** Discards the pixels. This is only invoked by the store. */
+    private void release() {
+      image = null;
+      variants.clear();
+      decodedBytes = 0;
+    }
+
+    /** Scales an image down to half of its size with bilinear interpolation. */
+    private static BufferedImage halve(BufferedImage src) {
+      BufferedImage dst =
+          new BufferedImage(
+              Math.max(1, src.getWidth() / 2),
+              Math.max(1, src.getHeight() / 2),
+              BufferedImage.TYPE_INT_ARGB_PRE);
+      Graphics2D g = dst.createGraphics();
+      g.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(src, 0, 0, dst.getWidth(), dst.getHeight(), null);
+      g.dispose();
+      return dst;
+    }
+  }
+}
@@ -0,0 +1,1039 @@
+/*
+ * @(#)PagedDrawing.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Graphics2D;
+import java.awt.datatransfer.Transferable;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.undo.UndoableEdit;
+import org.jhotdraw.draw.event.FigureEvent;
+import org.jhotdraw.draw.event.FigureSelectionEvent;
+import org.jhotdraw.draw.event.FigureSelectionListener;
+import org.jhotdraw.draw.figure.ConnectionFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.InputFormat;
+import org.jhotdraw.draw.io.OutputFormat;
+import org.jhotdraw.draw.io.PageStore;
+import org.jhotdraw.geom.QuadTree;
+
+/**
+ * A {@link QuadTreeDrawing} which keeps its figures in pages of a {@link PageStore}, and only holds
+ * the pages in memory which are needed.
+ *
+ * <p>The drawing is divided into a grid of square pages. A figure belongs to the page which
+ * contains the center of its drawing area. A page is loaded when it is touched by {@code draw} or
+ * by one of the {@code find} methods, and its figures become children of the drawing. When more
+ * than {@link #getMaxLoadedFigures} figures are loaded, the least recently used pages are evicted
+ * again.
+ *
+ * <p>A page is not evicted while it holds figures which are selected in a view, figures which have
+ * been changed since the last undoable edit was fired, or figures which are referenced by an
+ * undoable edit that is still reachable. The drawing learns about the selection of a view, when it
+ * is registered as a {@link FigureSelectionListener} with the view. Other pages which have been
+ * changed are written back to the store before they are evicted. {@link #save} writes all changed
+ * pages. Connection figures and the figures which they connect are kept in a resident page, which
+ * is never evicted, so that figures on different pages do not refer to each other.
+ *
+ * <p>Each figure has a z-order rank. Loaded figures are inserted among the children according to
+ * their rank, so that the z-order does not depend on the order in which pages are loaded. The ranks
+ * are written to the store with the pages, see {@link PageStore#setRanks}. If the store has no
+ * ranks, pages which have not been loaded yet are ordered by their keys.
+ *
+ * <p>Methods which do not take a region, such as {@link #getChildren()}, only see the figures which
+ * are currently loaded. Evicted figures are detached from the drawing. The output formats of the
+ * drawing load all pages before they write the drawing, and evict them again afterwards.
+ */
+public class PagedDrawing extends QuadTreeDrawing implements FigureSelectionListener {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The key of the page which holds the connection figures and the figures which they connect. */
+  public static final long RESIDENT_PAGE = Long.MIN_VALUE;
+
+  public static final double DEFAULT_PAGE_SIZE = 1024;
+  public static final int DEFAULT_MAX_LOADED_FIGURES = 100_000;
+
+  private final transient PageStore store;
+  private final double pageSize;
+  private int maxLoadedFigures = DEFAULT_MAX_LOADED_FIGURES;
+
+  /** All pages by key. */
+  private final HashMap<Long, Page> pages = new HashMap<>();
+
+  /** The pages which have bounds, except the resident page. */
+  private final QuadTree<Page> pageTree = new QuadTree<>();
+
+  /** The loaded pages in least recently used order. */
+  private final LinkedHashMap<Long, Page> loadedPages = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final IdentityHashMap<Figure, Page> figurePages = new IdentityHashMap<>();
+  private int loadedFigureCount;
+
+  /** The z-order ranks of the loaded figures. */
+  private final IdentityHashMap<Figure, Double> ranks = new IdentityHashMap<>();
+
+  /** The smallest and the largest rank which have been assigned. */
+  private double bottomRank;
+
+  private double topRank;
+
+  /** The pages which have been changed since the last undoable edit was fired. */
+  private final LinkedHashSet<Page> touchedPages = new LinkedHashSet<>();
+
+  /** The views which have reported a selection change. */
+  private final transient Set<DrawingView> views =
+      Collections.newSetFromMap(new WeakHashMap<>());
+
+  /** This is set to true while figures are added or removed by loading and evicting pages. */
+  private boolean isPaging;
+
+  /** This is set to true while an output format writes the drawing with all pages loaded. */
+  private boolean isWritingAllPages;
+
+  private static class Page {
+
+    final long key;
+
+    /** The union of the drawing areas of the figures, or null if the page has no figures. */
+    Rectangle2D.Double bounds;
+
+    /**
+     * The figures, or null if the page is not loaded. When the page has been written, they are
+     * in the order of the store.
+     */
+    LinkedHashSet<Figure> figures;
+
+    /**
+     * The ranks of the figures in the order of the store, or null if the page has not been loaded
+     * yet. In this case the figures are ranked evenly between {@code base} and {@code base + 1}.
+     */
+    double[] ranks;
+
+    double base;
+
+    /** Set to true when the figures have changed since the page was written. */
+    boolean isDirty;
+
+    /** Set to true when the ranks have been renumbered since they were written. */
+    boolean isRankDirty;
+
+    /** The undoable edits which have been fired after the page had been changed. */
+    final ArrayList<WeakReference<UndoableEdit>> edits = new ArrayList<>();
+
+    Page(long key, Rectangle2D.Double bounds) {
+      this.key = key;
+      this.bounds = bounds;
+    }
+  }
+
+  /** Creates a drawing with the default page size, which holds the pages of the specified store. */
+  public PagedDrawing(PageStore store) throws IOException {
+    this(store, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a drawing with the specified page size, which holds the pages of the specified store.
+   */
+  public PagedDrawing(PageStore store, double pageSize) throws IOException {
+    this.store = store;
+    this.pageSize = pageSize;
+    Map<Long, Rectangle2D.Double> storedPages = store.getPages();
+    Long[] keys = storedPages.keySet().toArray(new Long[0]);
+    Arrays.sort(keys);
+    for (Long key : keys) {
+      Page page = new Page(key, storedPages.get(key));
+      page.ranks = store.getRanks(key);
+      if (page.ranks != null) {
+        for (double rank : page.ranks) {
+          bottomRank = Math.min(bottomRank, rank);
+          topRank = Math.max(topRank, rank);
+        }
+      }
+      pages.put(page.key, page);
+      if (page.key != RESIDENT_PAGE && page.bounds != null) {
+        pageTree.add(page, (Rectangle2D.Double) page.bounds.clone());
+      }
+    }
+    // Pages without ranks are ordered by their keys, in front of the pages with ranks
+    for (Long key : keys) {
+      Page page = pages.get(key);
+      if (page.ranks == null) {
+        page.base = topRank++;
+      }
+    }
+    try {
+      getPage(RESIDENT_PAGE);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  public double getPageSize() {
+    return pageSize;
+  }
+
+  public int getMaxLoadedFigures() {
+    return maxLoadedFigures;
+  }
+
+  /**
+   * Sets the number of figures which may be loaded before pages are evicted. Changed pages and the
+   * resident page are not evicted, and can exceed this number.
+   */
+  public void setMaxLoadedFigures(int newValue) {
+    maxLoadedFigures = newValue;
+    evictPages(Collections.emptySet());
+  }
+
+  /** Returns the number of figures which are currently loaded. */
+  public int getLoadedFigureCount() {
+    return loadedFigureCount;
+  }
+
+  /** Returns the number of pages. */
+  public int getPageCount() {
+    return pages.size();
+  }
+
+  /** Returns the number of pages which are currently loaded. */
+  public int getLoadedPageCount() {
+    return loadedPages.size();
+  }
+
+  /**
+   * Writes the pages which have been changed to the store. Pages which have been changed without
+   * firing an undoable edit can be evicted afterwards.
+   */
+  public void save() throws IOException {
+    for (Page page : new ArrayList<>(loadedPages.values())) {
+      if (page.isDirty) {
+        write(page);
+      }
+    }
+    for (Page page : new ArrayList<>(pages.values())) {
+      if (page.isRankDirty) {
+        writeRanks(page);
+      }
+    }
+    store.flush();
+    touchedPages.clear();
+    evictPages(Collections.emptySet());
+  }
+
+  /** Writes the figures of a loaded page to the store in z-order. */
+  private void write(Page page) throws IOException {
+    List<Figure> figures = new ArrayList<>(page.figures);
+    figures.sort(Comparator.comparingDouble(this::getRank));
+    Rectangle2D.Double bounds = null;
+    for (Figure f : figures) {
+      if (bounds == null) {
+        bounds = f.getDrawingArea();
+      } else {
+        bounds.add(f.getDrawingArea());
+      }
+    }
+    store.writePage(page.key, figures, bounds);
+    if (!figures.isEmpty()) {
+      double[] figureRanks = new double[figures.size()];
+      for (int i = 0; i < figureRanks.length; i++) {
+        figureRanks[i] = getRank(figures.get(i));
+      }
+      store.setRanks(page.key, figureRanks);
+    }
+    page.figures = new LinkedHashSet<>(figures);
+    page.isDirty = false;
+    page.isRankDirty = false;
+    setBounds(page, bounds);
+    if (bounds == null && page.key != RESIDENT_PAGE) {
+      pages.remove(page.key);
+      loadedPages.remove(page.key);
+      touchedPages.remove(page);
+    }
+  }
+
+  /** Writes the ranks of a page whose figures have not changed, but whose ranks have changed. */
+  private void writeRanks(Page page) throws IOException {
+    double[] figureRanks;
+    if (page.figures != null) {
+      figureRanks = new double[page.figures.size()];
+      int i = 0;
+      for (Figure f : page.figures) {
+        figureRanks[i++] = getRank(f);
+      }
+    } else if (page.ranks != null) {
+      figureRanks = page.ranks;
+    } else {
+      figureRanks = createRanks(page, store.readPage(page.key).size());
+    }
+    if (figureRanks.length > 0) {
+      store.setRanks(page.key, figureRanks);
+    }
+    page.isRankDirty = false;
+  }
+
+  /** Returns evenly spaced ranks for the figures of a page whose ranks are not known. */
+  private static double[] createRanks(Page page, int n) {
+    double[] figureRanks = new double[n];
+    for (int i = 0; i < n; i++) {
+      figureRanks[i] = page.base + (i + 1.0) / (n + 1);
+    }
+    return figureRanks;
+  }
+
+  /** Returns the z-order rank of a loaded figure. */
+  private double getRank(Figure f) {
+    Double rank = ranks.get(f);
+    return (rank == null) ? topRank : rank;
+  }
+
+  /**
+   * Returns the rank for a figure which has been inserted at the specified index of the children.
+   */
+  private double createRank(int index) {
+    if (index >= getChildCount() - 1) {
+      return ++topRank;
+    }
+    if (index == 0) {
+      return --bottomRank;
+    }
+    double lo = getRank(getChild(index - 1));
+    double hi = getRank(getChild(index + 1));
+    double rank = (lo + hi) / 2;
+    if (lo < hi && !(lo < rank && rank < hi)) {
+      // The ranks have become too dense
+      renumberRanks();
+      lo = getRank(getChild(index - 1));
+      hi = getRank(getChild(index + 1));
+      rank = (lo + hi) / 2;
+    }
+    return rank;
+  }
+
+  /** Replaces all ranks by consecutive integers, keeping their order. */
+  private void renumberRanks() {
+    ArrayList<Double> values = new ArrayList<>(ranks.values());
+    for (Page page : pages.values()) {
+      if (page.figures == null) {
+        if (page.ranks != null) {
+          for (double rank : page.ranks) {
+            values.add(rank);
+          }
+        } else {
+          values.add(page.base);
+          values.add(page.base + 1);
+        }
+      }
+    }
+    double[] sorted = new double[values.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = values.get(i);
+    }
+    Arrays.sort(sorted);
+    for (Map.Entry<Figure, Double> entry : ranks.entrySet()) {
+      entry.setValue((double) Arrays.binarySearch(sorted, entry.getValue()));
+    }
+    for (Page page : pages.values()) {
+      if (page.figures == null) {
+        if (page.ranks != null) {
+          for (int i = 0; i < page.ranks.length; i++) {
+            page.ranks[i] = Arrays.binarySearch(sorted, page.ranks[i]);
+          }
+        } else {
+          page.base = Arrays.binarySearch(sorted, page.base);
+        }
+      }
+    }
+    bottomRank = -1;
+    topRank = sorted.length;
+    for (Page page : pages.values()) {
+      page.isRankDirty = true;
+    }
+  }
+
+  /** Returns the key of the page which contains the center of the drawing area of a figure. */
+  private long getPageKey(Figure f) {
+    Rectangle2D.Double r = f.getDrawingArea();
+    int col = (int) Math.floor(r.getCenterX() / pageSize);
+    int row = (int) Math.floor(r.getCenterY() / pageSize);
+    return ((long) col << 32) | (row & 0xffffffffL);
+  }
+
+  /** Returns the page with the specified key, and loads it if needed. */
+  private Page getPage(long key) {
+    Page page = pages.get(key);
+    if (page == null) {
+      page = new Page(key, null);
+      page.figures = new LinkedHashSet<>();
+      pages.put(key, page);
+      loadedPages.put(key, page);
+    } else if (page.figures == null) {
+      load(page);
+    } else {
+      // Updates the least recently used order
+      loadedPages.get(key);
+    }
+    return page;
+  }
+
+  /** Reads the figures of a page, and inserts them among the children according to their ranks. */
+  private void load(Page page) {
+    List<Figure> figures;
+    try {
+      figures = store.readPage(page.key);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    int n = figures.size();
+    if (page.ranks == null || page.ranks.length != n) {
+      page.ranks = createRanks(page, n);
+    }
+    page.figures = new LinkedHashSet<>(figures);
+    loadedPages.put(page.key, page);
+    loadedFigureCount += n;
+    int oldCount = getChildCount();
+    isPaging = true;
+    try {
+      for (int i = 0; i < n; i++) {
+        Figure f = figures.get(i);
+        ranks.put(f, page.ranks[i]);
+        basicAdd(getChildCount(), f);
+        f.addNotify(this);
+        figurePages.put(f, page);
+      }
+    } finally {
+      isPaging = false;
+    }
+    mergeChildren(oldCount);
+    invalidate();
+  }
+
+  /**
+   * Merges the children which have been appended at the specified index with the children before
+   * them, so that all children are in layer and rank order.
+   */
+  private void mergeChildren(int start) {
+    int n = CHILDREN.size();
+    if (start == 0 || start == n) {
+      return;
+    }
+    Comparator<Figure> order =
+        Comparator.comparing(Figure::getLayer).thenComparingDouble(this::getRank);
+    ArrayList<Figure> appended = new ArrayList<>(CHILDREN.subList(start, n));
+    appended.sort(order);
+    ArrayList<Figure> merged = new ArrayList<>(n);
+    int i = 0;
+    int j = 0;
+    while (i < start && j < appended.size()) {
+      if (order.compare(appended.get(j), CHILDREN.get(i)) < 0) {
+        merged.add(appended.get(j++));
+      } else {
+        merged.add(CHILDREN.get(i++));
+      }
+    }
+    merged.addAll(CHILDREN.subList(i, start));
+    merged.addAll(appended.subList(j, appended.size()));
+    for (int k = 0; k < n; k++) {
+      CHILDREN.set(k, merged.get(k));
+    }
+  }
+
+  /** Loads the pages which intersect the specified region, and evicts other pages if needed. */
+  private void ensureLoaded(Collection<Page> touched) {
+    for (Page page : touched) {
+      getPage(page.key);
+    }
+    evictPages(touched);
+  }
+
+  private void ensureLoaded(Rectangle2D.Double r) {
+    ensureLoaded(pageTree.findIntersects(r));
+  }
+
+  private void ensureLoaded(Point2D.Double p) {
+    ensureLoaded(pageTree.findContains(p));
+  }
+
+  /**
+   * Evicts least recently used pages until the number of loaded figures is within the budget.
+   * Changed pages are written back to the store before they are evicted.
+   */
+  private void evictPages(Collection<Page> keep) {
+    if (loadedFigureCount <= maxLoadedFigures || isWritingAllPages) {
+      return;
+    }
+    Set<Figure> selected = getSelectedFigures();
+    Set<Figure> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+    boolean isWritten = false;
+    for (Page page : new ArrayList<>(loadedPages.values())) {
+      if (loadedFigureCount <= maxLoadedFigures) {
+        break;
+      }
+      if (page.key == RESIDENT_PAGE
+          || keep.contains(page)
+          || touchedPages.contains(page)
+          || isReferencedByEdits(page)
+          || !Collections.disjoint(page.figures, selected)) {
+        continue;
+      }
+      if (page.isDirty) {
+        try {
+          write(page);
+        } catch (IOException ex) {
+          Logger.getLogger(PagedDrawing.class.getName())
+              .log(Level.WARNING, "Could not write page " + page.key, ex);
+          continue;
+        }
+        isWritten = true;
+        if (!pages.containsKey(page.key)) {
+          // The page had no figures and has been removed
+          continue;
+        }
+      }
+      loadedPages.remove(page.key);
+      evicted.addAll(page.figures);
+      loadedFigureCount -= page.figures.size();
+      page.ranks = new double[page.figures.size()];
+      int i = 0;
+      for (Figure f : page.figures) {
+        page.ranks[i++] = getRank(f);
+      }
+      page.figures = null;
+      page.edits.clear();
+    }
+    if (!evicted.isEmpty()) {
+      isPaging = true;
+      try {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+          Figure f = getChild(i);
+          if (evicted.contains(f)) {
+            basicRemoveChild(i);
+            f.removeNotify(this);
+            figurePages.remove(f);
+            ranks.remove(f);
+          }
+        }
+      } finally {
+        isPaging = false;
+      }
+      invalidate();
+    }
+    if (isWritten) {
+      try {
+        store.flush();
+      } catch (IOException ex) {
+        Logger.getLogger(PagedDrawing.class.getName())
+            .log(Level.WARNING, "Could not flush page store", ex);
+      }
+    }
+  }
+
+  /** Returns true, if an undoable edit which has been fired after the page changed is reachable. */
+  private boolean isReferencedByEdits(Page page) {
+    for (Iterator<WeakReference<UndoableEdit>> i = page.edits.iterator(); i.hasNext(); ) {
+      if (i.next().get() == null) {
+        i.remove();
+      }
+    }
+    return !page.edits.isEmpty();
+  }
+
+  /** Returns the figures which are selected in the views which show this drawing. */
+  private Set<Figure> getSelectedFigures() {
+    Set<Figure> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (DrawingView view : views) {
+      if (view.getDrawing() == this) {
+        selected.addAll(view.getSelectedFigures());
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Keeps track of the views which show this drawing, so that pages with selected figures are not
+   * evicted.
+   */
+  @Override
+  public void selectionChanged(FigureSelectionEvent evt) {
+    if (evt.getView() != null) {
+      views.add(evt.getView());
+    }
+  }
+
+  /** Associates the pages which have been changed since the last edit with the edit. */
+  @Override
+  public void fireUndoableEditHappened(UndoableEdit edit) {
+    for (Page page : touchedPages) {
+      page.edits.add(new WeakReference<>(edit));
+    }
+    touchedPages.clear();
+    super.fireUndoableEditHappened(edit);
+  }
+
+  private void setBounds(Page page, Rectangle2D.Double bounds) {
+    page.bounds = bounds;
+    if (page.key != RESIDENT_PAGE) {
+      pageTree.remove(page);
+      if (bounds != null) {
+        pageTree.add(page, (Rectangle2D.Double) bounds.clone());
+      }
+    }
+  }
+
+  /** Marks a page as changed, and adds the specified area to its bounds. */
+  private void markDirty(Page page, Rectangle2D.Double area) {
+    page.isDirty = true;
+    touchedPages.add(page);
+    if (page.bounds == null) {
+      setBounds(page, area);
+    } else if (!page.bounds.contains(area)) {
+      Rectangle2D.Double bounds = (Rectangle2D.Double) page.bounds.clone();
+      bounds.add(area);
+      setBounds(page, bounds);
+    }
+  }
+
+  /** Adds a figure, which has been added to the drawing, to its page. */
+  private void place(Figure f) {
+    long key = (f instanceof ConnectionFigure) ? RESIDENT_PAGE : getPageKey(f);
+    Page page = getPage(key);
+    page.figures.add(f);
+    figurePages.put(f, page);
+    loadedFigureCount++;
+    markDirty(page, f.getDrawingArea());
+    keepConnectedFiguresResident(f);
+  }
+
+  private void unplace(Figure f) {
+    Page page = figurePages.remove(f);
+    if (page != null) {
+      page.figures.remove(f);
+      page.isDirty = true;
+      touchedPages.add(page);
+      loadedFigureCount--;
+    }
+  }
+
+  /** Moves the figures which are connected by a connection figure into the resident page. */
+  private void keepConnectedFiguresResident(Figure f) {
+    if (f instanceof ConnectionFigure) {
+      ConnectionFigure c = (ConnectionFigure) f;
+      for (Figure connected : new Figure[] {c.getStartFigure(), c.getEndFigure()}) {
+        Page page = figurePages.get(connected);
+        if (page != null && page.key != RESIDENT_PAGE) {
+          unplace(connected);
+          Page resident = getPage(RESIDENT_PAGE);
+          resident.figures.add(connected);
+          figurePages.put(connected, resident);
+          loadedFigureCount++;
+          resident.isDirty = true;
+          touchedPages.add(resident);
+        }
+      }
+    }
+  }
+
+  /** Moves a figure which has changed to the page which contains it now. */
+  private void relocate(Figure f) {
+    Page page = figurePages.get(f);
+    if (page == null) {
+      return;
+    }
+    if (page.key == RESIDENT_PAGE) {
+      page.isDirty = true;
+      touchedPages.add(page);
+      keepConnectedFiguresResident(f);
+    } else {
+      long key = getPageKey(f);
+      if (key == page.key) {
+        markDirty(page, f.getDrawingArea());
+      } else {
+        unplace(f);
+        Page newPage = getPage(key);
+        newPage.figures.add(f);
+        figurePages.put(f, newPage);
+        loadedFigureCount++;
+        markDirty(newPage, f.getDrawingArea());
+      }
+    }
+  }
+
+  @Override
+  public void basicAdd(int index, Figure figure) {
+    super.basicAdd(index, figure);
+    if (!isPaging) {
+      ranks.put(figure, createRank(index));
+      place(figure);
+    }
+  }
+
+  @Override
+  public Figure basicRemoveChild(int index) {
+    Figure figure = super.basicRemoveChild(index);
+    if (!isPaging) {
+      unplace(figure);
+      ranks.remove(figure);
+    }
+    return figure;
+  }
+
+  @Override
+  public void bringToFront(Figure figure) {
+    super.bringToFront(figure);
+    changeRank(figure, ++topRank);
+  }
+
+  @Override
+  public void sendToBack(Figure figure) {
+    super.sendToBack(figure);
+    changeRank(figure, --bottomRank);
+  }
+
+  private void changeRank(Figure figure, double rank) {
+    Page page = figurePages.get(figure);
+    if (page != null) {
+      ranks.put(figure, rank);
+      page.isDirty = true;
+      touchedPages.add(page);
+    }
+  }
+
+  /** Removes all children, including the children of pages which are not loaded. */
+  @Override
+  public void removeAllChildren() {
+    super.removeAllChildren();
+    for (Page page : pages.values()) {
+      if (page.figures == null) {
+        page.figures = new LinkedHashSet<>();
+        page.ranks = new double[0];
+        loadedPages.put(page.key, page);
+      }
+      page.isDirty = true;
+      touchedPages.add(page);
+    }
+  }
+
+  /** Returns the drawing area of the loaded figures and the bounds of the other pages. */
+  @Override
+  public Rectangle2D.Double getDrawingArea(double factor) {
+    Rectangle2D.Double r = super.getDrawingArea(factor);
+    boolean isEmpty = getChildCount() == 0;
+    for (Page page : pages.values()) {
+      if (page.figures == null && page.bounds != null) {
+        if (isEmpty) {
+          r = (Rectangle2D.Double) page.bounds.clone();
+          isEmpty = false;
+        } else {
+          r.add(page.bounds);
+        }
+      }
+    }
+    return r;
+  }
+
+  /** Loads the pages which intersect the clip bounds, or all pages if there are no clip bounds. */
+  @Override
+  public void draw(Graphics2D g) {
+    Rectangle2D clipBounds = g.getClipBounds();
+    if (clipBounds != null) {
+      ensureLoaded(
+          new Rectangle2D.Double(
+              clipBounds.getX(),
+              clipBounds.getY(),
+              clipBounds.getWidth(),
+              clipBounds.getHeight()));
+    } else {
+      ensureLoaded(new ArrayList<>(pages.values()));
+    }
+    super.draw(g);
+  }
+
+  @Override
+  public List<Figure> getChildren(Rectangle2D.Double bounds) {
+    ensureLoaded(bounds);
+    return super.getChildren(bounds);
+  }
+
+  @Override
+  public Figure findFigureInside(Point2D.Double p) {
+    ensureLoaded(p);
+    return super.findFigureInside(p);
+  }
+
+  @Override
+  public Figure findFigure(Point2D.Double p) {
+    ensureLoaded(p);
+    return super.findFigure(p);
+  }
+
+  @Override
+  public Figure findFigureExcept(Point2D.Double p, Figure ignore) {
+    ensureLoaded(p);
+    return super.findFigureExcept(p, ignore);
+  }
+
+  @Override
+  public Figure findFigureExcept(Point2D.Double p, Collection<? extends Figure> ignore) {
+    ensureLoaded(p);
+    return super.findFigureExcept(p, ignore);
+  }
+
+  @Override
+  public Figure findFigureBehind(Point2D.Double p, Figure figure) {
+    ensureLoaded(p);
+    return super.findFigureBehind(p, figure);
+  }
+
+  @Override
+  public Figure findFigureBehind(Point2D.Double p, Collection<? extends Figure> children) {
+    ensureLoaded(p);
+    return super.findFigureBehind(p, children);
+  }
+
+  @Override
+  public List<Figure> findFigures(Rectangle2D.Double r) {
+    ensureLoaded(r);
+    return super.findFigures(r);
+  }
+
+  @Override
+  public List<Figure> findFiguresWithin(Rectangle2D.Double bounds) {
+    ensureLoaded(bounds);
+    return super.findFiguresWithin(bounds);
+  }
+
+  /**
+   * Returns a deep copy of this drawing. Pages which are not loaded are read from the store, and
+   * the figures of loaded pages are cloned. The copy keeps its pages in memory, and does not write
+   * to the store of this drawing.
+   *
+   * @throws UncheckedIOException if a page can not be read
+   */
+  @Override
+  public PagedDrawing clone() {
+    MemoryPageStore copy = new MemoryPageStore();
+    HashMap<Figure, Figure> originalToDuplicate = new HashMap<>();
+    try {
+      for (Page page : pages.values()) {
+        List<Figure> figures;
+        double[] figureRanks;
+        if (page.figures != null) {
+          List<Figure> originals = new ArrayList<>(page.figures);
+          originals.sort(Comparator.comparingDouble(this::getRank));
+          figures = new ArrayList<>(originals.size());
+          figureRanks = new double[originals.size()];
+          for (int i = 0; i < figureRanks.length; i++) {
+            Figure original = originals.get(i);
+            Figure duplicate = original.clone();
+            originalToDuplicate.put(original, duplicate);
+            figures.add(duplicate);
+            figureRanks[i] = getRank(original);
+          }
+        } else {
+          figures = store.readPage(page.key);
+          figureRanks = page.ranks;
+          if (figureRanks == null || figureRanks.length != figures.size()) {
+            figureRanks = createRanks(page, figures.size());
+          }
+        }
+        if (!figures.isEmpty() || page.key == RESIDENT_PAGE) {
+          copy.figures.put(page.key, figures);
+          copy.bounds.put(
+              page.key, page.bounds == null ? null : (Rectangle2D.Double) page.bounds.clone());
+          copy.ranks.put(page.key, figureRanks.clone());
+        }
+      }
+      for (Figure duplicate : originalToDuplicate.values()) {
+        duplicate.remap(originalToDuplicate, false);
+      }
+      PagedDrawing that = new PagedDrawing(copy, pageSize);
+      that.maxLoadedFigures = maxLoadedFigures;
+      that.bottomRank = Math.min(that.bottomRank, bottomRank);
+      that.topRank = Math.max(that.topRank, topRank);
+      that.attr().setAttributes(attr().getAttributes());
+      for (InputFormat format : getInputFormats()) {
+        that.addInputFormat(format);
+      }
+      for (OutputFormat format : getOutputFormats()) {
+        that.addOutputFormat(format);
+      }
+      return that;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /** Keeps the pages of a cloned drawing in memory. */
+  private static class MemoryPageStore implements PageStore {
+
+    final HashMap<Long, List<Figure>> figures = new HashMap<>();
+    final HashMap<Long, Rectangle2D.Double> bounds = new HashMap<>();
+    final HashMap<Long, double[]> ranks = new HashMap<>();
+
+    @Override
+    public Map<Long, Rectangle2D.Double> getPages() {
+      return new HashMap<>(bounds);
+    }
+
+    @Override
+    public double[] getRanks(long key) {
+      double[] pageRanks = ranks.get(key);
+      return (pageRanks == null) ? null : pageRanks.clone();
+    }
+
+    @Override
+    public void setRanks(long key, double[] pageRanks) {
+      if (figures.containsKey(key)) {
+        ranks.put(key, pageRanks.clone());
+      }
+    }
+
+    @Override
+    public List<Figure> readPage(long key) {
+      return new ArrayList<>(figures.getOrDefault(key, Collections.emptyList()));
+    }
+
+    @Override
+    public void writePage(long key, List<Figure> figures, Rectangle2D.Double bounds) {
+      if (figures.isEmpty()) {
+        this.figures.remove(key);
+        this.bounds.remove(key);
+      } else {
+        this.figures.put(key, new ArrayList<>(figures));
+        this.bounds.put(key, bounds);
+      }
+      ranks.remove(key);
+    }
+  }
+
+  /**
+   * Adds an output format. The format is wrapped, so that it loads all pages of a paged drawing
+   * before it writes the drawing. Otherwise the figures of pages which are not loaded would be
+   * missing from the output.
+   */
+  @Override
+  public void addOutputFormat(OutputFormat format) {
+    super.addOutputFormat(
+        (format instanceof AllPagesOutputFormat) ? format : new AllPagesOutputFormat(format));
+  }
+
+  /** Replaces the output formats, and wraps them like {@link #addOutputFormat}. */
+  @Override
+  public void setOutputFormats(List<OutputFormat> formats) {
+    super.setOutputFormats(Collections.emptyList());
+    for (OutputFormat format : formats) {
+      addOutputFormat(format);
+    }
+  }
+
+  /** Writes a drawing with all pages loaded, and evicts the pages again afterwards. */
+  private void writeAllPages(PageWriter writer) throws IOException {
+    isWritingAllPages = true;
+    try {
+      for (Page page : new ArrayList<>(pages.values())) {
+        getPage(page.key);
+      }
+      writer.write();
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    } finally {
+      isWritingAllPages = false;
+      evictPages(Collections.emptySet());
+    }
+  }
+
+  private interface PageWriter {
+
+    void write() throws IOException;
+  }
+
+  /** Loads all pages of a paged drawing before the drawing is written. */
+  private static class AllPagesOutputFormat implements OutputFormat {
+
+    private final OutputFormat format;
+
+    AllPagesOutputFormat(OutputFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    public FileFilter getFileFilter() {
+      return format.getFileFilter();
+    }
+
+    @Override
+    public String getFileExtension() {
+      return format.getFileExtension();
+    }
+
+    @Override
+    public void write(URI uri, Drawing drawing) throws IOException {
+      if (drawing instanceof PagedDrawing) {
+        ((PagedDrawing) drawing).writeAllPages(() -> format.write(uri, drawing));
+      } else {
+        format.write(uri, drawing);
+      }
+    }
+
+    @Override
+    public void write(OutputStream out, Drawing drawing) throws IOException {
+      if (drawing instanceof PagedDrawing) {
+        ((PagedDrawing) drawing).writeAllPages(() -> format.write(out, drawing));
+      } else {
+        format.write(out, drawing);
+      }
+    }
+
+    @Override
+    public Transferable createTransferable(
+        Drawing drawing, List<Figure> figures, double scaleFactor) throws IOException {
+      return format.createTransferable(drawing, figures, scaleFactor);
+    }
+  }
+
+  @Override
+  protected EventHandler createEventHandler() {
+    return new PagedEventHandler();
+  }
+
+  /** Moves figures between pages when they have changed. */
+  protected class PagedEventHandler extends QuadTreeEventHandler {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void figureChanged(FigureEvent e) {
+      super.figureChanged(e);
+      if (!isPaging) {
+        relocate(e.getFigure());
+      }
+    }
+  }
+}
@@ -58,6 +58,10 @@ public class QuadTreeDrawing extends AbstractDrawing {
   @Override
   public void draw(Graphics2D g) {
     Rectangle2D clipBounds = g.getClipBounds();
+    RenderRecorder recorder = RenderRecorder.get(g);
+    if (recorder != null) {
+      recorder.addFigures(getChildCount());
+    }
     if (clipBounds != null) {
       draw(g, sort(quadTree.findIntersects(clipBounds)));
     } else {
@@ -74,9 +78,14 @@ public class QuadTreeDrawing extends AbstractDrawing {
   }
 
   public void draw(Graphics2D g, Collection<Figure> c) {
+    RenderRecorder recorder = RenderRecorder.get(g);
     for (Figure f : c) {
       if (f.isVisible()) {
-        f.draw(g);
+        if (recorder == null) {
+          f.draw(g);
+        } else {
+          recorder.draw(f, g);
+        }
       }
     }
   }
@@ -0,0 +1,146 @@
+/*
+ * @(#)RenderMetrics.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The render metrics of a single frame of a {@link DrawingView}.
+ *
+ * <p>The metrics are recorded by a {@link RenderRecorder}, while the drawing view paints itself.
+ * They hold the time spent in each phase of painting, the number of figures which have been drawn
+ * and culled, the size of the area of the drawing which has been repainted, the number of times the
+ * drawing buffer has been reallocated, and the time spent drawing figures of each class.
+ *
+ * <p>The times per figure class are measured for the figures which are drawn by the drawing.
+ * The time of a composite figure includes the time of its children.
+ *
+ * <p>Render metrics are immutable.
+ *
+ * @see DrawingView#setRenderMetricsEnabled
+ */
+public final class RenderMetrics {
+
+  /** The phases of painting a frame, in the order in which they are painted. */
+  public enum Phase {
+    BACKGROUND,
+    CANVAS,
+    CONSTRAINER,
+    DRAWING,
+    HANDLES,
+    TOOL
+  }
+
+  private final long frameNanos;
+  private final EnumMap<Phase, Long> phaseNanos;
+  private final int figuresDrawn;
+  private final int figuresCulled;
+  private final long dirtyArea;
+  private final int bufferReallocations;
+  private final Map<Class<?>, Long> figureClassNanos;
+
+  RenderMetrics(
+      long frameNanos,
+      EnumMap<Phase, Long> phaseNanos,
+      int figuresDrawn,
+      int figuresCulled,
+      long dirtyArea,
+      int bufferReallocations,
+      Map<Class<?>, Long> figureClassNanos) {
+    this.frameNanos = frameNanos;
+    this.phaseNanos = phaseNanos;
+    this.figuresDrawn = figuresDrawn;
+    this.figuresCulled = figuresCulled;
+    this.dirtyArea = dirtyArea;
+    this.bufferReallocations = bufferReallocations;
+    this.figureClassNanos = Collections.unmodifiableMap(figureClassNanos);
+  }
+
+  /** Returns the time spent painting the frame in nanoseconds. */
+  public long getFrameNanos() {
+    return frameNanos;
+  }
+
+  /** Returns the time spent in the specified phase in nanoseconds. */
+  public long getPhaseNanos(Phase phase) {
+    Long nanos = phaseNanos.get(phase);
+    return (nanos == null) ? 0L : nanos;
+  }
+
+  /** Returns the number of figures which have been drawn. */
+  public int getFiguresDrawn() {
+    return figuresDrawn;
+  }
+
+  /** Returns the number of figures of the drawing which have not been drawn. */
+  public int getFiguresCulled() {
+    return figuresCulled;
+  }
+
+  /**
+   * Returns the size of the area of the drawing which has been repainted, in pixels. If the drawing
+   * view is double buffered, this is the area of the buffer which has been repainted.
+   */
+  public long getDirtyArea() {
+    return dirtyArea;
+  }
+
+  /** Returns the number of times the drawing buffer has been allocated. */
+  public int getBufferReallocations() {
+    return bufferReallocations;
+  }
+
+  /** Returns the time spent drawing figures in nanoseconds, by the class of the figures. */
+  public Map<Class<?>, Long> getFigureClassNanos() {
+    return figureClassNanos;
+  }
+
+  /**
+   * Returns the figure classes, which took the most time to draw.
+   *
+   * @param max the maximal number of classes
+   * @return the classes in descending order of time
+   */
+  public List<Class<?>> getSlowestFigureClasses(int max) {
+    List<Class<?>> classes = new ArrayList<>(figureClassNanos.keySet());
+    classes.sort((a, b) -> Long.compare(figureClassNanos.get(b), figureClassNanos.get(a)));
+    return classes.subList(0, Math.min(max, classes.size()));
+  }
+
+  /** Returns the metrics as lines of text. */
+  public List<String> toLines() {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format(Locale.ROOT, "frame %.2f ms", frameNanos / 1e6));
+    StringBuilder buf = new StringBuilder();
+    for (Phase phase : Phase.values()) {
+      if (buf.length() > 0) {
+        buf.append(' ');
+      }
+      buf.append(phase.name().toLowerCase(Locale.ROOT))
+          .append(String.format(Locale.ROOT, " %.2f", getPhaseNanos(phase) / 1e6));
+    }
+    lines.add(buf.toString());
+    lines.add("figures " + figuresDrawn + " drawn, " + figuresCulled + " culled");
+    lines.add("dirty " + dirtyArea + " px, buffer reallocations " + bufferReallocations);
+    for (Class<?> c : getSlowestFigureClasses(3)) {
+      lines.add(String.format(
+          Locale.ROOT, "%s %.2f ms", c.getSimpleName(), figureClassNanos.get(c) / 1e6));
+    }
+    return lines;
+  }
+
+  @Override
+  public String toString() {
+    return String.join("\n", toLines());
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * @(#)RenderRecorder.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jhotdraw.draw.figure.Figure;
+
+/**
+ * Records the {@link RenderMetrics} of the frames of a drawing view.
+ *
+ * <p>While a frame is being recorded, the recorder is stored in the rendering hints of the graphics
+ * under the key {@link #KEY}. Drawings look up the recorder with {@link #get}, and draw their
+ * figures through {@link #draw}, so that the figures are counted and timed. Composite figures draw
+ * their children through {@link #drawFigure}. If there is no recorder in the graphics, figures are
+ * drawn directly. Thus recording costs nothing, unless it has been enabled.
+ *
+ * <p>A recorder is used on the AWT Event Dispatcher Thread only, and is not thread safe.
+ *
+ * @see DrawingView#setRenderMetricsEnabled
+ */
+public class RenderRecorder {
+
+  /** The rendering hint key, under which the recorder is stored in the graphics. */
+  public static final RenderingHints.Key KEY = new RenderingHints.Key(0x4a48) {
+    @Override
+    public boolean isCompatibleValue(Object val) {
+      return val == null || val instanceof RenderRecorder;
+    }
+  };
+
+  private long frameStart;
+  private long phaseStart;
+  private EnumMap<RenderMetrics.Phase, Long> phaseNanos = new EnumMap<>(RenderMetrics.Phase.class);
+  private int figureCount;
+  private int figuresDrawn;
+  private long dirtyArea;
+  private int bufferReallocations;
+  private HashMap<Class<?>, long[]> figureClassNanos = new HashMap<>();
+  private int depth;
+
+  /**
+   * Returns the recorder which is stored in the rendering hints of the specified graphics.
+   *
+   * @return the recorder, or null if the graphics is not being recorded
+   */
+  public static RenderRecorder get(Graphics2D g) {
+    Object value = g.getRenderingHint(KEY);
+    return (value instanceof RenderRecorder) ? (RenderRecorder) value : null;
+  }
+
+  /**
+   * Draws a figure through the recorder of the specified graphics, or directly if the graphics is
+   * not being recorded.
+   */
+  public static void drawFigure(Figure f, Graphics2D g) {
+    RenderRecorder recorder = get(g);
+    if (recorder == null) {
+      f.draw(g);
+    } else {
+      recorder.draw(f, g);
+    }
+  }
+
+  /** Stores this recorder in the rendering hints of the specified graphics. */
+  public void install(Graphics2D g) {
+    g.setRenderingHint(KEY, this);
+  }
+
+  /** Starts recording a frame. */
+  public void beginFrame() {
+    phaseNanos = new EnumMap<>(RenderMetrics.Phase.class);
+    figureClassNanos = new HashMap<>();
+    figureCount = figuresDrawn = bufferReallocations = 0;
+    dirtyArea = 0;
+    depth = 0;
+    frameStart = phaseStart = System.nanoTime();
+  }
+
+  /** Ends a phase of the frame, which has started at the end of the previous phase. */
+  public void endPhase(RenderMetrics.Phase phase) {
+    long now = System.nanoTime();
+    phaseNanos.merge(phase, now - phaseStart, Long::sum);
+    phaseStart = now;
+  }
+
+  /** Adds an area of the drawing which is repainted. */
+  public void addDirtyArea(Rectangle r) {
+    if (r != null && !r.isEmpty()) {
+      dirtyArea += (long) r.width * r.height;
+    }
+  }
+
+  /** Counts an allocation of the drawing buffer. */
+  public void bufferReallocated() {
+    bufferReallocations++;
+  }
+
+  /**
+   * Adds the number of figures of a drawing which is drawn. The figures which are not drawn through
+   * {@link #draw} are counted as culled.
+   */
+  public void addFigures(int count) {
+    figureCount += count;
+  }
+
+  /** Draws a figure, and records the time it took. */
+  public void draw(Figure f, Graphics2D g) {
+    long start = System.nanoTime();
+    depth++;
+    try {
+      f.draw(g);
+    } finally {
+      depth--;
+    }
+    figureDrawn(f, System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the nesting depth of the figure which is being drawn. This is 0 for a figure of the
+   * drawing, 1 for a child of a composite figure of the drawing, and so on.
+   */
+  protected int getDepth() {
+    return depth;
+  }
+
+  /**
+   * This method is invoked after a figure has been drawn through {@link #draw}. The default
+   * implementation records the figures of the drawing only, and ignores the children of composite
+   * figures, whose time is included in the time of their parent.
+   *
+   * @param f the figure
+   * @param nanos the time it took to draw the figure
+   */
+  protected void figureDrawn(Figure f, long nanos) {
+    if (depth > 0) {
+      return;
+    }
+    figuresDrawn++;
+    long[] total = figureClassNanos.get(f.getClass());
+    if (total == null) {
+      figureClassNanos.put(f.getClass(), total = new long[1]);
+    }
+    total[0] += nanos;
+  }
+
+  /** Ends recording the frame, and returns its metrics. */
+  public RenderMetrics endFrame() {
+    Map<Class<?>, Long> classNanos = new LinkedHashMap<>();
+    for (Map.Entry<Class<?>, long[]> entry : figureClassNanos.entrySet()) {
+      classNanos.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return new RenderMetrics(
+        System.nanoTime() - frameStart,
+        phaseNanos,
+        figuresDrawn,
+        Math.max(0, figureCount - figuresDrawn),
+        dirtyArea,
+        bufferReallocations,
+        classNanos);
+  }
+}
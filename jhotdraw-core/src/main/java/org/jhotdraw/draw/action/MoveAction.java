@@ -42,7 +42,7 @@ public abstract class MoveAction extends AbstractSelectedAction {
         f.changed();
       }
     }
-    fireUndoableEditHappened(new TransformEdit(transformedFigures, tx));
+    fireUndoableEditHappened(new TransformEdit(transformedFigures, tx, true));
   }
 
   public static class East extends MoveAction {
@@ -54,7 +54,7 @@ public abstract class MoveConstrainedAction extends AbstractSelectedAction {
 
     transformFigures(transformedFigures, tx);
 
-    fireUndoableEditHappened(new TransformEdit(transformedFigures, tx));
+    fireUndoableEditHappened(new TransformEdit(transformedFigures, tx, true));
 }
 
 private HashSet<Figure> getTransformedFigures() {
@@ -10,9 +10,17 @@ package org.jhotdraw.draw.event;
 import javax.swing.undo.*;
 import org.jhotdraw.draw.*;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
+import org.jhotdraw.undo.UndoRedoManager;
 
-/** An {@code UndoableEdit} event which can undo a change of a {@link Figure} attribute. */
-public class AttributeChangeEdit<T> extends AbstractUndoableEdit {
+/**
+ * An {@code UndoableEdit} event which can undo a change of a {@link Figure} attribute.
+ *
+ * <p>Successive changes of the same attribute of the same figure are coalesced into a single edit
+ * if they happen within {@link UndoRedoManager#COALESCE_INTERVAL}.
+ */
+public class AttributeChangeEdit<T> extends AbstractUndoableEdit implements MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
   private Figure owner;
@@ -20,6 +28,9 @@ public class AttributeChangeEdit<T> extends AbstractUndoableEdit {
   private T oldValue;
   private T newValue;
 
+  /** The time when this edit was created or when it last absorbed another edit. */
+  private long time = System.currentTimeMillis();
+
   public AttributeChangeEdit(Figure owner, AttributeKey<T> name, T oldValue, T newValue) {
     this.owner = owner;
     this.name = name;
@@ -33,6 +44,31 @@ public class AttributeChangeEdit<T> extends AbstractUndoableEdit {
     return "Eigenschaft \u00e4ndern";
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean addEdit(UndoableEdit anEdit) {
+    if (anEdit instanceof AttributeChangeEdit) {
+      AttributeChangeEdit<?> that = (AttributeChangeEdit<?>) anEdit;
+      if (canUndo()
+          && that.owner == this.owner
+          && that.name == this.name
+          && that.time - this.time <= UndoRedoManager.COALESCE_INTERVAL) {
+        this.newValue = (T) that.newValue;
+        this.time = that.time;
+        that.die();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    return MemoryEstimator.OBJECT_SIZE
+        + MemoryEstimator.estimate(oldValue)
+        + MemoryEstimator.estimate(newValue);
+  }
+
   @Override
   public void redo() throws CannotRedoException {
     super.redo();
@@ -13,6 +13,8 @@ import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoableEdit;
 import org.jhotdraw.draw.figure.BezierFigure;
 import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
 import org.jhotdraw.util.ResourceBundleUtil;
 
 /**
@@ -21,7 +23,7 @@ import org.jhotdraw.util.ResourceBundleUtil;
  * @version $Id: BezierNodeEdit.java -1 $
  * @author Werner Randelshofer
  */
-public class BezierNodeEdit extends AbstractUndoableEdit {
+public class BezierNodeEdit extends AbstractUndoableEdit implements MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
   private BezierFigure owner;
@@ -64,6 +66,11 @@ public class BezierNodeEdit extends AbstractUndoableEdit {
     owner.changed();
   }
 
+  @Override
+  public long getEstimatedSize() {
+    return MemoryEstimator.OBJECT_SIZE + 2 * MemoryEstimator.BEZIER_NODE_SIZE;
+  }
+
   @Override
   public boolean addEdit(UndoableEdit anEdit) {
     if (anEdit instanceof BezierNodeEdit) {
@@ -0,0 +1,80 @@
+/*
+ * @(#)DeleteEdit.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.event;
+
+import java.util.List;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.DrawingView;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
+import org.jhotdraw.util.ResourceBundleUtil;
+
+/**
+ * An {@code UndoableEdit} event which can undo the deletion of {@link Figure}s from the drawing of
+ * a {@link DrawingView}.
+ *
+ * <p>The deleted figures are no longer part of the drawing, so this edit is the only owner of
+ * them. Its size estimate therefore includes the figures.
+ */
+public class DeleteEdit extends AbstractUndoableEdit implements MemoryEstimatable {
+
+  private static final long serialVersionUID = 1L;
+  private DrawingView view;
+  private List<Figure> deletedFigures;
+  private int[] deletedFigureIndices;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param view the view from which the figures have been deleted
+   * @param deletedFigures the deleted figures, sorted by z-index
+   * @param deletedFigureIndices the z-indices the figures had in the drawing
+   */
+  public DeleteEdit(DrawingView view, List<Figure> deletedFigures, int[] deletedFigureIndices) {
+    this.view = view;
+    this.deletedFigures = deletedFigures;
+    this.deletedFigureIndices = deletedFigureIndices;
+  }
+
+  @Override
+  public String getPresentationName() {
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
+    return labels.getString("edit.delete.text");
+  }
+
+  @Override
+  public void undo() throws CannotUndoException {
+    super.undo();
+    view.clearSelection();
+    Drawing d = view.getDrawing();
+    for (int i = 0; i < deletedFigureIndices.length; i++) {
+      d.add(deletedFigureIndices[i], deletedFigures.get(i));
+    }
+    view.addToSelection(deletedFigures);
+  }
+
+  @Override
+  public void redo() throws CannotRedoException {
+    super.redo();
+    Drawing d = view.getDrawing();
+    for (int i = 0; i < deletedFigureIndices.length; i++) {
+      d.remove(deletedFigures.get(i));
+    }
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    return MemoryEstimator.OBJECT_SIZE
+        + MemoryEstimator.estimate(deletedFigures)
+        + MemoryEstimator.estimate(deletedFigureIndices);
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * @(#)RenderMetricsEvent.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.event;
+
+import org.jhotdraw.draw.*;
+
+/**
+ * An {@code EventObject} sent to {@link RenderMetricsListener}s.
+ *
+ * <p><hr> <b>Design Patterns</b>
+ *
+ * <p><em>Observer</em><br>
+ * The frames painted by a {@code DrawingView} are observed by tools which measure the rendering
+ * performance.<br>
+ * Subject: {@link org.jhotdraw.draw.DrawingView}; Observer: {@link RenderMetricsListener}; Event:
+ * {@link RenderMetricsEvent}. <hr>
+ */
+public class RenderMetricsEvent extends java.util.EventObject {
+
+  private static final long serialVersionUID = 1L;
+  private transient RenderMetrics metrics;
+
+  public RenderMetricsEvent(DrawingView source, RenderMetrics metrics) {
+    super(source);
+    this.metrics = metrics;
+  }
+
+  public DrawingView getView() {
+    return (DrawingView) source;
+  }
+
+  /** Returns the metrics of the frame which has been painted. */
+  public RenderMetrics getMetrics() {
+    return metrics;
+  }
+}
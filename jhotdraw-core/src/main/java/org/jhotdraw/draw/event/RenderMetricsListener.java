@@ -0,0 +1,26 @@
+/*
+ * @(#)RenderMetricsListener.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.event;
+
+/**
+ * Interface implemented by observers of the render metrics of {@link
+ * org.jhotdraw.draw.DrawingView} objects.
+ *
+ * <p><hr> <b>Design Patterns</b>
+ *
+ * <p><em>Observer</em><br>
+ * The frames painted by a {@code DrawingView} are observed by tools which measure the rendering
+ * performance.<br>
+ * Subject: {@link org.jhotdraw.draw.DrawingView}; Observer: {@link RenderMetricsListener}; Event:
+ * {@link RenderMetricsEvent}. <hr>
+ */
+public interface RenderMetricsListener extends java.util.EventListener {
+
+  /** Invoked on the AWT Event Dispatcher Thread, after a frame has been painted. */
+  public void frameRendered(RenderMetricsEvent evt);
+}
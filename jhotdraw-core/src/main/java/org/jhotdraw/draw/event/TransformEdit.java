@@ -11,11 +11,15 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoableEdit;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
+import org.jhotdraw.undo.UndoRedoManager;
 import org.jhotdraw.util.ResourceBundleUtil;
 
 /**
@@ -27,13 +31,23 @@ import org.jhotdraw.util.ResourceBundleUtil;
  *
  * <p>If a lossy transforms is performed, such as rotation, scaling or shearing, then undos should
  * be performed with {@link TransformRestoreEdit} instead.
+ *
+ * <p>Successive nudges of the same figures with the arrow keys are coalesced into a single edit if
+ * they happen within {@link UndoRedoManager#COALESCE_INTERVAL}. Other translations, such as
+ * dragging figures with the mouse, are undone one by one.
  */
-public class TransformEdit extends AbstractUndoableEdit {
+public class TransformEdit extends AbstractUndoableEdit implements MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
   private Collection<Figure> figures;
   private AffineTransform tx;
 
+  /** Set to true if the figures have been nudged with the keyboard. */
+  private boolean isNudge;
+
+  /** The time when this edit was created or when it last absorbed another edit. */
+  private long time = System.currentTimeMillis();
+
   public TransformEdit(Figure figure, AffineTransform tx) {
     figures = new ArrayList<>();
     figures.add(figure);
@@ -45,6 +59,19 @@ public class TransformEdit extends AbstractUndoableEdit {
     this.tx = (AffineTransform) tx.clone();
   }
 
+  /**
+   * Creates a new instance.
+   *
+   * @param figures the transformed figures
+   * @param tx the transform
+   * @param isNudge true if the figures have been nudged with the keyboard. Successive nudges are
+   *     coalesced into a single edit.
+   */
+  public TransformEdit(Collection<Figure> figures, AffineTransform tx, boolean isNudge) {
+    this(figures, tx);
+    this.isNudge = isNudge;
+  }
+
   @Override
   public String getPresentationName() {
     ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
@@ -55,8 +82,9 @@ public class TransformEdit extends AbstractUndoableEdit {
   public boolean addEdit(UndoableEdit anEdit) {
     if (anEdit instanceof TransformEdit) {
       TransformEdit that = (TransformEdit) anEdit;
-      if (that.figures == this.figures) {
+      if (that.figures == this.figures || isCoalescable(that)) {
         this.tx.concatenate(that.tx);
+        this.time = that.time;
         that.die();
         return true;
       }
@@ -64,6 +92,33 @@ public class TransformEdit extends AbstractUndoableEdit {
     return false;
   }
 
+  /**
+   * Returns true if both edits are nudges of the same figures, and the specified edit follows this
+   * edit closely enough to be undone together with it.
+   */
+  private boolean isCoalescable(TransformEdit that) {
+    return this.isNudge
+        && that.isNudge
+        && canUndo()
+        && that.time - this.time <= UndoRedoManager.COALESCE_INTERVAL
+        && isTranslation(this.tx)
+        && isTranslation(that.tx)
+        && that.figures.size() == this.figures.size()
+        && new HashSet<>(this.figures).containsAll(that.figures);
+  }
+
+  private static boolean isTranslation(AffineTransform tx) {
+    return (tx.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+  }
+
+  /** The figures are retained by the drawing, so only the references are counted. */
+  @Override
+  public long getEstimatedSize() {
+    return 2L * MemoryEstimator.OBJECT_SIZE
+        + (long) MemoryEstimator.REFERENCE_SIZE * 4 * figures.size()
+        + MemoryEstimator.estimate(tx);
+  }
+
   @Override
   public boolean replaceEdit(UndoableEdit anEdit) {
     if (anEdit instanceof TransformEdit) {
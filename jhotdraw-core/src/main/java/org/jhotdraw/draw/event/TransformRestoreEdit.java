@@ -7,8 +7,16 @@
  */
 package org.jhotdraw.draw.event;
 
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import javax.swing.undo.*;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
 import org.jhotdraw.util.*;
 
 /**
@@ -20,19 +28,39 @@ import org.jhotdraw.util.*;
  *
  * <p>The transform restore data may consume a lot of memory. Undos of lossless transforms, such as
  * translations of a figure, should use {@link TransformEdit}.
+ *
+ * <p>To reduce the memory consumption, the edit inspects the restore data when it is created. If
+ * the restore data consists of {@link BezierPath}s, possibly nested in lists and arrays, and the
+ * new paths are an invertible affine transform of the old paths, then the edit only keeps that
+ * transform and discards both snapshots. On undo and redo, it takes a fresh snapshot of the figure,
+ * applies the inverse transform or the transform to it, and restores the figure from it. Paths with
+ * less than two nodes do not determine a transform, so the edit keeps the snapshots for them.
  */
-public class TransformRestoreEdit extends AbstractUndoableEdit {
+public class TransformRestoreEdit extends AbstractUndoableEdit implements MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
+
+  /** Relative tolerance used when checking whether the paths have been transformed affinely. */
+  private static final double TOLERANCE = 1e-7;
+
   private Figure owner;
   private Object oldTransformRestoreData;
   private Object newTransformRestoreData;
 
+  /**
+   * The transform which maps the old restore data to the new restore data. This is null if the edit
+   * keeps snapshots of the restore data.
+   */
+  private AffineTransform tx;
+
   public TransformRestoreEdit(
       Figure owner, Object oldTransformRestoreData, Object newTransformRestoreData) {
     this.owner = owner;
-    this.oldTransformRestoreData = oldTransformRestoreData;
-    this.newTransformRestoreData = newTransformRestoreData;
+    this.tx = createDelta(oldTransformRestoreData, newTransformRestoreData);
+    if (tx == null) {
+      this.oldTransformRestoreData = oldTransformRestoreData;
+      this.newTransformRestoreData = newTransformRestoreData;
+    }
   }
 
   @Override
@@ -41,19 +69,205 @@ public class TransformRestoreEdit extends AbstractUndoableEdit {
     return labels.getString("edit.transform.text");
   }
 
+  @Override
+  public long getEstimatedSize() {
+    if (tx != null) {
+      return MemoryEstimator.OBJECT_SIZE + MemoryEstimator.estimate(tx);
+    }
+    return MemoryEstimator.OBJECT_SIZE
+        + MemoryEstimator.estimate(oldTransformRestoreData)
+        + MemoryEstimator.estimate(newTransformRestoreData);
+  }
+
   @Override
   public void undo() throws CannotUndoException {
     super.undo();
-    owner.willChange();
-    owner.restoreTransformTo(oldTransformRestoreData);
-    owner.changed();
+    if (tx != null) {
+      try {
+        restoreTransformed(tx.createInverse());
+      } catch (NoninvertibleTransformException e) {
+        // createDelta only accepts invertible transforms
+        throw new CannotUndoException();
+      }
+    } else {
+      owner.willChange();
+      owner.restoreTransformTo(oldTransformRestoreData);
+      owner.changed();
+    }
   }
 
   @Override
   public void redo() throws CannotRedoException {
     super.redo();
+    if (tx != null) {
+      restoreTransformed(tx);
+    } else {
+      owner.willChange();
+      owner.restoreTransformTo(newTransformRestoreData);
+      owner.changed();
+    }
+  }
+
+  /**
+   * Restores the owner from a snapshot of its current state, transformed by the given transform.
+   */
+  private void restoreTransformed(AffineTransform t) {
+    Object data = owner.getTransformRestoreData();
+    transformPaths(data, t);
     owner.willChange();
-    owner.restoreTransformTo(newTransformRestoreData);
+    owner.restoreTransformTo(data);
     owner.changed();
   }
+
+  private static void transformPaths(Object data, AffineTransform t) {
+    if (data instanceof BezierPath) {
+      ((BezierPath) data).transform(t);
+    } else if (data instanceof List) {
+      for (Object o : (List<?>) data) {
+        transformPaths(o, t);
+      }
+    } else if (data instanceof Object[]) {
+      for (Object o : (Object[]) data) {
+        transformPaths(o, t);
+      }
+    }
+  }
+
+  /**
+   * Returns an invertible affine transform which maps the old restore data to the new restore data,
+   * or null if there is no such transform.
+   */
+  private static AffineTransform createDelta(Object oldData, Object newData) {
+    List<BezierPath> oldPaths = new ArrayList<>();
+    List<BezierPath> newPaths = new ArrayList<>();
+    if (!collectPaths(oldData, newData, oldPaths, newPaths) || oldPaths.isEmpty()) {
+      return null;
+    }
+    double[] src = toCoordinates(oldPaths);
+    double[] dst = toCoordinates(newPaths);
+    AffineTransform t = fitTransform(src, dst);
+    if (t == null || Math.abs(t.getDeterminant()) < TOLERANCE) {
+      return null;
+    }
+    double[] transformed = new double[src.length];
+    t.transform(src, 0, transformed, 0, src.length / 2);
+    for (int i = 0; i < dst.length; i++) {
+      if (Math.abs(transformed[i] - dst[i]) > TOLERANCE * (1 + Math.abs(dst[i]))) {
+        return null;
+      }
+    }
+    return t;
+  }
+
+  /**
+   * Collects the paths of the old and the new restore data. Returns false if the data differs in
+   * anything else than the coordinates of the paths, or if a path has less than two nodes.
+   */
+  private static boolean collectPaths(
+      Object o, Object n, List<BezierPath> oldPaths, List<BezierPath> newPaths) {
+    if (o instanceof BezierPath && n instanceof BezierPath) {
+      BezierPath op = (BezierPath) o;
+      BezierPath np = (BezierPath) n;
+      if (op.size() < 2
+          || op.size() != np.size()
+          || op.isClosed() != np.isClosed()
+          || op.getWindingRule() != np.getWindingRule()) {
+        return false;
+      }
+      for (int i = 0, size = op.size(); i < size; i++) {
+        if (op.nodes().get(i).mask != np.nodes().get(i).mask) {
+          return false;
+        }
+      }
+      oldPaths.add(op);
+      newPaths.add(np);
+      return true;
+    } else if (o instanceof List && n instanceof List) {
+      List<?> ol = (List<?>) o;
+      List<?> nl = (List<?>) n;
+      if (ol.size() != nl.size()) {
+        return false;
+      }
+      for (int i = 0; i < ol.size(); i++) {
+        if (!collectPaths(ol.get(i), nl.get(i), oldPaths, newPaths)) {
+          return false;
+        }
+      }
+      return true;
+    } else if (o instanceof Object[] && n instanceof Object[]) {
+      Object[] oa = (Object[]) o;
+      Object[] na = (Object[]) n;
+      if (oa.length != na.length) {
+        return false;
+      }
+      for (int i = 0; i < oa.length; i++) {
+        if (!collectPaths(oa[i], na[i], oldPaths, newPaths)) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return Objects.equals(o, n);
+    }
+  }
+
+  /** Returns the coordinates of all control points of the paths as x, y pairs. */
+  private static double[] toCoordinates(List<BezierPath> paths) {
+    int count = 0;
+    for (BezierPath p : paths) {
+      count += p.size() * 3;
+    }
+    double[] coords = new double[count * 2];
+    int j = 0;
+    for (BezierPath p : paths) {
+      for (BezierPath.Node node : p.nodes()) {
+        for (int i = 0; i < 3; i++) {
+          coords[j++] = node.x[i];
+          coords[j++] = node.y[i];
+        }
+      }
+    }
+    return coords;
+  }
+
+  /**
+   * Computes the affine transform which maps the first point of src to the first point of dst, and
+   * the first two points of src which are not collinear with it to the corresponding points of dst.
+   * If all points of src are collinear, a translation is returned.
+   */
+  private static AffineTransform fitTransform(double[] src, double[] dst) {
+    double x0 = src[0], y0 = src[1];
+    int i1 = -1;
+    int i2 = -1;
+    for (int i = 2; i < src.length; i += 2) {
+      double dx = src[i] - x0, dy = src[i + 1] - y0;
+      if (i1 == -1) {
+        if (Math.abs(dx) + Math.abs(dy) > TOLERANCE * (1 + Math.abs(x0) + Math.abs(y0))) {
+          i1 = i;
+        }
+      } else {
+        double ex = src[i1] - x0, ey = src[i1 + 1] - y0;
+        double cross = ex * dy - ey * dx;
+        if (Math.abs(cross) > TOLERANCE * Math.hypot(ex, ey) * Math.hypot(dx, dy)) {
+          i2 = i;
+          break;
+        }
+      }
+    }
+    if (i2 == -1) {
+      return AffineTransform.getTranslateInstance(dst[0] - x0, dst[1] - y0);
+    }
+    double ox1 = src[i1] - x0, oy1 = src[i1 + 1] - y0;
+    double ox2 = src[i2] - x0, oy2 = src[i2 + 1] - y0;
+    double nx1 = dst[i1] - dst[0], ny1 = dst[i1 + 1] - dst[1];
+    double nx2 = dst[i2] - dst[0], ny2 = dst[i2 + 1] - dst[1];
+    double det = ox1 * oy2 - ox2 * oy1;
+    double m00 = (nx1 * oy2 - nx2 * oy1) / det;
+    double m01 = (nx2 * ox1 - nx1 * ox2) / det;
+    double m10 = (ny1 * oy2 - ny2 * oy1) / det;
+    double m11 = (ny2 * ox1 - ny1 * ox2) / det;
+    double m02 = dst[0] - m00 * x0 - m01 * y0;
+    double m12 = dst[1] - m10 * x0 - m11 * y0;
+    return new AffineTransform(m00, m10, m01, m11, m02, m12);
+  }
 }
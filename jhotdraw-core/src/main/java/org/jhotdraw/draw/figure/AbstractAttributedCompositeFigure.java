@@ -16,6 +16,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,6 +30,7 @@ import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import org.jhotdraw.draw.AttributeKeys;
 import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.RenderRecorder;
 import org.jhotdraw.draw.event.CompositeFigureEvent;
 import org.jhotdraw.draw.event.CompositeFigureListener;
 import org.jhotdraw.draw.event.FigureEvent;
@@ -38,6 +41,7 @@ import org.jhotdraw.draw.handle.TransformHandleKit;
 import org.jhotdraw.draw.layouter.Layouter;
 import org.jhotdraw.geom.Dimension2DDouble;
 import org.jhotdraw.geom.Geom;
+import org.jhotdraw.undo.MemoryEstimator;
 import org.jhotdraw.util.ReversedList;
 
 /**
@@ -460,13 +464,13 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
             && child
                 .getDrawingArea(AttributeKeys.getScaleFactorFromGraphics(g))
                 .intersects(clipBounds)) {
-          child.draw(g);
+          RenderRecorder.drawFigure(child, g);
         }
       }
     } else {
       for (Figure child : getChildren()) {
         if (child.isVisible()) {
-          child.draw(g);
+          RenderRecorder.drawFigure(child, g);
         }
       }
     }
@@ -492,6 +496,15 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
     return list;
   }
 
+  @Override
+  public long getEstimatedSize() {
+    long size = super.getEstimatedSize();
+    for (Figure child : children) {
+      size += MemoryEstimator.REFERENCE_SIZE + MemoryEstimator.estimate(child);
+    }
+    return size;
+  }
+
   @Override
   public void basicAdd(int index, Figure figure) {
     children.add(index, figure);
@@ -537,6 +550,12 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
     return that;
   }
 
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    attributes = Attributes.from(
+        attributes, this::fireAttributeChanged, Attributes.attrSupplier(() -> getChildren()));
+  }
+
   @Override
   protected void validate() {
     super.validate();
@@ -695,7 +714,7 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
 
   protected void drawChildren(Graphics2D g) {
     for (Figure child : getChildren()) {
-      child.draw(g);
+      RenderRecorder.drawFigure(child, g);
     }
   }
 
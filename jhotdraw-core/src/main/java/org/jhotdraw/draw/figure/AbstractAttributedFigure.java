@@ -17,6 +17,8 @@ import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,6 +45,8 @@ import org.jhotdraw.draw.handle.ResizeHandleKit;
 import org.jhotdraw.draw.tool.Tool;
 import org.jhotdraw.geom.Dimension2DDouble;
 import org.jhotdraw.geom.Geom;
+import org.jhotdraw.undo.MemoryEstimatable;
+import org.jhotdraw.undo.MemoryEstimator;
 
 /**
  * This abstract class can be extended to implement a {@link Figure} which has its own attribute
@@ -51,7 +55,7 @@ import org.jhotdraw.geom.Geom;
  * @author Werner Randelshofer
  * @version $Id: AbstractAttributedFigure.java 778 2012-04-13 15:37:19Z rawcoder $
  */
-public abstract class AbstractAttributedFigure implements Figure, Cloneable {
+public abstract class AbstractAttributedFigure implements Figure, Cloneable, MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
   protected EventListenerList listenerList = new EventListenerList();
@@ -69,6 +73,19 @@ public abstract class AbstractAttributedFigure implements Figure, Cloneable {
     return attributes;
   }
 
+  /**
+   * Returns the estimated number of bytes retained by this figure. Attribute keys are shared
+   * constants, so only the attribute values are counted.
+   */
+  @Override
+  public long getEstimatedSize() {
+    long size = 2L * MemoryEstimator.OBJECT_SIZE;
+    for (Object value : attributes.getAttributes().values()) {
+      size += 5 * MemoryEstimator.REFERENCE_SIZE + MemoryEstimator.estimate(value);
+    }
+    return size;
+  }
+
   /**
    * This variable is used to prevent endless change loops. We increase its value on each invocation
    * of willChange() and decrease it on each invocation of changed().
@@ -170,6 +187,11 @@ public abstract class AbstractAttributedFigure implements Figure, Cloneable {
     return that;
   }
 
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    attributes = Attributes.from(attributes, this::fireAttributeChanged);
+  }
+
   @Override
   public void addFigureListener(FigureListener l) {
     if (Stream.of(listenerList.getListeners(FigureListener.class))
@@ -20,6 +20,9 @@ package org.jhotdraw.draw.figure;
 
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,8 +34,15 @@ import java.util.function.Supplier;
 import org.jhotdraw.draw.AttributeKey;
 import org.jhotdraw.draw.AttributeKeys;
 
-/** implementation of Attribute storage and processing. */
-public final class Attributes {
+/**
+ * implementation of Attribute storage and processing.
+ *
+ * <p>The listener and the dependents are not serialized. The owner of the attributes has to set
+ * them again after deserialization, see {@link #from(Attributes, AttributeListener, Supplier)}.
+ */
+public final class Attributes implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   private HashMap<AttributeKey<?>, Object> attributes = new HashMap<>();
 
@@ -41,9 +51,9 @@ public final class Attributes {
    */
   private HashSet<AttributeKey<?>> forbiddenAttributes;
 
-  private AttributeListener listener;
+  private transient AttributeListener listener;
 
-  private Supplier<List<Attributes>> DEPENDENT;
+  private transient Supplier<List<Attributes>> DEPENDENT;
 
   public Attributes() {
     this(null, null);
@@ -58,6 +68,11 @@ public final class Attributes {
     this.DEPENDENT = dependent == null ? () -> Collections.emptyList() : dependent;
   }
 
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    dependents(null);
+  }
+
   public void dependents(Supplier<List<Attributes>> dependent) {
     this.DEPENDENT = dependent == null ? () -> Collections.emptyList() : dependent;
   }
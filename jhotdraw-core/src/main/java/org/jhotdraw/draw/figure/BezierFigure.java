@@ -40,6 +40,7 @@ import org.jhotdraw.draw.handle.TransformHandleKit;
 import org.jhotdraw.geom.Geom;
 import org.jhotdraw.geom.GrowStroke;
 import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.undo.MemoryEstimator;
 import org.jhotdraw.util.ResourceBundleUtil;
 
 /**
@@ -577,6 +578,11 @@ public class BezierFigure extends AbstractAttributedFigure {
     return path.clone();
   }
 
+  @Override
+  public long getEstimatedSize() {
+    return super.getEstimatedSize() + MemoryEstimator.estimate(path);
+  }
+
   public Point2D.Double chop(Point2D.Double p) {
     if (isClosed()) {
       double grow =
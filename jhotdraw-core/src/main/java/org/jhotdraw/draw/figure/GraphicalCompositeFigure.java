@@ -16,6 +16,8 @@ import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -286,6 +288,11 @@ public class GraphicalCompositeFigure extends AbstractAttributedCompositeFigure
     return that;
   }
 
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    initAttributeDependentSupplier();
+  }
+
   public void remap(HashMap<Figure, Figure> oldToNew, boolean disconnectIfNotInMap) {
     super.remap(oldToNew, disconnectIfNotInMap);
     if (presentationFigure != null) {
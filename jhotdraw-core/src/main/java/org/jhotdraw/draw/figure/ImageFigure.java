@@ -29,6 +29,8 @@ import java.util.Collections;
 import javax.imageio.ImageIO;
 import javax.swing.Action;
 import org.jhotdraw.draw.AttributeKeys;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.ImageStore;
 import org.jhotdraw.draw.connector.ChopRectangleConnector;
 import org.jhotdraw.draw.connector.Connector;
 import org.jhotdraw.geom.Dimension2DDouble;
@@ -46,8 +48,11 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
   /** The image data. This can be null, if the image was created from a BufferedImage. */
   private byte[] imageData;
 
-  /** The buffered image. This can be null, if we haven't yet parsed the imageData. */
-  private transient BufferedImage bufferedImage;
+  /**
+   * The image. This is shared with other figures which show the same image data, when the figure
+   * is part of a drawing. This can be null, if the figure has no image or has been deserialized.
+   */
+  private transient ImageStore.Entry image;
 
   public ImageFigure() {
     this(0, 0, 0, 0);
@@ -93,10 +98,16 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
   }
 
   protected void drawImage(Graphics2D g) {
-    BufferedImage image = getBufferedImage();
-    if (image != null) {
+    BufferedImage bufferedImage = getBufferedImage();
+    if (bufferedImage != null) {
+      // Zoomed out images are drawn from a downsampled variant
+      bufferedImage =
+          image.getImage(
+              AttributeKeys.getScaleFactorFromGraphics(g)
+                  * rectangle.width
+                  / bufferedImage.getWidth());
       g.drawImage(
-          image,
+          bufferedImage,
           (int) rectangle.x,
           (int) rectangle.y,
           (int) rectangle.width,
@@ -216,11 +227,48 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
   @Override
   public void setImage(byte[] imageData, BufferedImage bufferedImage) {
     willChange();
-    this.imageData = imageData;
-    this.bufferedImage = bufferedImage;
+    basicSetImage(imageData, bufferedImage);
     changed();
   }
 
+  /** Sets the image, and adds it to the image store of the drawing. */
+  private void basicSetImage(byte[] imageData, BufferedImage bufferedImage) {
+    this.imageData = imageData;
+    this.image =
+        (imageData == null && bufferedImage == null)
+            ? null
+            : ImageStore.createEntry(imageData, bufferedImage);
+    addImageToStore();
+  }
+
+  /**
+   * Replaces the image by the entry of the image store of the drawing. If the store already has
+   * the same image data, the figure shares it.
+   */
+  private void addImageToStore() {
+    Drawing drawing = getDrawing();
+    ImageStore store = (drawing == null) ? null : drawing.getImageStore();
+    if (store != null && getImageEntry() != null) {
+      image = store.add(image);
+      if (imageData != null) {
+        imageData = image.getData();
+      }
+    }
+  }
+
+  private ImageStore.Entry getImageEntry() {
+    if (image == null && imageData != null) {
+      image = ImageStore.createEntry(imageData, null);
+    }
+    return image;
+  }
+
+  @Override
+  public void addNotify(Drawing d) {
+    super.addNotify(d);
+    addImageToStore();
+  }
+
   /**
    * Sets the image data. This clears the buffered image.
    *
@@ -229,8 +277,7 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
    */
   public void setImageData(byte[] imageData) {
     willChange();
-    this.imageData = imageData;
-    this.bufferedImage = null;
+    basicSetImage(imageData, null);
     changed();
   }
 
@@ -238,29 +285,19 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
   @Override
   public void setBufferedImage(BufferedImage image) {
     willChange();
-    this.imageData = null;
-    this.bufferedImage = image;
+    basicSetImage(null, image);
     changed();
   }
 
   /**
    * Gets the buffered image. If necessary, this method creates the buffered image from the image
-   * data.
+   * data. The image store of the drawing may discard the buffered image when the figure is not
+   * painted, so callers should not keep it.
    */
   @Override
   public BufferedImage getBufferedImage() {
-    if (bufferedImage == null && imageData != null) {
-      try {
-        bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-      } catch (IOException e) {
-        e.printStackTrace();
-        // If we can't create a buffered image from the image data,
-        // there is no use to keep the image data and try again, so
-        // we drop the image data.
-        imageData = null;
-      }
-    }
-    return bufferedImage;
+    ImageStore.Entry entry = getImageEntry();
+    return (entry == null) ? null : entry.getImage();
   }
 
   /**
@@ -271,19 +308,8 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
    */
   @Override
   public byte[] getImageData() {
-    if (bufferedImage != null && imageData == null) {
-      try {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "PNG", bout);
-        bout.close();
-        imageData = bout.toByteArray();
-      } catch (IOException e) {
-        e.printStackTrace();
-        // If we can't create image data from the buffered image,
-        // there is no use to keep the buffered image and try again, so
-        // we drop the buffered image.
-        bufferedImage = null;
-      }
+    if (imageData == null && image != null) {
+      imageData = image.getData();
     }
     return imageData;
   }
@@ -314,8 +340,7 @@ public class ImageFigure extends AbstractAttributedDecoratedFigure implements Im
       ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
       throw new IOException(labels.getFormatted("file.failedToLoadImage.message", in.toString()));
     }
-    imageData = baos.toByteArray();
-    bufferedImage = img;
+    basicSetImage(baos.toByteArray(), img);
   }
 
   private void writeObject(ObjectOutputStream out) throws IOException {
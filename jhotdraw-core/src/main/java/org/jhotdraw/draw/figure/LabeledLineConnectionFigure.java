@@ -19,6 +19,7 @@ import java.util.Map;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.RenderRecorder;
 import org.jhotdraw.draw.event.CompositeFigureEvent;
 import org.jhotdraw.draw.event.CompositeFigureListener;
 import org.jhotdraw.draw.event.FigureEvent;
@@ -97,7 +98,7 @@ public class LabeledLineConnectionFigure extends LineConnectionFigure implements
     super.draw(g);
     for (Figure child : children) {
       if (child.isVisible()) {
-        child.draw(g);
+        RenderRecorder.drawFigure(child, g);
       }
     }
   }
@@ -19,6 +19,7 @@ import java.util.Comparator;
 import java.util.List;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
+import org.jhotdraw.draw.RenderRecorder;
 import org.jhotdraw.draw.event.FigureEvent;
 import org.jhotdraw.draw.event.FigureListenerAdapter;
 import org.jhotdraw.geom.Dimension2DDouble;
@@ -85,7 +86,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
 
   public void draw(Graphics2D g, Collection<Figure> c) {
     for (Figure f : c) {
-      f.draw(g);
+      RenderRecorder.drawFigure(f, g);
     }
   }
 
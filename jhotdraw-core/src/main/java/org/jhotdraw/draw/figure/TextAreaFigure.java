@@ -13,23 +13,16 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
-import java.awt.Shape;
-import java.awt.font.LineBreakMeasurer;
-import java.awt.font.TextAttribute;
-import java.awt.font.TextLayout;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.text.AttributedCharacterIterator;
-import java.text.AttributedString;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
 import org.jhotdraw.draw.AttributeKeys;
 import org.jhotdraw.draw.handle.FontSizeHandle;
 import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.handle.TextOverflowHandle;
+import org.jhotdraw.draw.text.TextAreaLayout;
 import org.jhotdraw.draw.tool.TextAreaEditingTool;
 import org.jhotdraw.draw.tool.Tool;
 import org.jhotdraw.geom.Dimension2DDouble;
@@ -74,6 +67,12 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
   /** This is a cached value to improve the performance of method isTextOverflow(); */
   private Boolean isTextOverflow;
 
+  /** The cached layout of the text for drawing. */
+  private transient TextAreaLayout cachedLayout;
+
+  /** The cached layout of the text for method getPreferredTextSize(). */
+  private transient TextAreaLayout cachedPreferredLayout;
+
   public TextAreaFigure() {
     this(ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels")
         .getString("TextFigure.defaultText"));
@@ -87,8 +86,6 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
   @Override
   protected void drawText(Graphics2D g) {
     if (getText() != null || isEditable()) {
-      Font font = getFont();
-      boolean isUnderlined = attr().get(FONT_UNDERLINE);
       Insets2D.Double insets = getInsets();
       Rectangle2D.Double textRect = new Rectangle2D.Double(
           bounds.x + insets.left,
@@ -107,181 +104,42 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
 
       float leftMargin = (float) textRect.x;
       float rightMargin = (float) Math.max(leftMargin + 1, textRect.x + textRect.width + 1);
-      float verticalPos = (float) textRect.y;
-      float maxVerticalPos = (float) (textRect.y + textRect.height);
-      if (leftMargin < rightMargin) {
-        // float tabWidth = (float) (getTabSize() * g.getFontMetrics(font).charWidth('m'));
-        float tabWidth = (float)
-            (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
-        float[] tabStops = new float[(int) (textRect.width / tabWidth)];
-        for (int i = 0; i < tabStops.length; i++) {
-          tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
-        }
-        if (getText() != null) {
-          Shape savedClipArea = g.getClip();
-          g2.clip(textRect);
-          String[] paragraphs = getText().split("\n"); // Strings.split(getText(), '\n');
-          for (int i = 0; i < paragraphs.length; i++) {
-            if (paragraphs[i].length() == 0) {
-              paragraphs[i] = " ";
-            }
-            AttributedString as = new AttributedString(paragraphs[i]);
-            as.addAttribute(TextAttribute.FONT, font);
-            if (isUnderlined) {
-              as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-            }
-            int tabCount = paragraphs[i].split("\t").length - 1;
-            Rectangle2D.Double paragraphBounds = drawParagraph(
-                g2,
-                as.getIterator(),
-                verticalPos,
-                maxVerticalPos,
-                leftMargin,
-                rightMargin,
-                tabStops,
-                tabCount);
-            verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
-            if (verticalPos > maxVerticalPos) {
-              break;
-            }
-          }
-          g2.setClip(savedClipArea);
-        }
+      if (leftMargin < rightMargin && getText() != null) {
+        g2.clip(textRect);
+        cachedLayout = getTextLayout(cachedLayout, rightMargin - leftMargin, textRect.width);
+        cachedLayout.draw(
+            g2,
+            leftMargin,
+            (float) textRect.y,
+            (float) (textRect.y + textRect.height),
+            attr().get(TEXT_ALIGNMENT));
       }
       g2.dispose();
     }
   }
 
   /**
-   * Draws or measures a paragraph of text at the specified y location and the bounds of the
-   * paragraph.
+   * Returns the layout of the text. The cached layout is returned, if it is still valid for the
+   * current text and font attributes.
    *
-   * @param g Graphics object. This parameter is null, if we want to measure the size of the
-   *     paragraph.
-   * @param styledText the text of the paragraph.
-   * @param verticalPos the top bound of the paragraph
-   * @param maxVerticalPos the bottom bound of the paragraph
-   * @param leftMargin the left bound of the paragraph
-   * @param rightMargin the right bound of the paragraph
-   * @param tabStops an array with tab stops
-   * @param tabCount the number of entries in tabStops which contain actual values
-   * @return Returns the actual bounds of the paragraph.
+   * @param cached the cached layout, or null
+   * @param wrappingWidth the maximal width of a line
+   * @param tabStopWidth the width in which tab stops are placed
    */
-  private Rectangle2D.Double drawParagraph(
-      Graphics2D g,
-      AttributedCharacterIterator styledText,
-      float verticalPos,
-      float maxVerticalPos,
-      float leftMargin,
-      float rightMargin,
-      float[] tabStops,
-      int tabCount) {
-    // This method is based on the code sample given
-    // in the class comment of java.awt.font.LineBreakMeasurer,
-    // assume styledText is an AttributedCharacterIterator, and the number
-    // of tabs in styledText is tabCount
-    Rectangle2D.Double paragraphBounds = new Rectangle2D.Double(leftMargin, verticalPos, 0, 0);
-    int[] tabLocations = new int[tabCount + 1];
-    int i = 0;
-    for (char c = styledText.first();
-        c != AttributedCharacterIterator.DONE;
-        c = styledText.next()) {
-      if (c == '\t') {
-        tabLocations[i++] = styledText.getIndex();
-      }
+  private TextAreaLayout getTextLayout(
+      TextAreaLayout cached, float wrappingWidth, double tabStopWidth) {
+    String text = getText();
+    Font font = getFont();
+    boolean isUnderlined = attr().get(FONT_UNDERLINE);
+    FontRenderContext frc = getFontRenderContext();
+    float tabWidth = (float) (getTabSize() * font.getStringBounds("m", frc).getWidth());
+    int tabStopCount = (int) (tabStopWidth / tabWidth);
+    if (cached != null
+        && cached.matches(text, font, isUnderlined, wrappingWidth, tabWidth, tabStopCount, frc)) {
+      return cached;
     }
-    tabLocations[tabCount] = styledText.getEndIndex() - 1;
-    // Now tabLocations has an entry for every tab's offset in
-    // the text.  For convenience, the last entry is tabLocations
-    // is the offset of the last character in the text.
-    LineBreakMeasurer measurer = new LineBreakMeasurer(styledText, getFontRenderContext());
-    int currentTab = 0;
-    while (measurer.getPosition() < styledText.getEndIndex() && verticalPos <= maxVerticalPos) {
-      // Lay out and draw each line.  All segments on a line
-      // must be computed before any drawing can occur, since
-      // we must know the largest ascent on the line.
-      // TextLayouts are computed and stored in a List;
-      // their horizontal positions are stored in a parallel
-      // List.
-      // lineContainsText is true after first segment is drawn
-      boolean lineContainsText = false;
-      boolean lineComplete = false;
-      float maxAscent = 0, maxDescent = 0;
-      float horizontalPos = leftMargin;
-      List<TextLayout> layouts = new ArrayList<>();
-      List<Float> penPositions = new ArrayList<>();
-      int first = layouts.size();
-      while (!lineComplete && verticalPos <= maxVerticalPos) {
-        float wrappingWidth = rightMargin - horizontalPos;
-        TextLayout layout = null;
-        layout = measurer.nextLayout(wrappingWidth, tabLocations[currentTab] + 1, lineContainsText);
-        // layout can be null if lineContainsText is true
-        if (layout != null) {
-          layouts.add(layout);
-          penPositions.add(horizontalPos);
-          horizontalPos += layout.getAdvance();
-          maxAscent = Math.max(maxAscent, layout.getAscent());
-          maxDescent = Math.max(maxDescent, layout.getDescent() + layout.getLeading());
-        } else {
-          lineComplete = true;
-        }
-        lineContainsText = true;
-        if (measurer.getPosition() == tabLocations[currentTab] + 1) {
-          currentTab++;
-        }
-        if (measurer.getPosition() == styledText.getEndIndex()) {
-          lineComplete = true;
-        } else if (tabStops.length == 0 || horizontalPos >= tabStops[tabStops.length - 1]) {
-          lineComplete = true;
-        }
-        if (!lineComplete) {
-          // move to next tab stop
-          int j;
-          for (j = 0; horizontalPos >= tabStops[j]; j++) {}
-          horizontalPos = tabStops[j];
-        }
-      }
-      // If there is only one layout element on the line, and we are
-      // drawing, then honor alignment
-      if (first == layouts.size() - 1 && g != null) {
-        switch (attr().get(TEXT_ALIGNMENT)) {
-          case TRAILING:
-            penPositions.set(first, rightMargin - layouts.get(first).getVisibleAdvance() - 1);
-            break;
-          case CENTER:
-            penPositions.set(
-                first,
-                (rightMargin - 1 - leftMargin - layouts.get(first).getVisibleAdvance()) / 2
-                    + leftMargin);
-            break;
-          case BLOCK:
-            // not supported
-            break;
-          case LEADING:
-          default:
-            break;
-        }
-      }
-      verticalPos += maxAscent;
-      Iterator<TextLayout> layoutEnum = layouts.iterator();
-      Iterator<Float> positionEnum = penPositions.iterator();
-      // now iterate through layouts and draw them
-      while (layoutEnum.hasNext()) {
-        TextLayout nextLayout = layoutEnum.next();
-        float nextPosition = positionEnum.next();
-        if (g != null) {
-          nextLayout.draw(g, nextPosition, verticalPos);
-        }
-        Rectangle2D layoutBounds = nextLayout.getBounds();
-        paragraphBounds.add(new Rectangle2D.Double(
-            layoutBounds.getX() + nextPosition,
-            layoutBounds.getY() + verticalPos,
-            layoutBounds.getWidth(),
-            layoutBounds.getHeight()));
-      }
-      verticalPos += maxDescent;
-    }
-    return paragraphBounds;
+    return new TextAreaLayout(
+        text, font, isUnderlined, wrappingWidth, tabWidth, tabStopCount, frc);
   }
 
   @Override
@@ -475,53 +333,13 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
    * @return width and height needed to lay out the text.
    */
   public Dimension2DDouble getPreferredTextSize(double maxWidth) {
-        Rectangle2D.Double textRect = new Rectangle2D.Double();
-        if (getText() != null) {
-            Font font = getFont();
-            boolean isUnderlined = attr().get(FONT_UNDERLINE);
-            float leftMargin = 0;
-            float rightMargin = (float) maxWidth - 1;
-            float verticalPos = 0;
-            float maxVerticalPos = Float.MAX_VALUE;
-            if (leftMargin < rightMargin) {
-                float tabWidth = (float) (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
-                float[] tabStops = new float[(int) (textRect.width / tabWidth)];
-                for (int i = 0; i < tabStops.length; i++) {
-                    tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
-                }
-                String[] paragraphs = getText().split("\n"); // Strings.split(getText(), '\n');
-                textRect = calculateParagraphBounds(paragraphs, font, isUnderlined, leftMargin, rightMargin, verticalPos, maxVerticalPos, tabStops);
-            }
-        }
-        return new Dimension2DDouble(
-                -Math.min(textRect.x, 0) + textRect.width, -Math.min(textRect.y, 0) + textRect.height);
+    Rectangle2D.Double textRect = new Rectangle2D.Double();
+    float rightMargin = (float) maxWidth - 1;
+    if (getText() != null && 0 < rightMargin) {
+      cachedPreferredLayout = getTextLayout(cachedPreferredLayout, rightMargin, 0);
+      textRect = cachedPreferredLayout.getBounds();
     }
-    
-    private Rectangle2D.Double calculateParagraphBounds(String[] paragraphs, Font font, boolean isUnderlined, float leftMargin, float rightMargin, float verticalPos, float maxVerticalPos, float[] tabStops) {
-        Rectangle2D.Double textRect = new Rectangle2D.Double();
-        for (int i = 0; i < paragraphs.length; i++) {
-            if (paragraphs[i].length() == 0) {
-                paragraphs[i] = " ";
-            }
-            AttributedString as = new AttributedString(paragraphs[i]);
-            as.addAttribute(TextAttribute.FONT, font);
-            if (isUnderlined) {
-                as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-            }
-            int tabCount = paragraphs[i].split("\t").length - 1;
-            Rectangle2D.Double paragraphBounds = drawParagraph(
-                    null,
-                    as.getIterator(),
-                    verticalPos,
-                    maxVerticalPos,
-                    leftMargin,
-                    rightMargin,
-                    tabStops,
-                    tabCount);
-            verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
-            textRect.add(paragraphBounds);
-        }
-        return textRect;
-    }
-//Refactoring end
+    return new Dimension2DDouble(
+        -Math.min(textRect.x, 0) + textRect.width, -Math.min(textRect.y, 0) + textRect.height);
+  }
 }
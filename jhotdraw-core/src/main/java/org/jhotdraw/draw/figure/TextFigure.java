@@ -12,15 +12,12 @@ import static org.jhotdraw.draw.AttributeKeys.*;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
-import java.awt.font.FontRenderContext;
-import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import org.jhotdraw.draw.AttributeKeys;
 import org.jhotdraw.draw.handle.BoundsOutlineHandle;
 import org.jhotdraw.draw.handle.FontSizeHandle;
@@ -28,6 +25,7 @@ import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.handle.MoveHandle;
 import org.jhotdraw.draw.handle.RotateHandle;
 import org.jhotdraw.draw.locator.RelativeLocator;
+import org.jhotdraw.draw.text.TextLayoutCache;
 import org.jhotdraw.draw.tool.TextEditingTool;
 import org.jhotdraw.draw.tool.Tool;
 import org.jhotdraw.geom.Dimension2DDouble;
@@ -167,17 +165,14 @@ public class TextFigure extends AbstractAttributedDecoratedFigure
       if (text == null || text.length() == 0) {
         text = " ";
       }
-      FontRenderContext frc = getFontRenderContext();
-      HashMap<TextAttribute, Object> textAttributes = new HashMap<>();
-      textAttributes.put(
-          TextAttribute.FONT,
-          getFont()
-              .deriveFont(
-                  getFontSize() / (float) AttributeKeys.getGlobalValueFactor(this, sizeFactor)));
-      if (attr().get(FONT_UNDERLINE)) {
-        textAttributes.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-      }
-      textLayout = new TextLayout(text, textAttributes, frc);
+      TextLayoutCache cache = TextLayoutCache.getInstance();
+      Font font = getFont();
+      font = cache.getFont(
+          font,
+          font.getStyle(),
+          getFontSize() / (float) AttributeKeys.getGlobalValueFactor(this, sizeFactor));
+      textLayout =
+          cache.getTextLayout(text, font, attr().get(FONT_UNDERLINE), getFontRenderContext());
     }
     return textLayout;
   }
@@ -0,0 +1,268 @@
+/*
+ * @(#)IncrementalDrawingLoader.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+import org.jhotdraw.draw.AttributeKey;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.Figure;
+
+/**
+ * Streams figures which are read by an {@link InputFormat} on a worker thread into a drawing which
+ * is already shown in a view.
+ *
+ * <p>The input format hands over each figure as soon as it has been read. The loader collects the
+ * figures in a batch, and publishes the batch to the drawing on the AWT Event Dispatcher Thread.
+ * A new batch is published at most once per publish interval, and only when the previous batch
+ * has been added to the drawing, so that the event queue is not flooded while a large file is
+ * being parsed. The first figure is published immediately, so that the view paints the first
+ * part of the drawing early while the remaining figures are still being read.
+ *
+ * <p>Typical usage in the {@code read} method of a view:
+ *
+ * <pre>
+ * final Drawing drawing = createDrawing();
+ * SwingUtilities.invokeAndWait(() -&gt; view.setDrawing(drawing));
+ * IncrementalDrawingLoader loader = new IncrementalDrawingLoader(drawing, true);
+ * format.read(uri, loader);
+ * loader.finish(() -&gt; undo.discardAllEdits());
+ * </pre>
+ *
+ * <p>Figures added through the loader are owned by the drawing once they have been published. The
+ * input format must not change them after handing them over.
+ */
+public class IncrementalDrawingLoader {
+
+  /** The default publish interval in milliseconds. */
+  public static final long DEFAULT_PUBLISH_INTERVAL = 100;
+
+  private final Drawing drawing;
+  private final boolean replace;
+  private final long publishInterval;
+
+  /** Figures which have been read but not yet published. Guarded by this. */
+  private ArrayList<Figure> batch = new ArrayList<>();
+
+  /** Drawing attributes which have been read but not yet published. Guarded by this. */
+  private LinkedHashMap<AttributeKey<?>, Object> attributes = new LinkedHashMap<>();
+
+  /** Set to true when a batch has been queued on the event dispatcher thread. Guarded by this. */
+  private boolean isPublishing;
+
+  /** Set to true when the children of the drawing have been removed. Guarded by this. */
+  private boolean isCleared;
+
+  /** Time of the last publication. Guarded by this. */
+  private long lastPublished;
+
+  /** Incremented each time the loader is restarted. Guarded by this. */
+  private int generation;
+
+  /** Figures added to the drawing. Only accessed on the event dispatcher thread. */
+  private ArrayList<Figure> published = new ArrayList<>();
+
+  /**
+   * The generation of the figures in {@code published}. Only accessed on the event dispatcher
+   * thread.
+   */
+  private int publishedGeneration;
+
+  /**
+   * Creates a new loader with the default publish interval.
+   *
+   * @param drawing the drawing
+   * @param replace Set this to true, if the figures replace the contents of the drawing. The
+   *     children of the drawing are removed when the first batch is published.
+   */
+  public IncrementalDrawingLoader(Drawing drawing, boolean replace) {
+    this(drawing, replace, DEFAULT_PUBLISH_INTERVAL);
+  }
+
+  /**
+   * Creates a new loader.
+   *
+   * @param drawing the drawing
+   * @param replace Set this to true, if the figures replace the contents of the drawing.
+   * @param publishInterval the minimal time between two batches in milliseconds
+   */
+  public IncrementalDrawingLoader(Drawing drawing, boolean replace, long publishInterval) {
+    this.drawing = drawing;
+    this.replace = replace;
+    this.publishInterval = publishInterval;
+  }
+
+  /** Returns the drawing into which the figures are loaded. */
+  public Drawing getDrawing() {
+    return drawing;
+  }
+
+  /** Returns true, if the figures replace the contents of the drawing. */
+  public boolean isReplace() {
+    return replace;
+  }
+
+  /**
+   * Adds a figure to the drawing. This method can be called from any thread.
+   *
+   * @throws InterruptedIOException if the current thread has been interrupted, for example because
+   *     the user canceled loading
+   */
+  public void add(Figure figure) throws InterruptedIOException {
+    checkInterrupted();
+    synchronized (this) {
+      batch.add(figure);
+      publishLater();
+    }
+  }
+
+  /**
+   * Adds figures to the drawing. This method can be called from any thread.
+   *
+   * @throws InterruptedIOException if the current thread has been interrupted
+   */
+  public void addAll(Collection<? extends Figure> figures) throws InterruptedIOException {
+    checkInterrupted();
+    synchronized (this) {
+      batch.addAll(figures);
+      publishLater();
+    }
+  }
+
+  /**
+   * Sets an attribute on the drawing. The attribute is set together with the next batch. This
+   * method can be called from any thread.
+   */
+  public synchronized <T> void set(AttributeKey<T> key, T value) {
+    attributes.put(key, value);
+  }
+
+  /**
+   * Discards everything which has been handed to the loader, so that the input format can read the
+   * input once more from the beginning. Figures which have already been published are removed from
+   * the drawing. This method can be called from any thread.
+   */
+  public void restart() {
+    final int gen;
+    synchronized (this) {
+      gen = ++generation;
+      batch.clear();
+      attributes.clear();
+      isPublishing = false;
+    }
+    // Batches which have been queued before are dropped, because they belong to an older
+    // generation. This removes the published figures, even if no figure is added anymore.
+    SwingUtilities.invokeLater(() -> publish(gen));
+  }
+
+  /**
+   * Publishes the remaining figures and attributes to the drawing, and waits until they have been
+   * added.
+   *
+   * @param done a runnable which is run on the event dispatcher thread after the last batch has
+   *     been published, for example to discard the undo history of the view, or null
+   */
+  public void finish(Runnable done) throws IOException {
+    Runnable r = () -> {
+      int gen;
+      synchronized (this) {
+        gen = generation;
+      }
+      publish(gen);
+      if (done != null) {
+        done.run();
+      }
+    };
+    if (SwingUtilities.isEventDispatchThread()) {
+      r.run();
+      return;
+    }
+    try {
+      SwingUtilities.invokeAndWait(r);
+    } catch (InterruptedException e) {
+      InterruptedIOException ex = new InterruptedIOException();
+      ex.initCause(e);
+      throw ex;
+    } catch (InvocationTargetException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the number of figures which have been added to the drawing. This method must be called
+   * on the event dispatcher thread.
+   */
+  public int getPublishedCount() {
+    return published.size();
+  }
+
+  private static void checkInterrupted() throws InterruptedIOException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Loading has been canceled");
+    }
+  }
+
+  /** Queues a batch on the event dispatcher thread if the publish interval has elapsed. */
+  private void publishLater() {
+    long now = System.currentTimeMillis();
+    if (!isPublishing && now - lastPublished >= publishInterval) {
+      isPublishing = true;
+      lastPublished = now;
+      final int gen = generation;
+      SwingUtilities.invokeLater(() -> publish(gen));
+    }
+  }
+
+  /**
+   * Adds the current batch to the drawing. Must be called on the event dispatcher thread.
+   *
+   * @param queuedGeneration the generation at the time the publication was queued. Nothing is
+   *     published if the loader has been restarted since.
+   */
+  private void publish(int queuedGeneration) {
+    List<Figure> figures;
+    Map<AttributeKey<?>, Object> attrs;
+    boolean clear;
+    synchronized (this) {
+      if (queuedGeneration != generation) {
+        return;
+      }
+      figures = batch;
+      attrs = attributes;
+      batch = new ArrayList<>();
+      attributes = new LinkedHashMap<>();
+      clear = replace && !isCleared;
+      isCleared = true;
+      isPublishing = false;
+    }
+    if (queuedGeneration != publishedGeneration) {
+      drawing.removeAll(published);
+      published.clear();
+      publishedGeneration = queuedGeneration;
+    }
+    if (clear) {
+      drawing.removeAllChildren();
+    }
+    if (!attrs.isEmpty()) {
+      drawing.willChange();
+      drawing.attr().setAttributes(attrs);
+      drawing.changed();
+    }
+    if (!figures.isEmpty()) {
+      drawing.addAll(figures);
+      published.addAll(figures);
+    }
+  }
+}
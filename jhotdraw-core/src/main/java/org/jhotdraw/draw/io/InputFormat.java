@@ -16,8 +16,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import javax.swing.filechooser.FileFilter;
+import org.jhotdraw.draw.AttributeKey;
+import org.jhotdraw.draw.DefaultDrawing;
 import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.Figure;
 
 /**
  * An <em>input format</em> implements a strategy for reading a {@link Drawing} using a specific
@@ -94,6 +100,47 @@ public interface InputFormat {
    */
   public void read(InputStream in, Drawing drawing, boolean replace) throws IOException;
 
+  /**
+   * Reads figures from an URI and streams them into the drawing of the specified loader.
+   *
+   * <p>This is a convenience method for opening the URI and calling read(InputStream,
+   * IncrementalDrawingLoader).
+   *
+   * @param uri The URI.
+   * @param loader The loader.
+   */
+  public default void read(URI uri, IncrementalDrawingLoader loader) throws IOException {
+    try (InputStream in = new BufferedInputStream(uri.toURL().openStream())) {
+      read(in, loader);
+    }
+  }
+
+  /**
+   * Reads figures from an InputStream and streams them into the drawing of the specified loader.
+   * This method is invoked on a worker thread, while the drawing is shown in a view.
+   *
+   * <p>Formats which can read figures one by one should override this method and hand each figure
+   * to the loader as soon as it has been read. The default implementation reads all figures into a
+   * scratch drawing and hands them over when the input has been read completely.
+   *
+   * @param in The input stream.
+   * @param loader The loader.
+   */
+  public default void read(InputStream in, IncrementalDrawingLoader loader) throws IOException {
+    Drawing scratch = new DefaultDrawing();
+    read(in, scratch, loader.isReplace());
+    List<Figure> figures = new ArrayList<>(scratch.getChildren());
+    scratch.removeAllChildren();
+    if (loader.isReplace()) {
+      for (Map.Entry<AttributeKey<?>, Object> entry : scratch.attr().getAttributes().entrySet()) {
+        @SuppressWarnings("unchecked")
+        AttributeKey<Object> key = (AttributeKey<Object>) entry.getKey();
+        loader.set(key, entry.getValue());
+      }
+    }
+    loader.addAll(figures);
+  }
+
   /**
    * Returns true, if this InputFormat can readFigures TransferData using the specified DataFlavor.
    *
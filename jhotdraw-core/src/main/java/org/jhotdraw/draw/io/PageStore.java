@@ -0,0 +1,87 @@
+/*
+ * @(#)PageStore.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.io;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.jhotdraw.draw.PagedDrawing;
+import org.jhotdraw.draw.figure.Figure;
+
+/**
+ * Stores the pages of a {@link PagedDrawing}.
+ *
+ * <p>A page holds the figures of a region of the drawing. The store keeps the bounds of each page,
+ * so that a drawing can decide which pages it needs without reading them.
+ *
+ * <p><hr> <b>Design Patterns</b>
+ *
+ * <p><em>Strategy</em><br>
+ * {@code PageStore} encapsulates a strategy for storing the pages of a drawing.<br>
+ * Strategy: {@link PageStore}; Context: {@link PagedDrawing}. <hr>
+ */
+public interface PageStore {
+
+  /**
+   * Returns the keys of all pages in the store, and the union of the drawing areas of the figures
+   * in each page.
+   */
+  public Map<Long, Rectangle2D.Double> getPages() throws IOException;
+
+  /**
+   * Reads the figures of a page.
+   *
+   * @param key the key of the page
+   * @return the figures, or an empty list if the store does not contain the page
+   */
+  public List<Figure> readPage(long key) throws IOException;
+
+  /**
+   * Writes the figures of a page. A page with no figures is removed from the store.
+   *
+   * @param key the key of the page
+   * @param figures the figures
+   * @param bounds the union of the drawing areas of the figures
+   */
+  public void writePage(long key, List<Figure> figures, Rectangle2D.Double bounds)
+      throws IOException;
+
+  /**
+   * Returns the z-order ranks of the figures of a page, in the order in which {@link #readPage}
+   * returns the figures.
+   *
+   * <p>This default implementation returns null.
+   *
+   * @param key the key of the page
+   * @return the ranks, or null if the store has no ranks for the page
+   */
+  public default double[] getRanks(long key) throws IOException {
+    return null;
+  }
+
+  /**
+   * Sets the z-order ranks of the figures of a page, in the order in which the figures have been
+   * written. The ranks are removed when the page is removed.
+   *
+   * <p>This default implementation does nothing. A drawing which is opened from a store without
+   * ranks orders its pages by their keys.
+   *
+   * @param key the key of the page
+   * @param ranks the ranks
+   */
+  public default void setRanks(long key, double[] ranks) throws IOException {}
+
+  /**
+   * Writes changes which the store has buffered, such as the bounds of the pages. This method is
+   * invoked after a batch of pages has been written.
+   *
+   * <p>This default implementation does nothing.
+   */
+  public default void flush() throws IOException {}
+}
@@ -0,0 +1,316 @@
+/*
+ * @(#)TextAreaLayout.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.text;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.text.AttributedCharacterIterator;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.jhotdraw.draw.AttributeKeys;
+
+/**
+ * The line layout of the text of a text area.
+ *
+ * <p>The text is broken into paragraphs at LF characters, and each paragraph is broken into lines
+ * at word boundaries, so that it fits into the wrapping width. Tab characters advance to regularly
+ * spaced tab stops.
+ *
+ * <p>A text area figure keeps the layout of its text, and replays it whenever the figure is drawn.
+ * The layout is computed relative to the top left corner of the text, so it stays valid when the
+ * figure is moved. Use {@link #matches} to find out, whether the layout has to be computed again
+ * after an attribute or the size of the figure has changed.
+ *
+ * <p>Instances of this class are immutable.
+ *
+ * @see org.jhotdraw.draw.figure.TextAreaFigure
+ */
+public class TextAreaLayout {
+
+  private final String text;
+  private final Font font;
+  private final boolean isUnderlined;
+  private final float wrappingWidth;
+  private final float tabWidth;
+  private final int tabStopCount;
+  private final FontRenderContext frc;
+
+  /** The lines of all paragraphs from top to bottom. */
+  private final ArrayList<Line> lines = new ArrayList<>();
+
+  /** The bounds of the text, including the origin. */
+  private final Rectangle2D.Double bounds = new Rectangle2D.Double();
+
+  /** A line of text. A line consists of one segment, plus one segment for each tab on the line. */
+  private static class Line {
+
+    /** The top of the line. */
+    final float top;
+
+    /** The baseline of the line. */
+    final float baseline;
+
+    final TextLayout[] segments;
+
+    /** The horizontal pen position of each segment. */
+    final float[] positions;
+
+    Line(float top, float baseline, TextLayout[] segments, float[] positions) {
+      this.top = top;
+      this.baseline = baseline;
+      this.segments = segments;
+      this.positions = positions;
+    }
+  }
+
+  /**
+   * Lays out a text.
+   *
+   * @param text the text
+   * @param font the font of the text
+   * @param isUnderlined whether the text is underlined
+   * @param wrappingWidth the maximal width of a line
+   * @param tabWidth the distance between two tab stops
+   * @param tabStopCount the number of tab stops
+   * @param frc the font render context
+   */
+  public TextAreaLayout(
+      String text,
+      Font font,
+      boolean isUnderlined,
+      float wrappingWidth,
+      float tabWidth,
+      int tabStopCount,
+      FontRenderContext frc) {
+    this.text = text;
+    this.font = font;
+    this.isUnderlined = isUnderlined;
+    this.wrappingWidth = wrappingWidth;
+    this.tabWidth = tabWidth;
+    this.tabStopCount = tabStopCount;
+    this.frc = frc;
+
+    float[] tabStops = new float[tabStopCount];
+    for (int i = 0; i < tabStops.length; i++) {
+      tabStops[i] = (int) (tabWidth * (i + 1));
+    }
+    float verticalPos = 0;
+    for (String paragraph : text.split("\n")) {
+      Rectangle2D.Double paragraphBounds =
+          layoutParagraph(paragraph.isEmpty() ? " " : paragraph, verticalPos, tabStops);
+      verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
+      bounds.add(paragraphBounds);
+    }
+  }
+
+  /**
+   * Returns true, if this layout has been computed with the specified parameters. The parameters
+   * are the same as of the constructor.
+   */
+  public boolean matches(
+      String text,
+      Font font,
+      boolean isUnderlined,
+      float wrappingWidth,
+      float tabWidth,
+      int tabStopCount,
+      FontRenderContext frc) {
+    return this.isUnderlined == isUnderlined
+        && this.wrappingWidth == wrappingWidth
+        && this.tabWidth == tabWidth
+        && this.tabStopCount == tabStopCount
+        && this.font.equals(font)
+        && this.frc.equals(frc)
+        && this.text.equals(text);
+  }
+
+  /**
+   * Lays out a paragraph at the specified y location and returns the bounds of the paragraph. This
+   * method is based on the code sample given in the class comment of {@link LineBreakMeasurer}.
+   */
+  private Rectangle2D.Double layoutParagraph(
+      String paragraph, float verticalPos, float[] tabStops) {
+    AttributedString as = new AttributedString(paragraph);
+    as.addAttribute(TextAttribute.FONT, font);
+    if (isUnderlined) {
+      as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
+    }
+    AttributedCharacterIterator styledText = as.getIterator();
+    Rectangle2D.Double paragraphBounds = new Rectangle2D.Double(0, verticalPos, 0, 0);
+
+    // tabLocations has an entry for every tab's offset in the text. For
+    // convenience, the last entry is the offset of the last character in the text.
+    int tabCount = 0;
+    for (int i = 0, n = paragraph.length(); i < n; i++) {
+      if (paragraph.charAt(i) == '\t') {
+        tabCount++;
+      }
+    }
+    int[] tabLocations = new int[tabCount + 1];
+    int i = 0;
+    for (char c = styledText.first();
+        c != AttributedCharacterIterator.DONE;
+        c = styledText.next()) {
+      if (c == '\t') {
+        tabLocations[i++] = styledText.getIndex();
+      }
+    }
+    tabLocations[tabCount] = styledText.getEndIndex() - 1;
+
+    LineBreakMeasurer measurer = new LineBreakMeasurer(styledText, frc);
+    int currentTab = 0;
+    ArrayList<TextLayout> layouts = new ArrayList<>();
+    float[] penPositions = new float[tabCount + 1];
+    while (measurer.getPosition() < styledText.getEndIndex()) {
+      // All segments on a line must be computed before the line can be
+      // placed, since we must know the largest ascent on the line.
+      // lineContainsText is true after the first segment has been computed.
+      boolean lineContainsText = false;
+      boolean lineComplete = false;
+      float maxAscent = 0, maxDescent = 0;
+      float horizontalPos = 0;
+      layouts.clear();
+      while (!lineComplete) {
+        float remainingWidth = wrappingWidth - horizontalPos;
+        TextLayout layout =
+            measurer.nextLayout(remainingWidth, tabLocations[currentTab] + 1, lineContainsText);
+        // layout can be null if lineContainsText is true
+        if (layout != null) {
+          if (layouts.size() == penPositions.length) {
+            penPositions = Arrays.copyOf(penPositions, penPositions.length * 2);
+          }
+          penPositions[layouts.size()] = horizontalPos;
+          layouts.add(layout);
+          horizontalPos += layout.getAdvance();
+          maxAscent = Math.max(maxAscent, layout.getAscent());
+          maxDescent = Math.max(maxDescent, layout.getDescent() + layout.getLeading());
+        } else {
+          lineComplete = true;
+        }
+        lineContainsText = true;
+        if (measurer.getPosition() == tabLocations[currentTab] + 1) {
+          currentTab++;
+        }
+        if (measurer.getPosition() == styledText.getEndIndex()) {
+          lineComplete = true;
+        } else if (tabStops.length == 0 || horizontalPos >= tabStops[tabStops.length - 1]) {
+          lineComplete = true;
+        }
+        if (!lineComplete) {
+          // move to next tab stop
+          int j;
+          for (j = 0; horizontalPos >= tabStops[j]; j++) {}
+          horizontalPos = tabStops[j];
+        }
+      }
+      Line line = new Line(
+          verticalPos,
+          verticalPos + maxAscent,
+          layouts.toArray(new TextLayout[layouts.size()]),
+          Arrays.copyOf(penPositions, layouts.size()));
+      lines.add(line);
+      for (int k = 0; k < line.segments.length; k++) {
+        Rectangle2D layoutBounds = line.segments[k].getBounds();
+        paragraphBounds.add(new Rectangle2D.Double(
+            layoutBounds.getX() + line.positions[k],
+            layoutBounds.getY() + line.baseline,
+            layoutBounds.getWidth(),
+            layoutBounds.getHeight()));
+      }
+      verticalPos = line.baseline + maxDescent;
+    }
+    return paragraphBounds;
+  }
+
+  /** Returns the text of the layout. */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Returns the bounds of the text relative to the top left corner of the text. The bounds include
+   * the top left corner.
+   */
+  public Rectangle2D.Double getBounds() {
+    return (Rectangle2D.Double) bounds.clone();
+  }
+
+  /**
+   * Draws the lines whose top is above the specified limit.
+   *
+   * <p>A line with a single segment is aligned within the wrapping width. Lines with tabs are
+   * always aligned on the left.
+   *
+   * @param g the graphics
+   * @param x the left bound of the text
+   * @param y the top bound of the text
+   * @param maxY the maximal top of a line
+   * @param alignment the horizontal alignment
+   */
+  public void draw(
+      Graphics2D g, float x, float y, float maxY, AttributeKeys.Alignment alignment) {
+    for (Line line : lines) {
+      if (y + line.top > maxY) {
+        break;
+      }
+      float baseline = y + line.baseline;
+      if (line.segments.length == 1) {
+        TextLayout layout = line.segments[0];
+        float pos;
+        switch (alignment) {
+          case TRAILING:
+            pos = wrappingWidth - layout.getVisibleAdvance() - 1;
+            break;
+          case CENTER:
+            pos = (wrappingWidth - 1 - layout.getVisibleAdvance()) / 2;
+            break;
+          case BLOCK: // not supported
+          case LEADING:
+          default:
+            pos = line.positions[0];
+            break;
+        }
+        layout.draw(g, x + pos, baseline);
+      } else {
+        for (int k = 0; k < line.segments.length; k++) {
+          line.segments[k].draw(g, x + line.positions[k], baseline);
+        }
+      }
+    }
+  }
+
+  /**
+   * Appends the outlines of the lines whose baseline is above the specified limit to a shape.
+   *
+   * @param shape the shape
+   * @param x the left bound of the text
+   * @param y the top bound of the text
+   * @param maxBaseline the maximal baseline of a line
+   */
+  public void appendOutline(Path2D.Double shape, float x, float y, float maxBaseline) {
+    AffineTransform tx = new AffineTransform();
+    for (Line line : lines) {
+      float baseline = y + line.baseline;
+      if (baseline > maxBaseline) {
+        break;
+      }
+      for (int k = 0; k < line.segments.length; k++) {
+        tx.setToTranslation(x + line.positions[k], baseline);
+        shape.append(line.segments[k].getOutline(tx), false);
+      }
+    }
+  }
+}
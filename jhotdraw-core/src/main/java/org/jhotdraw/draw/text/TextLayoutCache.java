@@ -0,0 +1,215 @@
+/*
+ * @(#)TextLayoutCache.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.text;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches derived fonts and shaped text.
+ *
+ * <p>Drawings with many labels typically use few fonts, and often show the same text many times.
+ * This cache shares the fonts which are derived from a prototype font with a given style and size,
+ * and the {@link TextLayout}s which are shaped from a string with a given font. Fonts and text
+ * layouts are immutable, so they can be shared by all figures.
+ *
+ * <p>Both caches are bounded, and discard their least recently used entries. The cache counts its
+ * hits and misses, so that the effectiveness of the cache can be monitored. All methods are thread
+ * safe.
+ */
+public class TextLayoutCache {
+
+  private static final TextLayoutCache INSTANCE = new TextLayoutCache(256, 4096);
+
+  private final LinkedHashMap<FontKey, Font> fonts;
+  private final LinkedHashMap<LayoutKey, TextLayout> layouts;
+
+  private long fontHits;
+  private long fontMisses;
+  private long layoutHits;
+  private long layoutMisses;
+
+  private static class FontKey {
+
+    final Font prototype;
+    final int style;
+    final float size;
+
+    FontKey(Font prototype, int style, float size) {
+      this.prototype = prototype;
+      this.style = style;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof FontKey)) {
+        return false;
+      }
+      FontKey that = (FontKey) o;
+      return this.style == that.style
+          && Float.compare(this.size, that.size) == 0
+          && this.prototype.equals(that.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+      return (prototype.hashCode() * 31 + style) * 31 + Float.hashCode(size);
+    }
+  }
+
+  private static class LayoutKey {
+
+    final String text;
+    final Font font;
+    final boolean isUnderlined;
+    final FontRenderContext frc;
+
+    LayoutKey(String text, Font font, boolean isUnderlined, FontRenderContext frc) {
+      this.text = text;
+      this.font = font;
+      this.isUnderlined = isUnderlined;
+      this.frc = frc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof LayoutKey)) {
+        return false;
+      }
+      LayoutKey that = (LayoutKey) o;
+      return this.isUnderlined == that.isUnderlined
+          && this.text.equals(that.text)
+          && this.font.equals(that.font)
+          && this.frc.equals(that.frc);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(text, font, isUnderlined, frc);
+    }
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxFonts the maximal number of derived fonts
+   * @param maxLayouts the maximal number of text layouts
+   */
+  public TextLayoutCache(int maxFonts, int maxLayouts) {
+    fonts = new LinkedHashMap<FontKey, Font>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<FontKey, Font> eldest) {
+        return size() > maxFonts;
+      }
+    };
+    layouts = new LinkedHashMap<LayoutKey, TextLayout>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayout> eldest) {
+        return size() > maxLayouts;
+      }
+    };
+  }
+
+  /** Returns the cache which is shared by all figures. */
+  public static TextLayoutCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a font which is derived from a prototype font.
+   *
+   * @param prototype the prototype font
+   * @param style the style of the font
+   * @param size the size of the font
+   */
+  public Font getFont(Font prototype, int style, float size) {
+    FontKey key = new FontKey(prototype, style, size);
+    synchronized (this) {
+      Font font = fonts.get(key);
+      if (font != null) {
+        fontHits++;
+        return font;
+      }
+      fontMisses++;
+    }
+    Font font = prototype.deriveFont(style, size);
+    synchronized (this) {
+      fonts.put(key, font);
+    }
+    return font;
+  }
+
+  /**
+   * Returns the text layout of a string.
+   *
+   * @param text the string, must not be empty
+   * @param font the font
+   * @param isUnderlined whether the text is underlined
+   * @param frc the font render context
+   */
+  public TextLayout getTextLayout(
+      String text, Font font, boolean isUnderlined, FontRenderContext frc) {
+    LayoutKey key = new LayoutKey(text, font, isUnderlined, frc);
+    synchronized (this) {
+      TextLayout layout = layouts.get(key);
+      if (layout != null) {
+        layoutHits++;
+        return layout;
+      }
+      layoutMisses++;
+    }
+    HashMap<TextAttribute, Object> textAttributes = new HashMap<>();
+    textAttributes.put(TextAttribute.FONT, font);
+    if (isUnderlined) {
+      textAttributes.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
+    }
+    TextLayout layout = new TextLayout(text, textAttributes, frc);
+    synchronized (this) {
+      layouts.put(key, layout);
+    }
+    return layout;
+  }
+
+  /** Returns the number of requests for fonts which have been answered from the cache. */
+  public synchronized long getFontHits() {
+    return fontHits;
+  }
+
+  /** Returns the number of requests for fonts which required to derive a font. */
+  public synchronized long getFontMisses() {
+    return fontMisses;
+  }
+
+  /** Returns the number of requests for text layouts which have been answered from the cache. */
+  public synchronized long getLayoutHits() {
+    return layoutHits;
+  }
+
+  /** Returns the number of requests for text layouts which required to shape the text. */
+  public synchronized long getLayoutMisses() {
+    return layoutMisses;
+  }
+
+  /** Removes all entries from the cache, and resets the hit and miss counts. */
+  public synchronized void clear() {
+    fonts.clear();
+    layouts.clear();
+    fontHits = fontMisses = layoutHits = layoutMisses = 0;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+import org.jhotdraw.draw.figure.EllipseFigure;
+import org.jhotdraw.draw.figure.GroupFigure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.junit.jupiter.api.Test;
+
+public class FigureProfilerTest {
+
+  @Test
+  public void testChildrenOfCompositeFiguresAreProfiled() {
+    Drawing drawing = new DefaultDrawing();
+    for (int i = 0; i < 3; i++) {
+      GroupFigure group = new GroupFigure();
+      EllipseFigure ellipse = new EllipseFigure();
+      ellipse.setBounds(new Point2D.Double(i * 40, 0), new Point2D.Double(i * 40 + 30, 30));
+      RectangleFigure rectangle = new RectangleFigure();
+      rectangle.setBounds(new Point2D.Double(i * 40, 40), new Point2D.Double(i * 40 + 30, 70));
+      group.add(ellipse);
+      group.add(rectangle);
+      drawing.add(group);
+    }
+
+    FigureProfiler profiler = FigureProfiler.profile(drawing, 1, 2, 256);
+    List<FigureProfiler.Entry> entries = profiler.getEntries(FigureProfiler.SortKey.CLASS);
+
+    assertThat(entries)
+        .extracting(FigureProfiler.Entry::getFigureClass)
+        .containsExactly(EllipseFigure.class, GroupFigure.class, RectangleFigure.class);
+    for (FigureProfiler.Entry entry : entries) {
+      assertThat(entry.getDrawCount()).isEqualTo(6);
+      assertThat(entry.getSelfNanos()).isLessThanOrEqualTo(entry.getTotalNanos());
+      assertThat(entry.getSelfAllocatedBytes()).isLessThanOrEqualTo(entry.getTotalAllocatedBytes());
+    }
+    FigureProfiler.Entry group = entries.get(1);
+    assertThat(group.getTotalNanos())
+        .isGreaterThanOrEqualTo(entries.get(0).getTotalNanos() + entries.get(2).getTotalNanos());
+    assertThat(profiler.getReport(FigureProfiler.SortKey.SELF_TIME)).contains("GroupFigure");
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.jhotdraw.draw.figure.ImageFigure;
+import org.junit.jupiter.api.Test;
+
+public class ImageStoreTest {
+
+  private static byte[] createPng(int width, int height, int rgb) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, rgb);
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "PNG", out);
+    return out.toByteArray();
+  }
+
+  @Test
+  void testFiguresWithEqualDataShareTheImage() throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    ImageFigure f1 = new ImageFigure(0, 0, 10, 10);
+    ImageFigure f2 = new ImageFigure(20, 0, 10, 10);
+    f1.setImageData(createPng(10, 10, 0xff0000));
+    f2.setImageData(createPng(10, 10, 0xff0000));
+    drawing.add(f1);
+    drawing.add(f2);
+
+    assertThat(drawing.getImageStore().size()).isEqualTo(1);
+    assertThat(f1.getImageData() == f2.getImageData()).isTrue();
+    assertThat(f1.getBufferedImage() == f2.getBufferedImage()).isTrue();
+  }
+
+  @Test
+  void testImageIsDecodedOnDemand() throws IOException {
+    ImageStore store = new ImageStore();
+    ImageStore.Entry entry = store.add(createPng(10, 10, 0xff0000));
+
+    assertThat(entry.isDecoded()).isFalse();
+    assertThat(store.getDecodedBytes()).isEqualTo(0L);
+    assertThat(entry.getImage().getWidth()).isEqualTo(10);
+    assertThat(entry.isDecoded()).isTrue();
+    assertThat(store.getDecodedBytes()).isEqualTo(400L);
+  }
+
+  @Test
+  void testConcurrentRequestsDecodeOnce() throws Exception {
+    ImageStore store = new ImageStore();
+    ImageStore.Entry entry = store.add(createPng(200, 200, 0xff0000));
+    BufferedImage[] images = new BufferedImage[8];
+    Thread[] threads = new Thread[images.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread(() -> images[index] = entry.getImage());
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    for (BufferedImage image : images) {
+      assertThat(image == images[0]).isTrue();
+    }
+    assertThat(store.getDecodedBytes()).isEqualTo(200L * 200 * 4);
+  }
+
+  @Test
+  void testLeastRecentlyUsedPixelsAreEvicted() throws IOException {
+    ImageStore store = new ImageStore(500);
+    ImageStore.Entry e1 = store.add(createPng(10, 10, 0xff0000));
+    ImageStore.Entry e2 = store.add(createPng(10, 10, 0x00ff00));
+    e1.getImage();
+    e2.getImage();
+
+    assertThat(e1.isDecoded()).isFalse();
+    assertThat(e2.isDecoded()).isTrue();
+    assertThat(store.getDecodedBytes()).isEqualTo(400L);
+    // The image data stays, so the pixels can be decoded again
+    assertThat(e1.getImage().getRGB(5, 5)).isEqualTo(0xffff0000);
+    assertThat(e2.isDecoded()).isFalse();
+  }
+
+  @Test
+  void testDownsampledVariants() throws IOException {
+    ImageStore store = new ImageStore();
+    ImageStore.Entry entry = store.add(createPng(64, 32, 0x0000ff));
+
+    assertThat(entry.getImage(1.0).getWidth()).isEqualTo(64);
+    assertThat(entry.getImage(0.6).getWidth()).isEqualTo(64);
+    BufferedImage variant = entry.getImage(0.25);
+    assertThat(variant.getWidth()).isEqualTo(16);
+    assertThat(variant.getHeight()).isEqualTo(8);
+    assertThat(variant.getRGB(8, 4)).isEqualTo(0xff0000ff);
+    assertThat(entry.getImage(0.2) == variant).isTrue();
+    assertThat(store.getDecodedBytes()).isEqualTo((64 * 32 + 32 * 16 + 16 * 8) * 4L);
+  }
+}
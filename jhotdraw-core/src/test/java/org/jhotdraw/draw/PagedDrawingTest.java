@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.datatransfer.Transferable;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.UndoableEdit;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.draw.io.OutputFormat;
+import org.jhotdraw.draw.io.PageStore;
+import org.junit.jupiter.api.Test;
+
+public class PagedDrawingTest {
+
+  /** Keeps the pages in memory and counts the reads. */
+  private static class MemoryPageStore implements PageStore {
+
+    final Map<Long, List<Figure>> figures = new HashMap<>();
+    final Map<Long, Rectangle2D.Double> bounds = new HashMap<>();
+    final Map<Long, double[]> ranks = new HashMap<>();
+    int readCount;
+
+    @Override
+    public Map<Long, Rectangle2D.Double> getPages() {
+      return new HashMap<>(bounds);
+    }
+
+    @Override
+    public List<Figure> readPage(long key) {
+      readCount++;
+      return new ArrayList<>(figures.getOrDefault(key, new ArrayList<>()));
+    }
+
+    @Override
+    public void writePage(long key, List<Figure> figures, Rectangle2D.Double bounds) {
+      if (figures.isEmpty()) {
+        this.figures.remove(key);
+        this.bounds.remove(key);
+      } else {
+        this.figures.put(key, new ArrayList<>(figures));
+        this.bounds.put(key, bounds);
+      }
+      ranks.remove(key);
+    }
+
+    @Override
+    public double[] getRanks(long key) {
+      return ranks.get(key);
+    }
+
+    @Override
+    public void setRanks(long key, double[] ranks) {
+      this.ranks.put(key, ranks.clone());
+    }
+  }
+
+  /** Records the figures which the drawing has, when it is written. */
+  private static class RecordingOutputFormat implements OutputFormat {
+
+    final List<Figure> written = new ArrayList<>();
+
+    @Override
+    public FileFilter getFileFilter() {
+      return null;
+    }
+
+    @Override
+    public String getFileExtension() {
+      return "rec";
+    }
+
+    @Override
+    public void write(URI uri, Drawing drawing) throws IOException {
+      write((OutputStream) null, drawing);
+    }
+
+    @Override
+    public void write(OutputStream out, Drawing drawing) {
+      written.addAll(drawing.getChildren());
+    }
+
+    @Override
+    public Transferable createTransferable(
+        Drawing drawing, List<Figure> figures, double scaleFactor) {
+      return null;
+    }
+  }
+
+  /** Creates a store with one small rectangle in each of 10 x 10 pages. */
+  private static MemoryPageStore createStore() throws IOException {
+    MemoryPageStore store = new MemoryPageStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    for (int x = 0; x < 10; x++) {
+      for (int y = 0; y < 10; y++) {
+        drawing.add(new RectangleFigure(x * 100 + 40, y * 100 + 40, 20, 20));
+      }
+    }
+    drawing.save();
+    return store;
+  }
+
+  @Test
+  public void testSaveWritesOnePagePerCell() throws IOException {
+    MemoryPageStore store = createStore();
+    assertThat(store.figures).hasSize(100);
+    assertThat(store.figures.values()).allSatisfy(list -> assertThat(list).hasSize(1));
+  }
+
+  @Test
+  public void testPagesAreLoadedOnDemand() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    assertThat(drawing.getChildCount()).isZero();
+    assertThat(drawing.getDrawingArea().contains(new Rectangle2D.Double(40, 40, 920, 920)))
+        .isTrue();
+
+    Figure f = drawing.findFigure(new Point2D.Double(250, 350));
+    assertThat(f).isNotNull();
+    assertThat(drawing.getChildCount()).isEqualTo(1);
+
+    List<Figure> figures = drawing.findFigures(new Rectangle2D.Double(0, 0, 300, 300));
+    assertThat(figures).hasSize(9);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedPagesAreEvicted() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(4);
+
+    drawing.findFigures(new Rectangle2D.Double(0, 0, 200, 200));
+    assertThat(drawing.getLoadedFigureCount()).isEqualTo(4);
+    drawing.findFigures(new Rectangle2D.Double(800, 800, 200, 200));
+    assertThat(drawing.getLoadedFigureCount()).isEqualTo(4);
+    assertThat(drawing.findFigure(new Point2D.Double(50, 50))).isNotNull();
+    assertThat(drawing.getLoadedFigureCount()).isLessThanOrEqualTo(4);
+    assertThat(store.readCount).isEqualTo(9);
+  }
+
+  @Test
+  public void testMovedFigureIsWrittenBackOnSave() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(1);
+
+    Figure f = drawing.findFigure(new Point2D.Double(50, 50));
+    f.willChange();
+    f.transform(AffineTransform.getTranslateInstance(500, 0));
+    f.changed();
+    // Changed pages are not evicted before they have been saved
+    drawing.findFigures(new Rectangle2D.Double(0, 800, 1000, 200));
+    assertThat(drawing.getChildren()).contains(f);
+
+    drawing.save();
+    assertThat(store.figures).hasSize(99);
+    assertThat(store.figures.get(5L << 32)).hasSize(2);
+
+    PagedDrawing reopened = new PagedDrawing(store, 100);
+    assertThat(reopened.findFigures(new Rectangle2D.Double(500, 0, 100, 100))).hasSize(2);
+    assertThat(reopened.findFigures(new Rectangle2D.Double(0, 0, 100, 100))).isEmpty();
+  }
+
+  @Test
+  public void testRemoveAllChildrenClearsUnloadedPages() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.findFigure(new Point2D.Double(50, 50));
+    drawing.removeAllChildren();
+    drawing.save();
+    assertThat(store.figures).isEmpty();
+    assertThat(drawing.getPageCount()).isEqualTo(1);
+  }
+
+  private static void move(Figure f, double dx) {
+    f.willChange();
+    f.transform(AffineTransform.getTranslateInstance(dx, 0));
+    f.changed();
+  }
+
+  @Test
+  public void testZOrderDoesNotDependOnLoadOrder() throws IOException {
+    MemoryPageStore store = new MemoryPageStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.add(new RectangleFigure(240, 40, 20, 20));
+    drawing.add(new RectangleFigure(40, 40, 20, 20));
+    drawing.add(new RectangleFigure(140, 40, 20, 20));
+    drawing.save();
+    drawing.setMaxLoadedFigures(1);
+    drawing.findFigure(new Point2D.Double(150, 50));
+
+    drawing.setMaxLoadedFigures(3);
+    drawing.findFigure(new Point2D.Double(250, 50));
+    drawing.findFigure(new Point2D.Double(50, 50));
+    drawing.findFigure(new Point2D.Double(150, 50));
+    assertThat(getCenterXs(drawing)).containsExactly(250d, 50d, 150d);
+  }
+
+  private static List<Double> getCenterXs(Drawing drawing) {
+    List<Double> xs = new ArrayList<>();
+    for (Figure f : drawing.getChildren()) {
+      xs.add(f.getDrawingArea().getCenterX());
+    }
+    return xs;
+  }
+
+  @Test
+  public void testZOrderIsRestoredWhenTheDrawingIsOpenedAgain() throws IOException {
+    MemoryPageStore store = new MemoryPageStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.add(new RectangleFigure(40, 40, 20, 20));
+    drawing.add(new RectangleFigure(140, 40, 20, 20));
+    drawing.add(new RectangleFigure(240, 40, 20, 20));
+    drawing.save();
+
+    PagedDrawing reopened = new PagedDrawing(store, 100);
+    reopened.bringToFront(reopened.findFigure(new Point2D.Double(50, 50)));
+    reopened.sendToBack(reopened.findFigure(new Point2D.Double(250, 50)));
+    reopened.save();
+
+    PagedDrawing again = new PagedDrawing(store, 100);
+    again.findFigure(new Point2D.Double(150, 50));
+    again.findFigure(new Point2D.Double(50, 50));
+    again.findFigure(new Point2D.Double(250, 50));
+    assertThat(getCenterXs(again)).containsExactly(250d, 150d, 50d);
+  }
+
+  @Test
+  public void testOutputFormatWritesPagesWhichAreNotLoaded() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(4);
+    RecordingOutputFormat format = new RecordingOutputFormat();
+    drawing.addOutputFormat(format);
+
+    drawing.getOutputFormats().get(0).write((OutputStream) null, drawing);
+    assertThat(format.written).hasSize(100);
+    assertThat(drawing.getLoadedFigureCount()).isLessThanOrEqualTo(4);
+  }
+
+  @Test
+  public void testPagesReferencedByEditsAreNotEvicted() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(1);
+
+    Figure f = drawing.findFigure(new Point2D.Double(50, 50));
+    move(f, 5);
+    UndoableEdit edit = new AbstractUndoableEdit();
+    drawing.fireUndoableEditHappened(edit);
+    drawing.save();
+    drawing.findFigures(new Rectangle2D.Double(0, 800, 1000, 200));
+    assertThat(drawing.getChildren()).contains(f);
+    assertThat(edit.canUndo()).isTrue();
+  }
+
+  @Test
+  public void testChangedPageIsWrittenBackBeforeEviction() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(1);
+
+    Figure f = drawing.findFigure(new Point2D.Double(50, 50));
+    move(f, 5);
+    UndoableEdit edit = new AbstractUndoableEdit();
+    drawing.fireUndoableEditHappened(edit);
+    WeakReference<UndoableEdit> ref = new WeakReference<>(edit);
+    edit = null;
+    for (int i = 0; i < 50 && ref.get() != null; i++) {
+      System.gc();
+    }
+    assertThat(ref.get()).isNull();
+
+    drawing.findFigures(new Rectangle2D.Double(0, 800, 1000, 200));
+    assertThat(drawing.getChildren()).doesNotContain(f);
+    assertThat(store.figures.get(0L).get(0).getDrawingArea().getCenterX()).isEqualTo(55d);
+  }
+
+  @Test
+  public void testPagesWithSelectedFiguresAreNotEvicted() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    DefaultDrawingView view = new DefaultDrawingView();
+    view.setDrawing(drawing);
+    view.addFigureSelectionListener(drawing);
+    drawing.setMaxLoadedFigures(1);
+
+    Figure f = drawing.findFigure(new Point2D.Double(50, 50));
+    view.addToSelection(f);
+    drawing.findFigures(new Rectangle2D.Double(0, 800, 1000, 200));
+    assertThat(drawing.getChildren()).contains(f);
+
+    view.clearSelection();
+    drawing.findFigures(new Rectangle2D.Double(0, 800, 1000, 200));
+    assertThat(drawing.getChildren()).doesNotContain(f);
+  }
+
+  @Test
+  public void testCloneCopiesAllPages() throws IOException {
+    MemoryPageStore store = createStore();
+    PagedDrawing drawing = new PagedDrawing(store, 100);
+    drawing.setMaxLoadedFigures(4);
+    Figure f = drawing.findFigure(new Point2D.Double(50, 50));
+
+    PagedDrawing clone = drawing.clone();
+    assertThat(clone.findFigures(new Rectangle2D.Double(0, 0, 1000, 1000))).hasSize(100);
+    assertThat(clone.getChildren()).doesNotContain(f);
+
+    clone.add(new RectangleFigure(40, 40, 20, 20));
+    clone.save();
+    assertThat(store.figures.get(0L)).hasSize(1);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.junit.jupiter.api.Test;
+
+public class RenderRecorderTest {
+
+  private static Drawing createDrawing() {
+    Drawing drawing = new DefaultDrawing();
+    for (int i = 0; i < 4; i++) {
+      RectangleFigure f = new RectangleFigure();
+      f.setBounds(new Point2D.Double(i * 100, 10), new Point2D.Double(i * 100 + 50, 60));
+      drawing.add(f);
+    }
+    return drawing;
+  }
+
+  @Test
+  public void testFiguresOutsideOfTheClipAreCulled() {
+    Drawing drawing = createDrawing();
+    BufferedImage img = new BufferedImage(400, 100, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = img.createGraphics();
+    g.setClip(0, 0, 180, 100);
+    RenderRecorder recorder = new RenderRecorder();
+    recorder.install(g);
+    recorder.beginFrame();
+    drawing.draw(g);
+    recorder.endPhase(RenderMetrics.Phase.DRAWING);
+    RenderMetrics metrics = recorder.endFrame();
+    g.dispose();
+
+    assertThat(metrics.getFiguresDrawn()).isEqualTo(2);
+    assertThat(metrics.getFiguresCulled()).isEqualTo(2);
+    assertThat(metrics.getFigureClassNanos()).containsOnlyKeys(RectangleFigure.class);
+    assertThat(metrics.getPhaseNanos(RenderMetrics.Phase.DRAWING)).isPositive();
+  }
+
+  @Test
+  public void testDrawingWithoutRecorder() {
+    Drawing drawing = createDrawing();
+    BufferedImage img = new BufferedImage(400, 100, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = img.createGraphics();
+    g.setClip(0, 0, 400, 100);
+    assertThat(RenderRecorder.get(g)).isNull();
+    drawing.draw(g);
+    g.dispose();
+  }
+}
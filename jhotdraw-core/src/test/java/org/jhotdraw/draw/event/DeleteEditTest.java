@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.draw.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jhotdraw.draw.DefaultDrawingView;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.DrawingView;
+import org.jhotdraw.draw.QuadTreeDrawing;
+import org.jhotdraw.draw.figure.AbstractAttributedFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.undo.UndoJournal;
+import org.jhotdraw.undo.UndoRedoManager;
+import org.junit.jupiter.api.Test;
+
+public class DeleteEditTest {
+
+  private static UndoJournal createJournal() throws IOException {
+    return UndoJournal.createTempJournal(
+        o -> o instanceof Figure || o instanceof Drawing || o instanceof DrawingView,
+        o -> o instanceof AbstractAttributedFigure
+            && !(o instanceof Drawing)
+            && ((AbstractAttributedFigure) o).getDrawing() == null);
+  }
+
+  private static TransformEdit move(Figure f, double dx) {
+    AffineTransform tx = AffineTransform.getTranslateInstance(dx, 0);
+    f.willChange();
+    f.transform(tx);
+    f.changed();
+    return new TransformEdit(Collections.singleton(f), tx);
+  }
+
+  @Test
+  public void testSpilledDeleteEditReleasesTheDeletedFigures() throws IOException {
+    try (UndoJournal journal = createJournal()) {
+      DrawingView view = new DefaultDrawingView();
+      Drawing drawing = new QuadTreeDrawing();
+      view.setDrawing(drawing);
+      UndoRedoManager manager = new UndoRedoManager();
+      manager.setJournal(journal);
+      RectangleFigure deleted = new RectangleFigure(10, 10, 20, 20);
+      RectangleFigure kept = new RectangleFigure(50, 10, 20, 20);
+      drawing.add(deleted);
+      drawing.add(kept);
+
+      manager.addEdit(move(deleted, 5));
+      drawing.remove(deleted);
+      List<Figure> deletedFigures = new ArrayList<>();
+      deletedFigures.add(deleted);
+      manager.addEdit(new DeleteEdit(view, deletedFigures, new int[] {0}));
+      manager.addEdit(move(kept, 5));
+      manager.setInMemoryWindow(1);
+
+      // The journal holds the state of the deleted figure, but not the figure itself
+      WeakReference<Figure> ref = new WeakReference<>(deleted);
+      deleted = null;
+      deletedFigures = null;
+      for (int i = 0; i < 20 && ref.get() != null; i++) {
+        System.gc();
+      }
+      assertThat(ref.get()).isNull();
+      // Only the view is kept reachable
+      assertThat(journal.getSharedObjectCount()).isEqualTo(1);
+
+      manager.undo();
+      manager.undo();
+      assertThat(drawing.getChildCount()).isEqualTo(2);
+      Figure restored = drawing.getChild(0);
+      assertThat(restored.getStartPoint()).isEqualTo(new Point2D.Double(15, 10));
+
+      // The earlier edit operates on the restored copy
+      manager.undo();
+      assertThat(restored.getStartPoint()).isEqualTo(new Point2D.Double(10, 10));
+      manager.redo();
+      manager.redo();
+      assertThat(drawing.getChildren()).containsExactly(kept);
+    }
+  }
+}
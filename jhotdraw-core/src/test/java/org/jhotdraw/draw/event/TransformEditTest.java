@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.AffineTransform;
+import java.util.Collections;
+import org.jhotdraw.draw.figure.BezierFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.geom.path.BezierPath;
+import org.junit.jupiter.api.Test;
+
+public class TransformEditTest {
+
+  private static final AffineTransform NUDGE = AffineTransform.getTranslateInstance(1, 0);
+
+  private static BezierFigure createFigure() {
+    BezierFigure f = new BezierFigure();
+    f.addNode(new BezierPath.Node(10, 30));
+    f.addNode(new BezierPath.Node(30, 45));
+    return f;
+  }
+
+  @Test
+  public void testNudgesAreCoalesced() {
+    BezierFigure f = createFigure();
+    TransformEdit edit = new TransformEdit(Collections.<Figure>singleton(f), NUDGE, true);
+    assertThat(edit.addEdit(new TransformEdit(Collections.<Figure>singleton(f), NUDGE, true)))
+        .isTrue();
+    edit.undo();
+    assertThat(f.getStartPoint().x).isEqualTo(8.0);
+  }
+
+  @Test
+  public void testDragsAreNotCoalesced() {
+    BezierFigure f = createFigure();
+    TransformEdit edit = new TransformEdit(Collections.<Figure>singleton(f), NUDGE);
+    assertThat(edit.addEdit(new TransformEdit(Collections.<Figure>singleton(f), NUDGE)))
+        .isFalse();
+    assertThat(edit.addEdit(new TransformEdit(Collections.<Figure>singleton(f), NUDGE, true)))
+        .isFalse();
+  }
+}
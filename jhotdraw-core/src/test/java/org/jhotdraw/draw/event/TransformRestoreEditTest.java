@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import org.jhotdraw.draw.figure.BezierFigure;
+import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.undo.MemoryEstimator;
+import org.junit.jupiter.api.Test;
+
+public class TransformRestoreEditTest {
+
+  private static BezierFigure createFigure(int nodeCount) {
+    BezierFigure f = new BezierFigure();
+    for (int i = 0; i < nodeCount; i++) {
+      f.addNode(new BezierPath.Node(10 + i * 20, 30 + (i % 2) * 15));
+    }
+    return f;
+  }
+
+  private static TransformRestoreEdit transform(BezierFigure f, AffineTransform tx) {
+    Object oldData = f.getTransformRestoreData();
+    f.willChange();
+    f.transform(tx);
+    f.changed();
+    return new TransformRestoreEdit(f, oldData, f.getTransformRestoreData());
+  }
+
+  private static void assertPath(BezierFigure f, BezierPath expected) {
+    BezierPath actual = f.getBezierPath();
+    assertThat(actual.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      BezierPath.Node a = actual.nodes().get(i);
+      BezierPath.Node e = expected.nodes().get(i);
+      for (int j = 0; j < 3; j++) {
+        assertThat(Math.abs(a.x[j] - e.x[j])).isLessThan(1e-9);
+        assertThat(Math.abs(a.y[j] - e.y[j])).isLessThan(1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testRotationIsStoredAsTransform() {
+    BezierFigure f = createFigure(5);
+    BezierPath before = f.getBezierPath().clone();
+    TransformRestoreEdit edit = transform(f, AffineTransform.getRotateInstance(0.3, 50, 40));
+    BezierPath after = f.getBezierPath().clone();
+    assertThat(edit.getEstimatedSize())
+        .isLessThan(2 * MemoryEstimator.estimateBezierPath(5));
+
+    edit.undo();
+    assertPath(f, before);
+    edit.redo();
+    assertPath(f, after);
+  }
+
+  @Test
+  public void testDegeneratePathsKeepSnapshots() {
+    for (int nodeCount = 0; nodeCount < 2; nodeCount++) {
+      BezierFigure f = createFigure(nodeCount);
+      BezierPath before = f.getBezierPath().clone();
+      TransformRestoreEdit edit = transform(f, AffineTransform.getScaleInstance(2, 3));
+      BezierPath after = f.getBezierPath().clone();
+      assertThat(edit.getEstimatedSize())
+          .isGreaterThanOrEqualTo(2 * MemoryEstimator.estimateBezierPath(nodeCount));
+
+      edit.undo();
+      assertPath(f, before);
+      edit.redo();
+      assertPath(f, after);
+    }
+  }
+
+  @Test
+  public void testNonAffineChangeKeepsSnapshots() {
+    BezierFigure f = createFigure(3);
+    Object oldData = f.getTransformRestoreData();
+    f.willChange();
+    f.setPoint(1, new Point2D.Double(500, 500));
+    f.changed();
+    BezierPath after = f.getBezierPath().clone();
+    TransformRestoreEdit edit = new TransformRestoreEdit(f, oldData, f.getTransformRestoreData());
+
+    edit.undo();
+    assertPath(f, (BezierPath) oldData);
+    edit.redo();
+    assertPath(f, after);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw.text;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import org.jhotdraw.draw.figure.TextAreaFigure;
+import org.jhotdraw.geom.Dimension2DDouble;
+import org.junit.jupiter.api.Test;
+
+public class TextAreaLayoutTest {
+
+  private static final Font FONT = new Font("Dialog", Font.PLAIN, 12);
+  private static final FontRenderContext FRC =
+      new FontRenderContext(new AffineTransform(), true, true);
+
+  @Test
+  public void testMatches() {
+    TextAreaLayout layout = new TextAreaLayout("Hello World", FONT, false, 200, 50, 4, FRC);
+    assertThat(layout.matches(new String("Hello World"), FONT, false, 200, 50, 4, FRC)).isTrue();
+    assertThat(layout.matches("Hello World!", FONT, false, 200, 50, 4, FRC)).isFalse();
+    assertThat(layout.matches("Hello World", FONT, true, 200, 50, 4, FRC)).isFalse();
+    assertThat(layout.matches("Hello World", FONT, false, 100, 50, 4, FRC)).isFalse();
+    assertThat(layout.matches("Hello World", FONT.deriveFont(14f), false, 200, 50, 4, FRC))
+        .isFalse();
+  }
+
+  @Test
+  public void testLinesAreWrapped() {
+    String text = "The quick brown fox jumps over the lazy dog";
+    Rectangle2D.Double wide = new TextAreaLayout(text, FONT, false, 1000, 50, 0, FRC).getBounds();
+    Rectangle2D.Double narrow = new TextAreaLayout(text, FONT, false, 60, 50, 0, FRC).getBounds();
+    assertThat(narrow.width).isLessThan(wide.width);
+    assertThat(narrow.height).isGreaterThan(2 * wide.height);
+  }
+
+  @Test
+  public void testParagraphsAndTabs() {
+    Rectangle2D.Double one = new TextAreaLayout("a", FONT, false, 1000, 50, 10, FRC).getBounds();
+    Rectangle2D.Double two =
+        new TextAreaLayout("a\n\nb", FONT, false, 1000, 50, 10, FRC).getBounds();
+    Rectangle2D.Double tabs =
+        new TextAreaLayout("a\t\tb", FONT, false, 1000, 50, 10, FRC).getBounds();
+    assertThat(two.height).isGreaterThan(2 * one.height);
+    assertThat(tabs.width).isGreaterThan(100);
+  }
+
+  @Test
+  public void testOutlineIsTranslated() {
+    TextAreaLayout layout = new TextAreaLayout("Hello", FONT, false, 200, 50, 4, FRC);
+    Path2D.Double p = new Path2D.Double();
+    Path2D.Double q = new Path2D.Double();
+    layout.appendOutline(p, 0, 0, Float.MAX_VALUE);
+    layout.appendOutline(q, 100, 50, Float.MAX_VALUE);
+    Rectangle2D pb = p.getBounds2D();
+    Rectangle2D qb = q.getBounds2D();
+    assertThat(qb.getX() - pb.getX()).isCloseTo(100, offset(1e-3));
+    assertThat(qb.getY() - pb.getY()).isCloseTo(50, offset(1e-3));
+
+    Path2D.Double none = new Path2D.Double();
+    layout.appendOutline(none, 0, 0, 0);
+    assertThat(none.getBounds2D().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testPreferredTextSizeFollowsText() {
+    TextAreaFigure f = new TextAreaFigure("Hello");
+    f.setBounds(new Point2D.Double(0, 0), new Point2D.Double(200, 100));
+    Dimension2DDouble one = f.getPreferredTextSize(200);
+    assertThat(f.getPreferredTextSize(200).height).isEqualTo(one.height);
+    f.setText("Hello\nWorld");
+    assertThat(f.getPreferredTextSize(200).height).isGreaterThan(one.height);
+  }
+}
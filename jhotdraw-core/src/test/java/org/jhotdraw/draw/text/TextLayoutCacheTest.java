@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw.text;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import org.jhotdraw.draw.AttributeKeys;
+import org.jhotdraw.draw.figure.TextFigure;
+import org.junit.jupiter.api.Test;
+
+public class TextLayoutCacheTest {
+
+  private static final Font FONT = new Font("Dialog", Font.PLAIN, 12);
+  private static final FontRenderContext FRC =
+      new FontRenderContext(new AffineTransform(), true, true);
+
+  @Test
+  public void testFontsAreShared() {
+    TextLayoutCache cache = new TextLayoutCache(16, 16);
+    Font a = cache.getFont(FONT, Font.BOLD, 14f);
+    Font b = cache.getFont(new Font("Dialog", Font.PLAIN, 12), Font.BOLD, 14f);
+    assertThat(b == a).isTrue();
+    assertThat(a.getStyle()).isEqualTo(Font.BOLD);
+    assertThat(a.getSize2D()).isEqualTo(14f);
+    assertThat(cache.getFont(FONT, Font.BOLD, 15f) == a).isFalse();
+    assertThat(cache.getFontHits()).isEqualTo(1L);
+    assertThat(cache.getFontMisses()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testLayoutsAreShared() {
+    TextLayoutCache cache = new TextLayoutCache(16, 16);
+    TextLayout a = cache.getTextLayout("Hello", FONT, false, FRC);
+    assertThat(cache.getTextLayout(new String("Hello"), FONT, false, FRC) == a).isTrue();
+    assertThat(cache.getTextLayout("Hello", FONT, true, FRC) == a).isFalse();
+    assertThat(cache.getLayoutHits()).isEqualTo(1L);
+    assertThat(cache.getLayoutMisses()).isEqualTo(2L);
+
+    cache.clear();
+    assertThat(cache.getLayoutHits()).isEqualTo(0L);
+    assertThat(cache.getTextLayout("Hello", FONT, false, FRC) == a).isFalse();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedLayoutIsDiscarded() {
+    TextLayoutCache cache = new TextLayoutCache(16, 2);
+    TextLayout a = cache.getTextLayout("a", FONT, false, FRC);
+    TextLayout b = cache.getTextLayout("b", FONT, false, FRC);
+    cache.getTextLayout("a", FONT, false, FRC);
+    cache.getTextLayout("c", FONT, false, FRC);
+    assertThat(cache.getTextLayout("a", FONT, false, FRC) == a).isTrue();
+    assertThat(cache.getTextLayout("b", FONT, false, FRC) == b).isFalse();
+  }
+
+  @Test
+  public void testTextFiguresShareLayouts() {
+    TextFigure f1 = new TextFigure("Label");
+    TextFigure f2 = new TextFigure("Label");
+    f1.attr().set(AttributeKeys.IS_STROKE_PIXEL_VALUE, true);
+    f2.attr().set(AttributeKeys.IS_STROKE_PIXEL_VALUE, true);
+    TextLayoutCache cache = TextLayoutCache.getInstance();
+    f1.getBounds(1.0);
+    long hits = cache.getLayoutHits();
+    long misses = cache.getLayoutMisses();
+    f1.getBounds(1.0);
+    f2.getBounds(1.0);
+    assertThat(cache.getLayoutHits() - hits).isEqualTo(2L);
+    assertThat(cache.getLayoutMisses() - misses).isEqualTo(0L);
+    assertThat(f2.getFont() == f1.getFont()).isTrue();
+  }
+}
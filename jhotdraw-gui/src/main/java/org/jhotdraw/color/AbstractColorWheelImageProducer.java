@@ -14,10 +14,15 @@ import java.awt.color.ColorSpace;
 import java.awt.geom.Point2D;
 import java.awt.image.ColorModel;
 import java.awt.image.MemoryImageSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /** AbstractColorWheelImageProducer. */
 public abstract class AbstractColorWheelImageProducer extends MemoryImageSource {
 
+  /** The minimal number of pixels, for which the generation is split across processors. */
+  private static final int PARALLEL_THRESHOLD = 1 << 14;
+
   protected int[] pixels;
   protected int w, h;
   protected ColorSpace colorSpace;
@@ -78,6 +83,72 @@ public abstract class AbstractColorWheelImageProducer extends MemoryImageSource
 
   protected abstract void generateColorWheel();
 
+  /**
+   * Converts the color components of all visible pixels into the pixels array.
+   *
+   * <p>Large images are divided into bands of rows, which are converted in parallel. The color
+   * space must therefore support concurrent conversions, which all color spaces of this package
+   * do.
+   *
+   * @param angulars the angular component values of the pixels
+   * @param radials the radial component values of the pixels
+   * @param verticals the vertical component values of the pixels, or null if all pixels have the
+   *     vertical value of the producer
+   * @param alphas the alpha values of the pixels, pixels with alpha 0 are not converted
+   */
+  protected void generatePixels(
+      float[] angulars, float[] radials, float[] verticals, int[] alphas) {
+    int n = pixels.length;
+    int bands = (n < PARALLEL_THRESHOLD)
+        ? 1
+        : Math.min(h, Runtime.getRuntime().availableProcessors() * 4);
+    int bandSize = (h + bands - 1) / bands * w;
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[Math.max(0, bands - 1)];
+    for (int i = 0; i < tasks.length; i++) {
+      int from = Math.min(n, (i + 1) * bandSize);
+      int to = Math.min(n, from + bandSize);
+      tasks[i] = CompletableFuture.runAsync(
+          () -> generatePixels(from, to, angulars, radials, verticals, alphas),
+          ForkJoinPool.commonPool());
+    }
+    generatePixels(0, Math.min(n, bandSize), angulars, radials, verticals, alphas);
+    CompletableFuture.allOf(tasks).join();
+  }
+
+  /** Converts the visible pixels of a band with a single bulk conversion. */
+  private void generatePixels(
+      int from, int to, float[] angulars, float[] radials, float[] verticals, int[] alphas) {
+    int n = colorSpace.getNumComponents();
+    float[] colorvalues = new float[(to - from) * n];
+    int count = 0;
+    for (int index = from; index < to; index++) {
+      if (alphas[index] != 0) {
+        int i = count++ * n;
+        colorvalues[i + angularIndex] = angulars[index];
+        colorvalues[i + radialIndex] = radials[index];
+        colorvalues[i + verticalIndex] = (verticals == null) ? verticalValue : verticals[index];
+      }
+    }
+    int[] rgb24 = ColorUtil.CStoRGB24(colorSpace, colorvalues, new int[count], count);
+    count = 0;
+    for (int index = from; index < to; index++) {
+      if (alphas[index] != 0) {
+        pixels[index] = toPixel(alphas[index], rgb24[count++]);
+      }
+    }
+  }
+
+  /**
+   * Combines the alpha value of a pixel with its color. By default, colors which can not be
+   * displayed in RGB are shown in black.
+   *
+   * @param alpha the alpha value in the upper 8 bits
+   * @param rgb24 the color as returned by {@link ColorUtil#CStoRGB24}
+   */
+  protected int toPixel(int alpha, int rgb24) {
+    return alpha | 0xffffff & rgb24;
+  }
+
   public Point getColorLocation(Color c) {
     float[] components = ColorUtil.fromColor(colorSpace, c);
     return getColorLocation(components);
@@ -77,21 +77,9 @@ public class CIELABColorSpace extends AbstractNamedColorSpace {
     double Rs = 3.2410 * X + -1.5374 * Y + -0.4986 * Z;
     double Gs = -0.9692 * X + 1.8760 * Y + -0.0416 * Z;
     double Bs = 0.0556 * X + -0.2040 * Y + 1.0570 * Z;
-    if (Rs <= 0.00304) {
-      Rs = 12.92 * Rs;
-    } else {
-      Rs = 1.055 * Math.pow(Rs, 1d / 2.4) - 0.055;
-    }
-    if (Gs <= 0.00304) {
-      Gs = 12.92 * Gs;
-    } else {
-      Gs = 1.055 * Math.pow(Gs, 1d / 2.4) - 0.055;
-    }
-    if (Bs <= 0.00304) {
-      Bs = 12.92 * Bs;
-    } else {
-      Bs = 1.055 * Math.pow(Bs, 1d / 2.4) - 0.055;
-    }
+    Rs = ColorUtil.linearToSRGB(Rs);
+    Gs = ColorUtil.linearToSRGB(Gs);
+    Bs = ColorUtil.linearToSRGB(Bs);
     switch (outsideGamutHandling) {
       case CLAMP:
         Rs = Math.min(1, Math.max(0, Rs));
@@ -229,17 +217,17 @@ public class CIELABColorSpace extends AbstractNamedColorSpace {
     double zr = Z / Zw;
     double fx, fy, fz;
     if (xr > EPS) {
-      fx = Math.pow(xr, 1d / 3d);
+      fx = Math.cbrt(xr);
     } else {
       fx = (K * xr + 16d) / 116d;
     }
     if (yr > EPS) {
-      fy = Math.pow(yr, 1d / 3d);
+      fy = Math.cbrt(yr);
     } else {
       fy = (K * yr + 16d) / 116d;
     }
     if (zr > EPS) {
-      fz = Math.pow(zr, 1d / 3d);
+      fz = Math.cbrt(zr);
     } else {
       fz = (K * zr + 16) / 116;
     }
@@ -296,6 +284,7 @@ public class CIELABColorSpace extends AbstractNamedColorSpace {
 
   public void setOutsideGamutHandling(OutsideGamutHandling b) {
     outsideGamutHandling = b;
+    ColorUtil.clearConversionCache();
   }
 
   public OutsideGamutHandling getOutsideGamutHandling() {
@@ -0,0 +1,103 @@
+/*
+ * @(#)ColorConversionCache.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.color;
+
+import java.awt.color.ColorSpace;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small LRU cache of recent color conversions.
+ *
+ * <p>Color sliders and harmonic color models convert the same few colors over and over again, for
+ * example each time they are painted. The cache holds the results of the most recent conversions,
+ * keyed by the source color space, the target color space and the source components. Color spaces
+ * are compared by identity.
+ *
+ * <p>The cache is thread safe. It must be cleared, if a color space changes the way it converts
+ * colors.
+ *
+ * @see ColorUtil
+ */
+final class ColorConversionCache {
+
+  /** The maximal number of conversions in the cache. */
+  private static final int MAX_ENTRIES = 256;
+
+  private final LinkedHashMap<Key, Object> conversions =
+      new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  /**
+   * Returns the cached result of a conversion.
+   *
+   * @param from the source color space
+   * @param to the target color space, or null if the target is a packed RGB value
+   * @param components the components in the source color space
+   * @return the result, or null if the conversion is not in the cache
+   */
+  synchronized Object get(ColorSpace from, ColorSpace to, float[] components) {
+    return conversions.get(new Key(from, to, components));
+  }
+
+  /**
+   * Puts the result of a conversion into the cache. The cache keeps a copy of the components.
+   *
+   * @param from the source color space
+   * @param to the target color space, or null if the target is a packed RGB value
+   * @param components the components in the source color space
+   * @param result the result, which must not be changed afterwards
+   */
+  synchronized void put(ColorSpace from, ColorSpace to, float[] components, Object result) {
+    conversions.put(new Key(from, to, components.clone()), result);
+  }
+
+  /** Removes all conversions from the cache. */
+  synchronized void clear() {
+    conversions.clear();
+  }
+
+  private static final class Key {
+
+    private final ColorSpace from;
+    private final ColorSpace to;
+    private final float[] components;
+    private final int hashCode;
+
+    Key(ColorSpace from, ColorSpace to, float[] components) {
+      this.from = from;
+      this.to = to;
+      this.components = components;
+      this.hashCode = (System.identityHashCode(from) * 31 + System.identityHashCode(to)) * 31
+          + Arrays.hashCode(components);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return this.from == that.from
+          && this.to == that.to
+          && Arrays.equals(this.components, that.components);
+    }
+  }
+}
@@ -86,21 +86,17 @@ public class ColorSquareImageProducer extends AbstractColorWheelImageProducer {
     if (!isLookupValid) {
       generateLookupTables();
     }
-    float[] components = new float[colorSpace.getNumComponents()];
-    float[] rgb = new float[3];
-    for (int index = 0; index < pixels.length; index++) {
-      if (alphas[index] != 0) {
-        components[angularIndex] = angulars[index];
-        components[radialIndex] = radials[index];
-        components[verticalIndex] = verticalValue;
-        pixels[index] =
-            (alphas[index] | 0xffffff) & ColorUtil.CStoRGB24(colorSpace, components, rgb);
-      }
-    }
+    generatePixels(angulars, radials, null, alphas);
     newPixels();
     isPixelsValid = true;
   }
 
+  /** Colors which can not be displayed in RGB are transparent. */
+  @Override
+  protected int toPixel(int alpha, int rgb24) {
+    return (alpha | 0xffffff) & rgb24;
+  }
+
   @Override
   public Point getColorLocation(float[] components) {
     float radial = (components[radialIndex] - colorSpace.getMinValue(radialIndex))
@@ -9,6 +9,7 @@ package org.jhotdraw.color;
 
 import java.awt.color.ColorSpace;
 import java.awt.image.*;
+import java.util.Arrays;
 
 /**
  * ColorTrackImageProducer creates the image for the track of a color slider.
@@ -81,16 +82,19 @@ public class ColorTrackImageProducer extends MemoryImageSource {
   }
 
   private void generateHorizontalColorTrack() {
-    float[] components = colorizer.getComponents();
-    float[] rgb = new float[3];
     ColorSpace cs = colorizer.getColorSpace();
     int offset = trackBuffer / 2;
     float minv = cs.getMinValue(componentIndex);
     float maxv = cs.getMaxValue(componentIndex);
-    for (int x = 0, n = w - trackBuffer - 1; x <= n; x++) {
-      components[componentIndex] = (x / (float) n) * (maxv - minv) + minv;
-      pixels[x + offset] = ColorUtil.CStoRGB24(cs, components, rgb);
+    int count = Math.max(0, w - trackBuffer);
+    int last = count - 1;
+    float[] colorvalues = createColorValues(count);
+    int numComponents = cs.getNumComponents();
+    for (int x = 0; x < count; x++) {
+      colorvalues[x * numComponents + componentIndex] = (x / (float) last) * (maxv - minv) + minv;
     }
+    int[] rgb24 = ColorUtil.CStoRGB24(cs, colorvalues, new int[count], count);
+    System.arraycopy(rgb24, 0, pixels, offset, count);
     for (int x = 0; x < offset; x++) {
       pixels[x] = pixels[offset];
       pixels[w - x - 1] = pixels[w - offset - 1];
@@ -101,26 +105,44 @@ public class ColorTrackImageProducer extends MemoryImageSource {
   }
 
   private void generateVerticalColorTrack() {
-    float[] components = colorizer.getComponents();
-    float[] rgb = new float[3];
     ColorSpace cs = colorizer.getColorSpace();
     int offset = trackBuffer / 2;
     float minv = cs.getMinValue(componentIndex);
     float maxv = cs.getMaxValue(componentIndex);
-    for (int y = 0, n = h - trackBuffer - 1; y <= n; y++) {
+    int count = Math.max(0, h - trackBuffer);
+    int last = count - 1;
+    float[] colorvalues = createColorValues(count);
+    int numComponents = cs.getNumComponents();
+    for (int y = 0; y < count; y++) {
       // Note: removed + minv - minv from formula below
-      components[componentIndex] = maxv - (y / (float) n) * (maxv - minv);
-      pixels[(y + offset) * w] = ColorUtil.CStoRGB24(cs, components, rgb);
+      colorvalues[y * numComponents + componentIndex] = maxv - (y / (float) last) * (maxv - minv);
+    }
+    int[] rgb24 = ColorUtil.CStoRGB24(cs, colorvalues, new int[count], count);
+    for (int y = 0; y < count; y++) {
+      pixels[(y + offset) * w] = rgb24[y];
     }
     for (int y = 0; y < offset; y++) {
       pixels[y * w] = pixels[offset * w];
       pixels[(h - y - 1) * w] = pixels[(h - offset - 1) * w];
     }
-    for (int x = 1; x < w; x++) {
-      for (int y = 0, n = w * h; y < n; y += w) {
-        pixels[x + y] = pixels[x - 1 + y];
-      }
+    // Fill row by row, so that the pixels are written in memory order
+    for (int y = 0, n = w * h; y < n; y += w) {
+      Arrays.fill(pixels, y + 1, y + w, pixels[y]);
+    }
+  }
+
+  /**
+   * Returns the packed components of the specified number of colors, which all have the components
+   * of the color slider model.
+   */
+  private float[] createColorValues(int count) {
+    float[] components = colorizer.getComponents();
+    int numComponents = colorizer.getColorSpace().getNumComponents();
+    float[] colorvalues = new float[count * numComponents];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(components, 0, colorvalues, i * numComponents, numComponents);
     }
+    return colorvalues;
   }
 
   public void setColorSliderModel(ColorSliderModel colorizer) {
@@ -24,6 +24,21 @@ public class ColorUtil {
   private static ColorToolTipTextFormatter formatter;
   private static final ColorSpace SRGB = ColorSpace.getInstance(ColorSpace.CS_sRGB);
 
+  /** Recent results of {@link #fromColor} and {@link #toRGB24}. */
+  private static final ColorConversionCache CACHE = new ColorConversionCache();
+
+  /** The number of intervals of the sRGB gamma lookup table. */
+  private static final int GAMMA_TABLE_SIZE = 4096;
+
+  /** Lookup table for the sRGB gamma of linear values from 0 to 1. */
+  private static final double[] GAMMA_TABLE = new double[GAMMA_TABLE_SIZE + 1];
+
+  static {
+    for (int i = 0; i <= GAMMA_TABLE_SIZE; i++) {
+      GAMMA_TABLE[i] = 1.055 * Math.pow(i / (double) GAMMA_TABLE_SIZE, 1d / 2.4) - 0.055;
+    }
+  }
+
   /** Prevent instance creation. */
   private ColorUtil() {}
 
@@ -33,7 +48,13 @@ public class ColorUtil {
       float[] components = c.getComponents(null);
       return components;
     } else {
-      return c.getComponents(colorSpace, null);
+      float[] components = c.getComponents(null);
+      float[] converted = (float[]) CACHE.get(c.getColorSpace(), colorSpace, components);
+      if (converted == null) {
+        converted = c.getComponents(colorSpace, null);
+        CACHE.put(c.getColorSpace(), colorSpace, components, converted);
+      }
+      return converted.clone();
     }
   }
 
@@ -54,19 +75,66 @@ public class ColorUtil {
 
   /** Returns an rgb value from color components in the specified color space. */
   public static int toRGB24(ColorSpace colorSpace, float... components) {
-    return CStoRGB24(colorSpace, components, new float[3]);
+    Integer rgb24 = (Integer) CACHE.get(colorSpace, null, components);
+    if (rgb24 == null) {
+      rgb24 = CStoRGB24(colorSpace, components, new float[3]);
+      CACHE.put(colorSpace, null, components, rgb24);
+    }
+    return rgb24;
   }
 
   public static int CStoRGB24(ColorSpace colorSpace, float[] components, float[] rgb) {
     CStoRGB(colorSpace, components, rgb);
+    return toRGB24(rgb[0], rgb[1], rgb[2]);
+  }
+
+  /**
+   * Converts several colors into rgb values in a single call. The components of the colors are
+   * packed one color after the other. Colors which are not displayable in RGB are converted into
+   * transparent black.
+   *
+   * @param colorSpace the color space of the colors
+   * @param colorvalues the components, {@code colorSpace.getNumComponents()} values per color
+   * @param rgb24 the output array, one value per color
+   * @param count the number of colors
+   * @return the output array
+   */
+  public static int[] CStoRGB24(
+      ColorSpace colorSpace, float[] colorvalues, int[] rgb24, int count) {
+    float[] rgbs;
+    if (colorSpace instanceof NamedColorSpace) {
+      rgbs = ((NamedColorSpace) colorSpace).toRGB(colorvalues, new float[count * 3], count);
+    } else {
+      int n = colorSpace.getNumComponents();
+      float[] colorvalue = new float[n];
+      float[] rgb = new float[3];
+      rgbs = new float[count * 3];
+      for (int i = 0; i < count; i++) {
+        System.arraycopy(colorvalues, i * n, colorvalue, 0, n);
+        CStoRGB(colorSpace, colorvalue, rgb);
+        System.arraycopy(rgb, 0, rgbs, i * 3, 3);
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      rgb24[i] = toRGB24(rgbs[i * 3], rgbs[i * 3 + 1], rgbs[i * 3 + 2]);
+    }
+    return rgb24;
+  }
+
+  private static int toRGB24(float r, float g, float b) {
     // If the color is not displayable in RGB, we return transparent black.
-    if (rgb[0] < 0f || rgb[1] < 0f || rgb[2] < 0f || rgb[0] > 1f || rgb[1] > 1f || rgb[2] > 1f) {
+    if (r < 0f || g < 0f || b < 0f || r > 1f || g > 1f || b > 1f) {
       return 0;
     }
-    return 0xff000000
-        | ((int) (rgb[0] * 255f) << 16)
-        | ((int) (rgb[1] * 255f) << 8)
-        | (int) (rgb[2] * 255f);
+    return 0xff000000 | ((int) (r * 255f) << 16) | ((int) (g * 255f) << 8) | (int) (b * 255f);
+  }
+
+  /**
+   * Clears the cache of recent conversions. This must be invoked when a color space changes the
+   * way it converts colors.
+   */
+  static void clearConversionCache() {
+    CACHE.clear();
   }
 
   /**
@@ -238,6 +306,23 @@ public class ColorUtil {
     return rgb;
   }
 
+  /**
+   * Applies the sRGB gamma to a linear RGB component value, as described in
+   * http://www.w3.org/Graphics/Color/sRGB.html. Values from 0 to 1 are interpolated from a lookup
+   * table, which is accurate to about 1e-5.
+   */
+  public static double linearToSRGB(double value) {
+    if (value <= 0.00304) {
+      return 12.92 * value;
+    }
+    if (value >= 1) {
+      return 1.055 * Math.pow(value, 1d / 2.4) - 0.055;
+    }
+    double x = value * GAMMA_TABLE_SIZE;
+    int i = (int) x;
+    return GAMMA_TABLE[i] + (GAMMA_TABLE[i + 1] - GAMMA_TABLE[i]) * (x - i);
+  }
+
   /** Faster RGBtoCIEXYZ method which uses the provided output array. */
   public static float[] RGBtoCIEXYZ(float[] rgb, float[] xyz) {
     float[] tmp = SRGB.toCIEXYZ(rgb);
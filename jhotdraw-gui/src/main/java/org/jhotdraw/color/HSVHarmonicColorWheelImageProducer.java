@@ -112,16 +112,7 @@ public class HSVHarmonicColorWheelImageProducer extends PolarColorWheelImageProd
 
   @Override
   public void generateColorWheel() {
-    float[] components = new float[3];
-    float[] rgb = new float[3];
-    for (int index = 0; index < pixels.length; index++) {
-      if (alphas[index] != 0) {
-        components[0] = angulars[index];
-        components[1] = radials[index];
-        components[2] = brights[index];
-        pixels[index] = alphas[index] | 0xffffff & ColorUtil.CStoRGB24(colorSpace, components, rgb);
-      }
-    }
+    generatePixels(angulars, radials, brights, alphas);
     newPixels();
     isPixelsValid = false;
   }
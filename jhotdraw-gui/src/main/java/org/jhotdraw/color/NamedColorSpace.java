@@ -13,6 +13,9 @@ public interface NamedColorSpace {
 
   public String getName();
 
+  /** Returns the number of components of this color space. */
+  public int getNumComponents();
+
   /** Faster toRGB method which uses the provided output array. */
   public float[] toRGB(float[] colorvalue, float[] rgb);
 
@@ -24,4 +27,47 @@ public interface NamedColorSpace {
 
   /** Faster fromCIEXYZ method which uses the provided output array. */
   public float[] fromCIEXYZ(float[] xyz, float[] colorvalue);
+
+  /**
+   * Converts several colors into RGB in a single call. The components of the colors are packed one
+   * color after the other.
+   *
+   * @param colorvalues the color values, {@code getNumComponents()} values per color
+   * @param rgbs the output array, 3 values per color
+   * @param count the number of colors
+   * @return the output array
+   */
+  public default float[] toRGB(float[] colorvalues, float[] rgbs, int count) {
+    int n = getNumComponents();
+    float[] colorvalue = new float[n];
+    float[] rgb = new float[3];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(colorvalues, i * n, colorvalue, 0, n);
+      toRGB(colorvalue, rgb);
+      System.arraycopy(rgb, 0, rgbs, i * 3, 3);
+    }
+    return rgbs;
+  }
+
+  /**
+   * Converts several colors from RGB in a single call. The components of the colors are packed one
+   * color after the other.
+   *
+   * @param rgbs the RGB values, 3 values per color
+   * @param colorvalues the output array, {@code getNumComponents()} values per color
+   * @param count the number of colors
+   * @return the output array
+   */
+  public default float[] fromRGB(float[] rgbs, float[] colorvalues, int count) {
+    int n = getNumComponents();
+    float[] rgb = new float[3];
+    float[] colorvalue = new float[n];
+    for (int i = 0; i < count; i++) {
+      // The input is copied, because some color spaces use it as scratch space
+      System.arraycopy(rgbs, i * 3, rgb, 0, 3);
+      fromRGB(rgb, colorvalue);
+      System.arraycopy(colorvalue, 0, colorvalues, i * n, n);
+    }
+    return colorvalues;
+  }
 }
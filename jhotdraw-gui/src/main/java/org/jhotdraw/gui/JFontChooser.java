@@ -10,13 +10,21 @@ package org.jhotdraw.gui;
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.*;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.*;
 import org.jhotdraw.gui.fontchooser.DefaultFontChooserModel;
+import org.jhotdraw.gui.fontchooser.FontCatalog;
 import org.jhotdraw.gui.fontchooser.FontChooserModel;
 import org.jhotdraw.gui.fontchooser.FontCollectionNode;
 import org.jhotdraw.gui.fontchooser.FontFaceNode;
@@ -76,7 +84,18 @@ public class JFontChooser extends JComponent {
   private JDialog dialog = null;
 
   /** This future is used to load fonts lazily */
-  private static FutureTask<Font[]> future;
+  private static FutureTask<FontCatalog> future;
+
+  /** The file in which the font catalog is cached, or null if the catalog is not cached. */
+  private static File fontCatalogCacheFile =
+      new File(System.getProperty("user.home"), ".jhotdraw" + File.separator + "fontcatalog");
+
+  /**
+   * The models whose fonts have been set from the font catalog. They are updated, when the
+   * background revalidation of a cached catalog finds that the fonts have changed.
+   */
+  private static final Set<DefaultFontChooserModel> catalogModels =
+      Collections.newSetFromMap(new WeakHashMap<DefaultFontChooserModel, Boolean>());
 
   private TreeModelListener modelHandler = new TreeModelListener() {
     @Override
@@ -111,7 +130,11 @@ public class JFontChooser extends JComponent {
       public void propertyChange(PropertyChangeEvent evt) {
         if ("ancestor".equals(evt.getPropertyName()) && evt.getNewValue() != null) {
           try {
-            ((DefaultFontChooserModel) model).setFonts(getAllFonts());
+            DefaultFontChooserModel m = (DefaultFontChooserModel) model;
+            m.setFonts(getFontCatalog());
+            synchronized (JFontChooser.class) {
+              catalogModels.add(m);
+            }
           } catch (Exception ex) {
             ex.printStackTrace();
           }
@@ -276,33 +299,106 @@ public class JFontChooser extends JComponent {
     }
   }
 
-  /** Starts loading all fonts from the local graphics environment using a worker thread. */
+  /**
+   * Sets the file in which the font catalog is cached. This must be done before the fonts are
+   * loaded. By default the catalog is cached in the home directory of the user.
+   *
+   * @param newValue the cache file, or null to disable the cache
+   */
+  public static synchronized void setFontCatalogCacheFile(File newValue) {
+    fontCatalogCacheFile = newValue;
+  }
+
+  /**
+   * Starts loading all fonts from the local graphics environment using a worker thread.
+   *
+   * <p>If a font catalog has been cached for the current font directories, the fonts are taken
+   * from the cache. The fonts of the graphics environment are then scanned in the background. If
+   * they differ from the cached fonts, the cache is updated, and so are the models of all font
+   * choosers.
+   */
   public static synchronized void loadAllFonts() {
     if (future == null) {
-      future = new FutureTask<>(new Callable<Font[]>() {
+      File cacheFile = fontCatalogCacheFile;
+      future = new FutureTask<>(new Callable<FontCatalog>() {
         @Override
-        public Font[] call() throws Exception {
-          Font[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
-          // get rid of bogus fonts
-          ArrayList<Font> goodFonts = new ArrayList<>(fonts.length);
-          for (Font f : fonts) {
-            // System.out.println("JFontChooser "+f.getFontName());
-            Font decoded = Font.decode(f.getFontName());
-            if (decoded.getFontName().equals(f.getFontName())
-                || decoded.getFontName().endsWith("-Derived")) {
-              goodFonts.add(f);
-            } else {
-              // System.out.println("JFontChooser ***bogus*** "+decoded.getFontName());
-            }
+        public FontCatalog call() throws Exception {
+          if (cacheFile == null) {
+            return FontCatalog.scan();
           }
-          return goodFonts.toArray(new Font[goodFonts.size()]);
-          // return fonts;
+          String fingerprint = FontCatalog.fingerprint();
+          FontCatalog cached = FontCatalog.read(cacheFile, fingerprint);
+          if (cached != null) {
+            startDaemon(() -> revalidateFontCatalog(cached, cacheFile, fingerprint), "revalidate");
+            return cached;
+          }
+          FontCatalog scanned = FontCatalog.scan();
+          writeFontCatalog(scanned, cacheFile, fingerprint);
+          return scanned;
         }
       });
-      new Thread(future).start();
+      startDaemon(future, "load");
     }
   }
 
+  private static void startDaemon(Runnable r, String name) {
+    Thread t = new Thread(r, "JFontChooser-" + name);
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
+  /** Scans the fonts and updates the cache and the models, if the fonts have changed. */
+  private static void revalidateFontCatalog(
+      FontCatalog cached, File cacheFile, String fingerprint) {
+    FontCatalog scanned = FontCatalog.scan();
+    if (scanned.equals(cached)) {
+      return;
+    }
+    writeFontCatalog(scanned, cacheFile, fingerprint);
+    FutureTask<FontCatalog> updated = new FutureTask<>(() -> scanned);
+    updated.run();
+    synchronized (JFontChooser.class) {
+      future = updated;
+    }
+    SwingUtilities.invokeLater(() -> {
+      ArrayList<DefaultFontChooserModel> models;
+      synchronized (JFontChooser.class) {
+        models = new ArrayList<>(catalogModels);
+      }
+      for (DefaultFontChooserModel m : models) {
+        m.setFonts(scanned);
+      }
+    });
+  }
+
+  private static void writeFontCatalog(FontCatalog catalog, File cacheFile, String fingerprint) {
+    try {
+      catalog.write(cacheFile, fingerprint);
+    } catch (IOException ex) {
+      // The cache is an optimization only
+      Logger.getLogger(JFontChooser.class.getName())
+          .log(Level.WARNING, "Could not write font cache " + cacheFile, ex);
+    }
+  }
+
+  /**
+   * Gets the catalog of all fonts from the graphics environment. This may take a long time, unless
+   * the catalog is cached. It is recommended to call loadAllFonts during the startup of an
+   * application. If you do this, you can retrieve the catalog from this method from the AWT Event
+   * Dispatcher Thread.
+   *
+   * @return The font catalog.
+   */
+  public static FontCatalog getFontCatalog() throws InterruptedException, ExecutionException {
+    FutureTask<FontCatalog> f;
+    synchronized (JFontChooser.class) {
+      loadAllFonts();
+      f = future;
+    }
+    return f.get();
+  }
+
   /**
    * Gets all fonts from the graphics environment. This may take a long time. It is recommended to
    * call loadAllFonts during the startup of an application. If you do this, you can retrieve the
@@ -310,10 +406,9 @@ public class JFontChooser extends JComponent {
    *
    * @return All fonts.
    */
-  public static synchronized Font[] getAllFonts() {
-    loadAllFonts();
+  public static Font[] getAllFonts() {
     try {
-      return future.get().clone();
+      return getFontCatalog().getFonts().clone();
     } catch (InterruptedException | ExecutionException ex) {
       return new Font[0];
     }
@@ -51,24 +51,47 @@ public class DefaultFontChooserModel extends AbstractFontChooserModel {
    *
    * @param fonts
    */
-  @SuppressWarnings("unchecked")
   public void setFonts(Font[] fonts) {
-    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.gui.Labels");
-    // collect families and sort them alphabetically
-    ArrayList<FontFamilyNode> families = new ArrayList<>();
+    // collect families
     HashMap<String, FontFamilyNode> familyMap = new HashMap<>();
     for (Font f : fonts) {
-      String familyName = f.getFamily();
-      FontFamilyNode family;
-      if (familyMap.containsKey(familyName)) {
-        family = familyMap.get(familyName);
-      } else {
-        family = new FontFamilyNode(familyName);
-        familyMap.put(familyName, family);
-      }
-      family.add(new FontFaceNode(f));
+      getFamily(familyMap, f.getFamily()).add(new FontFaceNode(f));
     }
-    families.addAll(familyMap.values());
+    setFamilies(familyMap);
+  }
+
+  /**
+   * Sets the fonts of the DefaultFontChooserModel from a font catalog. The tree is built from the
+   * family names and PostScript names in the catalog, without loading the fonts.
+   *
+   * <p>Fires treeStructureChanged event on the root node.
+   *
+   * @param catalog the font catalog
+   */
+  public void setFonts(FontCatalog catalog) {
+    HashMap<String, FontFamilyNode> familyMap = new HashMap<>();
+    for (int i = 0, n = catalog.size(); i < n; i++) {
+      getFamily(familyMap, catalog.getFamilyName(i))
+          .add(new FontFaceNode(catalog.getFont(i), catalog.getPSName(i)));
+    }
+    setFamilies(familyMap);
+  }
+
+  private static FontFamilyNode getFamily(
+      HashMap<String, FontFamilyNode> familyMap, String familyName) {
+    FontFamilyNode family = familyMap.get(familyName);
+    if (family == null) {
+      family = new FontFamilyNode(familyName);
+      familyMap.put(familyName, family);
+    }
+    return family;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setFamilies(HashMap<String, FontFamilyNode> familyMap) {
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.gui.Labels");
+    // sort families alphabetically
+    ArrayList<FontFamilyNode> families = new ArrayList<>(familyMap.values());
     Collections.sort(families);
     // group families into collections
     root.removeAllChildren();
@@ -0,0 +1,261 @@
+/*
+ * @(#)FontCatalog.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.gui.fontchooser;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The fonts of the local graphics environment, together with their family names and PostScript
+ * names.
+ *
+ * <p>Scanning the fonts of the graphics environment may take many seconds, if a lot of fonts are
+ * installed. A catalog can therefore be written into a cache file, and be read back at the next
+ * start of the application. The cache file is keyed by a fingerprint of the font directories of the
+ * system. A catalog which has been read from the cache creates its fonts by name, and does not
+ * need to load the fonts, in order to build the tree of a {@link DefaultFontChooserModel}.
+ *
+ * <p>A catalog is immutable.
+ *
+ * @see org.jhotdraw.gui.JFontChooser#loadAllFonts
+ */
+public final class FontCatalog {
+
+  /** Identifies the format of the cache file. */
+  private static final int MAGIC = 0x4a484643;
+
+  private static final int VERSION = 1;
+
+  private final String[] fontNames;
+  private final String[] familyNames;
+  private final String[] psNames;
+
+  /** The fonts, created lazily for a catalog which has been read from the cache. */
+  private Font[] fonts;
+
+  private FontCatalog(String[] fontNames, String[] familyNames, String[] psNames, Font[] fonts) {
+    this.fontNames = fontNames;
+    this.familyNames = familyNames;
+    this.psNames = psNames;
+    this.fonts = fonts;
+  }
+
+  /**
+   * Scans all fonts of the local graphics environment. Bogus fonts, which can not be decoded by
+   * their name, are left out. This may take a long time.
+   */
+  public static FontCatalog scan() {
+    Font[] allFonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
+    // get rid of bogus fonts
+    ArrayList<Font> goodFonts = new ArrayList<>(allFonts.length);
+    for (Font f : allFonts) {
+      Font decoded = Font.decode(f.getFontName());
+      if (decoded.getFontName().equals(f.getFontName())
+          || decoded.getFontName().endsWith("-Derived")) {
+        goodFonts.add(f);
+      }
+    }
+    int n = goodFonts.size();
+    String[] fontNames = new String[n];
+    String[] familyNames = new String[n];
+    String[] psNames = new String[n];
+    for (int i = 0; i < n; i++) {
+      Font f = goodFonts.get(i);
+      fontNames[i] = f.getFontName();
+      familyNames[i] = f.getFamily();
+      psNames[i] = f.getPSName();
+    }
+    return new FontCatalog(fontNames, familyNames, psNames, goodFonts.toArray(new Font[n]));
+  }
+
+  /**
+   * Reads a catalog from a cache file.
+   *
+   * @param file the cache file
+   * @param fingerprint the current fingerprint of the font directories
+   * @return the catalog, or null if the file does not exist, is damaged, or has been written for a
+   *     different fingerprint
+   */
+  public static FontCatalog read(File file, String fingerprint) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint)) {
+        return null;
+      }
+      int n = in.readInt();
+      String[] fontNames = new String[n];
+      String[] familyNames = new String[n];
+      String[] psNames = new String[n];
+      for (int i = 0; i < n; i++) {
+        fontNames[i] = in.readUTF();
+        familyNames[i] = in.readUTF();
+        psNames[i] = in.readUTF();
+      }
+      return new FontCatalog(fontNames, familyNames, psNames, null);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes this catalog into a cache file. The file is replaced atomically, so that a concurrent
+   * reader never sees a partially written file. If the file system does not support atomic moves,
+   * the file is replaced non-atomically.
+   *
+   * @param file the cache file
+   * @param fingerprint the current fingerprint of the font directories
+   */
+  public void write(File file, String fingerprint) throws IOException {
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Can not create directory " + dir);
+    }
+    File tmp = new File(dir, file.getName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(fingerprint);
+      out.writeInt(fontNames.length);
+      for (int i = 0; i < fontNames.length; i++) {
+        out.writeUTF(fontNames[i]);
+        out.writeUTF(familyNames[i]);
+        out.writeUTF(psNames[i]);
+      }
+    }
+    try {
+      Files.move(
+          tmp.toPath(),
+          file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Computes a fingerprint of the font directories of the system and of the Java runtime. The
+   * fingerprint changes, when a font file is added, removed or replaced.
+   */
+  public static String fingerprint() {
+    String home = System.getProperty("user.home", "");
+    String[] dirs = {
+      System.getProperty("java.home", "") + "/lib/fonts",
+      // Windows
+      System.getenv("WINDIR"),
+      System.getenv("LOCALAPPDATA"),
+      // Mac OS X
+      "/System/Library/Fonts",
+      "/Library/Fonts",
+      "/Network/Library/Fonts",
+      home + "/Library/Fonts",
+      // Unix
+      "/usr/share/fonts",
+      "/usr/local/share/fonts",
+      "/usr/X11R6/lib/X11/fonts",
+      home + "/.fonts",
+      home + "/.local/share/fonts"
+    };
+    long hash = System.getProperty("java.version", "").hashCode();
+    dirs[1] = (dirs[1] == null) ? null : dirs[1] + "/Fonts";
+    dirs[2] = (dirs[2] == null) ? null : dirs[2] + "/Microsoft/Windows/Fonts";
+    for (String dir : dirs) {
+      if (dir != null) {
+        hash = hash(new File(dir), hash);
+      }
+    }
+    return Long.toHexString(hash);
+  }
+
+  /**
+   * Hashes the files in the specified directory and its subdirectories. Symbolic links to
+   * directories are not followed, so that a link cycle can not make the recursion run forever.
+   */
+  private static long hash(File file, long hash) {
+    File[] files = file.listFiles();
+    if (files == null) {
+      return hash;
+    }
+    Arrays.sort(files);
+    hash = hash * 1000003 + file.getPath().hashCode();
+    for (File f : files) {
+      if (f.isDirectory()) {
+        if (!Files.isSymbolicLink(f.toPath())) {
+          hash = hash(f, hash);
+        }
+      } else {
+        hash = ((hash * 1000003 + f.getName().hashCode()) * 1000003 + f.length()) * 1000003
+            + f.lastModified();
+      }
+    }
+    return hash;
+  }
+
+  /** Returns the number of fonts. */
+  public int size() {
+    return fontNames.length;
+  }
+
+  /** Returns the font name of the font at the specified index. */
+  public String getFontName(int index) {
+    return fontNames[index];
+  }
+
+  /** Returns the family name of the font at the specified index. */
+  public String getFamilyName(int index) {
+    return familyNames[index];
+  }
+
+  /** Returns the PostScript name of the font at the specified index. */
+  public String getPSName(int index) {
+    return psNames[index];
+  }
+
+  /** Returns the font at the specified index. */
+  public Font getFont(int index) {
+    return getFonts()[index];
+  }
+
+  /** Returns the fonts. The returned array must not be changed. */
+  public synchronized Font[] getFonts() {
+    if (fonts == null) {
+      fonts = new Font[fontNames.length];
+      for (int i = 0; i < fonts.length; i++) {
+        fonts[i] = new Font(fontNames[i], Font.PLAIN, 1);
+      }
+    }
+    return fonts;
+  }
+
+  /** Two catalogs are equal, if they have the same fonts in the same order. */
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof FontCatalog)) {
+      return false;
+    }
+    FontCatalog that = (FontCatalog) obj;
+    return Arrays.equals(this.fontNames, that.fontNames)
+        && Arrays.equals(this.familyNames, that.familyNames)
+        && Arrays.equals(this.psNames, that.psNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(fontNames);
+  }
+}
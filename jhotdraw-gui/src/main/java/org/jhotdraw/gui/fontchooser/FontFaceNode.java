@@ -20,8 +20,18 @@ public class FontFaceNode implements MutableTreeNode, Comparable<FontFaceNode>,
   private String name;
 
   public FontFaceNode(Font typeface) {
+    this(typeface, typeface.getPSName());
+  }
+
+  /**
+   * Creates a node with a known PostScript name. This does not need to load the font.
+   *
+   * @param typeface the font
+   * @param psName the PostScript name of the font
+   */
+  public FontFaceNode(Font typeface, String psName) {
     this.typeface = typeface;
-    this.name = beautifyName(typeface.getPSName());
+    this.name = beautifyName(psName);
   }
 
   protected String beautifyName(String name) {
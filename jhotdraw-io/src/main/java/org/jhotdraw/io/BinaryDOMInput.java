@@ -0,0 +1,560 @@
+/*
+ * @(#)BinaryDOMInput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.io;
+
+import static org.jhotdraw.io.BinaryDOMOutput.*;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.jhotdraw.xml.DOMFactory;
+import org.jhotdraw.xml.DOMInput;
+
+/**
+ * A {@link DOMInput} which reads objects from the binary format which is written by {@link
+ * BinaryDOMOutput}.
+ *
+ * <p>The input is a {@code ByteBuffer}, typically a buffer which has been mapped from a file with
+ * {@code FileChannel.map}. Only the string table, the style table and the section index are read
+ * when the input is created. The sections are decoded when they are read with {@link
+ * #readSection}, so that the objects of a region can be read without touching the rest of the
+ * file.
+ *
+ * <p>If an object refers to an object in a section which has not been read yet, that section is
+ * read as well. Use {@link #isSectionRead} to find out which sections have been read.
+ */
+public class BinaryDOMInput implements DOMInput {
+
+  private final DOMFactory factory;
+  private final ByteBuffer in;
+
+  private final String[] strings;
+
+  /** The elements of the style table. */
+  private final Node[] styles;
+
+  /** The objects of the style table, created on demand. */
+  private final Object[] styleObjects;
+
+  private final long[] sectionOffsets;
+  private final int[] sectionLengths;
+  private final int[] sectionFirstIds;
+  private final Rectangle2D.Double[] sectionBounds;
+
+  /** The objects of the sections which have been read. */
+  private final Object[] sectionObjects;
+
+  private final byte[] sectionStates;
+
+  private static final byte UNREAD = 0;
+  private static final byte READING = 1;
+  private static final byte READ = 2;
+
+  /**
+   * This map is used to unmarshall references to objects. A key in this map is the id of an
+   * object, a value in this map is the unmarshalled Object.
+   */
+  private final HashMap<Integer, Object> idobjects = new HashMap<>();
+
+  /** The current node used for input. */
+  private Node current;
+
+  /** A decoded element. */
+  private static class Node {
+
+    Node parent;
+    final String tagName;
+    final String[] names;
+    final Object[] values;
+
+    /** Child elements in document order. */
+    final Node[] elements;
+
+    /** Text and child elements in document order. */
+    final Object[] content;
+
+    /** Index in the style table, or -1 if the element is not a style. */
+    final int style;
+
+    Node(String tagName, String[] names, Object[] values, Object[] content, int style) {
+      this.tagName = tagName;
+      this.names = names;
+      this.values = values;
+      this.content = content;
+      this.style = style;
+      int count = 0;
+      for (Object o : content) {
+        if (o instanceof Node) {
+          count++;
+        }
+      }
+      elements = new Node[count];
+      count = 0;
+      for (Object o : content) {
+        if (o instanceof Node) {
+          elements[count++] = (Node) o;
+        }
+      }
+    }
+
+    Object getValue(String name) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(name)) {
+          return values[i];
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Creates a new input and reads the tables at the end of the buffer.
+   *
+   * @throws IOException if the buffer does not contain the binary format or an unsupported
+   *     version of it
+   */
+  public BinaryDOMInput(DOMFactory factory, ByteBuffer in) throws IOException {
+    this.factory = factory;
+    this.in = in;
+    try {
+      if (in.limit() < 20 || in.getInt(0) != MAGIC || in.getInt(in.limit() - 4) != MAGIC) {
+        throw new IOException("Not a binary drawing");
+      }
+      int version = in.getInt(4);
+      if (version > VERSION) {
+        throw new IOException("Unsupported binary drawing version " + version);
+      }
+      in.position((int) in.getLong(in.limit() - 12));
+      strings = new String[readVarInt()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] b = new byte[readVarInt()];
+        in.get(b);
+        strings[i] = new String(b, StandardCharsets.UTF_8);
+      }
+      styles = new Node[readVarInt()];
+      styleObjects = new Object[styles.length];
+      for (int i = 0; i < styles.length; i++) {
+        int length = readVarInt();
+        int end = in.position() + length;
+        styles[i] = decode(i);
+        in.position(end);
+      }
+      int count = readVarInt();
+      sectionOffsets = new long[count];
+      sectionLengths = new int[count];
+      sectionFirstIds = new int[count];
+      sectionBounds = new Rectangle2D.Double[count];
+      for (int i = 0; i < count; i++) {
+        sectionOffsets[i] = readVarLong();
+        sectionLengths[i] = readVarInt();
+        sectionFirstIds[i] = readVarInt();
+        if (in.get() != 0) {
+          sectionBounds[i] = new Rectangle2D.Double(
+              in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+        }
+      }
+      sectionObjects = new Object[count];
+      sectionStates = new byte[count];
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+      throw new IOException("Corrupt binary drawing", ex);
+    }
+  }
+
+  /** Returns the number of sections. */
+  public int getSectionCount() {
+    return sectionOffsets.length;
+  }
+
+  /** Returns the bounds of the object of the specified section, or null if it has no bounds. */
+  public Rectangle2D.Double getSectionBounds(int index) {
+    Rectangle2D.Double r = sectionBounds[index];
+    return r == null ? null : (Rectangle2D.Double) r.clone();
+  }
+
+  /** Returns true if the specified section has been read. */
+  public boolean isSectionRead(int index) {
+    return sectionStates[index] == READ;
+  }
+
+  /**
+   * Returns the object of the specified section, and reads the section if it has not been read
+   * yet.
+   */
+  public Object readSection(int index) throws IOException {
+    if (sectionStates[index] == READ) {
+      return sectionObjects[index];
+    }
+    if (sectionStates[index] == READING) {
+      throw new IOException("Section " + index + " refers to itself");
+    }
+    sectionStates[index] = READING;
+    Node node;
+    try {
+      in.position((int) sectionOffsets[index]);
+      node = decode(-1);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+      throw new IOException("Corrupt section " + index, ex);
+    }
+    Node saved = current;
+    current = new Node(null, new String[0], new Object[0], new Object[] {node}, -1);
+    node.parent = current;
+    try {
+      sectionObjects[index] = readObject(0);
+    } finally {
+      current = saved;
+    }
+    sectionStates[index] = READ;
+    return sectionObjects[index];
+  }
+
+  private int readVarInt() throws IOException {
+    long v = readVarLong();
+    if (v > Integer.MAX_VALUE) {
+      throw new IOException("Corrupt binary drawing");
+    }
+    return (int) v;
+  }
+
+  private long readVarLong() {
+    long v = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.get();
+      v |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return v;
+      }
+    }
+  }
+
+  private String readString() throws IOException {
+    return strings[readVarInt()];
+  }
+
+  private static int unZigZag(long v) {
+    int n = (int) v;
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /** Decodes an element at the current position of the buffer. */
+  private Node decode(int style) throws IOException {
+    String tagName = readString();
+    int attributeCount = readVarInt();
+    String[] names = new String[attributeCount];
+    Object[] values = new Object[attributeCount];
+    for (int i = 0; i < attributeCount; i++) {
+      names[i] = readString();
+      int type = in.get();
+      switch (type) {
+        case TYPE_STRING:
+          values[i] = readString();
+          break;
+        case TYPE_INT:
+          values[i] = unZigZag(readVarLong());
+          break;
+        case TYPE_DOUBLE:
+          values[i] = in.getDouble();
+          break;
+        case TYPE_DOUBLE_AS_INT:
+          values[i] = (double) unZigZag(readVarLong());
+          break;
+        case TYPE_DOUBLE_AS_FLOAT:
+          values[i] = (double) in.getFloat();
+          break;
+        case TYPE_FLOAT:
+          values[i] = in.getFloat();
+          break;
+        case TYPE_TRUE:
+          values[i] = Boolean.TRUE;
+          break;
+        case TYPE_FALSE:
+          values[i] = Boolean.FALSE;
+          break;
+        default:
+          throw new IOException("Corrupt binary drawing: illegal value type " + type);
+      }
+    }
+    Object[] content = new Object[readVarInt()];
+    for (int i = 0; i < content.length; i++) {
+      int kind = in.get();
+      switch (kind) {
+        case CONTENT_ELEMENT:
+          content[i] = decode(-1);
+          break;
+        case CONTENT_TEXT:
+          content[i] = readString();
+          break;
+        case CONTENT_BYTES:
+          byte[] data = new byte[readVarInt()];
+          in.get(data);
+          content[i] = data;
+          break;
+        case CONTENT_STYLE:
+          // A style element gets a parent of its own, the element in the style table is shared
+          Node s = styles[readVarInt()];
+          content[i] = new Node(s.tagName, s.names, s.values, s.content, s.style);
+          break;
+        default:
+          throw new IOException("Corrupt binary drawing: illegal content kind " + kind);
+      }
+    }
+    Node node = new Node(tagName, names, values, content, style);
+    for (Node child : node.elements) {
+      child.parent = node;
+    }
+    return node;
+  }
+
+  /** Returns the tag name of the current element. */
+  @Override
+  public String getTagName() {
+    return current.tagName;
+  }
+
+  /** Gets an attribute of the current element. */
+  @Override
+  public String getAttribute(String name, String defaultValue) {
+    String value = toString(current.getValue(name));
+    return (value == null || value.length() == 0) ? defaultValue : value;
+  }
+
+  /** Converts a value into the string which {@code StaxDOMOutput} writes for it. */
+  private static String toString(Object value) {
+    if (value == null || value instanceof String) {
+      return (String) value;
+    }
+    String str = value.toString();
+    if ((value instanceof Double || value instanceof Float) && str.endsWith(".0")) {
+      str = str.substring(0, str.length() - 2);
+    }
+    return str;
+  }
+
+  /** Gets the text of the current element. */
+  @Override
+  public String getText() {
+    return getText(null);
+  }
+
+  /** Gets the text of the current element. */
+  @Override
+  public String getText(String defaultValue) {
+    if (current.content.length == 0) {
+      return defaultValue;
+    }
+    StringBuilder buf = new StringBuilder();
+    getText(current, buf);
+    return buf.toString();
+  }
+
+  /**
+   * Gets the text of the current element, decoded from Base64 notation. Binary data which has been
+   * added with {@link BinaryDOMOutput#addBase64Text} is returned without conversion.
+   */
+  @Override
+  public byte[] getBase64Text() throws IOException {
+    if (current.content.length == 1 && current.content[0] instanceof byte[]) {
+      return (byte[]) current.content[0];
+    }
+    return DOMInput.super.getBase64Text();
+  }
+
+  private static void getText(Node n, StringBuilder buf) {
+    for (Object o : n.content) {
+      if (o instanceof String) {
+        buf.append((String) o);
+      } else if (o instanceof byte[]) {
+        buf.append(Base64.encodeBytes((byte[]) o));
+      } else {
+        getText((Node) o, buf);
+      }
+    }
+  }
+
+  /** Gets an attribute of the current element and of all parent elements. */
+  @Override
+  public List<String> getInheritedAttribute(String name) {
+    List<String> values = new ArrayList<>();
+    for (Node node = current; node != null && node.parent != null; node = node.parent) {
+      String value = toString(node.getValue(name));
+      values.add(0, value == null ? "" : value);
+    }
+    return values;
+  }
+
+  /** Gets an attribute of the current element. */
+  @Override
+  public int getAttribute(String name, int defaultValue) {
+    Object value = current.getValue(name);
+    if (value instanceof Integer) {
+      return (Integer) value;
+    }
+    String str = getAttribute(name, (String) null);
+    return (str == null) ? defaultValue : Long.decode(str).intValue();
+  }
+
+  /** Gets an attribute of the current element. */
+  @Override
+  public double getAttribute(String name, double defaultValue) {
+    Object value = current.getValue(name);
+    if (value instanceof Double) {
+      return (Double) value;
+    }
+    if (value instanceof Integer) {
+      return (Integer) value;
+    }
+    // Floats are converted like in the XML format
+    String str = getAttribute(name, (String) null);
+    return (str == null) ? defaultValue : Double.parseDouble(str);
+  }
+
+  /** Gets an attribute of the current element. */
+  @Override
+  public boolean getAttribute(String name, boolean defaultValue) {
+    Object value = current.getValue(name);
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    String str = getAttribute(name, (String) null);
+    return (str == null) ? defaultValue : Boolean.valueOf(str).booleanValue();
+  }
+
+  /** Returns the number of child elements of the current element. */
+  @Override
+  public int getElementCount() {
+    return current.elements.length;
+  }
+
+  /** Returns the number of child elements with the specified tag name of the current element. */
+  @Override
+  public int getElementCount(String tagName) {
+    int count = 0;
+    for (Node node : current.elements) {
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Opens the element with the specified index and makes it the current node. */
+  @Override
+  public void openElement(int index) throws IOException {
+    if (index < 0 || index >= current.elements.length) {
+      throw new IOException("no such child [" + index + "] in <" + current.tagName + ">");
+    }
+    current = current.elements[index];
+  }
+
+  /** Opens the first element with the specified name and makes it the current node. */
+  @Override
+  public void openElement(String tagName) throws IOException {
+    for (Node node : current.elements) {
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        current = node;
+        return;
+      }
+    }
+    throw new IllegalArgumentException("element not found:" + tagName);
+  }
+
+  /** Opens the element with the specified name and index and makes it the current node. */
+  @Override
+  public void openElement(String tagName, int index) throws IOException {
+    int count = 0;
+    for (Node node : current.elements) {
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        if (count++ == index) {
+          current = node;
+          return;
+        }
+      }
+    }
+    throw new IllegalArgumentException("no such child " + tagName + "[" + index + "]");
+  }
+
+  /**
+   * Closes the current element. The parent of the current element becomes the current element.
+   */
+  @Override
+  public void closeElement() {
+    current = current.parent;
+  }
+
+  /** Reads an object from the current element. */
+  @Override
+  public Object readObject() throws IOException {
+    return readObject(0);
+  }
+
+  /** Reads an object from the child element with the specified index. */
+  @Override
+  public Object readObject(int index) throws IOException {
+    openElement(index);
+    try {
+      if (current.style >= 0) {
+        if (styleObjects[current.style] == null) {
+          styleObjects[current.style] = factory.read(this);
+        }
+        return styleObjects[current.style];
+      }
+      Object ref = current.getValue("ref");
+      Object id = current.getValue("id");
+      if (ref != null && id != null) {
+        throw new IOException("Element has both an id and a ref attribute: <"
+            + getTagName()
+            + " id="
+            + id
+            + " ref="
+            + ref
+            + ">");
+      }
+      if (id != null && idobjects.containsKey(id)) {
+        throw new IOException("Duplicate id attribute: <" + getTagName() + " id=" + id + ">");
+      }
+      if (ref != null) {
+        return resolve((Integer) ref);
+      }
+      Object o = factory.read(this);
+      if (id != null) {
+        idobjects.put((Integer) id, o);
+      }
+      return o;
+    } finally {
+      closeElement();
+    }
+  }
+
+  /** Returns the object with the specified id, and reads the section which defines it if needed. */
+  private Object resolve(Integer ref) throws IOException {
+    if (!idobjects.containsKey(ref)) {
+      int index = Arrays.binarySearch(sectionFirstIds, ref);
+      if (index < 0) {
+        index = -index - 2;
+      } else {
+        // Sections which do not define objects have the same first id as the next section
+        while (index + 1 < sectionFirstIds.length && sectionFirstIds[index + 1] == ref) {
+          index++;
+        }
+      }
+      if (index >= 0 && sectionStates[index] == UNREAD) {
+        readSection(index);
+      }
+      if (!idobjects.containsKey(ref)) {
+        throw new IOException(
+            "Illegal ref attribute value: <" + getTagName() + " ref=" + ref + ">");
+      }
+    }
+    return idobjects.get(ref);
+  }
+}
@@ -0,0 +1,516 @@
+/*
+ * @(#)BinaryDOMOutput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.io;
+
+import java.awt.geom.Rectangle2D;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.xml.DOMFactory;
+import org.jhotdraw.xml.DOMOutput;
+
+/**
+ * A {@link DOMOutput} which writes objects in the compact binary format which is read by {@link
+ * BinaryDOMInput}.
+ *
+ * <p>Each object which is written by an outermost {@link #writeObject} call is stored in a
+ * <em>section</em> of its own. The sections are listed in an index at the end of the file, together
+ * with the bounds of their figures, so that a reader can map the file and read only the figures of
+ * a region.
+ *
+ * <p>Tag names, attribute names and text are stored once in a string table. Objects which are
+ * written without nested objects, and which are not figures, for example colors, fonts and numbers,
+ * are stored once in a style table, no matter how many figures use them. Numbers are stored in
+ * binary form, integral coordinates take only one or two bytes. Binary data, for example images,
+ * is stored as is instead of in Base64 notation.
+ *
+ * <p>Elements which enclose the outermost objects and comments are not stored. The file is
+ * completed with {@link #close}, which does not close the underlying stream.
+ */
+public class BinaryDOMOutput implements DOMOutput, Closeable {
+
+  /** Identifies the binary format. */
+  static final int MAGIC = 0x4a484442; // "JHDB"
+
+  /** The version of the binary format. */
+  static final int VERSION = 2;
+
+  // Content kinds of an element
+  static final int CONTENT_ELEMENT = 0;
+  static final int CONTENT_TEXT = 1;
+  static final int CONTENT_STYLE = 2;
+  static final int CONTENT_BYTES = 3; // since version 2
+
+  // Value types of an attribute
+  static final int TYPE_STRING = 0;
+  static final int TYPE_INT = 1;
+  static final int TYPE_DOUBLE = 2;
+  static final int TYPE_DOUBLE_AS_INT = 3;
+  static final int TYPE_DOUBLE_AS_FLOAT = 4;
+  static final int TYPE_FLOAT = 5;
+  static final int TYPE_TRUE = 6;
+  static final int TYPE_FALSE = 7;
+
+  private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0d);
+
+  private final DOMFactory factory;
+  private final OutputStream out;
+
+  /** Number of bytes which have been written to the stream. */
+  private long position;
+
+  /**
+   * This map is used to marshall references to objects. A key in this map is a Java Object, a
+   * value in this map is the id of that object.
+   */
+  private final HashMap<Object, Integer> objectids = new HashMap<>();
+
+  private int nextId;
+
+  /** This map is used to cache prototype objects. */
+  private HashMap<String, Object> prototypes;
+
+  private final HashMap<String, Integer> stringIndices = new HashMap<>();
+  private final ArrayList<String> strings = new ArrayList<>();
+
+  /** Maps style objects to their index in the style table. */
+  private final HashMap<Object, Integer> styleIndices = new HashMap<>();
+
+  /** The encoded elements of the style table. */
+  private final ArrayList<byte[]> styles = new ArrayList<>();
+
+  /** Section index: offset, length and first object id of each section. */
+  private final ArrayList<long[]> sections = new ArrayList<>();
+
+  private final ArrayList<Rectangle2D.Double> sectionBounds = new ArrayList<>();
+
+  /** The bounds of the section which is currently being written, or null. */
+  private Rectangle2D.Double bounds;
+
+  /** The document node. */
+  private final Node document = new Node(null, null);
+
+  /** The current node used for output. */
+  private Node current = document;
+
+  /** Nesting depth of {@link #writeObject} calls. */
+  private int objectDepth;
+
+  /** Number of objects which have been written. */
+  private int objectCount;
+
+  private final Buffer buf = new Buffer();
+
+  /** An element which has not been encoded yet. */
+  private static class Node {
+
+    final Node parent;
+    final String tagName;
+    final LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+
+    /** Child nodes: Node, text or binary data. */
+    final ArrayList<Object> content = new ArrayList<>();
+
+    /** Index in the style table, or -1 if the element is not a reference to a style. */
+    int style = -1;
+
+    Node(Node parent, String tagName) {
+      this.parent = parent;
+      this.tagName = tagName;
+    }
+  }
+
+  /** A growable byte array. */
+  static class Buffer {
+
+    byte[] bytes = new byte[256];
+    int size;
+
+    private void ensureCapacity(int n) {
+      if (size + n > bytes.length) {
+        byte[] b = new byte[Math.max(size + n, bytes.length * 2)];
+        System.arraycopy(bytes, 0, b, 0, size);
+        bytes = b;
+      }
+    }
+
+    void writeByte(int v) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) v;
+    }
+
+    void writeVarLong(long v) {
+      ensureCapacity(10);
+      while ((v & ~0x7fL) != 0) {
+        bytes[size++] = (byte) ((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      bytes[size++] = (byte) v;
+    }
+
+    void writeInt(int v) {
+      ensureCapacity(4);
+      bytes[size++] = (byte) (v >>> 24);
+      bytes[size++] = (byte) (v >>> 16);
+      bytes[size++] = (byte) (v >>> 8);
+      bytes[size++] = (byte) v;
+    }
+
+    void writeLong(long v) {
+      writeInt((int) (v >>> 32));
+      writeInt((int) v);
+    }
+
+    void writeBytes(byte[] b) {
+      ensureCapacity(b.length);
+      System.arraycopy(b, 0, bytes, size, b.length);
+      size += b.length;
+    }
+  }
+
+  public BinaryDOMOutput(DOMFactory factory, OutputStream out) throws IOException {
+    this.factory = factory;
+    this.out = out;
+    buf.writeInt(MAGIC);
+    buf.writeInt(VERSION);
+    flushBuffer();
+  }
+
+  /**
+   * Writes an object into a section of its own. The bounds are stored in the section index.
+   *
+   * @param o the object
+   * @param bounds the bounds of the object, or null if the object has no bounds
+   */
+  public void writeSection(Object o, Rectangle2D.Double bounds) throws IOException {
+    if (objectDepth != 0) {
+      throw new IllegalStateException("Sections can not be nested");
+    }
+    this.bounds = bounds;
+    try {
+      writeObject(o);
+    } finally {
+      this.bounds = null;
+    }
+  }
+
+  /**
+   * Writes an object. The object of an outermost call is stored in a section of its own, which
+   * does not have bounds. Use {@link #writeSection} to specify the bounds of a figure.
+   */
+  @Override
+  public void writeObject(Object o) throws IOException {
+    String tagName = factory.getName(o);
+    if (tagName == null) {
+      throw new IllegalArgumentException("no tag name for:" + o);
+    }
+    int firstId = nextId;
+    int objectCountBefore = objectCount++;
+    objectDepth++;
+    try {
+      openElement(tagName);
+      Node node = current;
+      if (styleIndices.containsKey(o)) {
+        node.style = styleIndices.get(o);
+      } else if (objectids.containsKey(o)) {
+        node.attributes.put("ref", objectids.get(o));
+      } else {
+        int id = nextId++;
+        objectids.put(o, id);
+        node.attributes.put("id", id);
+        factory.write(this, o);
+        if (objectDepth > 1 && objectCount == objectCountBefore + 1 && !(o instanceof Figure)) {
+          // The object has no nested objects, so it can be shared with other sections
+          node.attributes.remove("id");
+          objectids.remove(o);
+          node.style = addStyle(o, node);
+        }
+      }
+      closeElement();
+    } finally {
+      objectDepth--;
+    }
+    if (objectDepth == 0) {
+      writeSection(firstId);
+    }
+  }
+
+  private int addStyle(Object o, Node node) {
+    buf.size = 0;
+    encode(node);
+    byte[] encoded = new byte[buf.size];
+    System.arraycopy(buf.bytes, 0, encoded, 0, buf.size);
+    buf.size = 0;
+    node.attributes.clear();
+    node.content.clear();
+    int index = styles.size();
+    styles.add(encoded);
+    styleIndices.put(o, index);
+    return index;
+  }
+
+  /** Encodes the collected elements into a section and writes it to the stream. */
+  private void writeSection(int firstId) throws IOException {
+    buf.size = 0;
+    for (Object o : document.content) {
+      if (o instanceof Node) {
+        encode((Node) o);
+      }
+    }
+    document.content.clear();
+    sections.add(new long[] {position, buf.size, firstId});
+    sectionBounds.add(bounds);
+    flushBuffer();
+  }
+
+  private void flushBuffer() throws IOException {
+    out.write(buf.bytes, 0, buf.size);
+    position += buf.size;
+    buf.size = 0;
+  }
+
+  private void encode(Node node) {
+    buf.writeVarLong(stringIndex(node.tagName));
+    buf.writeVarLong(node.attributes.size());
+    for (Map.Entry<String, Object> entry : node.attributes.entrySet()) {
+      buf.writeVarLong(stringIndex(entry.getKey()));
+      encodeValue(entry.getValue());
+    }
+    buf.writeVarLong(node.content.size());
+    for (Object o : node.content) {
+      if (o instanceof Node) {
+        Node child = (Node) o;
+        if (child.style >= 0) {
+          buf.writeByte(CONTENT_STYLE);
+          buf.writeVarLong(child.style);
+        } else {
+          buf.writeByte(CONTENT_ELEMENT);
+          encode(child);
+        }
+      } else if (o instanceof byte[]) {
+        byte[] data = (byte[]) o;
+        buf.writeByte(CONTENT_BYTES);
+        buf.writeVarLong(data.length);
+        buf.writeBytes(data);
+      } else {
+        buf.writeByte(CONTENT_TEXT);
+        buf.writeVarLong(stringIndex((String) o));
+      }
+    }
+  }
+
+  private void encodeValue(Object value) {
+    if (value instanceof String) {
+      buf.writeByte(TYPE_STRING);
+      buf.writeVarLong(stringIndex((String) value));
+    } else if (value instanceof Integer) {
+      buf.writeByte(TYPE_INT);
+      buf.writeVarLong(zigZag((Integer) value));
+    } else if (value instanceof Double) {
+      double d = (Double) value;
+      if (d == (int) d && Double.doubleToRawLongBits(d) != NEGATIVE_ZERO_BITS) {
+        buf.writeByte(TYPE_DOUBLE_AS_INT);
+        buf.writeVarLong(zigZag((int) d));
+      } else if (d == (float) d) {
+        buf.writeByte(TYPE_DOUBLE_AS_FLOAT);
+        buf.writeInt(Float.floatToRawIntBits((float) d));
+      } else {
+        buf.writeByte(TYPE_DOUBLE);
+        buf.writeLong(Double.doubleToRawLongBits(d));
+      }
+    } else if (value instanceof Float) {
+      buf.writeByte(TYPE_FLOAT);
+      buf.writeInt(Float.floatToRawIntBits((Float) value));
+    } else {
+      buf.writeByte(((Boolean) value) ? TYPE_TRUE : TYPE_FALSE);
+    }
+  }
+
+  private static long zigZag(int v) {
+    return ((v << 1) ^ (v >> 31)) & 0xffffffffL;
+  }
+
+  private int stringIndex(String s) {
+    Integer index = stringIndices.get(s);
+    if (index == null) {
+      index = strings.size();
+      strings.add(s);
+      stringIndices.put(s, index);
+    }
+    return index;
+  }
+
+  /**
+   * Writes the string table, the style table and the section index, and flushes the underlying
+   * stream. The underlying stream is not closed.
+   */
+  @Override
+  public void close() throws IOException {
+    long tablesOffset = position;
+    buf.size = 0;
+    buf.writeVarLong(strings.size());
+    for (String s : strings) {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      buf.writeVarLong(b.length);
+      buf.writeBytes(b);
+    }
+    buf.writeVarLong(styles.size());
+    for (byte[] b : styles) {
+      buf.writeVarLong(b.length);
+      buf.writeBytes(b);
+    }
+    buf.writeVarLong(sections.size());
+    for (int i = 0, n = sections.size(); i < n; i++) {
+      long[] section = sections.get(i);
+      buf.writeVarLong(section[0]);
+      buf.writeVarLong(section[1]);
+      buf.writeVarLong(section[2]);
+      Rectangle2D.Double r = sectionBounds.get(i);
+      if (r == null) {
+        buf.writeByte(0);
+      } else {
+        buf.writeByte(1);
+        buf.writeLong(Double.doubleToRawLongBits(r.x));
+        buf.writeLong(Double.doubleToRawLongBits(r.y));
+        buf.writeLong(Double.doubleToRawLongBits(r.width));
+        buf.writeLong(Double.doubleToRawLongBits(r.height));
+      }
+    }
+    buf.writeLong(tablesOffset);
+    buf.writeInt(MAGIC);
+    flushBuffer();
+    out.flush();
+  }
+
+  /**
+   * Puts a new element into the document. The new element is added as a child to the current
+   * element. Then it becomes the current element. The element must be closed using closeElement.
+   */
+  @Override
+  public void openElement(String tagName) {
+    Node newElement = new Node(current, tagName);
+    current.content.add(newElement);
+    current = newElement;
+  }
+
+  /**
+   * Closes the current element of the document. The parent of the current element becomes the
+   * current element.
+   */
+  @Override
+  public void closeElement() {
+    current = current.parent;
+  }
+
+  /** Comments are not stored. */
+  @Override
+  public void addComment(String comment) {}
+
+  /** Adds a text to current element of the document. */
+  @Override
+  public void addText(String text) {
+    current.content.add(text);
+  }
+
+  /**
+   * Adds binary data to the current element of the document. The data is stored as is, {@link
+   * BinaryDOMInput} converts it into Base64 notation only if it is read as a text.
+   */
+  @Override
+  public void addBase64Text(byte[] data) {
+    current.content.add(data);
+  }
+
+  /** Adds an attribute to current element of the document. */
+  @Override
+  public void addAttribute(String name, String value) {
+    if (value != null) {
+      current.attributes.put(name, value);
+    }
+  }
+
+  /** Adds an attribute to current element of the document. */
+  @Override
+  public void addAttribute(String name, int value) {
+    current.attributes.put(name, value);
+  }
+
+  /** Adds an attribute to current element of the document. */
+  @Override
+  public void addAttribute(String name, boolean value) {
+    current.attributes.put(name, value);
+  }
+
+  /** Adds an attribute to current element of the document. */
+  @Override
+  public void addAttribute(String name, float value) {
+    current.attributes.put(name, value);
+  }
+
+  /** Adds an attribute to current element of the document. */
+  @Override
+  public void addAttribute(String name, double value) {
+    current.attributes.put(name, value);
+  }
+
+  @Override
+  public void addAttribute(String name, float value, float defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, int value, int defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, double value, double defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, boolean value, boolean defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, String value, String defaultValue) {
+    if (!value.equals(defaultValue)) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public Object getPrototype() {
+    if (prototypes == null) {
+      prototypes = new HashMap<String, Object>();
+    }
+    if (!prototypes.containsKey(current.tagName)) {
+      prototypes.put(current.tagName, factory.createPrototype(current.tagName));
+    }
+    return prototypes.get(current.tagName);
+  }
+
+  /** The binary format has no doctype. */
+  @Override
+  public void setDoctype(String doctype) {}
+}
@@ -0,0 +1,229 @@
+/*
+ * @(#)BinaryPageStore.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.io;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jhotdraw.draw.PagedDrawing;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.PageStore;
+import org.jhotdraw.xml.DOMFactory;
+
+/**
+ * A {@link PageStore} which stores each page of a {@link PagedDrawing} in a file of a directory,
+ * using the binary format of {@link BinaryDOMOutput}.
+ *
+ * <p>The keys, bounds and z-order ranks of the pages are kept in an index file in the same
+ * directory, so that a drawing can be opened without reading the pages. The index file is written
+ * by {@link #flush} and {@link #close}, not after every page. Files are written to a temporary file
+ * first, and then moved atomically over the existing file. Page files are read into memory and
+ * closed right away, so that no open file or mapping prevents them from being replaced.
+ */
+public class BinaryPageStore implements PageStore, Closeable {
+
+  private static final String INDEX_FILE = "pages.idx";
+  private static final int INDEX_MAGIC = 0x4a485049; // "JHPI"
+  /** Version 2 adds the ranks of the figures. */
+  private static final int INDEX_VERSION = 2;
+
+  private final DOMFactory factory;
+  private final Path directory;
+
+  /** The bounds of the pages by key. A page without figures has null bounds. */
+  private final LinkedHashMap<Long, Rectangle2D.Double> index = new LinkedHashMap<>();
+
+  /** The z-order ranks of the figures of the pages by key. */
+  private final HashMap<Long, double[]> ranks = new HashMap<>();
+
+  /** Set to true when the index has been changed since it was written. */
+  private boolean isIndexDirty;
+
+  /**
+   * Creates a store in the specified directory. The directory is created if it does not exist.
+   *
+   * @param factory The factory for reading and writing Figures.
+   * @param directory The directory.
+   */
+  public BinaryPageStore(DOMFactory factory, File directory) throws IOException {
+    this.factory = factory;
+    this.directory = directory.toPath();
+    Files.createDirectories(this.directory);
+    Path indexFile = this.directory.resolve(INDEX_FILE);
+    if (Files.exists(indexFile)) {
+      readIndex(indexFile);
+    }
+  }
+
+  private void readIndex(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != INDEX_MAGIC) {
+        throw new IOException("Not a page index: " + file);
+      }
+      int version = in.readInt();
+      if (version > INDEX_VERSION) {
+        throw new IOException("Unsupported page index version " + version);
+      }
+      for (int i = 0, n = in.readInt(); i < n; i++) {
+        long key = in.readLong();
+        Rectangle2D.Double bounds =
+            in.readBoolean()
+                ? new Rectangle2D.Double(
+                    in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble())
+                : null;
+        index.put(key, bounds);
+        int rankCount = (version >= 2) ? in.readInt() : -1;
+        if (rankCount >= 0) {
+          double[] pageRanks = new double[rankCount];
+          for (int j = 0; j < rankCount; j++) {
+            pageRanks[j] = in.readDouble();
+          }
+          ranks.put(key, pageRanks);
+        }
+      }
+    }
+  }
+
+  private void writeIndex() throws IOException {
+    Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(INDEX_VERSION);
+      out.writeInt(index.size());
+      for (Map.Entry<Long, Rectangle2D.Double> entry : index.entrySet()) {
+        out.writeLong(entry.getKey());
+        Rectangle2D.Double r = entry.getValue();
+        out.writeBoolean(r != null);
+        if (r != null) {
+          out.writeDouble(r.x);
+          out.writeDouble(r.y);
+          out.writeDouble(r.width);
+          out.writeDouble(r.height);
+        }
+        double[] pageRanks = ranks.get(entry.getKey());
+        out.writeInt(pageRanks == null ? -1 : pageRanks.length);
+        if (pageRanks != null) {
+          for (double rank : pageRanks) {
+            out.writeDouble(rank);
+          }
+        }
+      }
+    }
+    replace(tmp, directory.resolve(INDEX_FILE));
+  }
+
+  /** Moves a temporary file over the target file, atomically if the file system supports it. */
+  private static void replace(Path tmp, Path target) throws IOException {
+    try {
+      Files.move(
+          tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private Path getPageFile(long key) {
+    return directory.resolve(String.format("page_%016x.jhdb", key));
+  }
+
+  @Override
+  public Map<Long, Rectangle2D.Double> getPages() {
+    Map<Long, Rectangle2D.Double> pages = new HashMap<>();
+    for (Map.Entry<Long, Rectangle2D.Double> entry : index.entrySet()) {
+      Rectangle2D.Double r = entry.getValue();
+      pages.put(entry.getKey(), r == null ? null : (Rectangle2D.Double) r.clone());
+    }
+    return pages;
+  }
+
+  @Override
+  public List<Figure> readPage(long key) throws IOException {
+    Path file = getPageFile(key);
+    List<Figure> figures = new ArrayList<>();
+    if (!index.containsKey(key) || !Files.exists(file)) {
+      return figures;
+    }
+    BinaryDOMInput domi = new BinaryDOMInput(factory, ByteBuffer.wrap(Files.readAllBytes(file)));
+    for (int i = 0, n = domi.getSectionCount(); i < n; i++) {
+      figures.add((Figure) domi.readSection(i));
+    }
+    return figures;
+  }
+
+  @Override
+  public void writePage(long key, List<Figure> figures, Rectangle2D.Double bounds)
+      throws IOException {
+    Path file = getPageFile(key);
+    if (figures.isEmpty()) {
+      Files.deleteIfExists(file);
+      index.remove(key);
+      ranks.remove(key);
+    } else {
+      Path tmp = directory.resolve(file.getFileName() + ".tmp");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+        BinaryDOMOutput domo = new BinaryDOMOutput(factory, out);
+        for (Figure f : figures) {
+          domo.writeSection(f, f.getDrawingArea());
+        }
+        domo.close();
+      }
+      replace(tmp, file);
+      index.put(key, bounds == null ? null : (Rectangle2D.Double) bounds.clone());
+      // The ranks of the old figures do not apply to the new figures
+      ranks.remove(key);
+    }
+    isIndexDirty = true;
+  }
+
+  @Override
+  public double[] getRanks(long key) {
+    double[] pageRanks = ranks.get(key);
+    return (pageRanks == null) ? null : pageRanks.clone();
+  }
+
+  @Override
+  public void setRanks(long key, double[] pageRanks) {
+    if (index.containsKey(key)) {
+      ranks.put(key, pageRanks.clone());
+      isIndexDirty = true;
+    }
+  }
+
+  /** Writes the index file, if pages have been written since it was last written. */
+  @Override
+  public void flush() throws IOException {
+    if (isIndexDirty) {
+      writeIndex();
+      isIndexDirty = false;
+    }
+  }
+
+  /** Writes the index file. The store can be used further after it has been closed. */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * @(#)BinaryStorableInputFormat.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.io;
+
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.IncrementalDrawingLoader;
+import org.jhotdraw.draw.io.InputFormat;
+import org.jhotdraw.xml.DOMFactory;
+
+/**
+ * An InputFormat that reads Drawings with DOMStorable Figure's from the binary format which is
+ * written by {@link BinaryStorableOutputFormat}.
+ *
+ * <p>Files are mapped into memory, and the figures are decoded section by section with a {@link
+ * BinaryDOMInput}. The {@code read} methods with a region parameter only decode the figures whose
+ * drawing area intersects the region, and the figures which they refer to.
+ */
+public class BinaryStorableInputFormat implements InputFormat {
+
+  private DOMFactory factory;
+
+  /** Format description used for the file filter. */
+  private String description;
+
+  /** File name extension used for the file filter. */
+  private String fileExtension;
+
+  /** The mime type is used for clipboard access. */
+  private String mimeType;
+
+  /** The data flavor constructed from the mime type. */
+  private DataFlavor dataFlavor;
+
+  /**
+   * Creates a new instance with format name "Binary Drawing", file extension "jhdb" and mime type
+   * "application/x-jhotdraw-binary".
+   */
+  public BinaryStorableInputFormat(DOMFactory factory) {
+    this(factory, "Binary Drawing", "jhdb", "application/x-jhotdraw-binary");
+  }
+
+  /**
+   * Creates a new instance using the specified parameters.
+   *
+   * @param factory The factory for creating Figures.
+   * @param description The format description to be used for the file filter.
+   * @param fileExtension The file extension to be used for file filter.
+   * @param mimeType The Mime Type is used for clipboard access.
+   */
+  public BinaryStorableInputFormat(
+      DOMFactory factory, String description, String fileExtension, String mimeType) {
+    this.factory = factory;
+    this.description = description;
+    this.fileExtension = fileExtension;
+    this.mimeType = mimeType;
+    try {
+      this.dataFlavor = new DataFlavor(mimeType);
+    } catch (ClassNotFoundException ex) {
+      throw new InternalError("Unable to create data flavor for mime type:" + mimeType, ex);
+    }
+  }
+
+  @Override
+  public javax.swing.filechooser.FileFilter getFileFilter() {
+    return new FileNameExtensionFilter(description, fileExtension);
+  }
+
+  @Override
+  public boolean isDataFlavorSupported(DataFlavor flavor) {
+    return flavor.equals(dataFlavor);
+  }
+
+  @Override
+  public void read(URI uri, Drawing drawing, boolean replace) throws IOException {
+    if ("file".equals(uri.getScheme())) {
+      read(new File(uri), drawing, replace);
+    } else {
+      InputFormat.super.read(uri, drawing, replace);
+    }
+  }
+
+  @Override
+  public void read(File file, Drawing drawing, boolean replace) throws IOException {
+    read(file, drawing, null, replace);
+  }
+
+  /**
+   * Reads the figures of a region of the drawing from a file and adds them to the specified
+   * drawing.
+   *
+   * <p>Only the figures whose drawing area intersects the region are read, together with the
+   * figures which they refer to, for example, the figures which are connected by a connection
+   * figure. The figures are added in the order in which they are stored in the file.
+   *
+   * @param file The file.
+   * @param drawing The drawing.
+   * @param region The region, or null to read all figures.
+   * @param replace Set this to true, if the figures replace the contents of the drawing.
+   */
+  public void read(File file, Drawing drawing, Rectangle2D region, boolean replace)
+      throws IOException {
+    read(map(file), drawing, region, replace);
+  }
+
+  @Override
+  public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
+    read(ByteBuffer.wrap(in.readAllBytes()), drawing, null, replace);
+  }
+
+  /** Maps a file into memory. */
+  private static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private void read(ByteBuffer in, Drawing drawing, Rectangle2D region, boolean replace)
+      throws IOException {
+    List<Figure> figures = readFigures(in, region);
+    if (replace) {
+      drawing.removeAllChildren();
+    }
+    drawing.addAll(figures);
+  }
+
+  /** Reads the figures of the sections which intersect the region. */
+  private List<Figure> readFigures(ByteBuffer in, Rectangle2D region) throws IOException {
+    BinaryDOMInput domi = new BinaryDOMInput(factory, in);
+    int count = domi.getSectionCount();
+    for (int i = 0; i < count; i++) {
+      Rectangle2D.Double bounds = domi.getSectionBounds(i);
+      if (region == null || bounds == null || region.intersects(bounds)) {
+        domi.readSection(i);
+      }
+    }
+    // Sections which have been read on behalf of a figure in the region are added as well
+    List<Figure> figures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (domi.isSectionRead(i)) {
+        figures.add((Figure) domi.readSection(i));
+      }
+    }
+    return figures;
+  }
+
+  /** Hands each figure to the loader as soon as its section has been read. */
+  @Override
+  public void read(URI uri, IncrementalDrawingLoader loader) throws IOException {
+    if ("file".equals(uri.getScheme())) {
+      read(map(new File(uri)), loader);
+    } else {
+      InputFormat.super.read(uri, loader);
+    }
+  }
+
+  /** Hands each figure to the loader as soon as its section has been read. */
+  @Override
+  public void read(InputStream in, IncrementalDrawingLoader loader) throws IOException {
+    read(ByteBuffer.wrap(in.readAllBytes()), loader);
+  }
+
+  private void read(ByteBuffer in, IncrementalDrawingLoader loader) throws IOException {
+    BinaryDOMInput domi = new BinaryDOMInput(factory, in);
+    for (int i = 0, n = domi.getSectionCount(); i < n; i++) {
+      loader.add((Figure) domi.readSection(i));
+    }
+  }
+
+  @Override
+  public void read(Transferable t, Drawing drawing, boolean replace)
+      throws UnsupportedFlavorException, IOException {
+    InputStream in = (InputStream) t.getTransferData(new DataFlavor(mimeType, description));
+    read(in, drawing, replace);
+  }
+}
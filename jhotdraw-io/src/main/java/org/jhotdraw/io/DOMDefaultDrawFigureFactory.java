@@ -184,9 +184,9 @@ public class DOMDefaultDrawFigureFactory extends DefaultDOMFactory {
     readDecorator(figure, domInput);
     if (domInput.getElementCount("imageData") > 0) {
       domInput.openElement("imageData");
-      String base64Data = domInput.getText();
-      if (base64Data != null) {
-        figure.setImageData(Base64.decode(base64Data));
+      byte[] imageData = domInput.getBase64Text();
+      if (imageData != null) {
+        figure.setImageData(imageData);
       }
       domInput.closeElement();
     }
@@ -197,7 +197,7 @@ public class DOMDefaultDrawFigureFactory extends DefaultDOMFactory {
     writeDecorator(figure, domOutput);
     if (figure.getImageData() != null) {
       domOutput.openElement("imageData");
-      domOutput.addText(Base64.encodeBytes(figure.getImageData()));
+      domOutput.addBase64Text(figure.getImageData());
       domOutput.closeElement();
     }
   }
@@ -17,11 +17,17 @@ import java.util.List;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.IncrementalDrawingLoader;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.xml.DOMFactory;
-import org.jhotdraw.xml.JavaxDOMInput;
+import org.jhotdraw.xml.StaxDOMInput;
 
-/** An OutputFormat that can write Drawings with DOMStorable Figure's. */
+/**
+ * An InputFormat that can read Drawings with DOMStorable Figure's.
+ *
+ * <p>The document is read with a {@link StaxDOMInput}, so that only the figure which is currently
+ * being read is held in memory besides the drawing.
+ */
 public class DOMStorableInputFormat implements InputFormat {
 
   private DOMFactory factory;
@@ -82,27 +88,40 @@ public class DOMStorableInputFormat implements InputFormat {
 
   @Override
   public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
-    JavaxDOMInput domi = new JavaxDOMInput(factory, in);
+    StaxDOMInput domi = new StaxDOMInput(factory, in);
     domi.openElement(factory.getName(drawing));
     domi.openElement("figures");
     if (replace) {
       drawing.removeAllChildren();
     }
-    for (int i = 0; i < domi.getElementCount(); i++) {
+    for (int i = 0; domi.hasElement(i); i++) {
       drawing.add((Figure) domi.readObject(i));
     }
     domi.closeElement();
     domi.closeElement();
   }
 
+  /** Hands each figure to the loader as soon as it has been read from the DOM. */
+  @Override
+  public void read(InputStream in, IncrementalDrawingLoader loader) throws IOException {
+    StaxDOMInput domi = new StaxDOMInput(factory, in);
+    domi.openElement(factory.getName(loader.getDrawing()));
+    domi.openElement("figures");
+    for (int i = 0; domi.hasElement(i); i++) {
+      loader.add((Figure) domi.readObject(i));
+    }
+    domi.closeElement();
+    domi.closeElement();
+  }
+
   @Override
   public void read(Transferable t, Drawing drawing, boolean replace)
       throws UnsupportedFlavorException, IOException {
     List<Figure> figures = new ArrayList<>();
     InputStream in = (InputStream) t.getTransferData(new DataFlavor(mimeType, description));
-    JavaxDOMInput domi = new JavaxDOMInput(factory, in);
+    StaxDOMInput domi = new StaxDOMInput(factory, in);
     domi.openElement("Drawing-Clip");
-    for (int i = 0, n = domi.getElementCount(); i < n; i++) {
+    for (int i = 0; domi.hasElement(i); i++) {
       figures.add((Figure) domi.readObject(i));
     }
     domi.closeElement();
@@ -19,7 +19,12 @@ import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.OutputFormat;
 import org.jhotdraw.xml.*;
 
-/** An OutputFormat that can write Drawings with DOMStorable Figure's. */
+/**
+ * An OutputFormat that can write Drawings with DOMStorable Figure's.
+ *
+ * <p>The document is written with a {@link StaxDOMOutput}, so that each figure is written to the
+ * stream as soon as it has been converted.
+ */
 public class DOMStorableOutputFormat implements OutputFormat {
 
   private DOMFactory factory;
@@ -94,7 +99,7 @@ public class DOMStorableOutputFormat implements OutputFormat {
 
   @Override
   public void write(OutputStream out, Drawing drawing) throws IOException {
-    JavaxDOMOutput domo = new JavaxDOMOutput(factory);
+    StaxDOMOutput domo = new StaxDOMOutput(factory, out);
     domo.openElement(factory.getName(drawing));
     //    drawing.write(domo);
     domo.openElement("figures");
@@ -103,20 +108,20 @@ public class DOMStorableOutputFormat implements OutputFormat {
     }
     domo.closeElement();
     domo.closeElement();
-    domo.save(out);
+    domo.close();
   }
 
   @Override
   public Transferable createTransferable(Drawing drawing, List<Figure> figures, double scaleFactor)
       throws IOException {
     ByteArrayOutputStream buf = new ByteArrayOutputStream();
-    JavaxDOMOutput domo = new JavaxDOMOutput(factory);
+    StaxDOMOutput domo = new StaxDOMOutput(factory, buf);
     domo.openElement("Drawing-Clip");
     for (Figure f : figures) {
       domo.writeObject(f);
     }
     domo.closeElement();
-    domo.save(buf);
+    domo.close();
     return new InputStreamTransferable(new DataFlavor(mimeType, description), buf.toByteArray());
   }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.junit.jupiter.api.Test;
+
+public class BinaryPageStoreTest {
+
+  private static File createDirectory(String name) {
+    File dir = new File("target/test-output/" + name);
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    return dir;
+  }
+
+  @Test
+  public void testIndexIsWrittenOnFlush() throws IOException {
+    File dir = createDirectory("pages_flush");
+    BinaryPageStore store = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    Figure f = new RectangleFigure(10, 20, 30, 40);
+    store.writePage(1L, Arrays.asList(f), f.getDrawingArea());
+    store.writePage(2L, Arrays.asList(new RectangleFigure(110, 20, 30, 40)), null);
+    assertThat(new File(dir, "pages.idx").exists()).isFalse();
+
+    store.flush();
+    assertThat(new File(dir, "pages.idx").exists()).isTrue();
+    BinaryPageStore reopened = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    assertThat(reopened.getPages()).containsOnlyKeys(1L, 2L);
+    assertThat(reopened.getPages().get(1L)).isEqualTo(f.getDrawingArea());
+  }
+
+  @Test
+  public void testRanksAreKeptInTheIndex() throws IOException {
+    File dir = createDirectory("pages_ranks");
+    BinaryPageStore store = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    store.writePage(
+        1L,
+        Arrays.asList(new RectangleFigure(10, 20, 30, 40), new RectangleFigure(20, 20, 30, 40)),
+        null);
+    store.setRanks(1L, new double[] {-3.5, 7});
+    store.writePage(2L, Arrays.asList(new RectangleFigure(110, 20, 30, 40)), null);
+    store.flush();
+
+    BinaryPageStore reopened = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    assertThat(reopened.getRanks(1L)).containsExactly(-3.5, 7d);
+    assertThat(reopened.getRanks(2L)).isNull();
+
+    // Writing the page again removes the ranks of the old figures
+    reopened.writePage(1L, Arrays.asList(new RectangleFigure(10, 20, 30, 40)), null);
+    assertThat(reopened.getRanks(1L)).isNull();
+  }
+
+  @Test
+  public void testPageCanBeReplacedAfterItHasBeenRead() throws IOException {
+    File dir = createDirectory("pages_replace");
+    BinaryPageStore store = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    store.writePage(1L, Arrays.asList(new RectangleFigure(10, 20, 30, 40)), null);
+    List<Figure> figures = store.readPage(1L);
+    assertThat(figures).hasSize(1);
+
+    figures.add(new RectangleFigure(50, 20, 30, 40));
+    store.writePage(1L, figures, null);
+    store.close();
+    assertThat(store.readPage(1L)).hasSize(2);
+
+    store.writePage(1L, Arrays.asList(), null);
+    store.close();
+    BinaryPageStore reopened = new BinaryPageStore(new DOMDefaultDrawFigureFactory(), dir);
+    assertThat(reopened.getPages()).isEmpty();
+    assertThat(reopened.readPage(1L)).isEmpty();
+  }
+}
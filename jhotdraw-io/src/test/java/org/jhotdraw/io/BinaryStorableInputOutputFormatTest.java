@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.jhotdraw.draw.DefaultDrawing;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.Figure;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.xmlunit.assertj.XmlAssert;
+
+public class BinaryStorableInputOutputFormatTest {
+
+  private static Drawing readXml(String filename) throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    new DOMStorableInputFormat(new DOMDefaultDrawFigureFactory())
+        .read(
+            BinaryStorableInputOutputFormatTest.class.getResourceAsStream(filename + ".xml"),
+            drawing,
+            true);
+    return drawing;
+  }
+
+  private static File writeBinary(String filename, Drawing drawing) throws IOException {
+    File file = new File("target/test-output/" + filename + ".jhdb");
+    file.getParentFile().mkdirs();
+    new BinaryStorableOutputFormat(new DOMDefaultDrawFigureFactory()).write(file, drawing);
+    return file;
+  }
+
+  @ParameterizedTest(name = "{index} {0}")
+  @CsvSource({"figures", "arrowtip", "green_rectangle", "bezier", "group", "image"})
+  public void testSomeFiguresInOut(String filename) throws IOException {
+    File binaryFile = writeBinary(filename, readXml(filename));
+    assertThat(binaryFile.length()).isGreaterThan(0);
+
+    Drawing drawing = new DefaultDrawing();
+    new BinaryStorableInputFormat(new DOMDefaultDrawFigureFactory()).read(binaryFile, drawing);
+
+    File outputFile = new File("target/test-output/" + filename + "_binary_roundtrip.xml");
+    try (OutputStream out = new FileOutputStream(outputFile)) {
+      new DOMStorableOutputFormat(new DOMDefaultDrawFigureFactory()).write(out, drawing);
+    }
+    XmlAssert.assertThat(
+            BinaryStorableInputOutputFormatTest.class.getResourceAsStream(filename + ".xml"))
+        .and(outputFile)
+        .ignoreWhitespace()
+        .areIdentical();
+  }
+
+  @Test
+  public void testReadRegion() throws IOException {
+    Drawing original = readXml("figures");
+    File binaryFile = writeBinary("figures_region", original);
+    Figure first = original.getChild(0);
+    Rectangle2D.Double region = first.getDrawingArea();
+
+    Drawing drawing = new DefaultDrawing();
+    new BinaryStorableInputFormat(new DOMDefaultDrawFigureFactory())
+        .read(binaryFile, drawing, region, true);
+
+    List<Rectangle2D.Double> inside = new ArrayList<>();
+    List<Rectangle2D.Double> outside = new ArrayList<>();
+    for (Figure f : original.getChildren()) {
+      Rectangle2D.Double area = f.getDrawingArea();
+      (region.intersects(area) ? inside : outside).add(area);
+    }
+    assertThat(outside).isNotEmpty();
+
+    List<Rectangle2D.Double> loaded = new ArrayList<>();
+    for (Figure f : drawing.getChildren()) {
+      loaded.add(f.getDrawingArea());
+    }
+    assertThat(loaded).containsExactlyElementsOf(inside);
+    for (Rectangle2D.Double area : outside) {
+      assertThat(loaded).doesNotContain(area);
+    }
+  }
+}
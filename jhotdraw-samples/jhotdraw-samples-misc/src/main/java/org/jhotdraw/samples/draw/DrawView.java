@@ -15,6 +15,7 @@ import java.beans.*;
 import java.io.*;
 import java.lang.reflect.*;
 import java.net.URI;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
 import javax.swing.border.*;
@@ -24,10 +25,15 @@ import org.jhotdraw.api.gui.URIChooser;
 import org.jhotdraw.app.AbstractView;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingEditor;
+import org.jhotdraw.draw.DrawingView;
 import org.jhotdraw.draw.QuadTreeDrawing;
+import org.jhotdraw.draw.figure.AbstractAttributedFigure;
+import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.figure.ImageFigure;
 import org.jhotdraw.draw.figure.TextAreaFigure;
 import org.jhotdraw.draw.figure.TextFigure;
+import org.jhotdraw.draw.handle.Handle;
+import org.jhotdraw.draw.io.IncrementalDrawingLoader;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.draw.io.OutputFormat;
 import org.jhotdraw.draw.print.DrawingPageable;
@@ -41,6 +47,7 @@ import org.jhotdraw.io.ImageInputFormat;
 import org.jhotdraw.io.ImageOutputFormat;
 import org.jhotdraw.io.TextInputFormat;
 import org.jhotdraw.net.URIUtil;
+import org.jhotdraw.undo.UndoJournal;
 import org.jhotdraw.undo.UndoRedoManager;
 import org.jhotdraw.util.*;
 
@@ -79,6 +86,11 @@ public class DrawView extends AbstractView {
     scrollPane.setBorder(new EmptyBorder(0, 0, 0, 0));
     setEditor(new DefaultDrawingEditor());
     undo = new UndoRedoManager();
+    UndoJournal journal = createUndoJournal();
+    if (journal != null) {
+      undo.setLimit(10000);
+      undo.setJournal(journal);
+    }
     view.setDrawing(createDrawing());
     view.getDrawing().addUndoableEditListener(undo);
     initActions();
@@ -122,6 +134,41 @@ public class DrawView extends AbstractView {
     return drawing;
   }
 
+  /**
+   * Creates a journal into which old edits are spilled, so that deleted figures do not stay in
+   * memory for the whole editing session. Returns null if the journal can not be created.
+   */
+  private static UndoJournal createUndoJournal() {
+    try {
+      return UndoJournal.createTempJournal(
+          o -> o instanceof Figure
+              || o instanceof Drawing
+              || o instanceof DrawingView
+              || o instanceof Handle,
+          o -> o instanceof AbstractAttributedFigure
+              && !(o instanceof Drawing)
+              && ((AbstractAttributedFigure) o).getDrawing() == null);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Could not create undo journal", e);
+      return null;
+    }
+  }
+
+  @Override
+  public void dispose() {
+    UndoJournal journal = undo.getJournal();
+    if (journal != null) {
+      undo.discardAllEdits();
+      undo.setJournal(null);
+      try {
+        journal.close();
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Could not close undo journal", e);
+      }
+    }
+    super.dispose();
+  }
+
   /** Creates a Pageable object for printing the view. */
   public Pageable createPageable() {
     return new DrawingPageable(view.getDrawing());
@@ -147,32 +194,43 @@ public class DrawView extends AbstractView {
     outputFormat.write(f, drawing);
   }
 
-  /** Reads the view from the specified uri. */
+  /**
+   * Reads the view from the specified uri. The new drawing is shown immediately, and the figures
+   * are streamed into it while they are being read.
+   */
   @Override
   public void read(URI f, URIChooser fc) throws IOException {
     try {
       final Drawing drawing = createDrawing();
-      boolean success = false;
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+          view.getDrawing().removeUndoableEditListener(undo);
+          view.setDrawing(drawing);
+          view.getDrawing().addUndoableEditListener(undo);
+        }
+      });
+      IncrementalDrawingLoader loader = null;
       for (InputFormat sfi : drawing.getInputFormats()) {
         try {
-          sfi.read(f, drawing, true);
-          success = true;
+          loader = new IncrementalDrawingLoader(drawing, true);
+          sfi.read(f, loader);
           break;
+        } catch (InterruptedIOException e) {
+          throw e;
         } catch (Exception e) {
+          loader = null;
           e.printStackTrace();
         }
       }
-      if (!success) {
+      if (loader == null) {
         ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels");
         throw new IOException(
             labels.getFormatted("file.open.unsupportedFileFormat.message", URIUtil.getName(f)));
       }
-      SwingUtilities.invokeAndWait(new Runnable() {
+      loader.finish(new Runnable() {
         @Override
         public void run() {
-          view.getDrawing().removeUndoableEditListener(undo);
-          view.setDrawing(drawing);
-          view.getDrawing().addUndoableEditListener(undo);
           undo.discardAllEdits();
         }
       });
@@ -13,7 +13,11 @@ import static org.jhotdraw.samples.odg.ODGConstants.*;
 import java.awt.datatransfer.*;
 import java.awt.geom.*;
 import java.io.*;
+import java.net.URI;
+import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 import java.util.zip.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -25,6 +29,7 @@ import org.jhotdraw.draw.figure.CompositeFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.geom.path.PathDataParser;
 import org.jhotdraw.io.StreamPosTokenizer;
 import org.jhotdraw.samples.odg.figures.ODGBezierFigure;
 import org.jhotdraw.samples.odg.figures.ODGEllipseFigure;
@@ -78,71 +83,152 @@ public class ODGInputFormat implements InputFormat {
     }
   }
 
-  /** Reads all bytes from the InputStreams until EOF is reached. */
-  private byte[] readAllBytes(InputStream in) throws IOException {
-    ByteArrayOutputStream tmp = new ByteArrayOutputStream();
-    byte[] buf = new byte[512];
-    for (int len; -1 != (len = in.read(buf)); ) {
-      tmp.write(buf, 0, len);
+  /** An input stream for a ZIP entry, which does not close the ZIP stream. */
+  private static class EntryInputStream extends FilterInputStream {
+
+    EntryInputStream(InputStream in) {
+      super(in);
     }
-    tmp.close();
-    return tmp.toByteArray();
-  }
 
-  @Override
-  public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
-    // Read the file into a byte array.
-    byte[] tmp = readAllBytes(in);
+    @Override
+    public void close() {
+      // The XML parser closes its input, but the next entry is still needed
+    }
+  }
 
-    // Input stream of the content.xml file
-    InputStream contentIn = null;
+  /** Parses an XML document from an input stream. */
+  private static Document parse(InputStream in) throws IOException {
+    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+    try {
+      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+      return dBuilder.parse(in);
+    } catch (ParserConfigurationException | SAXException ex) {
+      IOException e = new IOException(ex.getMessage());
+      e.initCause(ex);
+      throw e;
+    }
+  }
 
-    // Input stream of the styles.xml file
-    InputStream stylesIn = null;
+  @Override
+  public void read(URI uri, Drawing drawing, boolean replace) throws IOException {
+    if ("file".equals(uri.getScheme())) {
+      read(new File(uri), drawing, replace);
+    } else {
+      InputFormat.super.read(uri, drawing, replace);
+    }
+  }
 
-    // Try to read "tmp" as a ZIP-File.
-    boolean isZipped = true;
+  /**
+   * Reads a drawing from a file. An ODG archive is opened with random access, and its styles.xml
+   * and content.xml entries are parsed concurrently. The style references of the figures are
+   * resolved when both entries have been parsed.
+   */
+  @Override
+  public void read(File file, Drawing drawing, boolean replace) throws IOException {
+    ZipFile zip;
     try {
-      ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(tmp));
-      for (ZipEntry entry; null != (entry = zin.getNextEntry()); ) {
-        if ("content.xml".equals(entry.getName())) {
-          contentIn = new ByteArrayInputStream(readAllBytes(zin));
-        } else if ("styles.xml".equals(entry.getName())) {
-          stylesIn = new ByteArrayInputStream(readAllBytes(zin));
-        }
-      }
-
+      zip = new ZipFile(file);
     } catch (ZipException e) {
-      isZipped = false;
+      // The file is a flat XML document
+      InputFormat.super.read(file, drawing, replace);
+      return;
     }
-    if (contentIn == null) {
-      contentIn = new ByteArrayInputStream(tmp);
+    try {
+      ZipEntry contentEntry = zip.getEntry("content.xml");
+      if (contentEntry == null) {
+        throw new IOException("content.xml is missing in " + file);
+      }
+      ZipEntry stylesEntry = zip.getEntry("styles.xml");
+      CompletableFuture<Document> stylesDocument =
+          (stylesEntry == null)
+              ? null
+              : CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = zip.getInputStream(stylesEntry)) {
+                  return parse(in);
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+      Document contentDocument;
+      try (InputStream in = zip.getInputStream(contentEntry)) {
+        contentDocument = parse(in);
+      } finally {
+        if (stylesDocument != null) {
+          // The ZIP file must stay open until the styles have been parsed
+          try {
+            stylesDocument.join();
+          } catch (CompletionException e) {
+            // reported below
+          }
+        }
+      }
+      styles = new ODGStylesReader();
+      if (stylesDocument != null) {
+        styles.read(join(stylesDocument).getDocumentElement());
+      }
+      readFiguresFromDocumentContent(contentDocument, drawing, replace);
+    } finally {
+      zip.close();
     }
-    if (stylesIn == null) {
-      stylesIn = new ByteArrayInputStream(tmp);
+  }
+
+  private static Document join(CompletableFuture<Document> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException(e.getCause());
     }
+  }
 
+  /**
+   * Reads a drawing from an ODG archive or from a flat XML document. The entries of an archive are
+   * parsed directly from the stream, in the order in which they are stored.
+   */
+  @Override
+  public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
+    BufferedInputStream bin = new BufferedInputStream(in);
+    bin.mark(4);
+    boolean isZipped =
+        bin.read() == 'P' && bin.read() == 'K' && bin.read() == 3 && bin.read() == 4;
+    bin.reset();
     styles = new ODGStylesReader();
-    styles.read(stylesIn);
-
-    readFiguresFromDocumentContent(contentIn, drawing, replace);
+    if (!isZipped) {
+      // A flat XML document holds the styles together with the content
+      readFiguresFromDocumentContent(bin, drawing, replace);
+      return;
+    }
+    Document contentDocument = null;
+    ZipInputStream zin = new ZipInputStream(bin);
+    for (ZipEntry entry; null != (entry = zin.getNextEntry()); ) {
+      if ("content.xml".equals(entry.getName())) {
+        contentDocument = parse(new EntryInputStream(zin));
+      } else if ("styles.xml".equals(entry.getName())) {
+        styles.read(parse(new EntryInputStream(zin)).getDocumentElement());
+      }
+    }
+    if (contentDocument == null) {
+      throw new IOException("content.xml is missing in ODG archive");
+    }
+    readFiguresFromDocumentContent(contentDocument, drawing, replace);
   }
 
   /** Reads figures from the content.xml file of an ODG open document drawing document. */
-  @SuppressWarnings("unchecked")
   public void readFiguresFromDocumentContent(InputStream in, Drawing drawing, boolean replace)
       throws IOException {
-    this.figures = new LinkedList<Figure>();
-    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+    readFiguresFromDocumentContent(parse(in), drawing, replace);
+  }
 
-    try {
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document doc = dBuilder.parse(in);
-    } catch (ParserConfigurationException | SAXException ex) {
-      IOException e = new IOException(ex.getMessage());
-      e.initCause(ex);
-      throw e;
-    }
+  /**
+   * Reads figures from the parsed content.xml file of an ODG open document drawing document. The
+   * styles of the document must have been read before this method is invoked.
+   */
+  private void readFiguresFromDocumentContent(Document doc, Drawing drawing, boolean replace)
+      throws IOException {
+    this.figures = new LinkedList<Figure>();
+    this.document = doc;
 
     if (styles == null) {
       styles = new ODGStylesReader();
@@ -1303,575 +1389,10 @@ public class ODGInputFormat implements InputFormat {
    * http://www.w3.org/TR/SVG/paths.html#PathDataEllipticalArcCommands
    */
   private BezierPath[] toPath(String str) throws IOException {
-    LinkedList<BezierPath> paths = new LinkedList<BezierPath>();
-
-    BezierPath path = null;
-    Point2D.Double p = new Point2D.Double();
-    Point2D.Double c1 = new Point2D.Double();
-    Point2D.Double c2 = new Point2D.Double();
-
-    StreamPosTokenizer tt = new StreamPosTokenizer(new StringReader(str));
-    tt.resetSyntax();
-    tt.parseNumbers();
-    tt.parseExponents();
-    tt.parsePlusAsNumber();
-    tt.whitespaceChars(0, ' ');
-    tt.whitespaceChars(',', ',');
-
-    char nextCommand = 'M';
-    char command = 'M';
-    Commands:
-    while (tt.nextToken() != StreamPosTokenizer.TT_EOF) {
-      if (tt.ttype > 0) {
-        command = (char) tt.ttype;
-      } else {
-        command = nextCommand;
-        tt.pushBack();
-      }
-
-      BezierPath.Node node;
-
-      switch (command) {
-        case 'M':
-          // absolute-moveto x y
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'L';
-          break;
-        case 'm':
-          // relative-moveto dx dy
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'm' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'm' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'l';
-
-          break;
-        case 'Z':
-        case 'z':
-          // close path
-          p.x = path.nodes().get(0).x[0];
-          p.y = path.nodes().get(0).y[0];
-
-          // If the last point and the first point are the same, we
-          // can merge them
-          if (path.size() > 1) {
-            BezierPath.Node first = path.nodes().get(0);
-            BezierPath.Node last = path.nodes().get(path.size() - 1);
-            if (first.x[0] == last.x[0] && first.y[0] == last.y[0]) {
-              if ((last.mask & BezierPath.C1_MASK) != 0) {
-                first.mask |= BezierPath.C1_MASK;
-                first.x[1] = last.x[1];
-                first.y[1] = last.y[1];
-              }
-              path.remove(path.size() - 1);
-            }
-          }
-          path.setClosed(true);
-
-          break;
-        case 'L':
-          // absolute-lineto x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'L';
-
-          break;
-        case 'l':
-          // relative-lineto dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'l' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'l' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'l';
-
-          break;
-        case 'H':
-          // absolute-horizontal-lineto x
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'H' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'H';
-
-          break;
-        case 'h':
-          // relative-horizontal-lineto dx
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'h' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'h';
-
-          break;
-        case 'V':
-          // absolute-vertical-lineto y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'V' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'V';
-
-          break;
-        case 'v':
-          // relative-vertical-lineto dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'v' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'v';
-
-          break;
-        case 'C':
-          // absolute-curveto x1 y1 x2 y2 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x1 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y1 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x2 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y2 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'C';
-          break;
-
-        case 'c':
-          // relative-curveto dx1 dy1 dx2 dy2 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx1 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy1 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx2 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy2 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'c';
-          break;
-
-        case 'S':
-          // absolute-shorthand-curveto x2 y2 x y
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x2 coordinate missing for 'S' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y2 coordinate missing for 'S' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'S';
-          break;
-
-        case 's':
-          // relative-shorthand-curveto dx2 dy2 dx dy
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx2 coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy2 coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 's';
-          break;
-
-        case 'Q':
-          // absolute-quadto x1 y1 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x1 coordinate missing for 'Q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y1 coordinate missing for 'Q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'Q';
-
-          break;
-
-        case 'q':
-          // relative-quadto dx1 dy1 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx1 coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy1 coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'q';
-
-          break;
-        case 'T':
-          // absolute-shorthand-quadto x y
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'T';
-
-          break;
-
-        case 't':
-          // relative-shorthand-quadto dx dy
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 't' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 't' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 's';
-
-          break;
-
-        case 'A':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("rx coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          double rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("ry coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          double ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x-axis-rotation missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          double xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("large-arc-flag missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          boolean largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          boolean sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-
-          nextCommand = 'A';
-          break;
-
-        case 'a':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("rx coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("ry coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x-axis-rotation missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("large-arc-flag missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y += tt.nval;
-
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-
-          nextCommand = 'a';
-          break;
-        default:
-          LOG.fine("SVGInputFormat.toPath aborting after illegal path command: "
-              + command
-              + " found in path "
-              + str);
-          break Commands;
-          // throw new IOException("Illegal command: "+command);
-      }
-    }
-    if (path != null) {
-      paths.add(path);
+    try {
+      return new PathDataParser().parse(str);
+    } catch (ParseException e) {
+      throw new IOException(e.getMessage(), e);
     }
-    return paths.toArray(new BezierPath[paths.size()]);
   }
 }
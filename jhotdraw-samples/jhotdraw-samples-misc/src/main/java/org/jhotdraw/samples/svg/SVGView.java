@@ -22,6 +22,7 @@ import org.jhotdraw.api.gui.URIChooser;
 import org.jhotdraw.app.AbstractView;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingEditor;
+import org.jhotdraw.draw.io.IncrementalDrawingLoader;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.draw.print.DrawingPageable;
 import org.jhotdraw.gui.JFileURIChooser;
@@ -117,31 +118,42 @@ public class SVGView extends AbstractView {
     new SVGOutputFormat().write(new File(uri), svgPanel.getDrawing());
   }
 
-  /** Reads the view from the specified uri. */
+  /**
+   * Reads the view from the specified uri.
+   *
+   * <p>The new drawing is shown immediately, and the figures are streamed into it while they are
+   * being read, so that large files paint progressively.
+   */
   @SuppressWarnings("unchecked")
   @Override
   public void read(final URI uri, URIChooser chooser) throws IOException {
         try {
             JFileURIChooser fc = (JFileURIChooser) chooser;
             final Drawing drawing = createDrawing();
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    Drawing oldDrawing = svgPanel.getDrawing();
+                    svgPanel.setDrawing(drawing);
+                    firePropertyChange(DRAWING_PROPERTY, oldDrawing, svgPanel.getDrawing());
+                }
+            });
 
             InputFormat selectedFormat = getSelectedFormat(fc);
-            boolean success = tryReadWithSelectedFormat(selectedFormat, uri, drawing);
+            IncrementalDrawingLoader loader =
+                    tryReadWithSelectedFormat(selectedFormat, uri, drawing);
 
-            if (!success) {
-                success = tryReadWithOtherFormats(selectedFormat, drawing, uri);
+            if (loader == null) {
+                loader = tryReadWithOtherFormats(selectedFormat, drawing, uri);
             }
 
-            if (!success) {
+            if (loader == null) {
                 throw new IOException(ResourceBundleUtil.getBundle("org.jhotdraw.app.Labels").getFormatted("file.open.unsupportedFileFormat.message", URIUtil.getName(uri)));
             }
 
-            SwingUtilities.invokeAndWait(new Runnable() {
+            loader.finish(new Runnable() {
                 @Override
                 public void run() {
-                    Drawing oldDrawing = svgPanel.getDrawing();
-                    svgPanel.setDrawing(drawing);
-                    firePropertyChange(DRAWING_PROPERTY, oldDrawing, svgPanel.getDrawing());
                     undo.discardAllEdits();
                 }
             });
@@ -165,31 +177,41 @@ public class SVGView extends AbstractView {
         return fileFilterInputFormatMap.get(fc.getFileFilter());
     }
 
-    private boolean tryReadWithSelectedFormat(InputFormat selectedFormat, URI uri, Drawing drawing) {
+    /** Returns the loader if reading succeeded, and null otherwise. */
+    private IncrementalDrawingLoader tryReadWithSelectedFormat(
+            InputFormat selectedFormat, URI uri, Drawing drawing) throws InterruptedIOException {
         if (selectedFormat == null) {
-            return false;
-        }
-        try {
-            selectedFormat.read(uri, drawing, true);
-            return true;
-        } catch (Exception e) {
-            // try with the next input format
-            return false;
+            return null;
         }
+        return tryRead(selectedFormat, uri, drawing);
     }
     
-    private boolean tryReadWithOtherFormats(InputFormat selectedFormat, Drawing drawing, URI uri) {
+    private IncrementalDrawingLoader tryReadWithOtherFormats(
+            InputFormat selectedFormat, Drawing drawing, URI uri) throws InterruptedIOException {
         for (InputFormat sfi : drawing.getInputFormats()) {
             if (sfi != selectedFormat) {
-                try {
-                    sfi.read(uri, drawing, true);
-                    return true;
-                } catch (Exception e) {
-                    // try with the next input format
+                IncrementalDrawingLoader loader = tryRead(sfi, uri, drawing);
+                if (loader != null) {
+                    return loader;
                 }
             }
         }
-        return false;
+        return null;
+    }
+
+    private IncrementalDrawingLoader tryRead(InputFormat format, URI uri, Drawing drawing)
+            throws InterruptedIOException {
+        IncrementalDrawingLoader loader = new IncrementalDrawingLoader(drawing, true);
+        try {
+            format.read(uri, loader);
+            return loader;
+        } catch (InterruptedIOException e) {
+            // the user canceled loading
+            throw e;
+        } catch (Exception e) {
+            // try with the next input format
+            return null;
+        }
     }
 //Refactoring end
 
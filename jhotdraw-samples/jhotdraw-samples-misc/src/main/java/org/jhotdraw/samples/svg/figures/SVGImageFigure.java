@@ -46,8 +46,11 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
   /** The image data. This can be null, if the image was created from a BufferedImage. */
   private byte[] imageData;
 
-  /** The buffered image. This can be null, if we haven't yet parsed the imageData. */
-  private BufferedImage bufferedImage;
+  /**
+   * The image. This is shared with other figures which show the same image data, when the figure
+   * is part of a drawing. This can be null, if the figure has no image or has been deserialized.
+   */
+  private transient ImageStore.Entry image;
 
   public SVGImageFigure() {
     this(0, 0, 0, 0);
@@ -70,8 +73,9 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
       if (opacity != 1d) {
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) opacity));
       }
-      BufferedImage image = getBufferedImage();
-      if (image != null) {
+      BufferedImage bufferedImage = getBufferedImage();
+      if (bufferedImage != null) {
+        double imageScale = rectangle.width / bufferedImage.getWidth();
         if (attr().get(TRANSFORM) != null) {
           // FIXME - We should cache the transformed image.
           //         Drawing a transformed image appears to be very slow.
@@ -79,8 +83,10 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
           // Use same rendering hints like parent graphics
           gx.setRenderingHints(g.getRenderingHints());
           gx.transform(attr().get(TRANSFORM));
+          // Zoomed out images are drawn from a downsampled variant
+          bufferedImage = image.getImage(AttributeKeys.getScaleFactorFromGraphics(gx) * imageScale);
           gx.drawImage(
-              image,
+              bufferedImage,
               (int) rectangle.x,
               (int) rectangle.y,
               (int) rectangle.width,
@@ -88,8 +94,9 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
               null);
           gx.dispose();
         } else {
+          bufferedImage = image.getImage(AttributeKeys.getScaleFactorFromGraphics(g) * imageScale);
           g.drawImage(
-              image,
+              bufferedImage,
               (int) rectangle.x,
               (int) rectangle.y,
               (int) rectangle.width,
@@ -268,6 +275,7 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
         }
       });
     }
+    final BufferedImage bufferedImage = getBufferedImage();
     if (bufferedImage != null) {
       if (rectangle.width != bufferedImage.getWidth()
           || rectangle.height != bufferedImage.getHeight()) {
@@ -350,7 +358,7 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
   @Override
   public boolean isEmpty() {
     Rectangle2D.Double b = getBounds();
-    return b.width <= 0 || b.height <= 0 || imageData == null && bufferedImage == null;
+    return b.width <= 0 || b.height <= 0 || imageData == null && image == null;
   }
 
   @Override
@@ -372,11 +380,48 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
   @Override
   public void setImage(byte[] imageData, BufferedImage bufferedImage) {
     willChange();
-    this.imageData = imageData;
-    this.bufferedImage = bufferedImage;
+    basicSetImage(imageData, bufferedImage);
     changed();
   }
 
+  /** Sets the image, and adds it to the image store of the drawing. */
+  private void basicSetImage(byte[] imageData, BufferedImage bufferedImage) {
+    this.imageData = imageData;
+    this.image =
+        (imageData == null && bufferedImage == null)
+            ? null
+            : ImageStore.createEntry(imageData, bufferedImage);
+    addImageToStore();
+  }
+
+  /**
+   * Replaces the image by the entry of the image store of the drawing. If the store already has
+   * the same image data, the figure shares it.
+   */
+  private void addImageToStore() {
+    Drawing drawing = getDrawing();
+    ImageStore store = (drawing == null) ? null : drawing.getImageStore();
+    if (store != null && getImageEntry() != null) {
+      image = store.add(image);
+      if (imageData != null) {
+        imageData = image.getData();
+      }
+    }
+  }
+
+  private ImageStore.Entry getImageEntry() {
+    if (image == null && imageData != null) {
+      image = ImageStore.createEntry(imageData, null);
+    }
+    return image;
+  }
+
+  @Override
+  public void addNotify(Drawing d) {
+    super.addNotify(d);
+    addImageToStore();
+  }
+
   /**
    * Sets the image data. This clears the buffered image.
    *
@@ -385,8 +430,7 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
    */
   public void setImageData(byte[] imageData) {
     willChange();
-    this.imageData = imageData;
-    this.bufferedImage = null;
+    basicSetImage(imageData, null);
     changed();
   }
 
@@ -394,30 +438,19 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
   @Override
   public void setBufferedImage(BufferedImage image) {
     willChange();
-    this.imageData = null;
-    this.bufferedImage = image;
+    basicSetImage(null, image);
     changed();
   }
 
   /**
    * Gets the buffered image. If necessary, this method creates the buffered image from the image
-   * data.
+   * data. The image store of the drawing may discard the buffered image when the figure is not
+   * painted, so callers should not keep it.
    */
   @Override
   public BufferedImage getBufferedImage() {
-    if (bufferedImage == null && imageData != null) {
-      // System.out.println("recreateing bufferedImage");
-      try {
-        bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-      } catch (Throwable e) {
-        e.printStackTrace();
-        // If we can't create a buffered image from the image data,
-        // there is no use to keep the image data and try again, so
-        // we drop the image data.
-        imageData = null;
-      }
-    }
-    return bufferedImage;
+    ImageStore.Entry entry = getImageEntry();
+    return (entry == null) ? null : entry.getImage();
   }
 
   /**
@@ -428,19 +461,8 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
    */
   @Override
   public byte[] getImageData() {
-    if (bufferedImage != null && imageData == null) {
-      try {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "PNG", bout);
-        bout.close();
-        imageData = bout.toByteArray();
-      } catch (IOException e) {
-        e.printStackTrace();
-        // If we can't create image data from the buffered image,
-        // there is no use to keep the buffered image and try again, so
-        // we drop the buffered image.
-        bufferedImage = null;
-      }
+    if (imageData == null && image != null) {
+      imageData = image.getData();
     }
     return imageData;
   }
@@ -479,7 +501,13 @@ public class SVGImageFigure extends SVGAttributedFigure implements SVGFigure, Im
       ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
       throw new IOException(labels.getFormatted("file.failedToLoadImage.message", in.toString()));
     }
-    imageData = baos.toByteArray();
-    bufferedImage = img;
+    basicSetImage(baos.toByteArray(), img);
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    // The call to getImageData() ensures that we have serializable data
+    // in the imageData array.
+    getImageData();
+    out.defaultWriteObject();
   }
 }
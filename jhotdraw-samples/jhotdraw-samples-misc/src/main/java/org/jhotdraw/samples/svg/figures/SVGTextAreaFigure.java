@@ -19,7 +19,6 @@ import static org.jhotdraw.samples.svg.SVGAttributeKeys.*;
 import java.awt.*;
 import java.awt.font.*;
 import java.awt.geom.*;
-import java.text.*;
 import java.util.*;
 import org.jhotdraw.draw.*;
 import org.jhotdraw.draw.figure.TextHolderFigure;
@@ -29,6 +28,7 @@ import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.handle.ResizeHandleKit;
 import org.jhotdraw.draw.handle.TextOverflowHandle;
 import org.jhotdraw.draw.handle.TransformHandleKit;
+import org.jhotdraw.draw.text.TextAreaLayout;
 import org.jhotdraw.draw.tool.TextAreaEditingTool;
 import org.jhotdraw.draw.tool.Tool;
 import org.jhotdraw.geom.Dimension2DDouble;
@@ -54,6 +54,12 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
 
   private transient Shape cachedTextShape;
 
+  /** The cached layout of the text for the text shape. */
+  private transient TextAreaLayout cachedLayout;
+
+  /** The cached layout of the text for method getPreferredTextSize(). */
+  private transient TextAreaLayout cachedPreferredLayout;
+
   public SVGTextAreaFigure() {
     this("Text");
   }
@@ -120,8 +126,6 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
       Path2D.Double shape;
       cachedTextShape = shape = new Path2D.Double();
       if (getText() != null || isEditable()) {
-        Font font = getFont();
-        boolean isUnderlined = attr().get(FONT_UNDERLINE);
         Insets2D.Double insets = getInsets();
         Rectangle2D.Double textRect = new Rectangle2D.Double(
             bounds.x + insets.left,
@@ -130,42 +134,10 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
             bounds.height - insets.top - insets.bottom);
         float leftMargin = (float) textRect.x;
         float rightMargin = (float) Math.max(leftMargin + 1, textRect.x + textRect.width);
-        float verticalPos = (float) textRect.y;
-        float maxVerticalPos = (float) (textRect.y + textRect.height);
-        if (leftMargin < rightMargin) {
-          float tabWidth = (float)
-              (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
-          float[] tabStops = new float[(int) (textRect.width / tabWidth)];
-          for (int i = 0; i < tabStops.length; i++) {
-            tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
-          }
-          if (getText() != null) {
-            String[] paragraphs = getText().split("\n"); // Strings.split(getText(), '\n');
-            for (int i = 0; i < paragraphs.length; i++) {
-              if (paragraphs[i].length() == 0) {
-                paragraphs[i] = " ";
-              }
-              AttributedString as = new AttributedString(paragraphs[i]);
-              as.addAttribute(TextAttribute.FONT, font);
-              if (isUnderlined) {
-                as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-              }
-              int tabCount = paragraphs[i].split("\t").length - 1;
-              Rectangle2D.Double paragraphBounds = appendParagraph(
-                  shape,
-                  as.getIterator(),
-                  verticalPos,
-                  maxVerticalPos,
-                  leftMargin,
-                  rightMargin,
-                  tabStops,
-                  tabCount);
-              verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
-              if (verticalPos > textRect.y + textRect.height) {
-                break;
-              }
-            }
-          }
+        if (leftMargin < rightMargin && getText() != null) {
+          cachedLayout = getTextLayout(cachedLayout, rightMargin - leftMargin, textRect.width);
+          cachedLayout.appendOutline(
+              shape, leftMargin, (float) textRect.y, (float) (textRect.y + textRect.height));
         }
       }
     }
@@ -173,115 +145,27 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
   }
 
   /**
-   * Appends a paragraph of text at the specified y location and returns the bounds of the
-   * paragraph.
+   * Returns the layout of the text. The cached layout is returned, if it is still valid for the
+   * current text and font attributes.
    *
-   * @param shape Shape to which to add the glyphs of the paragraph. This parameter is null, if we
-   *     only want to measure the size of the paragraph.
-   * @param styledText the text of the paragraph.
-   * @param verticalPos the top bound of the paragraph
-   * @param maxVerticalPos the bottom bound of the paragraph
-   * @param leftMargin the left bound of the paragraph
-   * @param rightMargin the right bound of the paragraph
-   * @param tabStops an array with tab stops
-   * @param tabCount the number of entries in tabStops which contain actual values
-   * @return Returns the actual bounds of the paragraph.
+   * @param cached the cached layout, or null
+   * @param wrappingWidth the maximal width of a line
+   * @param tabStopWidth the width in which tab stops are placed
    */
-  private Rectangle2D.Double appendParagraph(
-      Path2D.Double shape,
-      AttributedCharacterIterator styledText,
-      float verticalPos,
-      float maxVerticalPos,
-      float leftMargin,
-      float rightMargin,
-      float[] tabStops,
-      int tabCount) {
-    // assume styledText is an AttributedCharacterIterator, and the number
-    // of tabs in styledText is tabCount
-    Rectangle2D.Double paragraphBounds = new Rectangle2D.Double(leftMargin, verticalPos, 0, 0);
-    int[] tabLocations = new int[tabCount + 1];
-    int i = 0;
-    for (char c = styledText.first(); c != CharacterIterator.DONE; c = styledText.next()) {
-      if (c == '\t') {
-        tabLocations[i++] = styledText.getIndex();
-      }
+  private TextAreaLayout getTextLayout(
+      TextAreaLayout cached, float wrappingWidth, double tabStopWidth) {
+    String text = getText();
+    Font font = getFont();
+    boolean isUnderlined = attr().get(FONT_UNDERLINE);
+    FontRenderContext frc = getFontRenderContext();
+    float tabWidth = (float) (getTabSize() * font.getStringBounds("m", frc).getWidth());
+    int tabStopCount = (int) (tabStopWidth / tabWidth);
+    if (cached != null
+        && cached.matches(text, font, isUnderlined, wrappingWidth, tabWidth, tabStopCount, frc)) {
+      return cached;
     }
-    tabLocations[tabCount] = styledText.getEndIndex() - 1;
-    // Now tabLocations has an entry for every tab's offset in
-    // the text.  For convenience, the last entry is tabLocations
-    // is the offset of the last character in the text.
-    LineBreakMeasurer measurer = new LineBreakMeasurer(styledText, getFontRenderContext());
-    int currentTab = 0;
-    while (measurer.getPosition() < styledText.getEndIndex()) {
-      // Lay out and draw each line.  All segments on a line
-      // must be computed before any drawing can occur, since
-      // we must know the largest ascent on the line.
-      // TextLayouts are computed and stored in a List;
-      // their horizontal positions are stored in a parallel
-      // List.
-      // lineContainsText is true after first segment is drawn
-      boolean lineContainsText = false;
-      boolean lineComplete = false;
-      float maxAscent = 0, maxDescent = 0;
-      float horizontalPos = leftMargin;
-      LinkedList<TextLayout> layouts = new LinkedList<TextLayout>();
-      LinkedList<Float> penPositions = new LinkedList<Float>();
-      while (!lineComplete) {
-        float wrappingWidth = rightMargin - horizontalPos;
-        TextLayout layout = null;
-        layout = measurer.nextLayout(wrappingWidth, tabLocations[currentTab] + 1, lineContainsText);
-        // layout can be null if lineContainsText is true
-        if (layout != null) {
-          layouts.add(layout);
-          penPositions.add(horizontalPos);
-          horizontalPos += layout.getAdvance();
-          maxAscent = Math.max(maxAscent, layout.getAscent());
-          maxDescent = Math.max(maxDescent, layout.getDescent() + layout.getLeading());
-        } else {
-          lineComplete = true;
-        }
-        lineContainsText = true;
-        if (measurer.getPosition() == tabLocations[currentTab] + 1) {
-          currentTab++;
-        }
-        if (measurer.getPosition() == styledText.getEndIndex()) {
-          lineComplete = true;
-        } else if (tabStops.length == 0 || horizontalPos >= tabStops[tabStops.length - 1]) {
-          lineComplete = true;
-        }
-        if (!lineComplete) {
-          // move to next tab stop
-          int j;
-          for (j = 0; horizontalPos >= tabStops[j]; j++) {}
-          horizontalPos = tabStops[j];
-        }
-      }
-      verticalPos += maxAscent;
-      if (verticalPos > maxVerticalPos) {
-        break;
-      }
-      Iterator<TextLayout> layoutEnum = layouts.iterator();
-      Iterator<Float> positionEnum = penPositions.iterator();
-      // now iterate through layouts and draw them
-      while (layoutEnum.hasNext()) {
-        TextLayout nextLayout = layoutEnum.next();
-        float nextPosition = positionEnum.next();
-        AffineTransform tx = new AffineTransform();
-        tx.translate(nextPosition, verticalPos);
-        if (shape != null) {
-          Shape outline = nextLayout.getOutline(tx);
-          shape.append(outline, false);
-        }
-        Rectangle2D layoutBounds = nextLayout.getBounds();
-        paragraphBounds.add(new Rectangle2D.Double(
-            layoutBounds.getX() + nextPosition,
-            layoutBounds.getY() + verticalPos,
-            layoutBounds.getWidth(),
-            layoutBounds.getHeight()));
-      }
-      verticalPos += maxDescent;
-    }
-    return paragraphBounds;
+    return new TextAreaLayout(
+        text, font, isUnderlined, wrappingWidth, tabWidth, tabStopCount, frc);
   }
 
   @Override
@@ -547,71 +431,13 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
    * @return width and height needed to lay out the text.
    */
   public Dimension2DDouble getPreferredTextSize(double maxWidth) {
-        Rectangle2D.Double textRect = new Rectangle2D.Double();
-        if (getText() != null) {
-            float leftMargin = 0;
-            float rightMargin = (float) maxWidth - 1;
-            float verticalPos = 0;
-            float maxVerticalPos = Float.MAX_VALUE;
-            if (leftMargin < rightMargin) {
-                String[] paragraphs = getText().split("\n");
-                for (int i = 0; i < paragraphs.length; i++) {
-                    Rectangle2D.Double paragraphBounds = calculateParagraphBounds(
-                            paragraphs[i],
-                            getFont(),
-                            attr().get(FONT_UNDERLINE),
-                            verticalPos,
-                            maxVerticalPos,
-                            leftMargin,
-                            rightMargin,
-                            textRect.width
-                    );
-                    verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
-                    textRect.add(paragraphBounds);
-                }
-            }
-        }
-        return new Dimension2DDouble(
-                Math.abs(textRect.x) + textRect.width, Math.abs(textRect.y) + textRect.height);
-    }
-    
-    private Rectangle2D.Double calculateParagraphBounds(String paragraph, Font font, boolean isUnderlined,
-                                                       float verticalPos, float maxVerticalPos,
-                                                       float leftMargin, float rightMargin, double textRectWidth) {
-        if (paragraph.length() == 0) {
-            paragraph = " ";
-        }
-        AttributedString as = new AttributedString(paragraph);
-        as.addAttribute(TextAttribute.FONT, font);
-        if (isUnderlined) {
-            as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-        }
-        int tabCount = paragraph.split("\t").length - 1;
-        float tabWidth = (float) (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
-        float[] tabStops = new float[(int) (textRectWidth / tabWidth)];
-        for (int i = 0; i < tabStops.length; i++) {
-            tabStops[i] = (float) (leftMargin + (int) (tabWidth * (i + 1)));
-        }
-        return appendParagraph(
-                null,
-                as.getIterator(),
-                verticalPos,
-                maxVerticalPos,
-                leftMargin,
-                rightMargin,
-                tabStops,
-                tabCount);
+    Rectangle2D.Double textRect = new Rectangle2D.Double();
+    float rightMargin = (float) maxWidth - 1;
+    if (getText() != null && 0 < rightMargin) {
+      cachedPreferredLayout = getTextLayout(cachedPreferredLayout, rightMargin, 0);
+      textRect = cachedPreferredLayout.getBounds();
     }
-
-    private Rectangle2D.Double appendParagraph(
-            Path2D.Double shape,
-            AttributedCharacterIterator styledText,
-            float verticalPos,
-            float maxVerticalPos,
-            float leftMargin,
-            float rightMargin,
-            float[] tabStops,
-            int tabCount) {
-        // ... (Rest of the appendParagraph method remains unchanged)
-    }
-//Refactoring end
\ No newline at end of file
+    return new Dimension2DDouble(
+        Math.abs(textRect.x) + textRect.width, Math.abs(textRect.y) + textRect.height);
+  }
+}
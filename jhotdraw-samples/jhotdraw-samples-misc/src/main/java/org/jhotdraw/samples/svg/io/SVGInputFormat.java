@@ -23,19 +23,25 @@ import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.jhotdraw.draw.*;
 import org.jhotdraw.draw.figure.CompositeFigure;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.io.IncrementalDrawingLoader;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.formatter.FontFormatter;
 import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.geom.path.PathDataParser;
 import org.jhotdraw.io.Base64;
 import org.jhotdraw.io.StreamPosTokenizer;
 import org.jhotdraw.samples.svg.Gradient;
@@ -44,9 +50,10 @@ import org.jhotdraw.samples.svg.figures.SVGFigure;
 import org.jhotdraw.util.LocaleUtil;
 import org.jhotdraw.xml.css.CSSParser;
 import org.jhotdraw.xml.css.StyleManager;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * SVGInputFormat. This format is aimed to comply to the Scalable Vector Graphics (SVG) Tiny 1.2
@@ -76,8 +83,8 @@ public class SVGInputFormat implements InputFormat {
   /** Maps to all drawing objects from the XML elements they were created from. */
   private HashMap<Element, Object> elementObjects;
 
-  /** Tokenizer for parsing SVG path expressions. */
-  private StreamPosTokenizer toPathTokenizer;
+  /** Parser for SVG path expressions. */
+  private PathDataParser pathDataParser;
 
   /** FontFormatter for parsing font family names. */
   private FontFormatter fontFormatter = new FontFormatter();
@@ -141,6 +148,43 @@ public class SVGInputFormat implements InputFormat {
   /** Holds the document that is currently being read. */
   private Element document;
 
+  /** Set to true, if elements are kept until the end of the document. */
+  private boolean isRetaining;
+
+  /** Holds the ids of elements which have been released. */
+  private HashSet<String> releasedIds;
+
+  /** Holds children of the 'svg' element which reference elements that have not been read yet. */
+  private ArrayDeque<Element> deferredElements;
+
+  /** Elements which have text content. */
+  private static final Set<String> TEXT_CONTENT_ELEMENTS =
+      new HashSet<String>(Arrays.asList("text", "textArea", "tspan", "style", "title", "desc"));
+
+  /** Elements which are not rendered, and can be referenced by other elements. */
+  private static final Set<String> DEFINITION_ELEMENTS = new HashSet<String>(
+      Arrays.asList("defs", "linearGradient", "radialGradient", "solidColor", "symbol"));
+
+  /** Elements which can be referenced as paint. */
+  private static final Set<String> PAINT_SERVER_ELEMENTS =
+      new HashSet<String>(Arrays.asList("linearGradient", "radialGradient", "solidColor"));
+
+  /** Receives the figures of the streaming reader. */
+  private interface FigureSink {
+
+    void add(Figure figure) throws IOException;
+  }
+
+  /** Thrown when the document references an element which has already been released. */
+  private static class ReleasedReferenceException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    ReleasedReferenceException(String id) {
+      super("Element has already been released: #" + id);
+    }
+  }
+
   public SVGInputFormat() {
     this(new DefaultSVGFigureFactory());
   }
@@ -150,30 +194,42 @@ public class SVGInputFormat implements InputFormat {
   }
 
   public void read(File file, Drawing drawing, boolean replace) throws IOException {
-    this.url = file.toURI().toURL();
-    BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
-    try {
-      read(in, drawing, replace);
-    } finally {
-      in.close();
-    }
-    this.url = null;
+    read(file.toURI().toURL(), drawing, replace);
+  }
+
+  @Override
+  public void read(URI uri, Drawing drawing, boolean replace) throws IOException {
+    read(uri.toURL(), drawing, replace);
   }
 
+  /**
+   * Reads figures from an URL. Elements which have been read are released, unless the document
+   * references them later on. In this case the document is read a second time.
+   */
   public void read(URL url, Drawing drawing, boolean replace) throws IOException {
     this.url = url;
-    InputStream in = url.openStream();
     try {
-      read(in, drawing, replace);
+      try (InputStream in = new BufferedInputStream(url.openStream())) {
+        readStreaming(in, null, false);
+      } catch (ReleasedReferenceException e) {
+        LOG.fine("SVGInputFormat reading " + url + " a second time: " + e.getMessage());
+        dispose();
+        try (InputStream in = new BufferedInputStream(url.openStream())) {
+          readStreaming(in, null, true);
+        }
+      }
+      addFigures(drawing, replace);
     } finally {
-      in.close();
+      this.url = null;
     }
-    this.url = null;
   }
 
   /**
    * This is the main reading method.
    *
+   * <p>The stream can not be read a second time, so all elements are kept until the end of the
+   * document.
+   *
    * @param in The input stream.
    * @param drawing The drawing to which this method adds figures.
    * @param replace Whether attributes on the drawing object should by changed by this method. Set
@@ -181,80 +237,337 @@ public class SVGInputFormat implements InputFormat {
    */
   @Override
   public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
-    long start;
+    readStreaming(in, null, true);
+    addFigures(drawing, replace);
+  }
+
+  private void addFigures(Drawing drawing, boolean replace) {
+    if (replace) {
+      drawing.removeAllChildren();
+    }
+    drawing.addAll(figures);
+    if (replace) {
+      Viewport viewport = viewportStack.firstElement();
+      drawing.attr().set(VIEWPORT_FILL, VIEWPORT_FILL.get(viewport.attributes));
+      drawing.attr().set(VIEWPORT_FILL_OPACITY, VIEWPORT_FILL_OPACITY.get(viewport.attributes));
+      drawing.attr().set(VIEWPORT_HEIGHT, VIEWPORT_HEIGHT.get(viewport.attributes));
+      drawing.attr().set(VIEWPORT_WIDTH, VIEWPORT_WIDTH.get(viewport.attributes));
+    }
+    dispose();
+  }
+
+  /**
+   * Hands each figure to the loader as soon as it has been read. If the document references an
+   * element which has already been released, the loader is restarted and the document is read a
+   * second time.
+   */
+  @Override
+  public void read(URI uri, IncrementalDrawingLoader loader) throws IOException {
+    this.url = uri.toURL();
+    try {
+      try (InputStream in = new BufferedInputStream(url.openStream())) {
+        read(in, loader, false);
+      } catch (ReleasedReferenceException e) {
+        LOG.fine("SVGInputFormat reading " + uri + " a second time: " + e.getMessage());
+        dispose();
+        loader.restart();
+        try (InputStream in = new BufferedInputStream(url.openStream())) {
+          read(in, loader, true);
+        }
+      }
+    } finally {
+      this.url = null;
+    }
+  }
+
+  /**
+   * Hands each figure to the loader as soon as it has been read. The stream can not be read a
+   * second time, so all elements are kept until the end of the document.
+   */
+  @Override
+  public void read(InputStream in, IncrementalDrawingLoader loader) throws IOException {
+    read(in, loader, true);
+  }
+
+  private void read(InputStream in, IncrementalDrawingLoader loader, boolean isRetaining)
+      throws IOException {
+    readStreaming(in, loader::add, isRetaining);
+    if (loader.isReplace()) {
+      Viewport viewport = viewportStack.firstElement();
+      loader.set(VIEWPORT_FILL, VIEWPORT_FILL.get(viewport.attributes));
+      loader.set(VIEWPORT_FILL_OPACITY, VIEWPORT_FILL_OPACITY.get(viewport.attributes));
+      loader.set(VIEWPORT_HEIGHT, VIEWPORT_HEIGHT.get(viewport.attributes));
+      loader.set(VIEWPORT_WIDTH, VIEWPORT_WIDTH.get(viewport.attributes));
+    }
+    dispose();
+  }
+
+  /**
+   * Reads the document with a {@code javax.xml.stream} parser.
+   *
+   * <p>Only the root 'svg' element and the top level child which is currently being read are
+   * materialized as DOM elements. Each child is flattened, identified and read as soon as its end
+   * tag has been parsed, so CSS rules and inherited attributes are resolved in document order, like
+   * in a fully built DOM. A child which references an element that has not been read yet, is
+   * deferred together with all following children, until the referenced element has been read or
+   * the end of the document has been reached.
+   *
+   * <p>Unless {@code isRetaining} is set, rendered children are released after they have been
+   * read. Definitions like 'defs' and gradients are always kept.
+   *
+   * @param in The input stream.
+   * @param sink Receives each figure when it has been read. If this is null, the figures are
+   *     collected in {@link #figures}.
+   * @param isRetaining Set this to true to keep all elements until the end of the document.
+   * @throws ReleasedReferenceException if {@code isRetaining} is false and the document references
+   *     an element which has been released
+   */
+  private void readStreaming(InputStream in, FigureSink sink, boolean isRetaining)
+      throws IOException {
     this.figures = new LinkedList<Figure>();
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder builder;
+    this.isRetaining = isRetaining;
+    releasedIds = new HashSet<String>();
+    deferredElements = new ArrayDeque<Element>();
+    Document doc;
     try {
-      builder = factory.newDocumentBuilder();
+      doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
     } catch (ParserConfigurationException ex) {
-      Logger.getLogger(SVGInputFormat.class.getName()).log(Level.SEVERE, null, ex);
       throw new IOException(ex);
     }
     try {
-      document = (Element) builder.parse(in);
-    } catch (SAXException ex) {
-      Logger.getLogger(SVGInputFormat.class.getName()).log(Level.SEVERE, null, ex);
-      throw new IOException(ex);
+      XMLStreamReader reader = createInputFactory().createXMLStreamReader(in);
+      // Search for the first 'svg' element in the XML document
+      Element svg = null;
+      while (svg == null && reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && "svg".equals(reader.getLocalName())
+            && SVG_NAMESPACE.equals(reader.getNamespaceURI())) {
+          svg = createElement(doc, reader);
+        }
+      }
+      if (svg == null) {
+        throw new IOException("'svg' element expected");
+      }
+      // The 'svg' element is not added to the document, so that it is the
+      // root for inherited attributes.
+      document = svg;
+      initStorageContext(svg);
+      flattenStyles(svg);
+      AffineTransform viewBoxTransform = pushViewport(svg);
+      for (int event = reader.next();
+          event != XMLStreamConstants.END_ELEMENT && event != XMLStreamConstants.END_DOCUMENT;
+          event = reader.next()) {
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          Element child = readSubtree(doc, reader, false);
+          if (child == null) {
+            continue;
+          }
+          svg.appendChild(child);
+          flattenStyles(child);
+          identifyElements(child);
+          if (isResolved(child) && deferredElements.isEmpty()) {
+            readStreamedChild(svg, child, viewBoxTransform, sink);
+          } else {
+            deferredElements.add(child);
+            readDeferredElements(svg, viewBoxTransform, sink, false);
+          }
+        }
+      }
+      readDeferredElements(svg, viewBoxTransform, sink, true);
+      viewportStack.pop();
+      reader.close();
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
     }
-    // Search for the first 'svg' element in the XML document
-    // in preorder sequence
-    Element svg = document;
-    Stack<Element> stack = new Stack<Element>();
-    // LinkedList<Element> ll = new LinkedList<Element>();
-    // ll.add(document);
-    stack.push((Element) document.getFirstChild());
-    while (!stack.empty() && stack.peek().getNextSibling() != null) {
-      Element iter = stack.peek();
-      Element node = (Element) iter.getNextSibling();
-      stack.set(stack.indexOf(iter), node);
-      Element children = (Element) node.getFirstChild();
-      if (iter.getNextSibling() == null) {
-        stack.pop();
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory f = XMLInputFactory.newInstance();
+    f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    f.setProperty(XMLInputFactory.IS_COALESCING, true);
+    f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return f;
+  }
+
+  /** Creates a DOM element for the start tag at the current position of the reader. */
+  private static Element createElement(Document doc, XMLStreamReader reader) {
+    Element elem = doc.createElementNS(
+        toNamespace(reader.getNamespaceURI()),
+        toQualifiedName(reader.getPrefix(), reader.getLocalName()));
+    for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {
+      elem.setAttributeNS(
+          toNamespace(reader.getAttributeNamespace(i)),
+          toQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+          reader.getAttributeValue(i));
+    }
+    return elem;
+  }
+
+  private static String toNamespace(String namespace) {
+    return (namespace == null || namespace.isEmpty()) ? null : namespace;
+  }
+
+  private static String toQualifiedName(String prefix, String localName) {
+    return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+  }
+
+  /**
+   * Reads the element at the current position of the reader and all its descendants into a DOM
+   * subtree. Elements which are not in the SVG namespace are skipped, and text is only kept inside
+   * of elements which have text content.
+   *
+   * @return the element, or null if it has been skipped
+   */
+  private Element readSubtree(Document doc, XMLStreamReader reader, boolean isKeepingText)
+      throws XMLStreamException {
+    if (!SVG_NAMESPACE.equals(reader.getNamespaceURI())) {
+      for (int depth = 1; depth > 0; ) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
       }
-      if (children != null && children.getNextSibling() != null) {
-        stack.push(children);
+      return null;
+    }
+    Element elem = createElement(doc, reader);
+    isKeepingText |= TEXT_CONTENT_ELEMENTS.contains(elem.getLocalName());
+    for (int event = reader.next();
+        event != XMLStreamConstants.END_ELEMENT;
+        event = reader.next()) {
+      switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+          Element child = readSubtree(doc, reader, isKeepingText);
+          if (child != null) {
+            elem.appendChild(child);
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if (isKeepingText) {
+            elem.appendChild(doc.createTextNode(reader.getText()));
+          }
+          break;
+        default:
+          break;
       }
-      if (node.getLocalName() != null
-          && node.getLocalName().equals("svg")
-          && (node.getPrefix() == null || node.getPrefix().equals(SVG_NAMESPACE))) {
-        svg = node;
-        break;
+    }
+    return elem;
+  }
+
+  /** Reads deferred children of the 'svg' element as long as their references are resolved. */
+  private void readDeferredElements(
+      Element svg, AffineTransform viewBoxTransform, FigureSink sink, boolean isForced)
+      throws IOException {
+    while (!deferredElements.isEmpty() && (isForced || isResolved(deferredElements.peek()))) {
+      readStreamedChild(svg, deferredElements.poll(), viewBoxTransform, sink);
+    }
+  }
+
+  /** Reads a child of the 'svg' element, hands its figures to the sink and releases it. */
+  private void readStreamedChild(
+      Element svg, Element child, AffineTransform viewBoxTransform, FigureSink sink)
+      throws IOException {
+    readSVGChild(child, viewBoxTransform);
+    if (sink != null) {
+      for (Figure f : figures) {
+        sink.add(f);
       }
+      figures.clear();
     }
-    if (svg.getLocalName() == null
-        || !svg.getLocalName().equals("svg")
-        || (svg.getPrefix() != null && !svg.getPrefix().equals(SVG_NAMESPACE))) {
-      throw new IOException("'svg' element expected: " + svg.getLocalName());
+    if (!isRetaining && !DEFINITION_ELEMENTS.contains(child.getLocalName())) {
+      release(child);
+      svg.removeChild(child);
     }
-    // long end1 = System.currentTimeMillis();
-    // Flatten CSS Styles
-    initStorageContext(document);
-    flattenStyles(svg);
-    // long end2 = System.currentTimeMillis();
-    readElement(svg);
+  }
 
-    if (replace) {
-      drawing.removeAllChildren();
+  /** Forgets an element and all its descendants. */
+  private void release(Element elem) {
+    for (String id : new String[] {elem.getAttribute("id"), elem.getAttribute("xml:id")}) {
+      if (!id.isEmpty() && identifiedElements.get(id) == elem) {
+        identifiedElements.remove(id);
+        releasedIds.add(id);
+      }
     }
-    drawing.addAll(figures);
-    if (replace) {
-      Viewport viewport = viewportStack.firstElement();
-      drawing.attr().set(VIEWPORT_FILL, VIEWPORT_FILL.get(viewport.attributes));
-      drawing.attr().set(VIEWPORT_FILL_OPACITY, VIEWPORT_FILL_OPACITY.get(viewport.attributes));
-      drawing.attr().set(VIEWPORT_HEIGHT, VIEWPORT_HEIGHT.get(viewport.attributes));
-      drawing.attr().set(VIEWPORT_WIDTH, VIEWPORT_WIDTH.get(viewport.attributes));
+    elementObjects.remove(elem);
+    for (org.w3c.dom.Node child = elem.getFirstChild();
+        child != null;
+        child = child.getNextSibling()) {
+      if (child instanceof Element) {
+        release((Element) child);
+      }
     }
+  }
+
+  /**
+   * Returns true, if all elements which are referenced by the element or by its descendants have
+   * been identified. Referenced gradients are read right away, so that they can be used as paint.
+   *
+   * @throws ReleasedReferenceException if a referenced element has been released
+   */
+  private boolean isResolved(Element elem) throws IOException {
+    NamedNodeMap attributes = elem.getAttributes();
+    for (int i = 0, n = attributes.getLength(); i < n; i++) {
+      org.w3c.dom.Node attr = attributes.item(i);
+      String value = attr.getNodeValue();
+      if ("href".equals(attr.getLocalName())) {
+        // Links of 'a' elements point to elements which do not need to be read
+        if (value.startsWith("#")
+            && !"a".equals(elem.getLocalName())
+            && !isResolved(value.substring(1))) {
+          return false;
+        }
+      } else {
+        for (int p = value.indexOf("url(#"); p != -1; p = value.indexOf("url(#", p + 5)) {
+          int end = value.indexOf(')', p);
+          if (end != -1 && !isResolved(value.substring(p + 5, end).trim())) {
+            return false;
+          }
+        }
+      }
+    }
+    for (org.w3c.dom.Node child = elem.getFirstChild();
+        child != null;
+        child = child.getNextSibling()) {
+      if (child instanceof Element && !isResolved((Element) child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isResolved(String id) throws IOException {
+    Element ref = identifiedElements.get(id);
+    if (ref == null) {
+      if (releasedIds.contains(id)) {
+        throw new ReleasedReferenceException(id);
+      }
+      return false;
+    }
+    if (PAINT_SERVER_ELEMENTS.contains(ref.getLocalName()) && !elementObjects.containsKey(ref)) {
+      readElement(ref);
+    }
+    return true;
+  }
+
+  private void dispose() {
     // Get rid of all objects we don't need anymore to help garbage collector.
     identifiedElements.clear();
     elementObjects.clear();
     viewportStack.clear();
     styleManager.clear();
+    deferredElements.clear();
+    releasedIds.clear();
     document = null;
     identifiedElements = null;
     elementObjects = null;
     viewportStack = null;
     styleManager = null;
+    deferredElements = null;
+    releasedIds = null;
   }
 
   private void initStorageContext(Element root) {
@@ -294,8 +607,9 @@ public class SVGInputFormat implements InputFormat {
         styleManager.applyStylesTo(elem);
         NodeList list = elem.getChildNodes();
         for (int i = 0; i < list.getLength(); i++) {
-          Element child = (Element) list.item(i);
-          flattenStyles(child);
+          if (list.item(i) instanceof Element) {
+            flattenStyles((Element) list.item(i));
+          }
         }
       }
     }
@@ -446,7 +760,22 @@ public class SVGInputFormat implements InputFormat {
 
   /** Reads an SVG "svg" element. */
   private Figure readSVGElement(Element elem) throws IOException {
-    // Establish a new viewport
+    AffineTransform viewBoxTransform = pushViewport(elem);
+    // Read the figures
+    NodeList list = elem.getChildNodes();
+    for (int i = 0; i < list.getLength(); i++) {
+      readSVGChild((Element) list.item(i), viewBoxTransform);
+    }
+    viewportStack.pop();
+    return null;
+  }
+
+  /**
+   * Establishes a new viewport for an SVG "svg" element.
+   *
+   * @return the transform from the viewBox into the viewport
+   */
+  private AffineTransform pushViewport(Element elem) throws IOException {
     Viewport viewport = new Viewport();
     String widthValue = readAttribute(elem, "width", "100%");
     String heightValue = readAttribute(elem, "height", "100%");
@@ -495,22 +824,20 @@ public class SVGInputFormat implements InputFormat {
     }
     viewportStack.push(viewport);
     readViewportAttributes(elem, viewportStack.firstElement().attributes);
-    // Read the figures
-    NodeList list = elem.getChildNodes();
-    for (int i = 0; i < list.getLength(); i++) {
-      Element child = (Element) list.item(i);
-      Figure childFigure = readElement(child);
-      // skip invisible elements
-      if (readAttribute(child, "visibility", "visible").equals("visible")
-          && !readAttribute(child, "display", "inline").equals("none")) {
-        if (childFigure != null) {
-          childFigure.transform(viewBoxTransform);
-          figures.add(childFigure);
-        }
+    return viewBoxTransform;
+  }
+
+  /** Reads a child of an SVG "svg" element and adds its figure to {@link #figures}. */
+  private void readSVGChild(Element child, AffineTransform viewBoxTransform) throws IOException {
+    Figure childFigure = readElement(child);
+    // skip invisible elements
+    if (readAttribute(child, "visibility", "visible").equals("visible")
+        && !readAttribute(child, "display", "inline").equals("none")) {
+      if (childFigure != null) {
+        childFigure.transform(viewBoxTransform);
+        figures.add(childFigure);
       }
     }
-    viewportStack.pop();
-    return null;
   }
 
   /** Reads an SVG "rect" element. */
@@ -590,7 +917,13 @@ public class SVGInputFormat implements InputFormat {
         int semicolonPos = href.indexOf(';');
         if (semicolonPos != -1) {
           if (href.indexOf(";base64,") == semicolonPos) {
-            imageData = Base64.decode(href.substring(semicolonPos + 8));
+            // Decode the data in place instead of copying it into a substring first
+            ByteArrayOutputStream buf =
+                new ByteArrayOutputStream((href.length() - semicolonPos) / 4 * 3);
+            try (Base64.OutputStream out = new Base64.OutputStream(buf, Base64.DECODE)) {
+              out.write(href, semicolonPos + 8, href.length());
+            }
+            imageData = buf.toByteArray();
           } else {
             throw new IOException("Unsupported encoding in data href in image element:" + href);
           }
@@ -631,27 +964,26 @@ public class SVGInputFormat implements InputFormat {
         }
       }
     }
-    // Create a buffered image from the image data
-    BufferedImage bufferedImage = null;
-    if (imageData != null) {
-      try {
-        bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-      } catch (IIOException e) {
-        System.err.println("SVGInputFormat warning: skipped unsupported image format.");
-        e.printStackTrace();
-      }
-    }
-    // Delete the image data in case of failure
-    if (bufferedImage == null) {
+    // Check whether the image data can be decoded. The image is decoded
+    // when it is painted for the first time.
+    if (imageData != null && !isSupportedImage(imageData)) {
+      System.err.println("SVGInputFormat warning: skipped unsupported image format.");
       imageData = null;
-      // if (DEBUG) System.out.println("FAILED:"+imageUrl);
     }
-    // Create a figure from the image data and the buffered image.
-    Figure figure = factory.createImage(x, y, w, h, imageData, bufferedImage, a);
+    // Create a figure from the image data.
+    Figure figure = factory.createImage(x, y, w, h, imageData, null, a);
     elementObjects.put(elem, figure);
     return figure;
   }
 
+  /** Returns true, if an image reader can decode the image data. */
+  private static boolean isSupportedImage(byte[] imageData) throws IOException {
+    try (ImageInputStream in =
+        ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+      return in != null && ImageIO.getImageReaders(in).hasNext();
+    }
+  }
+
   /** Reads an SVG "line" element. */
   private Figure readLineElement(Element elem) throws IOException {
     HashMap<AttributeKey<?>, Object> a = new HashMap<AttributeKey<?>, Object>();
@@ -1219,553 +1551,14 @@ public class SVGInputFormat implements InputFormat {
    * http://www.w3.org/TR/SVG/paths.html#PathDataEllipticalArcCommands
    */
   private BezierPath[] toPath(Element elem, String str) throws IOException {
-    LinkedList<BezierPath> paths = new LinkedList<BezierPath>();
-    BezierPath path = null;
-    Point2D.Double p = new Point2D.Double();
-    Point2D.Double c1 = new Point2D.Double();
-    Point2D.Double c2 = new Point2D.Double();
-    StreamPosTokenizer tt;
-    if (toPathTokenizer == null) {
-      tt = new StreamPosTokenizer(new StringReader(str));
-      tt.resetSyntax();
-      tt.parseNumbers();
-      tt.parseExponents();
-      tt.parsePlusAsNumber();
-      tt.whitespaceChars(0, ' ');
-      tt.whitespaceChars(',', ',');
-      toPathTokenizer = tt;
-    } else {
-      tt = toPathTokenizer;
-      tt.setReader(new StringReader(str));
-    }
-    char nextCommand = 'M';
-    char command = 'M';
-    Commands:
-    while (tt.nextToken() != StreamPosTokenizer.TT_EOF) {
-      if (tt.ttype > 0) {
-        command = (char) tt.ttype;
-      } else {
-        command = nextCommand;
-        tt.pushBack();
-      }
-      BezierPath.Node node;
-      switch (command) {
-        case 'M':
-          // absolute-moveto x y
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'L';
-          break;
-        case 'm':
-          // relative-moveto dx dy
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'm' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'm' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'l';
-          break;
-        case 'Z':
-        case 'z':
-          // close path
-          p.x = path.nodes().get(0).x[0];
-          p.y = path.nodes().get(0).y[0];
-          // If the last point and the first point are the same, we
-          // can merge them
-          if (path.size() > 1) {
-            BezierPath.Node first = path.nodes().get(0);
-            BezierPath.Node last = path.nodes().get(path.size() - 1);
-            if (first.x[0] == last.x[0] && first.y[0] == last.y[0]) {
-              if ((last.mask & BezierPath.C1_MASK) != 0) {
-                first.mask |= BezierPath.C1_MASK;
-                first.x[1] = last.x[1];
-                first.y[1] = last.y[1];
-              }
-              path.remove(path.size() - 1);
-            }
-          }
-          path.setClosed(true);
-          break;
-        case 'L':
-          // absolute-lineto x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'L';
-          break;
-        case 'l':
-          // relative-lineto dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'l' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'l' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'l';
-          break;
-        case 'H':
-          // absolute-horizontal-lineto x
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'H' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'H';
-          break;
-        case 'h':
-          // relative-horizontal-lineto dx
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'h' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'h';
-          break;
-        case 'V':
-          // absolute-vertical-lineto y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'V' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'V';
-          break;
-        case 'v':
-          // relative-vertical-lineto dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'v' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'v';
-          break;
-        case 'C':
-          // absolute-curveto x1 y1 x2 y2 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x1 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y1 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x2 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y2 coordinate missing for 'C' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'C';
-          break;
-        case 'c':
-          // relative-curveto dx1 dy1 dx2 dy2 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx1 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy1 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx2 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy2 coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'c' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'c';
-          break;
-        case 'S':
-          // absolute-shorthand-curveto x2 y2 x y
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x2 coordinate missing for 'S' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y2 coordinate missing for 'S' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'S';
-          break;
-        case 's':
-          // relative-shorthand-curveto dx2 dy2 dx dy
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx2 coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy2 coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 's' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 's';
-          break;
-        case 'Q':
-          // absolute-quadto x1 y1 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x1 coordinate missing for 'Q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("y1 coordinate missing for 'Q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'Q';
-          break;
-        case 'q':
-          // relative-quadto dx1 dy1 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx1 coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy1 coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 'q' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'q';
-          break;
-        case 'T':
-          // absolute-shorthand-quadto x y
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'T';
-          break;
-        case 't':
-          // relative-shorthand-quadto dx dy
-          node = path.nodes().get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dx coordinate missing for 't' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("dy coordinate missing for 't' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 's';
-          break;
-        case 'A':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("rx coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          double rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("ry coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          double ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x-axis-rotation missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          double xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("large-arc-flag missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          boolean largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          boolean sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-          nextCommand = 'A';
-          break;
-
-        case 'a':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("rx coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("ry coordinate missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("x-axis-rotation missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("large-arc-flag missing for 'A' at position "
-                + tt.getStartPosition()
-                + " in "
-                + str);
-          }
-          largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y += tt.nval;
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-          nextCommand = 'a';
-          break;
-
-        default:
-          LOG.fine("SVGInputFormat.toPath aborting after illegal path command: "
-              + command
-              + " found in path "
-              + str);
-          break Commands;
-          // throw new IOException("Illegal command: "+command);
-      }
+    if (pathDataParser == null) {
+      pathDataParser = new PathDataParser();
     }
-    if (path != null) {
-      paths.add(path);
+    try {
+      return pathDataParser.parse(str);
+    } catch (ParseException e) {
+      throw new IOException(e.getMessage(), e);
     }
-    return paths.toArray(new BezierPath[paths.size()]);
   }
 
   /* Reads core attributes as listed in
@@ -1788,12 +1581,16 @@ public class SVGInputFormat implements InputFormat {
    * identifiedElements}.
    */
   private void identifyElements(Element elem) {
-    identifiedElements.put(elem.getAttribute("id"), elem);
-    identifiedElements.put(elem.getAttribute("xml:id"), elem);
+    for (String id : new String[] {elem.getAttribute("id"), elem.getAttribute("xml:id")}) {
+      if (!id.isEmpty()) {
+        identifiedElements.put(id, elem);
+      }
+    }
     NodeList list = elem.getChildNodes();
     for (int i = 0; i < list.getLength(); i++) {
-      Element child = (Element) list.item(i);
-      identifyElements(child);
+      if (list.item(i) instanceof Element) {
+        identifyElements((Element) list.item(i));
+      }
     }
   }
 
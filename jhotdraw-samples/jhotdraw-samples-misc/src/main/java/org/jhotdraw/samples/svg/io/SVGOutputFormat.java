@@ -16,22 +16,14 @@ import java.awt.geom.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
 import javax.swing.text.StyledDocument;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import org.jhotdraw.datatransfer.InputStreamTransferable;
 import org.jhotdraw.draw.*;
 import org.jhotdraw.draw.AttributeKeys.WindingRule;
@@ -39,6 +31,7 @@ import org.jhotdraw.draw.figure.BezierFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.OutputFormat;
 import org.jhotdraw.geom.path.BezierPath;
+import org.jhotdraw.geom.path.PathDataWriter;
 import org.jhotdraw.io.Base64;
 import org.jhotdraw.samples.svg.Gradient;
 import org.jhotdraw.samples.svg.LinearGradient;
@@ -50,30 +43,70 @@ import org.jhotdraw.samples.svg.figures.SVGPathFigure;
 import org.jhotdraw.samples.svg.figures.SVGRectFigure;
 import org.jhotdraw.samples.svg.figures.SVGTextAreaFigure;
 import org.jhotdraw.samples.svg.figures.SVGTextFigure;
-import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
-/** An output format for storing drawings as Scalable Vector Graphics SVG Tiny 1.2. */
+/**
+ * An output format for storing drawings as Scalable Vector Graphics SVG Tiny 1.2.
+ *
+ * <p>The document is streamed with a {@code javax.xml.stream} writer: the element of each figure
+ * is written as soon as the figure is visited, without building a DOM of the entire drawing. The
+ * gradients which are used by the figures are collected beforehand and written into the {@code
+ * defs} element at the start of the document.
+ *
+ * <p>By default, numbers are written exactly, so that a drawing is read back without loss. Numbers
+ * can be rounded to fewer fraction digits with {@link #setFractionDigits}, which results in
+ * smaller files. Path data is written in a compact form with {@link PathDataWriter}.
+ *
+ * <p>The methods which take a DOM {@code Element} are deprecated. They write into the specified
+ * element with the same code that is used for the stream.
+ */
 public class SVGOutputFormat implements OutputFormat {
 
-  /** This is a counter used to create the next unique identification. */
-  private int nextId;
-
-  /** In this hash map we store all elements to which we have assigned an id. */
-  private HashMap<Element, String> identifiedElements;
+  private static final String XLINK_NAMESPACE = "http://www.w3.org/1999/xlink";
 
-  /** This element holds all definitions of the SVG file. */
-  private Element defs;
+  /**
+   * The coefficients of a transform are multiplied with coordinates. Therefore they are written
+   * with at least this number of fraction digits.
+   */
+  private static final int TRANSFORM_FRACTION_DIGITS = 6;
 
-  /** Holds the document that is currently being written. */
-  private Element document;
+  /** This is a counter used to create the next unique identification. */
+  private int nextId;
 
   /** Maps gradients to ID's. We use this, so that we need to store the same gradient only once. */
-  private HashMap<Gradient, String> gradientToIDMap;
+  private LinkedHashMap<Gradient, String> gradientToIDMap;
 
   /** Set this to true for pretty printing. */
   private boolean isPrettyPrint;
 
+  /** The maximal number of fraction digits of numbers, or PathDataWriter.EXACT. */
+  private int fractionDigits = PathDataWriter.EXACT;
+
+  /** The writer of the document that is currently being written. */
+  private XMLStreamWriter writer;
+
+  /** Nesting depth of the current element. Used for pretty printing. */
+  private int depth;
+
+  /** Set to true when the current element has child elements. Used for pretty printing. */
+  private boolean hasChildElements;
+
+  /** Reusable buffer for attribute values. */
+  private final StringBuilder buf = new StringBuilder();
+
+  private PathDataWriter pathDataWriter;
+
+  /** The node into which elements are written instead of the stream, or null. */
+  private Node domParent;
+
+  /** The element to which attributes are written instead of the stream, or null. */
+  private Element domElement;
+
+  /** Maps elements to ID's. Used by the deprecated method getId. */
+  private HashMap<Element, String> identifiedElements;
+
   private static final HashMap<Integer, String> STROKE_LINEJOIN;
 
   static {
@@ -92,13 +125,6 @@ public class SVGOutputFormat implements OutputFormat {
     STROKE_LINECAP.put(BasicStroke.CAP_SQUARE, "square");
   }
 
-  /**
-   * Set this variable to true if values should be written with float precision instead with double
-   * precision. Float precision is less accurate then double precision, but it uses less storage
-   * space.
-   */
-  private static final boolean IS_FLOAT_PRECISION = true;
-
   public SVGOutputFormat() {}
 
   public javax.swing.filechooser.FileFilter getFileFilter() {
@@ -117,29 +143,46 @@ public class SVGOutputFormat implements OutputFormat {
     return isPrettyPrint;
   }
 
-  protected void writeElement(Element parent, Figure f) throws IOException {
+  /**
+   * Sets the maximal number of fraction digits of numbers. Fewer digits result in smaller files, 3
+   * digits are precise enough for coordinates in pixels. The default value is {@link
+   * PathDataWriter#EXACT}, which writes numbers without rounding.
+   *
+   * @throws IllegalArgumentException if the value is neither EXACT nor in the range 0 to 15
+   */
+  public void setFractionDigits(int newValue) {
+    if (newValue < PathDataWriter.EXACT || newValue > 15) {
+      throw new IllegalArgumentException("fractionDigits out of range: " + newValue);
+    }
+    fractionDigits = newValue;
+  }
+
+  public int getFractionDigits() {
+    return fractionDigits;
+  }
+
+  protected void writeElement(Figure f) throws IOException {
     // Write link attribute as encosing "a" element
-    if (f.attr().get(LINK) != null && f.attr().get(LINK).trim().length() > 0) {
-      Element aElement = parent.getOwnerDocument().createElement("a");
-      aElement.setAttribute("xlink:href", f.attr().get(LINK));
+    boolean isLink = f.attr().get(LINK) != null && f.attr().get(LINK).trim().length() > 0;
+    if (isLink) {
+      startElement("a");
+      writeAttribute("xlink:href", f.attr().get(LINK), null);
       if (f.attr().get(LINK_TARGET) != null && f.attr().get(LINK).trim().length() > 0) {
-        aElement.setAttribute("target", f.attr().get(LINK_TARGET));
+        writeAttribute("target", f.attr().get(LINK_TARGET), null);
       }
-      parent.appendChild(aElement);
-      parent = aElement;
     }
     // Write the actual element
     if (f instanceof SVGEllipseFigure) {
       SVGEllipseFigure ellipse = (SVGEllipseFigure) f;
       if (ellipse.getWidth() == ellipse.getHeight()) {
-        writeCircleElement(parent, ellipse);
+        writeCircleElement(ellipse);
       } else {
-        writeEllipseElement(parent, ellipse);
+        writeEllipseElement(ellipse);
       }
     } else if (f instanceof SVGGroupFigure) {
-      writeGElement(parent, (SVGGroupFigure) f);
+      writeGElement((SVGGroupFigure) f);
     } else if (f instanceof SVGImageFigure) {
-      writeImageElement(parent, (SVGImageFigure) f);
+      writeImageElement((SVGImageFigure) f);
     } else if (f instanceof SVGPathFigure) {
       SVGPathFigure path = (SVGPathFigure) f;
       if (path.getChildCount() == 1) {
@@ -153,62 +196,55 @@ public class SVGOutputFormat implements OutputFormat {
         }
         if (isLinear) {
           if (bezier.isClosed()) {
-            writePolygonElement(parent, path);
+            writePolygonElement(path);
           } else {
             if (bezier.getNodeCount() == 2) {
-              writeLineElement(parent, path);
+              writeLineElement(path);
             } else {
-              writePolylineElement(parent, path);
+              writePolylineElement(path);
             }
           }
         } else {
-          writePathElement(parent, path);
+          writePathElement(path);
         }
       } else {
-        writePathElement(parent, path);
+        writePathElement(path);
       }
     } else if (f instanceof SVGRectFigure) {
-      writeRectElement(parent, (SVGRectFigure) f);
+      writeRectElement((SVGRectFigure) f);
     } else if (f instanceof SVGTextFigure) {
-      writeTextElement(parent, (SVGTextFigure) f);
+      writeTextElement((SVGTextFigure) f);
     } else if (f instanceof SVGTextAreaFigure) {
-      writeTextAreaElement(parent, (SVGTextAreaFigure) f);
+      writeTextAreaElement((SVGTextAreaFigure) f);
     } else {
       System.out.println("Unable to write: " + f);
     }
+    if (isLink) {
+      endElement();
+    }
   }
 
-  protected void writeCircleElement(Element parent, SVGEllipseFigure f) throws IOException {
-    parent.appendChild(createCircle(
-        document,
+  protected void writeCircleElement(SVGEllipseFigure f) throws IOException {
+    writeCircle(
         f.getX() + f.getWidth() / 2d,
         f.getY() + f.getHeight() / 2d,
         f.getWidth() / 2d,
-        f.attr().getAttributes()));
+        f.attr().getAttributes());
   }
 
-  protected Element createCircle(
-      Element doc, double cx, double cy, double r, Map<AttributeKey<?>, Object> attributes)
-      throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("circle");
-    writeAttribute(elem, "cx", cx, 0d);
-    writeAttribute(elem, "cy", cy, 0d);
-    writeAttribute(elem, "r", r, 0d);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+  protected void writeCircle(
+      double cx, double cy, double r, Map<AttributeKey<?>, Object> attributes) throws IOException {
+    emptyElement("circle");
+    writeAttribute("cx", cx, 0d);
+    writeAttribute("cy", cy, 0d);
+    writeAttribute("r", r, 0d);
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected Element createG(Element doc, Map<AttributeKey<?>, Object> attributes)
-      throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("g");
-    writeOpacityAttribute(elem, attributes);
-    return elem;
-  }
-
-  protected Element createLinearGradient(
-      Element doc,
+  protected void writeLinearGradient(
+      String id,
       double x1,
       double y1,
       double x2,
@@ -219,29 +255,23 @@ public class SVGOutputFormat implements OutputFormat {
       boolean isRelativeToFigureBounds,
       AffineTransform transform)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("linearGradient");
-    writeAttribute(elem, "x1", toNumber(x1), "0");
-    writeAttribute(elem, "y1", toNumber(y1), "0");
-    writeAttribute(elem, "x2", toNumber(x2), "1");
-    writeAttribute(elem, "y2", toNumber(y2), "0");
+    startElement("linearGradient");
+    writeAttribute("xml:id", id, null);
+    writeAttribute("x1", formatNumber(x1), "0");
+    writeAttribute("y1", formatNumber(y1), "0");
+    writeAttribute("x2", formatNumber(x2), "1");
+    writeAttribute("y2", formatNumber(y2), "0");
     writeAttribute(
-        elem,
         "gradientUnits",
         (isRelativeToFigureBounds) ? "objectBoundingBox" : "userSpaceOnUse",
         "objectBoundingBox");
-    writeAttribute(elem, "gradientTransform", toTransform(transform), "none");
-    for (int i = 0; i < stopOffsets.length; i++) {
-      Element stop = doc.getOwnerDocument().createElement("stop");
-      writeAttribute(stop, "offset", toNumber(stopOffsets[i]), null);
-      writeAttribute(stop, "stop-color", toColor(stopColors[i]), null);
-      writeAttribute(stop, "stop-opacity", toNumber(stopOpacities[i]), "1");
-      elem.appendChild(stop);
-    }
-    return elem;
+    writeAttribute("gradientTransform", formatTransform(transform), "none");
+    writeStops(stopOffsets, stopColors, stopOpacities);
+    endElement();
   }
 
-  protected Element createRadialGradient(
-      Element doc,
+  protected void writeRadialGradient(
+      String id,
       double cx,
       double cy,
       double fx,
@@ -253,78 +283,74 @@ public class SVGOutputFormat implements OutputFormat {
       boolean isRelativeToFigureBounds,
       AffineTransform transform)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("radialGradient");
-    writeAttribute(elem, "cx", toNumber(cx), "0.5");
-    writeAttribute(elem, "cy", toNumber(cy), "0.5");
-    writeAttribute(elem, "fx", toNumber(fx), toNumber(cx));
-    writeAttribute(elem, "fy", toNumber(fy), toNumber(cy));
-    writeAttribute(elem, "r", toNumber(r), "0.5");
+    startElement("radialGradient");
+    writeAttribute("xml:id", id, null);
+    writeAttribute("cx", formatNumber(cx), "0.5");
+    writeAttribute("cy", formatNumber(cy), "0.5");
+    writeAttribute("fx", formatNumber(fx), formatNumber(cx));
+    writeAttribute("fy", formatNumber(fy), formatNumber(cy));
+    writeAttribute("r", formatNumber(r), "0.5");
     writeAttribute(
-        elem,
         "gradientUnits",
         (isRelativeToFigureBounds) ? "objectBoundingBox" : "userSpaceOnUse",
         "objectBoundingBox");
-    writeAttribute(elem, "gradientTransform", toTransform(transform), "none");
+    writeAttribute("gradientTransform", formatTransform(transform), "none");
+    writeStops(stopOffsets, stopColors, stopOpacities);
+    endElement();
+  }
+
+  private void writeStops(double[] stopOffsets, Color[] stopColors, double[] stopOpacities)
+      throws IOException {
     for (int i = 0; i < stopOffsets.length; i++) {
-      Element stop = doc.getOwnerDocument().createElement("stop");
-      writeAttribute(stop, "offset", toNumber(stopOffsets[i]), null);
-      writeAttribute(stop, "stop-color", toColor(stopColors[i]), null);
-      writeAttribute(stop, "stop-opacity", toNumber(stopOpacities[i]), "1");
-      elem.appendChild(stop);
+      emptyElement("stop");
+      writeAttribute("offset", formatNumber(stopOffsets[i]), null);
+      writeAttribute("stop-color", toColor(stopColors[i]), null);
+      writeAttribute("stop-opacity", formatNumber(stopOpacities[i]), "1");
     }
-    return elem;
   }
 
-  protected void writeEllipseElement(Element parent, SVGEllipseFigure f) throws IOException {
-    parent.appendChild(createEllipse(
-        document,
+  protected void writeEllipseElement(SVGEllipseFigure f) throws IOException {
+    writeEllipse(
         f.getX() + f.getWidth() / 2d,
         f.getY() + f.getHeight() / 2d,
         f.getWidth() / 2d,
         f.getHeight() / 2d,
-        f.attr().getAttributes()));
+        f.attr().getAttributes());
   }
 
-  protected Element createEllipse(
-      Element doc,
-      double cx,
-      double cy,
-      double rx,
-      double ry,
-      Map<AttributeKey<?>, Object> attributes)
+  protected void writeEllipse(
+      double cx, double cy, double rx, double ry, Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("ellipse");
-    writeAttribute(elem, "cx", cx, 0d);
-    writeAttribute(elem, "cy", cy, 0d);
-    writeAttribute(elem, "rx", rx, 0d);
-    writeAttribute(elem, "ry", ry, 0d);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+    emptyElement("ellipse");
+    writeAttribute("cx", cx, 0d);
+    writeAttribute("cy", cy, 0d);
+    writeAttribute("rx", rx, 0d);
+    writeAttribute("ry", ry, 0d);
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected void writeGElement(Element parent, SVGGroupFigure f) throws IOException {
-    Element elem = createG(document, f.attr().getAttributes());
+  protected void writeGElement(SVGGroupFigure f) throws IOException {
+    startElement("g");
+    writeOpacityAttribute(f.attr().getAttributes());
     for (Figure child : f.getChildren()) {
-      writeElement(elem, child);
+      writeElement(child);
     }
-    parent.appendChild(elem);
+    endElement();
   }
 
-  protected void writeImageElement(Element parent, SVGImageFigure f) throws IOException {
-    parent.appendChild(createImage(
-        document,
+  protected void writeImageElement(SVGImageFigure f) throws IOException {
+    writeImage(
         f.getX(),
         f.getY(),
         f.getWidth(),
         f.getHeight(),
         f.getImageData(),
-        f.attr().getAttributes()));
+        f.attr().getAttributes());
   }
 
-  protected Element createImage(
-      Element doc,
+  protected void writeImage(
       double x,
       double y,
       double w,
@@ -332,126 +358,115 @@ public class SVGOutputFormat implements OutputFormat {
       byte[] imageData,
       Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("image");
-    writeAttribute(elem, "x", x, 0d);
-    writeAttribute(elem, "y", y, 0d);
-    writeAttribute(elem, "width", w, 0d);
-    writeAttribute(elem, "height", h, 0d);
-    writeAttribute(elem, "xlink:href", "data:image;base64," + Base64.encodeBytes(imageData), "");
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+    emptyElement("image");
+    writeAttribute("x", x, 0d);
+    writeAttribute("y", y, 0d);
+    writeAttribute("width", w, 0d);
+    writeAttribute("height", h, 0d);
+    writeAttribute("xlink:href", toDataHref(imageData), "");
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected void writePathElement(Element parent, SVGPathFigure f) throws IOException {
+  /**
+   * Encodes image data into a data URI. The Base64 notation is appended to the URI as it is
+   * encoded, the attribute value is the only string which holds it.
+   */
+  private static String toDataHref(byte[] imageData) throws IOException {
+    String prefix = "data:image;base64,";
+    int length = (imageData.length + 2) / 3 * 4;
+    StringBuilder buf = new StringBuilder(prefix.length() + length + length / 76);
+    buf.append(prefix);
+    try (Base64.OutputStream out =
+        new Base64.OutputStream(
+            new OutputStream() {
+              @Override
+              public void write(int b) {
+                buf.append((char) b);
+              }
+
+              @Override
+              public void write(byte[] b, int off, int len) {
+                for (int end = off + len; off < end; off++) {
+                  buf.append((char) b[off]);
+                }
+              }
+            },
+            Base64.ENCODE)) {
+      out.write(imageData);
+    }
+    return buf.toString();
+  }
+
+  protected void writePathElement(SVGPathFigure f) throws IOException {
     BezierPath[] beziers = new BezierPath[f.getChildCount()];
     for (int i = 0; i < beziers.length; i++) {
       beziers[i] = ((BezierFigure) f.getChild(i)).getBezierPath();
     }
-    parent.appendChild(createPath(document, beziers, f.attr().getAttributes()));
+    writePath(beziers, f.attr().getAttributes());
   }
 
-  protected Element createPath(
-      Element doc, BezierPath[] beziers, Map<AttributeKey<?>, Object> attributes)
+  protected void writePath(BezierPath[] beziers, Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("path");
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    writeAttribute(elem, "d", toPath(beziers), null);
-    return elem;
+    emptyElement("path");
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
+    writeAttribute("d", formatPath(beziers), null);
   }
 
-  protected void writePolygonElement(Element parent, SVGPathFigure f) throws IOException {
-    LinkedList<Point2D.Double> points = new LinkedList<Point2D.Double>();
-    for (int i = 0, n = f.getChildCount(); i < n; i++) {
-      BezierPath bezier = ((BezierFigure) f.getChild(i)).getBezierPath();
-      for (BezierPath.Node node : bezier.nodes()) {
-        points.add(new Point2D.Double(node.x[0], node.y[0]));
-      }
-    }
-    parent.appendChild(createPolygon(
-        document, points.toArray(new Point2D.Double[points.size()]), f.attr().getAttributes()));
+  protected void writePolygonElement(SVGPathFigure f) throws IOException {
+    writePoly("polygon", formatPoints(f), f.attr().getAttributes());
   }
 
-  protected Element createPolygon(
-      Element doc, Point2D.Double[] points, Map<AttributeKey<?>, Object> attributes)
-      throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("polygon");
-    writeAttribute(elem, "points", toPoints(points), null);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+  protected void writePolylineElement(SVGPathFigure f) throws IOException {
+    writePoly("polyline", formatPoints(f), f.attr().getAttributes());
   }
 
-  protected void writePolylineElement(Element parent, SVGPathFigure f) throws IOException {
-    LinkedList<Point2D.Double> points = new LinkedList<Point2D.Double>();
-    for (int i = 0, n = f.getChildCount(); i < n; i++) {
-      BezierPath bezier = ((BezierFigure) f.getChild(i)).getBezierPath();
-      for (BezierPath.Node node : bezier.nodes()) {
-        points.add(new Point2D.Double(node.x[0], node.y[0]));
-      }
-    }
-    parent.appendChild(createPolyline(
-        document, points.toArray(new Point2D.Double[points.size()]), f.attr().getAttributes()));
-  }
-
-  protected Element createPolyline(
-      Element doc, Point2D.Double[] points, Map<AttributeKey<?>, Object> attributes)
+  private void writePoly(String name, String points, Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("polyline");
-    writeAttribute(elem, "points", toPoints(points), null);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+    emptyElement(name);
+    writeAttribute("points", points, null);
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected void writeLineElement(Element parent, SVGPathFigure f) throws IOException {
+  protected void writeLineElement(SVGPathFigure f) throws IOException {
     BezierFigure bezier = (BezierFigure) f.getChild(0);
-    parent.appendChild(createLine(
-        document,
+    writeLine(
         bezier.getNode(0).x[0],
         bezier.getNode(0).y[0],
         bezier.getNode(1).x[0],
         bezier.getNode(1).y[0],
-        f.attr().getAttributes()));
+        f.attr().getAttributes());
   }
 
-  protected Element createLine(
-      Element doc,
-      double x1,
-      double y1,
-      double x2,
-      double y2,
-      Map<AttributeKey<?>, Object> attributes)
+  protected void writeLine(
+      double x1, double y1, double x2, double y2, Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("line");
-    writeAttribute(elem, "x1", x1, 0d);
-    writeAttribute(elem, "y1", y1, 0d);
-    writeAttribute(elem, "x2", x2, 0d);
-    writeAttribute(elem, "y2", y2, 0d);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+    emptyElement("line");
+    writeAttribute("x1", x1, 0d);
+    writeAttribute("y1", y1, 0d);
+    writeAttribute("x2", x2, 0d);
+    writeAttribute("y2", y2, 0d);
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected void writeRectElement(Element parent, SVGRectFigure f) throws IOException {
-    parent.appendChild(createRect(
-        document,
+  protected void writeRectElement(SVGRectFigure f) throws IOException {
+    writeRect(
         f.getX(),
         f.getY(),
         f.getWidth(),
         f.getHeight(),
         f.getArcWidth(),
         f.getArcHeight(),
-        f.attr().getAttributes()));
+        f.attr().getAttributes());
   }
 
-  protected Element createRect(
-      Element doc,
+  protected void writeRect(
       double x,
       double y,
       double width,
@@ -460,20 +475,19 @@ public class SVGOutputFormat implements OutputFormat {
       double ry,
       Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("rect");
-    writeAttribute(elem, "x", x, 0d);
-    writeAttribute(elem, "y", y, 0d);
-    writeAttribute(elem, "width", width, 0d);
-    writeAttribute(elem, "height", height, 0d);
-    writeAttribute(elem, "rx", rx, 0d);
-    writeAttribute(elem, "ry", ry, 0d);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    return elem;
+    emptyElement("rect");
+    writeAttribute("x", x, 0d);
+    writeAttribute("y", y, 0d);
+    writeAttribute("width", width, 0d);
+    writeAttribute("height", height, 0d);
+    writeAttribute("rx", rx, 0d);
+    writeAttribute("ry", ry, 0d);
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
   }
 
-  protected void writeTextElement(Element parent, SVGTextFigure f) throws IOException {
+  protected void writeTextElement(SVGTextFigure f) throws IOException {
     DefaultStyledDocument styledDoc = new DefaultStyledDocument();
     try {
       styledDoc.insertString(0, f.getText(), null);
@@ -482,40 +496,46 @@ public class SVGOutputFormat implements OutputFormat {
       error.initCause(e);
       throw error;
     }
-    parent.appendChild(createText(
-        document, f.getCoordinates(), f.getRotates(), styledDoc, f.attr().getAttributes()));
+    writeText(f.getCoordinates(), f.getRotates(), styledDoc, f.attr().getAttributes());
   }
 
-  protected Element createText(
-      Element doc,
+  protected void writeText(
       Point2D.Double[] coordinates,
       double[] rotate,
       StyledDocument text,
       Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("text");
-    StringBuilder bufX = new StringBuilder();
-    StringBuilder bufY = new StringBuilder();
+    startElement("text");
+    buf.setLength(0);
+    for (int i = 0; i < coordinates.length; i++) {
+      if (i != 0) {
+        buf.append(',');
+      }
+      appendNumber(coordinates[i].getX());
+    }
+    writeAttribute("x", buf.toString(), "0");
+    buf.setLength(0);
     for (int i = 0; i < coordinates.length; i++) {
       if (i != 0) {
-        bufX.append(',');
-        bufY.append(',');
+        buf.append(',');
       }
-      bufX.append(toNumber(coordinates[i].getX()));
-      bufY.append(toNumber(coordinates[i].getY()));
+      appendNumber(coordinates[i].getY());
     }
-    StringBuilder bufR = new StringBuilder();
+    writeAttribute("y", buf.toString(), "0");
+    buf.setLength(0);
     if (rotate != null) {
       for (int i = 0; i < rotate.length; i++) {
         if (i != 0) {
-          bufR.append(',');
+          buf.append(',');
         }
-        bufR.append(toNumber(rotate[i]));
+        appendNumber(rotate[i]);
       }
     }
-    writeAttribute(elem, "x", bufX.toString(), "0");
-    writeAttribute(elem, "y", bufY.toString(), "0");
-    writeAttribute(elem, "rotate", bufR.toString(), "");
+    writeAttribute("rotate", buf.toString(), "");
+    writeShapeAttributes(attributes);
+    writeOpacityAttribute(attributes);
+    writeTransformAttribute(attributes);
+    writeFontAttributes(attributes);
     String str;
     try {
       str = text.getText(0, text.getLength());
@@ -524,15 +544,11 @@ public class SVGOutputFormat implements OutputFormat {
       error.initCause(e);
       throw error;
     }
-    elem.setTextContent(str);
-    writeShapeAttributes(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    writeFontAttributes(elem, attributes);
-    return elem;
+    writeCharacters(str);
+    endElement();
   }
 
-  protected void writeTextAreaElement(Element parent, SVGTextAreaFigure f) throws IOException {
+  protected void writeTextAreaElement(SVGTextAreaFigure f) throws IOException {
     DefaultStyledDocument styledDoc = new DefaultStyledDocument();
     try {
       styledDoc.insertString(0, f.getText(), null);
@@ -542,18 +558,11 @@ public class SVGOutputFormat implements OutputFormat {
       throw error;
     }
     Rectangle2D.Double bounds = f.getBounds();
-    parent.appendChild(createTextArea(
-        document,
-        bounds.x,
-        bounds.y,
-        bounds.width,
-        bounds.height,
-        styledDoc,
-        f.attr().getAttributes()));
+    writeTextArea(
+        bounds.x, bounds.y, bounds.width, bounds.height, styledDoc, f.attr().getAttributes());
   }
 
-  protected Element createTextArea(
-      Element doc,
+  protected void writeTextArea(
       double x,
       double y,
       double w,
@@ -561,11 +570,15 @@ public class SVGOutputFormat implements OutputFormat {
       StyledDocument text,
       Map<AttributeKey<?>, Object> attributes)
       throws IOException {
-    Element elem = doc.getOwnerDocument().createElement("textArea");
-    writeAttribute(elem, "x", toNumber(x), "0");
-    writeAttribute(elem, "y", toNumber(y), "0");
-    writeAttribute(elem, "width", toNumber(w), "0");
-    writeAttribute(elem, "height", toNumber(h), "0");
+    startElement("textArea");
+    writeAttribute("x", formatNumber(x), "0");
+    writeAttribute("y", formatNumber(y), "0");
+    writeAttribute("width", formatNumber(w), "0");
+    writeAttribute("height", formatNumber(h), "0");
+    writeShapeAttributes(attributes);
+    writeTransformAttribute(attributes);
+    writeOpacityAttribute(attributes);
+    writeFontAttributes(attributes);
     String str;
     try {
       str = text.getText(0, text.getLength());
@@ -577,17 +590,11 @@ public class SVGOutputFormat implements OutputFormat {
     String[] lines = str.split("\n");
     for (int i = 0; i < lines.length; i++) {
       if (i != 0) {
-        elem.appendChild(doc.getOwnerDocument().createElement("tbreak"));
+        writeTextBreak();
       }
-      Element contentElement = doc.getOwnerDocument().createElement(null);
-      contentElement.setTextContent(lines[i]);
-      elem.appendChild(contentElement);
+      writeCharacters(lines[i]);
     }
-    writeShapeAttributes(elem, attributes);
-    writeTransformAttribute(elem, attributes);
-    writeOpacityAttribute(elem, attributes);
-    writeFontAttributes(elem, attributes);
-    return elem;
+    endElement();
   }
 
   // ------------
@@ -595,8 +602,7 @@ public class SVGOutputFormat implements OutputFormat {
   // ------------
   /* Writes shape attributes.
    */
-  protected void writeShapeAttributes(Element elem, Map<AttributeKey<?>, Object> m)
-      throws IOException {
+  protected void writeShapeAttributes(Map<AttributeKey<?>, Object> m) throws IOException {
     Color color;
     String value;
     int intValue;
@@ -631,47 +637,9 @@ public class SVGOutputFormat implements OutputFormat {
     // Computed value:    "none", system paint, specified <color> value or absolute IRI
     Gradient gradient = FILL_GRADIENT.get(m);
     if (gradient != null) {
-      String id;
-      if (gradientToIDMap.containsKey(gradient)) {
-        id = gradientToIDMap.get(gradient);
-      } else {
-        Element gradientElem;
-        if (gradient instanceof LinearGradient) {
-          LinearGradient lg = (LinearGradient) gradient;
-          gradientElem = createLinearGradient(
-              document,
-              lg.getX1(),
-              lg.getY1(),
-              lg.getX2(),
-              lg.getY2(),
-              lg.getStopOffsets(),
-              lg.getStopColors(),
-              lg.getStopOpacities(),
-              lg.isRelativeToFigureBounds(),
-              lg.getTransform());
-        } else /*if (gradient instanceof RadialGradient)*/ {
-          RadialGradient rg = (RadialGradient) gradient;
-          gradientElem = createRadialGradient(
-              document,
-              rg.getCX(),
-              rg.getCY(),
-              rg.getFX(),
-              rg.getFY(),
-              rg.getR(),
-              rg.getStopOffsets(),
-              rg.getStopColors(),
-              rg.getStopOpacities(),
-              rg.isRelativeToFigureBounds(),
-              rg.getTransform());
-        }
-        id = getId(gradientElem);
-        gradientElem.setAttributeNS("xml", "id", id);
-        defs.appendChild(gradientElem);
-        gradientToIDMap.put(gradient, id);
-      }
-      writeAttribute(elem, "fill", "url(#" + id + ")", "#000");
+      writeAttribute("fill", "url(#" + getGradientId(gradient) + ")", "#000");
     } else {
-      writeAttribute(elem, "fill", toColor(FILL_COLOR.get(m)), "#000");
+      writeAttribute("fill", toColor(FILL_COLOR.get(m)), "#000");
     }
     // 'fill-opacity'
     // Value:    <opacity-value> | inherit
@@ -682,7 +650,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "fill-opacity", FILL_OPACITY.get(m), 1d);
+    writeAttribute("fill-opacity", FILL_OPACITY.get(m), 1d);
     // 'fill-rule'
     // Value:  nonzero | evenodd | inherit
     // Initial:   nonzero
@@ -693,7 +661,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
     if (WINDING_RULE.get(m) != WindingRule.NON_ZERO) {
-      writeAttribute(elem, "fill-rule", "evenodd", "nonzero");
+      writeAttribute("fill-rule", "evenodd", "nonzero");
     }
     // 'stroke'
     // Value:   <paint> | inherit (See Specifying paint)
@@ -707,47 +675,9 @@ public class SVGOutputFormat implements OutputFormat {
     // or absolute IRI
     gradient = STROKE_GRADIENT.get(m);
     if (gradient != null) {
-      String id;
-      if (gradientToIDMap.containsKey(gradient)) {
-        id = gradientToIDMap.get(gradient);
-      } else {
-        Element gradientElem;
-        if (gradient instanceof LinearGradient) {
-          LinearGradient lg = (LinearGradient) gradient;
-          gradientElem = createLinearGradient(
-              document,
-              lg.getX1(),
-              lg.getY1(),
-              lg.getX2(),
-              lg.getY2(),
-              lg.getStopOffsets(),
-              lg.getStopColors(),
-              lg.getStopOpacities(),
-              lg.isRelativeToFigureBounds(),
-              lg.getTransform());
-        } else /*if (gradient instanceof RadialGradient)*/ {
-          RadialGradient rg = (RadialGradient) gradient;
-          gradientElem = createRadialGradient(
-              document,
-              rg.getCX(),
-              rg.getCY(),
-              rg.getFX(),
-              rg.getFY(),
-              rg.getR(),
-              rg.getStopOffsets(),
-              rg.getStopColors(),
-              rg.getStopOpacities(),
-              rg.isRelativeToFigureBounds(),
-              rg.getTransform());
-        }
-        id = getId(gradientElem);
-        gradientElem.setAttributeNS("xml", "id", id);
-        defs.appendChild(gradientElem);
-        gradientToIDMap.put(gradient, id);
-      }
-      writeAttribute(elem, "stroke", "url(#" + id + ")", "none");
+      writeAttribute("stroke", "url(#" + getGradientId(gradient) + ")", "none");
     } else {
-      writeAttribute(elem, "stroke", toColor(STROKE_COLOR.get(m)), "none");
+      writeAttribute("stroke", toColor(STROKE_COLOR.get(m)), "none");
     }
     // 'stroke-dasharray'
     // Value:    none | <dasharray> | inherit
@@ -760,14 +690,14 @@ public class SVGOutputFormat implements OutputFormat {
     // Computed value:    Specified value, except inherit
     double[] dashes = STROKE_DASHES.get(m);
     if (dashes != null) {
-      StringBuilder buf = new StringBuilder();
+      buf.setLength(0);
       for (int i = 0; i < dashes.length; i++) {
         if (i != 0) {
           buf.append(',');
         }
-        buf.append(toNumber(dashes[i]));
+        appendNumber(dashes[i]);
       }
-      writeAttribute(elem, "stroke-dasharray", buf.toString(), null);
+      writeAttribute("stroke-dasharray", buf.toString(), null);
     }
     // 'stroke-dashoffset'
     // Value:   <length> | inherit
@@ -778,7 +708,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-dashoffset", STROKE_DASH_PHASE.get(m), 0d);
+    writeAttribute("stroke-dashoffset", STROKE_DASH_PHASE.get(m), 0d);
     // 'stroke-linecap'
     // Value:    butt | round | square | inherit
     // Initial:    butt
@@ -788,7 +718,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-linecap", STROKE_LINECAP.get(STROKE_CAP.get(m)), "butt");
+    writeAttribute("stroke-linecap", STROKE_LINECAP.get(STROKE_CAP.get(m)), "butt");
     // 'stroke-linejoin'
     // Value:    miter | round | bevel | inherit
     // Initial:    miter
@@ -798,7 +728,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-linejoin", STROKE_LINEJOIN.get(STROKE_JOIN.get(m)), "miter");
+    writeAttribute("stroke-linejoin", STROKE_LINEJOIN.get(STROKE_JOIN.get(m)), "miter");
     // 'stroke-miterlimit'
     // Value:    <miterlimit> | inherit
     // Initial:    4
@@ -808,7 +738,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-miterlimit", STROKE_MITER_LIMIT.get(m), 4d);
+    writeAttribute("stroke-miterlimit", STROKE_MITER_LIMIT.get(m), 4d);
     // 'stroke-opacity'
     // Value:    <opacity-value> | inherit
     // Initial:    1
@@ -818,7 +748,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-opacity", STROKE_OPACITY.get(m), 1d);
+    writeAttribute("stroke-opacity", STROKE_OPACITY.get(m), 1d);
     // 'stroke-width'
     // Value:   <length> | inherit
     // Initial:    1
@@ -828,13 +758,12 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:    visual
     // Animatable:    yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "stroke-width", STROKE_WIDTH.get(m), 1d);
+    writeAttribute("stroke-width", STROKE_WIDTH.get(m), 1d);
   }
 
   /* Writes the opacity attribute.
    */
-  protected void writeOpacityAttribute(Element elem, Map<AttributeKey<?>, Object> m)
-      throws IOException {
+  protected void writeOpacityAttribute(Map<AttributeKey<?>, Object> m) throws IOException {
     // 'opacity'
     // Value:   <opacity-value> | inherit
     // Initial:   1
@@ -849,26 +778,24 @@ public class SVGOutputFormat implements OutputFormat {
     // Any values outside the range 0.0 (fully transparent) to 1.0
     // (fully opaque) shall be clamped to this range.
     // (See Clamping values which are restricted to a particular range.)
-    writeAttribute(elem, "opacity", OPACITY.get(m), 1d);
+    writeAttribute("opacity", OPACITY.get(m), 1d);
   }
 
   /* Writes the transform attribute as specified in
    * http://www.w3.org/TR/SVGMobile12/coords.html#TransformAttribute
    *
    */
-  protected void writeTransformAttribute(Element elem, Map<AttributeKey<?>, Object> a)
-      throws IOException {
+  protected void writeTransformAttribute(Map<AttributeKey<?>, Object> a) throws IOException {
     AffineTransform t = TRANSFORM.get(a);
     if (t != null) {
-      writeAttribute(elem, "transform", toTransform(t), "none");
+      writeAttribute("transform", formatTransform(t), "none");
     }
   }
 
   /* Writes font attributes as listed in
    * http://www.w3.org/TR/SVGMobile12/feature.html#Font
    */
-  private void writeFontAttributes(Element elem, Map<AttributeKey<?>, Object> a)
-      throws IOException {
+  private void writeFontAttributes(Map<AttributeKey<?>, Object> a) throws IOException {
     String value;
     double doubleValue;
     // 'font-family'
@@ -882,7 +809,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:   visual
     // Animatable:   yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "font-family", FONT_FACE.get(a).getFontName(), "Dialog");
+    writeAttribute("font-family", FONT_FACE.get(a).getFontName(), "Dialog");
     // 'font-getChildCount'
     // Value:   <absolute-getChildCount> | <relative-getChildCount> |
     // <length> | inherit
@@ -893,7 +820,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:   visual
     // Animatable:   yes
     // Computed value:    Absolute length
-    writeAttribute(elem, "font-size", FONT_SIZE.get(a), 0d);
+    writeAttribute("font-size", FONT_SIZE.get(a), 0d);
     // 'font-style'
     // Value:   normal | italic | oblique | inherit
     // Initial:   normal
@@ -903,7 +830,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:   visual
     // Animatable:   yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "font-style", (FONT_ITALIC.get(a)) ? "italic" : "normal", "normal");
+    writeAttribute("font-style", (FONT_ITALIC.get(a)) ? "italic" : "normal", "normal");
     // 'font-variant'
     // Value:   normal | small-caps | inherit
     // Initial:   normal
@@ -914,7 +841,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Animatable:   no
     // Computed value:    Specified value, except inherit
     // XXX - Implement me
-    writeAttribute(elem, "font-variant", "normal", "normal");
+    writeAttribute("font-variant", "normal", "normal");
     // 'font-weight'
     // Value:   normal | bold | bolder | lighter | 100 | 200 | 300
     // | 400 | 500 | 600 | 700 | 800 | 900 | inherit
@@ -927,7 +854,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Computed value:    one of the legal numeric values, non-numeric
     // values shall be converted to numeric values according to the rules
     // defined below.
-    writeAttribute(elem, "font-weight", (FONT_BOLD.get(a)) ? "bold" : "normal", "normal");
+    writeAttribute("font-weight", (FONT_BOLD.get(a)) ? "bold" : "normal", "normal");
     // Note: text-decoration is an SVG 1.1 feature
     // 'text-decoration'
     // Value:   none | [ underline || overline || line-through || blink ] | inherit
@@ -937,20 +864,19 @@ public class SVGOutputFormat implements OutputFormat {
     // Percentages:   N/A
     // Media:   visual
     // Animatable:   yes
-    writeAttribute(elem, "text-decoration", (FONT_UNDERLINE.get(a)) ? "underline" : "none", "none");
+    writeAttribute("text-decoration", (FONT_UNDERLINE.get(a)) ? "underline" : "none", "none");
   }
 
   /* Writes viewport attributes.
    */
-  private void writeViewportAttributes(Element elem, Map<AttributeKey<?>, Object> a)
-      throws IOException {
+  private void writeViewportAttributes(Map<AttributeKey<?>, Object> a) throws IOException {
     Object value;
     Double doubleValue;
     if (VIEWPORT_WIDTH.get(a) != null && VIEWPORT_HEIGHT.get(a) != null) {
       // width of the viewport
-      writeAttribute(elem, "width", toNumber(VIEWPORT_WIDTH.get(a)), null);
+      writeAttribute("width", formatNumber(VIEWPORT_WIDTH.get(a)), null);
       // height of the viewport
-      writeAttribute(elem, "height", toNumber(VIEWPORT_HEIGHT.get(a)), null);
+      writeAttribute("height", formatNumber(VIEWPORT_HEIGHT.get(a)), null);
     }
     // 'viewport-fill'
     // Value:  "none" | <color> | inherit
@@ -961,7 +887,7 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:  visual
     // Animatable:  yes
     // Computed value:    "none" or specified <color> value, except inherit
-    writeAttribute(elem, "viewport-fill", toColor(VIEWPORT_FILL.get(a)), "none");
+    writeAttribute("viewport-fill", toColor(VIEWPORT_FILL.get(a)), "none");
     // 'viewport-fill-opacity'
     // Value: <opacity-value> | inherit
     // Initial:  1.0
@@ -971,28 +897,113 @@ public class SVGOutputFormat implements OutputFormat {
     // Media:  visual
     // Animatable:  yes
     // Computed value:    Specified value, except inherit
-    writeAttribute(elem, "viewport-fill-opacity", VIEWPORT_FILL_OPACITY.get(a), 1.0);
+    writeAttribute("viewport-fill-opacity", VIEWPORT_FILL_OPACITY.get(a), 1.0);
   }
 
-  protected void writeAttribute(Element elem, String name, String value, String defaultValue) {
-    writeAttribute(elem, name, SVG_NAMESPACE, value, defaultValue);
+  protected void writeAttribute(String name, String value, String defaultValue) throws IOException {
+    if (value != null && !value.equals(defaultValue)) {
+      if (domElement != null) {
+        domElement.setAttribute(name, value);
+        return;
+      }
+      try {
+        writer.writeAttribute(name, value);
+      } catch (XMLStreamException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
   }
 
-  protected void writeAttribute(
-      Element elem, String name, String namespace, String value, String defaultValue) {
-    if (!value.equals(defaultValue)) {
-      elem.setAttribute(name, value);
+  protected void writeAttribute(String name, double value, double defaultValue)
+      throws IOException {
+    if (value != defaultValue) {
+      writeAttribute(name, formatNumber(value), null);
     }
   }
 
-  protected void writeAttribute(Element elem, String name, double value, double defaultValue) {
-    writeAttribute(elem, name, SVG_NAMESPACE, value, defaultValue);
+  /** Starts an element which may have child elements. The element must be ended with endElement. */
+  protected void startElement(String name) throws IOException {
+    startElement(name, false);
   }
 
-  protected void writeAttribute(
-      Element elem, String name, String namespace, double value, double defaultValue) {
-    if (value != defaultValue) {
-      elem.setAttribute(name, toNumber(value));
+  /** Starts an element which has attributes only. */
+  protected void emptyElement(String name) throws IOException {
+    startElement(name, true);
+  }
+
+  private void startElement(String name, boolean isEmpty) throws IOException {
+    if (domParent != null) {
+      domElement = domParent.getOwnerDocument().createElement(name);
+      domParent.appendChild(domElement);
+      if (!isEmpty) {
+        domParent = domElement;
+      }
+      return;
+    }
+    try {
+      if (isPrettyPrint) {
+        writeIndent();
+      }
+      if (isEmpty) {
+        writer.writeEmptyElement(name);
+      } else {
+        writer.writeStartElement(name);
+        depth++;
+      }
+      hasChildElements = isEmpty;
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /** Ends the element which has been started last. */
+  protected void endElement() throws IOException {
+    if (domParent != null) {
+      domParent = domParent.getParentNode();
+      domElement = null;
+      return;
+    }
+    try {
+      depth--;
+      if (isPrettyPrint && hasChildElements) {
+        writeIndent();
+      }
+      writer.writeEndElement();
+      hasChildElements = true;
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  protected void writeCharacters(String text) throws IOException {
+    if (domParent != null) {
+      domParent.appendChild(domParent.getOwnerDocument().createTextNode(text));
+      return;
+    }
+    try {
+      writer.writeCharacters(text);
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /** Writes a line break of a text area. It is not indented, because white space is significant. */
+  private void writeTextBreak() throws IOException {
+    if (domParent != null) {
+      domParent.appendChild(domParent.getOwnerDocument().createElement("tbreak"));
+      return;
+    }
+    try {
+      writer.writeEmptyElement("tbreak");
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private void writeIndent() throws XMLStreamException {
+    writer.writeCharacters("\n");
+    for (int i = 0; i < depth; i++) {
+      writer.writeCharacters("  ");
     }
   }
 
@@ -1000,192 +1011,57 @@ public class SVGOutputFormat implements OutputFormat {
    * Returns a value as a SVG Path attribute. as specified in
    * http://www.w3.org/TR/SVGMobile12/paths.html#PathDataBNF
    */
-  public static String toPath(BezierPath[] paths) {
-    StringBuilder buf = new StringBuilder();
-    for (int j = 0; j < paths.length; j++) {
-      BezierPath path = paths[j];
-      if (path.size() == 0) {
-        // nothing to do
-      } else if (path.size() == 1) {
-        BezierPath.Node current = path.nodes().get(0);
-        buf.append("M ");
-        buf.append(toNumber(current.x[0]));
-        buf.append(' ');
-        buf.append(toNumber(current.y[0]));
-        // buf.append(" L ");
-        buf.append(toNumber(current.x[0]));
-        buf.append(' ');
-        buf.append(toNumber(current.y[0] + 1));
-      } else {
-        BezierPath.Node previous;
-        BezierPath.Node current;
-        previous = current = path.nodes().get(0);
-        buf.append("M ");
-        buf.append(toNumber(current.x[0]));
-        buf.append(' ');
-        buf.append(toNumber(current.y[0]));
-        char nextCommand = 'L';
-        for (int i = 1, n = path.size(); i < n; i++) {
-          previous = current;
-          current = path.nodes().get(i);
-          if ((previous.mask & BezierPath.C2_MASK) == 0) {
-            if ((current.mask & BezierPath.C1_MASK) == 0) {
-              if (nextCommand != 'L') {
-                buf.append(" L ");
-                nextCommand = 'L';
-              } else {
-                buf.append(' ');
-              }
-              buf.append(toNumber(current.x[0]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[0]));
-            } else {
-              if (nextCommand != 'Q') {
-                buf.append(" Q ");
-                nextCommand = 'Q';
-              } else {
-                buf.append(' ');
-              }
-              buf.append(toNumber(current.x[1]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[1]));
-              buf.append(' ');
-              buf.append(toNumber(current.x[0]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[0]));
-            }
-          } else {
-            if ((current.mask & BezierPath.C1_MASK) == 0) {
-              if (nextCommand != 'Q') {
-                buf.append(" Q ");
-                nextCommand = 'Q';
-              } else {
-                buf.append(' ');
-              }
-              buf.append(toNumber(previous.x[2]));
-              buf.append(' ');
-              buf.append(toNumber(previous.y[2]));
-              buf.append(' ');
-              buf.append(toNumber(current.x[0]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[0]));
-            } else {
-              if (nextCommand != 'C') {
-                buf.append(" C ");
-                nextCommand = 'C';
-              } else {
-                buf.append(' ');
-              }
-              buf.append(toNumber(previous.x[2]));
-              buf.append(' ');
-              buf.append(toNumber(previous.y[2]));
-              buf.append(' ');
-              buf.append(toNumber(current.x[1]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[1]));
-              buf.append(' ');
-              buf.append(toNumber(current.x[0]));
-              buf.append(' ');
-              buf.append(toNumber(current.y[0]));
-            }
-          }
-        }
-        if (path.isClosed()) {
-          if (path.size() > 1) {
-            previous = path.nodes().get(path.size() - 1);
-            current = path.nodes().get(0);
-            if ((previous.mask & BezierPath.C2_MASK) == 0) {
-              if ((current.mask & BezierPath.C1_MASK) == 0) {
-                if (nextCommand != 'L') {
-                  buf.append(" L ");
-                  nextCommand = 'L';
-                } else {
-                  buf.append(' ');
-                }
-                buf.append(toNumber(current.x[0]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[0]));
-              } else {
-                if (nextCommand != 'Q') {
-                  buf.append(" Q ");
-                  nextCommand = 'Q';
-                } else {
-                  buf.append(' ');
-                }
-                buf.append(toNumber(current.x[1]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[1]));
-                buf.append(' ');
-                buf.append(toNumber(current.x[0]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[0]));
-              }
-            } else {
-              if ((current.mask & BezierPath.C1_MASK) == 0) {
-                if (nextCommand != 'Q') {
-                  buf.append(" Q ");
-                  nextCommand = 'Q';
-                } else {
-                  buf.append(' ');
-                }
-                buf.append(toNumber(previous.x[2]));
-                buf.append(' ');
-                buf.append(toNumber(previous.y[2]));
-                buf.append(' ');
-                buf.append(toNumber(current.x[0]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[0]));
-              } else {
-                if (nextCommand != 'C') {
-                  buf.append(" C ");
-                  nextCommand = 'C';
-                } else {
-                  buf.append(' ');
-                }
-                buf.append(toNumber(previous.x[2]));
-                buf.append(' ');
-                buf.append(toNumber(previous.y[2]));
-                buf.append(' ');
-                buf.append(toNumber(current.x[1]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[1]));
-                buf.append(' ');
-                buf.append(toNumber(current.x[0]));
-                buf.append(' ');
-                buf.append(toNumber(current.y[0]));
-              }
-            }
-          }
-          buf.append(" Z");
-          nextCommand = '\0';
-        }
-      }
+  protected String formatPath(BezierPath[] paths) {
+    if (pathDataWriter == null) {
+      pathDataWriter = new PathDataWriter();
     }
+    pathDataWriter.setFractionDigits(fractionDigits);
+    buf.setLength(0);
+    pathDataWriter.write(paths, buf);
     return buf.toString();
   }
 
-  /** Returns a double array as a number attribute value. */
-  public static String toNumber(double number) {
-    String str = (IS_FLOAT_PRECISION) ? Float.toString((float) number) : Double.toString(number);
-    if (str.endsWith(".0")) {
-      str = str.substring(0, str.length() - 2);
-    }
-    return str;
+  /** Returns a double as a number attribute value. */
+  protected String formatNumber(double number) {
+    buf.setLength(0);
+    appendNumber(number);
+    return buf.toString();
+  }
+
+  /** Appends a number to the attribute value buffer. */
+  private void appendNumber(double number) {
+    PathDataWriter.appendNumber(buf, number, fractionDigits);
   }
 
   /**
-   * Returns a Point2D.Double array as a Points attribute value. as specified in
+   * Returns the nodes of a path figure as a Points attribute value. as specified in
    * http://www.w3.org/TR/SVGMobile12/shapes.html#PointsBNF
    */
-  public static String toPoints(Point2D.Double[] points) throws IOException {
-    StringBuilder buf = new StringBuilder();
+  protected String formatPoints(SVGPathFigure f) {
+    buf.setLength(0);
+    for (int i = 0, n = f.getChildCount(); i < n; i++) {
+      BezierPath bezier = ((BezierFigure) f.getChild(i)).getBezierPath();
+      for (BezierPath.Node node : bezier.nodes()) {
+        if (buf.length() != 0) {
+          buf.append(' ');
+        }
+        appendNumber(node.x[0]);
+        buf.append(',');
+        appendNumber(node.y[0]);
+      }
+    }
+    return buf.toString();
+  }
+
+  private String formatPoints(Point2D.Double[] points) {
+    buf.setLength(0);
     for (int i = 0; i < points.length; i++) {
       if (i != 0) {
-        buf.append(", ");
+        buf.append(' ');
       }
-      buf.append(toNumber(points[i].x));
+      appendNumber(points[i].x);
       buf.append(',');
-      buf.append(toNumber(points[i].y));
+      appendNumber(points[i].y);
     }
     return buf.toString();
   }
@@ -1193,8 +1069,16 @@ public class SVGOutputFormat implements OutputFormat {
   /* Converts an AffineTransform into an SVG transform attribute value as specified in
    * http://www.w3.org/TR/SVGMobile12/coords.html#TransformAttribute
    */
-  public static String toTransform(AffineTransform t) throws IOException {
-    StringBuilder buf = new StringBuilder();
+  protected String formatTransform(AffineTransform t) {
+    int digits =
+        (fractionDigits == PathDataWriter.EXACT)
+            ? fractionDigits
+            : Math.max(fractionDigits, TRANSFORM_FRACTION_DIGITS);
+    buf.setLength(0);
+    return appendTransform(buf, t, digits).toString();
+  }
+
+  private static StringBuilder appendTransform(StringBuilder buf, AffineTransform t, int digits) {
     switch (t.getType()) {
       case AffineTransform.TYPE_IDENTITY:
         buf.append("none");
@@ -1203,38 +1087,19 @@ public class SVGOutputFormat implements OutputFormat {
         // translate(<tx> [<ty>]), specifies a translation by tx and ty.
         // If <ty> is not provided, it is assumed to be zero.
         buf.append("translate(");
-        buf.append(toNumber(t.getTranslateX()));
+        PathDataWriter.appendNumber(buf, t.getTranslateX(), digits);
         if (t.getTranslateY() != 0d) {
           buf.append(' ');
-          buf.append(toNumber(t.getTranslateY()));
+          PathDataWriter.appendNumber(buf, t.getTranslateY(), digits);
         }
         buf.append(')');
         break;
-        /*
-        case AffineTransform.TYPE_GENERAL_ROTATION :
-        case AffineTransform.TYPE_QUADRANT_ROTATION :
-        case AffineTransform.TYPE_MASK_ROTATION :
-        // rotate(<rotate-angle> [<cx> <cy>]), specifies a rotation by
-        // <rotate-angle> degrees about a given point.
-        // If optional parameters <cx> and <cy> are not supplied, the
-        // rotate is about the origin of the current user coordinate
-        // system. The operation corresponds to the matrix
-        // [cos(a) sin(a) -sin(a) cos(a) 0 0].
-        // If optional parameters <cx> and <cy> are supplied, the rotate
-        // is about the point (<cx>, <cy>). The operation represents the
-        // equivalent of the following specification:
-        // translate(<cx>, <cy>) rotate(<rotate-angle>)
-        // translate(-<cx>, -<cy>).
-        buf.append("rotate(");
-        buf.append(toNumber(t.getScaleX()));
-        buf.append(')');
-        break;*/
       case AffineTransform.TYPE_UNIFORM_SCALE:
         // scale(<sx> [<sy>]), specifies a scale operation by sx
         // and sy. If <sy> is not provided, it is assumed to be equal
         // to <sx>.
         buf.append("scale(");
-        buf.append(toNumber(t.getScaleX()));
+        PathDataWriter.appendNumber(buf, t.getScaleX(), digits);
         buf.append(')');
         break;
       case AffineTransform.TYPE_GENERAL_SCALE:
@@ -1243,9 +1108,9 @@ public class SVGOutputFormat implements OutputFormat {
         // and sy. If <sy> is not provided, it is assumed to be equal
         // to <sx>.
         buf.append("scale(");
-        buf.append(toNumber(t.getScaleX()));
+        PathDataWriter.appendNumber(buf, t.getScaleX(), digits);
         buf.append(' ');
-        buf.append(toNumber(t.getScaleY()));
+        PathDataWriter.appendNumber(buf, t.getScaleY(), digits);
         buf.append(')');
         break;
       default:
@@ -1254,18 +1119,21 @@ public class SVGOutputFormat implements OutputFormat {
         // matrix(a,b,c,d,e,f) is equivalent to applying the
         // transformation matrix [a b c d e f].
         buf.append("matrix(");
-        double[] matrix = new double[6];
-        t.getMatrix(matrix);
-        for (int i = 0; i < matrix.length; i++) {
-          if (i != 0) {
-            buf.append(' ');
-          }
-          buf.append(toNumber(matrix[i]));
-        }
+        PathDataWriter.appendNumber(buf, t.getScaleX(), digits);
+        buf.append(' ');
+        PathDataWriter.appendNumber(buf, t.getShearY(), digits);
+        buf.append(' ');
+        PathDataWriter.appendNumber(buf, t.getShearX(), digits);
+        buf.append(' ');
+        PathDataWriter.appendNumber(buf, t.getScaleY(), digits);
+        buf.append(' ');
+        PathDataWriter.appendNumber(buf, t.getTranslateX(), digits);
+        buf.append(' ');
+        PathDataWriter.appendNumber(buf, t.getTranslateY(), digits);
         buf.append(')');
         break;
     }
-    return buf.toString();
+    return buf;
   }
 
   public static String toColor(Color color) {
@@ -1283,6 +1151,405 @@ public class SVGOutputFormat implements OutputFormat {
     return value;
   }
 
+  // ------------
+  // Deprecated DOM and static methods
+  // ------------
+  /** @deprecated Use {@link #formatPath}, which honors the fraction digits. */
+  @Deprecated
+  public static String toPath(BezierPath[] paths) {
+    return new PathDataWriter().write(paths);
+  }
+
+  /** @deprecated Use {@link #formatNumber}, which honors the fraction digits. */
+  @Deprecated
+  public static String toNumber(double number) {
+    return PathDataWriter.appendNumber(new StringBuilder(), number, PathDataWriter.EXACT)
+        .toString();
+  }
+
+  /** @deprecated Use {@link #formatPoints}, which honors the fraction digits. */
+  @Deprecated
+  public static String toPoints(Point2D.Double[] points) throws IOException {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < points.length; i++) {
+      if (i != 0) {
+        buf.append(", ");
+      }
+      PathDataWriter.appendNumber(buf, points[i].x, PathDataWriter.EXACT);
+      buf.append(',');
+      PathDataWriter.appendNumber(buf, points[i].y, PathDataWriter.EXACT);
+    }
+    return buf.toString();
+  }
+
+  /** @deprecated Use {@link #formatTransform}, which honors the fraction digits. */
+  @Deprecated
+  public static String toTransform(AffineTransform t) throws IOException {
+    return appendTransform(new StringBuilder(), t, PathDataWriter.EXACT).toString();
+  }
+
+  /** @deprecated Use {@link #writeElement(Figure)}. */
+  @Deprecated
+  protected void writeElement(Element parent, Figure f) throws IOException {
+    writeDOM(parent, null, () -> writeElement(f));
+  }
+
+  /** @deprecated Use {@link #writeCircleElement(SVGEllipseFigure)}. */
+  @Deprecated
+  protected void writeCircleElement(Element parent, SVGEllipseFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeCircleElement(f));
+  }
+
+  /** @deprecated Use {@link #writeCircle}. */
+  @Deprecated
+  protected Element createCircle(
+      Element doc, double cx, double cy, double r, Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeCircle(cx, cy, r, attributes));
+  }
+
+  /** @deprecated Use {@link #writeGElement(SVGGroupFigure)}. */
+  @Deprecated
+  protected Element createG(Element doc, Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(
+        doc,
+        () -> {
+          startElement("g");
+          writeOpacityAttribute(attributes);
+          endElement();
+        });
+  }
+
+  /** @deprecated Use {@link #writeLinearGradient}. */
+  @Deprecated
+  protected Element createLinearGradient(
+      Element doc,
+      double x1,
+      double y1,
+      double x2,
+      double y2,
+      double[] stopOffsets,
+      Color[] stopColors,
+      double[] stopOpacities,
+      boolean isRelativeToFigureBounds,
+      AffineTransform transform)
+      throws IOException {
+    return createDOM(
+        doc,
+        () ->
+            writeLinearGradient(
+                null,
+                x1,
+                y1,
+                x2,
+                y2,
+                stopOffsets,
+                stopColors,
+                stopOpacities,
+                isRelativeToFigureBounds,
+                transform));
+  }
+
+  /** @deprecated Use {@link #writeRadialGradient}. */
+  @Deprecated
+  protected Element createRadialGradient(
+      Element doc,
+      double cx,
+      double cy,
+      double fx,
+      double fy,
+      double r,
+      double[] stopOffsets,
+      Color[] stopColors,
+      double[] stopOpacities,
+      boolean isRelativeToFigureBounds,
+      AffineTransform transform)
+      throws IOException {
+    return createDOM(
+        doc,
+        () ->
+            writeRadialGradient(
+                null,
+                cx,
+                cy,
+                fx,
+                fy,
+                r,
+                stopOffsets,
+                stopColors,
+                stopOpacities,
+                isRelativeToFigureBounds,
+                transform));
+  }
+
+  /** @deprecated Use {@link #writeEllipseElement(SVGEllipseFigure)}. */
+  @Deprecated
+  protected void writeEllipseElement(Element parent, SVGEllipseFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeEllipseElement(f));
+  }
+
+  /** @deprecated Use {@link #writeEllipse}. */
+  @Deprecated
+  protected Element createEllipse(
+      Element doc,
+      double cx,
+      double cy,
+      double rx,
+      double ry,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeEllipse(cx, cy, rx, ry, attributes));
+  }
+
+  /** @deprecated Use {@link #writeGElement(SVGGroupFigure)}. */
+  @Deprecated
+  protected void writeGElement(Element parent, SVGGroupFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeGElement(f));
+  }
+
+  /** @deprecated Use {@link #writeImageElement(SVGImageFigure)}. */
+  @Deprecated
+  protected void writeImageElement(Element parent, SVGImageFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeImageElement(f));
+  }
+
+  /** @deprecated Use {@link #writeImage}. */
+  @Deprecated
+  protected Element createImage(
+      Element doc,
+      double x,
+      double y,
+      double w,
+      double h,
+      byte[] imageData,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeImage(x, y, w, h, imageData, attributes));
+  }
+
+  /** @deprecated Use {@link #writePathElement(SVGPathFigure)}. */
+  @Deprecated
+  protected void writePathElement(Element parent, SVGPathFigure f) throws IOException {
+    writeDOM(parent, null, () -> writePathElement(f));
+  }
+
+  /** @deprecated Use {@link #writePath}. */
+  @Deprecated
+  protected Element createPath(
+      Element doc, BezierPath[] beziers, Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writePath(beziers, attributes));
+  }
+
+  /** @deprecated Use {@link #writePolygonElement(SVGPathFigure)}. */
+  @Deprecated
+  protected void writePolygonElement(Element parent, SVGPathFigure f) throws IOException {
+    writeDOM(parent, null, () -> writePolygonElement(f));
+  }
+
+  /** @deprecated Use {@link #writePolygonElement(SVGPathFigure)}. */
+  @Deprecated
+  protected Element createPolygon(
+      Element doc, Point2D.Double[] points, Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writePoly("polygon", formatPoints(points), attributes));
+  }
+
+  /** @deprecated Use {@link #writePolylineElement(SVGPathFigure)}. */
+  @Deprecated
+  protected void writePolylineElement(Element parent, SVGPathFigure f) throws IOException {
+    writeDOM(parent, null, () -> writePolylineElement(f));
+  }
+
+  /** @deprecated Use {@link #writePolylineElement(SVGPathFigure)}. */
+  @Deprecated
+  protected Element createPolyline(
+      Element doc, Point2D.Double[] points, Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writePoly("polyline", formatPoints(points), attributes));
+  }
+
+  /** @deprecated Use {@link #writeLineElement(SVGPathFigure)}. */
+  @Deprecated
+  protected void writeLineElement(Element parent, SVGPathFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeLineElement(f));
+  }
+
+  /** @deprecated Use {@link #writeLine}. */
+  @Deprecated
+  protected Element createLine(
+      Element doc,
+      double x1,
+      double y1,
+      double x2,
+      double y2,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeLine(x1, y1, x2, y2, attributes));
+  }
+
+  /** @deprecated Use {@link #writeRectElement(SVGRectFigure)}. */
+  @Deprecated
+  protected void writeRectElement(Element parent, SVGRectFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeRectElement(f));
+  }
+
+  /** @deprecated Use {@link #writeRect}. */
+  @Deprecated
+  protected Element createRect(
+      Element doc,
+      double x,
+      double y,
+      double width,
+      double height,
+      double rx,
+      double ry,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeRect(x, y, width, height, rx, ry, attributes));
+  }
+
+  /** @deprecated Use {@link #writeTextElement(SVGTextFigure)}. */
+  @Deprecated
+  protected void writeTextElement(Element parent, SVGTextFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeTextElement(f));
+  }
+
+  /** @deprecated Use {@link #writeText}. */
+  @Deprecated
+  protected Element createText(
+      Element doc,
+      Point2D.Double[] coordinates,
+      double[] rotate,
+      StyledDocument text,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeText(coordinates, rotate, text, attributes));
+  }
+
+  /** @deprecated Use {@link #writeTextAreaElement(SVGTextAreaFigure)}. */
+  @Deprecated
+  protected void writeTextAreaElement(Element parent, SVGTextAreaFigure f) throws IOException {
+    writeDOM(parent, null, () -> writeTextAreaElement(f));
+  }
+
+  /** @deprecated Use {@link #writeTextArea}. */
+  @Deprecated
+  protected Element createTextArea(
+      Element doc,
+      double x,
+      double y,
+      double w,
+      double h,
+      StyledDocument text,
+      Map<AttributeKey<?>, Object> attributes)
+      throws IOException {
+    return createDOM(doc, () -> writeTextArea(x, y, w, h, text, attributes));
+  }
+
+  /** @deprecated Use {@link #writeShapeAttributes(Map)}. */
+  @Deprecated
+  protected void writeShapeAttributes(Element elem, Map<AttributeKey<?>, Object> m)
+      throws IOException {
+    writeDOM(null, elem, () -> writeShapeAttributes(m));
+  }
+
+  /** @deprecated Use {@link #writeOpacityAttribute(Map)}. */
+  @Deprecated
+  protected void writeOpacityAttribute(Element elem, Map<AttributeKey<?>, Object> m)
+      throws IOException {
+    writeDOM(null, elem, () -> writeOpacityAttribute(m));
+  }
+
+  /** @deprecated Use {@link #writeTransformAttribute(Map)}. */
+  @Deprecated
+  protected void writeTransformAttribute(Element elem, Map<AttributeKey<?>, Object> a)
+      throws IOException {
+    writeDOM(null, elem, () -> writeTransformAttribute(a));
+  }
+
+  /** @deprecated Use {@link #writeAttribute(String, String, String)}. */
+  @Deprecated
+  protected void writeAttribute(Element elem, String name, String value, String defaultValue) {
+    writeAttribute(elem, name, SVG_NAMESPACE, value, defaultValue);
+  }
+
+  /** @deprecated Use {@link #writeAttribute(String, String, String)}. */
+  @Deprecated
+  protected void writeAttribute(
+      Element elem, String name, String namespace, String value, String defaultValue) {
+    if (!value.equals(defaultValue)) {
+      elem.setAttribute(name, value);
+    }
+  }
+
+  /** @deprecated Use {@link #writeAttribute(String, double, double)}. */
+  @Deprecated
+  protected void writeAttribute(Element elem, String name, double value, double defaultValue) {
+    writeAttribute(elem, name, SVG_NAMESPACE, value, defaultValue);
+  }
+
+  /** @deprecated Use {@link #writeAttribute(String, double, double)}. */
+  @Deprecated
+  protected void writeAttribute(
+      Element elem, String name, String namespace, double value, double defaultValue) {
+    if (value != defaultValue) {
+      elem.setAttribute(name, formatNumber(value));
+    }
+  }
+
+  /**
+   * Gets a unique ID for the specified element.
+   *
+   * @deprecated The document is no longer built as a DOM.
+   */
+  @Deprecated
+  public String getId(Element element) {
+    if (identifiedElements == null) {
+      identifiedElements = new HashMap<Element, String>();
+    }
+    String id = identifiedElements.get(element);
+    if (id == null) {
+      id = Integer.toString(nextId++, Character.MAX_RADIX);
+      identifiedElements.put(element, id);
+    }
+    return id;
+  }
+
+  /** Writes into a DOM element or into a DOM attribute target, instead of the stream. */
+  private void writeDOM(Node parent, Element elem, DOMWriter w) throws IOException {
+    Node oldParent = domParent;
+    Element oldElement = domElement;
+    boolean isNewContext = gradientToIDMap == null;
+    if (isNewContext) {
+      gradientToIDMap = new LinkedHashMap<Gradient, String>();
+    }
+    domParent = parent;
+    domElement = elem;
+    try {
+      w.write();
+    } finally {
+      domParent = oldParent;
+      domElement = oldElement;
+      if (isNewContext) {
+        gradientToIDMap = null;
+      }
+    }
+  }
+
+  /** Writes a single element into a DOM and returns it. */
+  private Element createDOM(Element doc, DOMWriter w) throws IOException {
+    DocumentFragment fragment = doc.getOwnerDocument().createDocumentFragment();
+    writeDOM(fragment, null, w);
+    return (Element) fragment.getFirstChild();
+  }
+
+  private interface DOMWriter {
+
+    void write() throws IOException;
+  }
+
   @Override
   public String getFileExtension() {
     return "svg";
@@ -1307,61 +1574,109 @@ public class SVGOutputFormat implements OutputFormat {
     write(out, drawing, drawing.getChildren());
   }
 
-  /** All other write methods delegate their work to here. */
+  /**
+   * All other write methods delegate their work to here. The output stream is flushed but not
+   * closed.
+   */
   public void write(OutputStream out, Drawing drawing, java.util.List<Figure> figures)
       throws IOException {
-    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder dBuilder;
+    initStorageContext(figures);
     try {
-      dBuilder = dbFactory.newDocumentBuilder();
-    } catch (ParserConfigurationException ex) {
-      Logger.getLogger(ImageMapOutputFormat.class.getName()).log(Level.SEVERE, null, ex);
-      throw new IOException(ex);
+      writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      startElement("svg");
+      writer.writeDefaultNamespace(SVG_NAMESPACE);
+      writer.writeNamespace("xlink", XLINK_NAMESPACE);
+      writeAttribute("version", "1.2", null);
+      writeAttribute("baseProfile", "tiny", null);
+      writeViewportAttributes(drawing.attr().getAttributes());
+      writeDefs();
+      for (Figure f : figures) {
+        writeElement(f);
+      }
+      endElement();
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      writer = null;
+      gradientToIDMap = null;
     }
-    Document doc = dBuilder.newDocument();
-    document = doc.createElementNS(SVG_NAMESPACE, "svg");
-    document.setAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
-    document.setAttribute("version", "1.2");
-    document.setAttribute("baseProfile", "tiny");
-    writeViewportAttributes(document, drawing.attr().getAttributes());
-    initStorageContext(document);
-    defs = doc.createElement("defs");
-    document.appendChild(defs);
+  }
+
+  /**
+   * Assigns ids to the gradients of the figures, so that they can be written into the defs
+   * element before the figures which refer to them.
+   */
+  private void initStorageContext(java.util.List<Figure> figures) {
+    nextId = 0;
+    depth = 0;
+    gradientToIDMap = new LinkedHashMap<Gradient, String>();
+    collectGradients(figures);
+  }
+
+  private void collectGradients(java.util.List<Figure> figures) {
     for (Figure f : figures) {
-      writeElement(document, f);
-    }
-    // Write XML prolog
-    PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
-    writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-    // Write XML content
-    Transformer t;
-    try {
-      t = TransformerFactory.newInstance().newTransformer();
-      if (isPrettyPrint) {
-        t.setOutputProperty(OutputKeys.INDENT, "yes");
+      if (f instanceof SVGGroupFigure) {
+        collectGradients(((SVGGroupFigure) f).getChildren());
+      } else {
+        addGradient(f.attr().get(FILL_GRADIENT));
+        addGradient(f.attr().get(STROKE_GRADIENT));
       }
-      t.transform(new DOMSource(document), new StreamResult(out));
-    } catch (TransformerException ex) {
-      Logger.getLogger(SVGOutputFormat.class.getName()).log(Level.SEVERE, null, ex);
     }
-    // Flush writer
-    writer.flush();
   }
 
-  private void initStorageContext(Element root) {
-    identifiedElements = new HashMap<Element, String>();
-    gradientToIDMap = new HashMap<Gradient, String>();
+  private String getGradientId(Gradient gradient) {
+    addGradient(gradient);
+    return gradientToIDMap.get(gradient);
   }
 
-  /** Gets a unique ID for the specified element. */
-  public String getId(Element element) {
-    if (identifiedElements.containsKey(element)) {
-      return identifiedElements.get(element);
-    } else {
-      String id = Integer.toString(nextId++, Character.MAX_RADIX);
-      identifiedElements.put(element, id);
-      return id;
+  private void addGradient(Gradient gradient) {
+    if (gradient != null && !gradientToIDMap.containsKey(gradient)) {
+      gradientToIDMap.put(gradient, Integer.toString(nextId++, Character.MAX_RADIX));
+    }
+  }
+
+  /** Writes the defs element with the gradients of the figures. */
+  private void writeDefs() throws IOException {
+    if (gradientToIDMap.isEmpty()) {
+      return;
+    }
+    startElement("defs");
+    for (Map.Entry<Gradient, String> entry : gradientToIDMap.entrySet()) {
+      Gradient gradient = entry.getKey();
+      if (gradient instanceof LinearGradient) {
+        LinearGradient lg = (LinearGradient) gradient;
+        writeLinearGradient(
+            entry.getValue(),
+            lg.getX1(),
+            lg.getY1(),
+            lg.getX2(),
+            lg.getY2(),
+            lg.getStopOffsets(),
+            lg.getStopColors(),
+            lg.getStopOpacities(),
+            lg.isRelativeToFigureBounds(),
+            lg.getTransform());
+      } else /*if (gradient instanceof RadialGradient)*/ {
+        RadialGradient rg = (RadialGradient) gradient;
+        writeRadialGradient(
+            entry.getValue(),
+            rg.getCX(),
+            rg.getCY(),
+            rg.getFX(),
+            rg.getFY(),
+            rg.getR(),
+            rg.getStopOffsets(),
+            rg.getStopColors(),
+            rg.getStopOpacities(),
+            rg.isRelativeToFigureBounds(),
+            rg.getTransform());
+      }
     }
+    endElement();
   }
 
   @Override
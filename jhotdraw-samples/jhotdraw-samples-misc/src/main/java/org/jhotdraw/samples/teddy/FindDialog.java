@@ -6,28 +6,78 @@
 package org.jhotdraw.samples.teddy;
 
 import java.awt.*;
+import java.awt.event.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.prefs.*;
+import java.util.regex.PatternSyntaxException;
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.*;
 import javax.swing.text.*;
 import org.jhotdraw.api.app.Application;
+import org.jhotdraw.samples.teddy.regex.MatchFinder;
 import org.jhotdraw.samples.teddy.regex.MatchType;
-import org.jhotdraw.samples.teddy.regex.Matcher;
+import org.jhotdraw.samples.teddy.text.PieceTableDocument;
 import org.jhotdraw.undo.CompositeEdit;
 import org.jhotdraw.util.*;
 import org.jhotdraw.util.prefs.*;
 
 /**
+ * The find dialog searches the active view.
+ *
+ * <p>While the dialog is visible, all matches of the find string are searched in the background
+ * and are highlighted in the view as they are found. The search is repeated when the find string,
+ * the options or the document of the view change. Next, previous and replace all use the matches
+ * of the search.
+ *
  * @author werni
  */
 public class FindDialog extends javax.swing.JDialog {
 
   private static final long serialVersionUID = 1L;
   private Application app;
-  private Matcher matcher;
   private Preferences prefs;
   private ResourceBundleUtil labels;
 
+  /** The finder of the current search, or null if there is no current search. */
+  private MatchFinder finder;
+
+  /** The view which is searched. */
+  private TeddyView searchedView;
+
+  /** The text of the document of the searched view, or null if it has not been read. */
+  private CharSequence searchedText;
+
+  /** The background search, or null if the search has not been started in the background. */
+  private SwingWorker<int[], int[]> searchWorker;
+
+  /** The matches which have been found so far, and the number of valid entries. */
+  private int[] matches = new int[0];
+
+  private int matchesLength;
+  private boolean isSearchComplete;
+
+  /** Restarts the search when the user pauses typing. */
+  private Timer searchTimer;
+
+  private DocumentListener documentHandler = new DocumentListener() {
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+      documentChanged();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+      documentChanged();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {}
+  };
+
   /** Creates new form FindDialog */
   private FindDialog(Frame parent, boolean modal) {
     super(parent, modal);
@@ -40,7 +90,8 @@ public class FindDialog extends javax.swing.JDialog {
     modeCombo.setModel(new DefaultComboBoxModel(new Object[] {
       labels.getString("find.contains.text"),
       labels.getString("find.startsWith.text"),
-      labels.getString("find.word.text")
+      labels.getString("find.word.text"),
+      labels.getString("find.regex.text")
     }));
     ignoreCaseCheck.setSelected(prefs.getBoolean("find.ignoreCase", true));
     wrapAroundCheck.setSelected(prefs.getBoolean("find.wrapAround", true));
@@ -64,6 +115,39 @@ public class FindDialog extends javax.swing.JDialog {
     im.setParent(replaceField.getInputMap(JComponent.WHEN_FOCUSED));
     replaceField.setInputMap(JComponent.WHEN_FOCUSED, im);
     pack();
+    searchTimer = new Timer(150, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent evt) {
+        startSearch();
+      }
+    });
+    searchTimer.setRepeats(false);
+    findField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {}
+    });
+    addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentShown(ComponentEvent evt) {
+        searchTimer.restart();
+      }
+
+      @Override
+      public void componentHidden(ComponentEvent evt) {
+        searchTimer.stop();
+        stopSearch();
+      }
+    });
   }
 
   /** Creates new form FindDialog */
@@ -254,6 +338,9 @@ public class FindDialog extends javax.swing.JDialog {
     if (prefs != null) {
       prefs.putInt("find.mode", modeCombo.getSelectedIndex());
     }
+    if (searchTimer != null) {
+      searchTimer.restart();
+    }
   } // GEN-LAST:event_modeChanged
 
   private void wrapAroundPerformed(
@@ -268,6 +355,7 @@ public class FindDialog extends javax.swing.JDialog {
     if (prefs != null) {
       prefs.putBoolean("find.ignoreCase", ignoreCaseCheck.isSelected());
     }
+    searchTimer.restart();
   } // GEN-LAST:event_ignoreCasePerformed
 
   private void replace(java.awt.event.ActionEvent evt) { // GEN-FIRST:event_replace
@@ -294,17 +382,16 @@ public class FindDialog extends javax.swing.JDialog {
   private void previous(java.awt.event.ActionEvent evt) { // GEN-FIRST:event_previous
     TeddyView view = ((TeddyView) app.getActiveView());
     if (view != null) {
-      updateMatcher();
-      if (matcher != null) {
-        matcher.setStartIndex(view.getSelectionStart() - 1);
-        int pos = matcher.findPrevious();
-        if (pos == -1 && wrapAroundCheck.isSelected()) {
-          pos = matcher.findPrevious(view.getDocument().getLength());
+      int[] found = getMatches(view);
+      if (found != null) {
+        int i = MatchFinder.indexOfPrevious(found, found.length, view.getSelectionStart());
+        if (i == -1 && wrapAroundCheck.isSelected()) {
+          i = found.length - 2;
         }
-        if (pos == -1) {
+        if (i < 0) {
           getToolkit().beep();
         } else {
-          view.select(pos, matcher.getFindString().length() + pos);
+          view.select(found[i], found[i + 1]);
         }
       }
     }
@@ -313,16 +400,16 @@ public class FindDialog extends javax.swing.JDialog {
   private void next(java.awt.event.ActionEvent evt) { // GEN-FIRST:event_next
     TeddyView view = ((TeddyView) app.getActiveView());
     if (view != null) {
-      updateMatcher();
-      if (matcher != null) {
-        int pos = matcher.findNext(view.getSelectionEnd());
-        if (pos == -1 && wrapAroundCheck.isSelected()) {
-          pos = matcher.findNext(0);
+      int[] found = getMatches(view);
+      if (found != null) {
+        int i = MatchFinder.indexOfNext(found, found.length, view.getSelectionEnd());
+        if (i == -1 && wrapAroundCheck.isSelected() && found.length > 0) {
+          i = 0;
         }
-        if (pos == -1) {
+        if (i == -1) {
           getToolkit().beep();
         } else {
-          view.select(pos, matcher.getFindString().length() + pos);
+          view.select(found[i], found[i + 1]);
         }
       }
     }
@@ -331,46 +418,215 @@ public class FindDialog extends javax.swing.JDialog {
   private void replaceAll(java.awt.event.ActionEvent evt) { // GEN-FIRST:event_replaceAll
     TeddyView view = ((TeddyView) app.getActiveView());
     if (view != null) {
-      updateMatcher();
-      if (matcher != null) {
-        int pos = matcher.findNext((wrapAroundCheck.isSelected()) ? 0 : view.getSelectionEnd());
-        if (pos == -1) {
+      int[] found = getMatches(view);
+      if (found != null) {
+        int first =
+            MatchFinder.indexOfNext(
+                found, found.length, (wrapAroundCheck.isSelected()) ? 0 : view.getSelectionEnd());
+        if (first == -1) {
           getToolkit().beep();
         } else {
           CompositeEdit edit = new CompositeEdit("Replace All");
           view.fireEdit(edit);
-          view.select(pos, matcher.getFindString().length() + pos);
-          do {
-            view.replaceRange(
-                replaceField.getText(), pos, pos + matcher.getFindString().length());
-            pos = matcher.findNext(pos + replaceField.getText().length());
-          } while (pos != -1);
+          view.select(found[first], found[first + 1]);
+          // Replace from the end, so that the offsets of the remaining
+          // matches stay valid.
+          for (int i = found.length - 2; i >= first; i -= 2) {
+            view.replaceRange(replaceField.getText(), found[i], found[i + 1]);
+          }
           view.fireEdit(edit);
         }
       }
     }
   } // GEN-LAST:event_replaceAll
 
-  private void updateMatcher() {
-    TeddyView view = ((TeddyView) app.getActiveView());
-    if (view != null) {
-      MatchType matchType;
-      switch (modeCombo.getSelectedIndex()) {
-        case 0:
-          matchType = MatchType.CONTAINS;
-          break;
-        case 1:
-          matchType = MatchType.STARTS_WITH;
-          break;
-        case 2:
-        default:
-          matchType = MatchType.FULL_WORD;
-          break;
+  /**
+   * Returns a new finder for the find string and the options of the dialog.
+   *
+   * @return the finder, or null if the find string is empty or is not a valid regular expression
+   */
+  private MatchFinder createFinder() {
+    MatchType matchType;
+    switch (modeCombo.getSelectedIndex()) {
+      case 0:
+        matchType = MatchType.CONTAINS;
+        break;
+      case 1:
+        matchType = MatchType.STARTS_WITH;
+        break;
+      case 3:
+        matchType = MatchType.REGEX;
+        break;
+      case 2:
+      default:
+        matchType = MatchType.FULL_WORD;
+        break;
+    }
+    String findString = findField.getText();
+    if (findString.isEmpty()) {
+      return null;
+    }
+    try {
+      return new MatchFinder(findString, !ignoreCaseCheck.isSelected(), matchType);
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+  }
+
+  /** Returns true if the current search has been made with the specified finder settings. */
+  private boolean isCurrentSearch(TeddyView view, MatchFinder newFinder) {
+    return finder != null
+        && newFinder != null
+        && view == searchedView
+        && finder.getMatchType() == newFinder.getMatchType()
+        && finder.isMatchCase() == newFinder.isMatchCase()
+        && finder.getFindString().equals(newFinder.getFindString());
+  }
+
+  /**
+   * Returns all matches in the active view. If the search is still running in the background, this
+   * method waits until it is complete. If there is no current search, the view is searched
+   * immediately.
+   *
+   * @return the start and end offsets of the matches, or null if there is nothing to search for
+   */
+  private int[] getMatches(TeddyView view) {
+    MatchFinder newFinder = createFinder();
+    if (newFinder == null) {
+      stopSearch();
+      getToolkit().beep();
+      return null;
+    }
+    if (!isCurrentSearch(view, newFinder)) {
+      setSearch(view, newFinder);
+      setMatches(finder.findAll(getSearchedText()));
+    } else if (!isSearchComplete) {
+      try {
+        setMatches(searchWorker.get());
+      } catch (InterruptedException | ExecutionException e) {
+        setMatches(finder.findAll(getSearchedText()));
+      }
+    }
+    return matches;
+  }
+
+  /** Starts the search for the current find string in the background. */
+  private void startSearch() {
+    TeddyView view = (app == null || !isVisible()) ? null : (TeddyView) app.getActiveView();
+    MatchFinder newFinder = (view == null) ? null : createFinder();
+    if (newFinder == null) {
+      stopSearch();
+      return;
+    }
+    if (isCurrentSearch(view, newFinder)) {
+      return;
+    }
+    setSearch(view, newFinder);
+    final MatchFinder workerFinder = finder;
+    final CharSequence text = getSearchedText();
+    searchWorker = new SwingWorker<int[], int[]>() {
+      @Override
+      protected int[] doInBackground() {
+        return workerFinder.findAll(text, this::publish);
+      }
+
+      @Override
+      protected void process(List<int[]> batches) {
+        if (searchWorker == this && !isSearchComplete) {
+          for (int[] batch : batches) {
+            addMatches(batch);
+          }
+        }
+      }
+
+      @Override
+      protected void done() {
+        if (searchWorker == this && !isSearchComplete) {
+          try {
+            setMatches(get());
+          } catch (InterruptedException | ExecutionException | CancellationException e) {
+            // The search has been cancelled or failed, there is nothing to show
+          }
+        }
+      }
+    };
+    searchWorker.execute();
+  }
+
+  /** Makes the specified finder the current search, and cancels the previous search. */
+  private void setSearch(TeddyView view, MatchFinder newFinder) {
+    stopSearch();
+    finder = newFinder;
+    searchedView = view;
+    searchedView.getDocument().addDocumentListener(documentHandler);
+  }
+
+  /** Cancels the current search, and removes the highlights of its matches. */
+  private void stopSearch() {
+    if (finder != null) {
+      finder.cancel();
+      finder = null;
+    }
+    if (searchWorker != null) {
+      searchWorker.cancel(false);
+      searchWorker = null;
+    }
+    if (searchedView != null) {
+      searchedView.getDocument().removeDocumentListener(documentHandler);
+      searchedView.setMatchHighlights(null, 0);
+      searchedView = null;
+    }
+    searchedText = null;
+    matches = new int[0];
+    matchesLength = 0;
+    isSearchComplete = false;
+  }
+
+  /**
+   * Returns the text of the document of the searched view. The text of a piece table is not
+   * copied, other documents are copied once per search.
+   */
+  private CharSequence getSearchedText() {
+    if (searchedText == null) {
+      Document doc = searchedView.getDocument();
+      if (doc instanceof PieceTableDocument) {
+        searchedText = ((PieceTableDocument) doc).getCharSequence();
+      } else {
+        Segment text = new Segment();
+        try {
+          doc.getText(0, doc.getLength(), text);
+        } catch (BadLocationException e) {
+          throw new InternalError(e);
+        }
+        searchedText = text;
       }
-      matcher = new Matcher(
-          view.getDocument(), findField.getText(), !ignoreCaseCheck.isSelected(), matchType);
-    } else {
-      matcher = null;
+    }
+    return searchedText;
+  }
+
+  /** Adds matches of the search which is running in the background. */
+  private void addMatches(int[] batch) {
+    if (matchesLength + batch.length > matches.length) {
+      matches = Arrays.copyOf(matches, Math.max(matches.length * 2, matchesLength + batch.length));
+    }
+    System.arraycopy(batch, 0, matches, matchesLength, batch.length);
+    matchesLength += batch.length;
+    searchedView.setMatchHighlights(matches, matchesLength);
+  }
+
+  /** Sets the matches of the completed search. */
+  private void setMatches(int[] newValue) {
+    matches = newValue;
+    matchesLength = newValue.length;
+    isSearchComplete = true;
+    searchedView.setMatchHighlights(matches, matchesLength);
+  }
+
+  /** The matches are invalid, when the document of the searched view changes. */
+  private void documentChanged() {
+    stopSearch();
+    if (isVisible()) {
+      searchTimer.restart();
     }
   }
 
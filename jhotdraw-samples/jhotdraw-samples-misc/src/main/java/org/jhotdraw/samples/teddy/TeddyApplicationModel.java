@@ -18,6 +18,7 @@ import org.jhotdraw.app.DefaultMenuBuilder;
 import org.jhotdraw.app.action.file.PrintFileAction;
 import org.jhotdraw.gui.JFileURIChooser;
 import org.jhotdraw.samples.teddy.action.FindAction;
+import org.jhotdraw.samples.teddy.action.GoToLineAction;
 import org.jhotdraw.samples.teddy.action.ToggleLineNumbersAction;
 import org.jhotdraw.samples.teddy.action.ToggleLineWrapAction;
 import org.jhotdraw.samples.teddy.action.ToggleStatusBarAction;
@@ -39,6 +40,7 @@ public class TeddyApplicationModel extends DefaultApplicationModel {
     ActionMap m = super.createActionMap(a, v);
     AbstractAction aa;
     m.put(FindAction.ID, new FindAction(a, v));
+    m.put(GoToLineAction.ID, new GoToLineAction(a, v));
     m.put(ToggleLineWrapAction.ID, new ToggleLineWrapAction(a, v));
     m.put(ToggleStatusBarAction.ID, new ToggleStatusBarAction(a, v));
     m.put(ToggleLineNumbersAction.ID, new ToggleLineNumbersAction(a, v));
@@ -53,6 +55,12 @@ public class TeddyApplicationModel extends DefaultApplicationModel {
   @Override
   protected MenuBuilder createMenuBuilder() {
     return new DefaultMenuBuilder() {
+      @Override
+      public void addOtherEditItems(JMenu m, Application app, View v) {
+        ActionMap am = app.getActionMap(v);
+        m.add(am.get(GoToLineAction.ID));
+      }
+
       @Override
       public void addOtherViewItems(JMenu m, Application app, View v) {
         ActionMap am = app.getActionMap(v);
@@ -13,6 +13,7 @@ import java.beans.*;
 import java.io.*;
 import java.lang.reflect.*;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.prefs.*;
 import javax.swing.*;
 import javax.swing.event.*;
@@ -104,6 +105,11 @@ public class TeddyView extends AbstractView {
   /** The Matcher used to perform find operation. */
   private Matcher matcher;
 
+  /** Paints the matches of the find dialog. */
+  private MatchHighlightPainter matchPainter;
+
+  private Object matchHighlight;
+
   public TeddyView() {
     prefs = PreferencesUtil.userNodeForPackage(TeddyView.class);
     initComponents();
@@ -262,33 +268,18 @@ public class TeddyView extends AbstractView {
     }
   }
 
-  /** Reads a document from a file using the specified character set. */
+  /**
+   * Reads a document from a file using the specified character set. The file is mapped into
+   * memory if possible, and the lines of the document are built in a single pass.
+   */
   private Document readDocument(File f, String characterSet) throws IOException {
-    ProgressMonitorInputStream pin =
-        new ProgressMonitorInputStream(this, "Reading " + f.getName(), new FileInputStream(f));
-    BufferedReader in = new BufferedReader(new InputStreamReader(pin, characterSet));
     try {
-      // PlainDocument doc = new PlainDocument();
-      StyledDocument doc = createDocument();
       MutableAttributeSet attrs = ((StyledEditorKit) editor.getEditorKit()).getInputAttributes();
-      String line;
-      boolean isFirst = true;
-      while ((line = in.readLine()) != null) {
-        if (isFirst) {
-          isFirst = false;
-        } else {
-          doc.insertString(doc.getLength(), "\n", attrs);
-        }
-        doc.insertString(doc.getLength(), line, attrs);
-      }
-      return doc;
-    } catch (BadLocationException e) {
-      throw new IOException(e.getMessage());
+      return new PieceTableDocument(
+          PieceTableContent.read(f, Charset.forName(characterSet)), attrs);
     } catch (OutOfMemoryError e) {
       System.err.println("out of memory!");
       throw new IOException("Out of memory.");
-    } finally {
-      in.close();
     }
   }
 
@@ -313,24 +304,31 @@ public class TeddyView extends AbstractView {
   }
 
   protected StyledDocument createDocument() {
-    DefaultStyledDocument doc = new DefaultStyledDocument();
-    doc.setParagraphAttributes(
-        0, 1, ((StyledEditorKit) editor.getEditorKit()).getInputAttributes(), true);
-    return doc;
+    return new PieceTableDocument(
+        ((StyledEditorKit) editor.getEditorKit()).getInputAttributes());
   }
 
   /** Writes a document into a file using the specified character set. */
   private void writeDocument(Document doc, File f, String characterSet, String lineSeparator)
       throws IOException {
+    if (doc instanceof PieceTableDocument) {
+      ((PieceTableDocument) doc).detach(f);
+    }
     LFWriter out = new LFWriter(new OutputStreamWriter(new FileOutputStream(f), characterSet));
     out.setLineSeparator(lineSeparator);
     try {
-      String sequence;
-      for (int i = 0; i < doc.getLength(); i += 256) {
-        out.write(doc.getText(i, Math.min(256, doc.getLength() - i)));
+      // Write the text directly from the storage of the document
+      Segment text = new Segment();
+      text.setPartialReturn(true);
+      for (int i = 0, n = doc.getLength(); i < n; i += text.count) {
+        doc.getText(i, n - i, text);
+        out.write(text.array, text.offset, text.count);
       }
     } catch (BadLocationException e) {
       throw new IOException(e.getMessage());
+    } catch (UncheckedIOException e) {
+      // The text is mapped from a file which has been truncated by another program
+      throw e.getCause();
     } finally {
       out.close();
       undoManager.discardAllEdits();
@@ -393,10 +391,20 @@ public class TeddyView extends AbstractView {
    * @return the number of lines &gt; 0
    */
   public int getLineCount() {
+    LineIndex index = getLineIndex();
+    if (index != null) {
+      return index.getLineCount();
+    }
     Element map = getDocument().getDefaultRootElement();
     return map.getElementCount();
   }
 
+  /** Returns the line index of the document, or null if the document has no line index. */
+  private LineIndex getLineIndex() {
+    Document doc = getDocument();
+    return (doc instanceof PieceTableDocument) ? ((PieceTableDocument) doc).getLineIndex() : null;
+  }
+
   /**
    * Accessor for text area. This is used by Actions that need to act on the text area of the View.
    */
@@ -430,6 +438,8 @@ public class TeddyView extends AbstractView {
       throw new BadLocationException("Can't translate offset to line", -1);
     } else if (offset > doc.getLength()) {
       throw new BadLocationException("Can't translate offset to line", doc.getLength() + 1);
+    } else if (getLineIndex() != null) {
+      return getLineIndex().getLineOfOffset(offset);
     } else {
       Element map = getDocument().getDefaultRootElement();
       return map.getElementIndex(offset);
@@ -446,6 +456,8 @@ public class TeddyView extends AbstractView {
       throw new BadLocationException("Negative line", -1);
     } else if (line >= lineCount) {
       throw new BadLocationException("No such line", getDocument().getLength() + 1);
+    } else if (getLineIndex() != null) {
+      return getLineIndex().getLineStartOffset(line);
     } else {
       Element map = getDocument().getDefaultRootElement();
       Element lineElem = map.getElement(line);
@@ -453,6 +465,32 @@ public class TeddyView extends AbstractView {
     }
   }
 
+  /**
+   * Highlights the matches of a search in the text area.
+   *
+   * @param matches the start and end offsets of the matches, or null to remove the highlights
+   * @param length the number of valid entries in the array
+   */
+  public void setMatchHighlights(int[] matches, int length) {
+    Highlighter highlighter = editor.getHighlighter();
+    if (matchHighlight != null) {
+      highlighter.removeHighlight(matchHighlight);
+      matchHighlight = null;
+    }
+    if (matches != null && length > 0) {
+      if (matchPainter == null) {
+        matchPainter = new MatchHighlightPainter(new Color(0xfff59d));
+      }
+      matchPainter.setMatches(getDocument(), matches, length);
+      try {
+        matchHighlight = highlighter.addHighlight(0, 0, matchPainter);
+      } catch (BadLocationException e) {
+        throw new InternalError(e);
+      }
+    }
+    editor.repaint();
+  }
+
   public void fireEdit(UndoableEdit edit) {
     undoManager.addEdit(edit);
   }
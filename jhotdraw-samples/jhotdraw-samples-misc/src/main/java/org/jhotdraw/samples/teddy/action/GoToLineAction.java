@@ -0,0 +1,66 @@
+/*
+ * @(#)GoToLineAction.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.action;
+
+import java.awt.event.*;
+import javax.swing.JOptionPane;
+import javax.swing.text.BadLocationException;
+import org.jhotdraw.action.AbstractViewAction;
+import org.jhotdraw.api.app.Application;
+import org.jhotdraw.api.app.View;
+import org.jhotdraw.samples.teddy.TeddyView;
+import org.jhotdraw.util.*;
+
+/** Asks for a line number, and moves the caret to the start of that line. */
+public class GoToLineAction extends AbstractViewAction {
+
+  private static final long serialVersionUID = 1L;
+  public static final String ID = "edit.goToLine";
+  private ResourceBundleUtil labels =
+      ResourceBundleUtil.getBundle("org.jhotdraw.samples.teddy.Labels");
+
+  public GoToLineAction(Application app, View view) {
+    super(app, view);
+    labels.configureAction(this, ID);
+  }
+
+  @Override
+  public TeddyView getActiveView() {
+    return (TeddyView) super.getActiveView();
+  }
+
+  @Override
+  public void actionPerformed(ActionEvent e) {
+    TeddyView view = getActiveView();
+    if (view == null) {
+      return;
+    }
+    try {
+      int currentLine = view.getLineOfOffset(view.getSelectionStart());
+      Object input = JOptionPane.showInputDialog(
+          view.getComponent(),
+          labels.getFormatted("edit.goToLine.message", view.getLineCount()),
+          labels.getString("edit.goToLine.title"),
+          JOptionPane.PLAIN_MESSAGE,
+          null,
+          null,
+          Integer.toString(currentLine + 1));
+      if (input == null) {
+        return;
+      }
+      int line = Integer.parseInt(input.toString().trim()) - 1;
+      line = Math.max(0, Math.min(view.getLineCount() - 1, line));
+      int offset = view.getLineStartOffset(line);
+      view.select(offset, offset);
+    } catch (NumberFormatException ex) {
+      view.getComponent().getToolkit().beep();
+    } catch (BadLocationException ex) {
+      throw new InternalError(ex);
+    }
+  }
+}
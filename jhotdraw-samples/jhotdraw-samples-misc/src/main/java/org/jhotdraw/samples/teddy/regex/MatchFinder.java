@@ -0,0 +1,334 @@
+/*
+ * @(#)MatchFinder.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Finds all occurrences of a text or of a regular expression in a character sequence.
+ *
+ * <p>Texts are searched with the Boyer-Moore-Horspool algorithm, regular expressions with {@link
+ * java.util.regex}. Long character sequences are divided into chunks of {@link #CHUNK_SIZE}
+ * characters, which are searched in parallel. A match belongs to the chunk in which it starts, and
+ * may extend into the following chunks. When the chunks are merged, matches which overlap a
+ * preceding match are dropped, so that the result is the same as if the sequence had been searched
+ * from start to end.
+ *
+ * <p>The matches are returned as an array of offsets, which holds the start and the end offset of
+ * each match in ascending order. While a search is running, the matches can be streamed to a
+ * consumer.
+ *
+ * <p>The character sequence must not be changed during a search. A search can be cancelled from
+ * another thread.
+ *
+ * @see Matcher
+ */
+public class MatchFinder {
+
+  /** The number of characters which are searched by a single task. */
+  public static final int CHUNK_SIZE = 1 << 18;
+
+  /**
+   * The number of characters beyond its chunk, which the search for a regular expression sees at
+   * first. If the matcher hits the end of these characters, the search is repeated on the
+   * remaining text.
+   */
+  private static final int REGEX_OVERLAP = CHUNK_SIZE;
+
+  private final String findString;
+  private final boolean isMatchCase;
+  private final MatchType matchType;
+
+  /** The compiled pattern, if the match type is {@link MatchType#REGEX}. */
+  private final Pattern pattern;
+
+  /** The upper and lower case characters of the find string. */
+  private final char[] matchUpperCase;
+
+  private final char[] matchLowerCase;
+
+  /** The Horspool shift table, indexed by the low byte of a character. */
+  private final int[] shifts;
+
+  private volatile boolean isCancelled;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param findString The string to be searched, or the regular expression.
+   * @param matchCase Set to true for case sensitive search.
+   * @param matchType Sets the match type.
+   * @throws java.util.regex.PatternSyntaxException if the match type is {@link MatchType#REGEX}
+   *     and the find string is not a valid regular expression.
+   */
+  public MatchFinder(String findString, boolean matchCase, MatchType matchType) {
+    this.findString = findString;
+    this.isMatchCase = matchCase;
+    this.matchType = matchType;
+    if (matchType == MatchType.REGEX) {
+      pattern = Pattern.compile(
+          findString, matchCase ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+      matchUpperCase = matchLowerCase = null;
+      shifts = null;
+    } else {
+      pattern = null;
+      int m = findString.length();
+      matchUpperCase = new char[m];
+      matchLowerCase = new char[m];
+      for (int i = 0; i < m; i++) {
+        char c = findString.charAt(i);
+        matchUpperCase[i] = matchCase ? c : Character.toUpperCase(c);
+        matchLowerCase[i] = matchCase ? c : Character.toLowerCase(c);
+      }
+      // Characters which share the low byte share a table entry. Since
+      // later entries have smaller shifts, each entry holds the smallest
+      // shift of its characters, which is always safe.
+      shifts = new int[256];
+      Arrays.fill(shifts, Math.max(m, 1));
+      for (int i = 0; i < m - 1; i++) {
+        shifts[matchUpperCase[i] & 0xff] = m - 1 - i;
+        shifts[matchLowerCase[i] & 0xff] = m - 1 - i;
+      }
+    }
+  }
+
+  public String getFindString() {
+    return findString;
+  }
+
+  public boolean isMatchCase() {
+    return isMatchCase;
+  }
+
+  public MatchType getMatchType() {
+    return matchType;
+  }
+
+  /** Cancels the search which is currently running. A cancelled finder can not be used again. */
+  public void cancel() {
+    isCancelled = true;
+  }
+
+  /**
+   * Finds all matches in the specified text.
+   *
+   * @param text the text
+   * @return the start and end offsets of the matches
+   * @throws CancellationException if the search has been cancelled
+   */
+  public int[] findAll(CharSequence text) {
+    return findAll(text, null);
+  }
+
+  /**
+   * Finds all matches in the specified text, and streams them to the specified consumer while the
+   * search is running. The consumer is invoked on the current thread with the start and end
+   * offsets of the matches of each chunk in ascending order.
+   *
+   * @param text the text
+   * @param consumer the consumer, or null
+   * @return the start and end offsets of the matches
+   * @throws CancellationException if the search has been cancelled
+   */
+  public int[] findAll(CharSequence text, Consumer<int[]> consumer) {
+    int n = text.length();
+    if (findString.isEmpty() || n == 0) {
+      return new int[0];
+    }
+    ArrayList<CompletableFuture<int[]>> chunks = new ArrayList<>();
+    for (int from = 0; from < n; from += CHUNK_SIZE) {
+      int chunkStart = from;
+      int chunkEnd = (int) Math.min(n, (long) from + CHUNK_SIZE);
+      chunks.add(
+          (n <= CHUNK_SIZE)
+              ? CompletableFuture.completedFuture(findInChunk(text, chunkStart, chunkEnd))
+              : CompletableFuture.supplyAsync(
+                  () -> findInChunk(text, chunkStart, chunkEnd), ForkJoinPool.commonPool()));
+    }
+    int[] matches = new int[16];
+    int count = 0;
+    int previousEnd = 0;
+    try {
+      for (int i = 0; i < chunks.size(); i++) {
+        int[] found = chunks.get(i).join();
+        if (isCancelled) {
+          throw new CancellationException();
+        }
+        int chunkStart = i * CHUNK_SIZE;
+        if (pattern != null && found.length > 0 && found[0] < previousEnd) {
+          // The preceding match extends into this chunk, and the search
+          // from the start of the chunk may have found different matches
+          // than the search which continues after that match.
+          found = findRegex(
+              text, Math.min(previousEnd, n), (int) Math.min(n, (long) chunkStart + CHUNK_SIZE));
+        }
+        int batchStart = count;
+        for (int j = 0; j < found.length; j += 2) {
+          if (found[j] >= previousEnd) {
+            if (count + 2 > matches.length) {
+              matches = Arrays.copyOf(matches, matches.length * 2);
+            }
+            matches[count++] = found[j];
+            matches[count++] = previousEnd = found[j + 1];
+          }
+        }
+        if (consumer != null && count > batchStart) {
+          consumer.accept(Arrays.copyOfRange(matches, batchStart, count));
+        }
+      }
+    } finally {
+      if (isCancelled) {
+        for (CompletableFuture<int[]> chunk : chunks) {
+          chunk.cancel(false);
+        }
+      }
+    }
+    return Arrays.copyOf(matches, count);
+  }
+
+  /** Returns the matches which start in the specified range. */
+  private int[] findInChunk(CharSequence text, int from, int to) {
+    if (isCancelled) {
+      return new int[0];
+    }
+    return (pattern == null) ? findText(text, from, to) : findRegex(text, from, to);
+  }
+
+  /**
+   * Returns all occurrences of the find string which start in the specified range, including
+   * overlapping occurrences.
+   */
+  private int[] findText(CharSequence text, int from, int to) {
+    int m = matchLowerCase.length;
+    int last = m - 1;
+    to = Math.min(to, text.length() - m + 1);
+    int[] found = new int[16];
+    int count = 0;
+    for (int i = from; i < to; ) {
+      char c = text.charAt(i + last);
+      if (matchesAt(text, i) && matchesWord(text, i, i + m)) {
+        if (count + 2 > found.length) {
+          found = Arrays.copyOf(found, found.length * 2);
+        }
+        found[count++] = i;
+        found[count++] = i + m;
+      }
+      i += shifts[c & 0xff];
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  private boolean matchesAt(CharSequence text, int offset) {
+    for (int j = matchLowerCase.length - 1; j >= 0; j--) {
+      char c = text.charAt(offset + j);
+      if (c != matchLowerCase[j] && c != matchUpperCase[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matchesWord(CharSequence text, int start, int end) {
+    switch (matchType) {
+      case STARTS_WITH:
+        return !isWordChar(text, start - 1);
+      case FULL_WORD:
+        return !isWordChar(text, start - 1) && !isWordChar(text, end);
+      case CONTAINS:
+      default:
+        return true;
+    }
+  }
+
+  private static boolean isWordChar(CharSequence text, int index) {
+    return index >= 0 && index < text.length() && Character.isLetterOrDigit(text.charAt(index));
+  }
+
+  /**
+   * Returns the non-overlapping matches of the regular expression which start in the specified
+   * range. Empty matches are skipped.
+   */
+  private int[] findRegex(CharSequence text, int from, int to) {
+    int n = text.length();
+    int regionEnd = (int) Math.min(n, (long) to + REGEX_OVERLAP);
+    java.util.regex.Matcher m = pattern.matcher(text);
+    m.useTransparentBounds(true);
+    m.useAnchoringBounds(false);
+    int[] found = new int[16];
+    int count = 0;
+    for (int pos = from; pos < to && !isCancelled; ) {
+      m.region(pos, regionEnd);
+      boolean isFound = m.find();
+      if (m.hitEnd() && regionEnd < n) {
+        // A match might start earlier or be longer, if the region was longer
+        m.region(pos, n);
+        isFound = m.find();
+      }
+      if (!isFound || m.start() >= to) {
+        break;
+      }
+      int start = m.start();
+      int end = m.end();
+      if (end > start) {
+        if (count + 2 > found.length) {
+          found = Arrays.copyOf(found, found.length * 2);
+        }
+        found[count++] = start;
+        found[count++] = end;
+        pos = end;
+      } else {
+        pos = start + 1;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Returns the index of the first match, which starts at or after the specified offset.
+   *
+   * @param matches the start and end offsets of the matches
+   * @param length the number of valid entries in the array
+   * @param offset the offset
+   * @return the index of the start offset of the match in the array, or -1
+   */
+  public static int indexOfNext(int[] matches, int length, int offset) {
+    int lo = 0;
+    int hi = length / 2;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (matches[mid * 2] < offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return (lo < length / 2) ? lo * 2 : -1;
+  }
+
+  /**
+   * Returns the index of the last match, which starts before the specified offset.
+   *
+   * @param matches the start and end offsets of the matches
+   * @param length the number of valid entries in the array
+   * @param offset the offset
+   * @return the index of the start offset of the match in the array, or -1
+   */
+  public static int indexOfPrevious(int[] matches, int length, int offset) {
+    int next = indexOfNext(matches, length, offset);
+    if (next == -1) {
+      next = length;
+    }
+    return (next > 0) ? next - 2 : -1;
+  }
+}
@@ -11,5 +11,7 @@ package org.jhotdraw.samples.teddy.regex;
 public enum MatchType {
   CONTAINS,
   STARTS_WITH,
-  FULL_WORD
+  FULL_WORD,
+  /** The find string is a regular expression. */
+  REGEX
 }
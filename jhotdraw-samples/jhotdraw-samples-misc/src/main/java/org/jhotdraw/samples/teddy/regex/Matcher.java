@@ -12,6 +12,8 @@ import javax.swing.text.*;
 /**
  * Searches for an occurence of a case (in)sensitive text on a document. This is a rather slow
  * implementation that does not use advanced techniques such as Boyer-Moore.
+ *
+ * <p>Regular expressions are searched with a {@link MatchFinder}.
  */
 public class Matcher {
 
@@ -33,6 +35,9 @@ public class Matcher {
   /** The match type. */
   private MatchType matchType;
 
+  /** The finder of a regular expression, or null. */
+  private MatchFinder finder;
+
   /**
    * Creates a new instance of Matcher which performs a case sensitive search.
    *
@@ -50,6 +55,8 @@ public class Matcher {
    * @param findString The string to be searched.
    * @param matchCase Set to true for case sensitive search.
    * @param matchType Sets the match type.
+   * @throws java.util.regex.PatternSyntaxException if the match type is {@link MatchType#REGEX}
+   *     and the find string is not a valid regular expression.
    */
   public Matcher(Document document, String findString, boolean matchCase, MatchType matchType) {
     this.document = document;
@@ -63,6 +70,9 @@ public class Matcher {
       matchLowerCase = findString.toLowerCase().toCharArray();
     }
     this.matchType = matchType;
+    if (matchType == MatchType.REGEX) {
+      finder = new MatchFinder(findString, matchCase, matchType);
+    }
   }
 
   public String getFindString() {
@@ -106,6 +116,14 @@ public class Matcher {
    *     offset, or -1 if no occurrence was found.
    */
   public int findNext() {
+    if (finder != null) {
+      if (findString.length() == 0 || startIndex > document.getLength()) {
+        return -1;
+      }
+      int[] matches = finder.findAll(getText(document.getLength()));
+      int i = MatchFinder.indexOfNext(matches, matches.length, startIndex);
+      return (i == -1) ? -1 : matches[i];
+    }
     // Don't match empty strings and don't match if we are at the end of the document.
     if (findString.length() == 0 || document.getLength() - findString.length() < startIndex) {
       return -1;
@@ -187,6 +205,13 @@ public class Matcher {
    *     offset, or -1 if no occurrence was found.
    */
   public int findPrevious() {
+    if (finder != null) {
+      if (findString.length() == 0 || startIndex < 0) {
+        return -1;
+      }
+      int[] matches = finder.findAll(getText(Math.min(startIndex + 1, document.getLength())));
+      return (matches.length == 0) ? -1 : matches[matches.length - 2];
+    }
     // Don't match empty strings and don't match if we are at the beginning of the document.
     if (findString.length() == 0 || startIndex < findString.length() - 1) {
       // System.out.println("too close to start");
@@ -241,6 +266,17 @@ public class Matcher {
     startIndex = 0;
   }
 
+  /** Returns the text of the document from its start up to the specified offset. */
+  private CharSequence getText(int end) {
+    Segment text = new Segment();
+    try {
+      document.getText(0, end, text);
+    } catch (BadLocationException e) {
+      throw new IndexOutOfBoundsException();
+    }
+    return text;
+  }
+
   private boolean isWordChar(int index) {
     try {
       char ch = document.getText(index, 1).charAt(0);
@@ -0,0 +1,154 @@
+/*
+ * @(#)LineIndex.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.text;
+
+import java.util.Arrays;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * The start offsets of the lines of a document.
+ *
+ * <p>A line starts at the beginning of the document, and after each line feed. The start offsets
+ * are kept in a gap buffer. Offsets before the gap are stored as is, offsets after the gap are
+ * stored relative to the end of the document. Thus an edit only has to move the gap to the edited
+ * line, and does not have to update the offsets of the following lines. Since consecutive edits
+ * are usually close to each other, the gap rarely moves far.
+ *
+ * <p>The index must be informed about all changes of the document, before the document listeners
+ * are notified.
+ *
+ * @see PieceTableDocument#getLineIndex
+ */
+public class LineIndex {
+
+  private int[] starts;
+  private int gapStart;
+  private int gapEnd;
+
+  /** The length of the document. */
+  private int length;
+
+  /** The line which has been looked up last. */
+  private int lastLine;
+
+  /**
+   * Creates an index.
+   *
+   * @param starts the start offsets of the lines in ascending order, the first must be 0
+   * @param lineCount the number of lines
+   * @param length the length of the document
+   */
+  public LineIndex(int[] starts, int lineCount, int length) {
+    this.starts = starts;
+    this.gapStart = lineCount;
+    this.gapEnd = starts.length;
+    this.length = length;
+  }
+
+  /** Returns the number of lines. The number is &gt; 0. */
+  public int getLineCount() {
+    return starts.length - (gapEnd - gapStart);
+  }
+
+  /**
+   * Returns the start offset of a line.
+   *
+   * @param line the line, &gt;= 0 and &lt; the line count
+   */
+  public int getLineStartOffset(int line) {
+    return (line < gapStart) ? starts[line] : length - starts[line + gapEnd - gapStart];
+  }
+
+  /**
+   * Returns the line which contains the specified offset. Consecutive lookups of the same or of the
+   * following line are answered without a search.
+   *
+   * @param offset the offset, &gt;= 0 and &lt;= the length of the document
+   */
+  public int getLineOfOffset(int offset) {
+    int count = getLineCount();
+    int line = lastLine;
+    if (line < count && getLineStartOffset(line) <= offset) {
+      if (line + 1 == count || offset < getLineStartOffset(line + 1)) {
+        return line;
+      }
+      if (line + 2 == count || offset < getLineStartOffset(line + 2)) {
+        return lastLine = line + 1;
+      }
+    }
+    int lo = 0;
+    int hi = count - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (getLineStartOffset(mid) <= offset) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lastLine = lo;
+  }
+
+  /** Updates the index after text has been inserted into the document. */
+  public void insertUpdate(DocumentEvent e) {
+    int offset = e.getOffset();
+    int len = e.getLength();
+    moveGap(getLineOfOffset(offset) + 1);
+    Segment s = new Segment();
+    s.setPartialReturn(true);
+    try {
+      for (int done = 0; done < len; done += s.count) {
+        e.getDocument().getText(offset + done, len - done, s);
+        for (int i = 0; i < s.count; i++) {
+          if (s.array[s.offset + i] == '\n') {
+            if (gapStart == gapEnd) {
+              growGap();
+            }
+            starts[gapStart++] = offset + done + i + 1;
+          }
+        }
+      }
+    } catch (BadLocationException ex) {
+      throw new InternalError(ex);
+    }
+    length += len;
+  }
+
+  /** Updates the index after text has been removed from the document. */
+  public void removeUpdate(DocumentEvent e) {
+    int offset = e.getOffset();
+    int end = offset + e.getLength();
+    moveGap(getLineOfOffset(offset) + 1);
+    // Drop the lines which started in the removed text
+    while (gapEnd < starts.length && length - starts[gapEnd] <= end) {
+      gapEnd++;
+    }
+    length -= e.getLength();
+    lastLine = 0;
+  }
+
+  /** Moves the gap, so that the specified number of lines is before the gap. */
+  private void moveGap(int index) {
+    while (gapStart > index) {
+      starts[--gapEnd] = length - starts[--gapStart];
+    }
+    while (gapStart < index) {
+      starts[gapStart++] = length - starts[gapEnd++];
+    }
+  }
+
+  private void growGap() {
+    int[] newStarts = Arrays.copyOf(starts, Math.max(16, starts.length * 2));
+    int tail = starts.length - gapEnd;
+    System.arraycopy(starts, gapEnd, newStarts, newStarts.length - tail, tail);
+    gapEnd = newStarts.length - tail;
+    starts = newStarts;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * @(#)MatchHighlightPainter.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.text;
+
+import java.awt.*;
+import javax.swing.text.*;
+import org.jhotdraw.samples.teddy.regex.MatchFinder;
+
+/**
+ * Highlights the matches of a search.
+ *
+ * <p>The painter is added to the highlighter of a text component once, and paints all matches
+ * regardless of the offsets of its highlight. The matches are held in an array of start and end
+ * offsets as returned by {@link MatchFinder}. Only the matches in the clip bounds are painted, so
+ * that painting is fast even if the document has very many matches.
+ */
+public class MatchHighlightPainter implements Highlighter.HighlightPainter {
+
+  private final Highlighter.HighlightPainter matchPainter;
+  private Document document;
+  private int[] matches = new int[0];
+  private int length;
+
+  public MatchHighlightPainter(Color color) {
+    matchPainter = new DefaultHighlighter.DefaultHighlightPainter(color);
+  }
+
+  /**
+   * Sets the matches. The matches are only painted, while the text component shows the specified
+   * document.
+   *
+   * @param document the document which has been searched
+   * @param matches the start and end offsets of the matches
+   * @param length the number of valid entries in the array
+   */
+  public void setMatches(Document document, int[] matches, int length) {
+    this.document = document;
+    this.matches = matches;
+    this.length = length;
+  }
+
+  @Override
+  public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+    if (length == 0 || c.getDocument() != document) {
+      return;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = bounds.getBounds();
+    }
+    int first = c.viewToModel2D(new Point(0, clip.y));
+    int last = c.viewToModel2D(new Point(c.getWidth(), clip.y + clip.height));
+    int docLength = c.getDocument().getLength();
+    // The match before the first visible offset may extend into the clip
+    int i = Math.max(0, MatchFinder.indexOfPrevious(matches, length, first));
+    for (; i < length; i += 2) {
+      int start = matches[i];
+      int end = matches[i + 1];
+      if (start > last || end > docLength) {
+        break;
+      }
+      if (end >= first) {
+        matchPainter.paint(g, start, end, bounds, c);
+      }
+    }
+  }
+}
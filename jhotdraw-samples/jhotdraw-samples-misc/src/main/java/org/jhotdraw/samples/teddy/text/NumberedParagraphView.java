@@ -42,7 +42,7 @@ public class NumberedParagraphView extends ParagraphView {
         int lineAscent = g.getFontMetrics().getAscent();
         g.setFont(numberFont);
         // int numberAscent = g.getFontMetrics().getAscent();
-        int lineNumber = getDocument().getDefaultRootElement().getElementIndex(getStartOffset());
+        int lineNumber = getLineNumber();
         int numberX = r.x - getLeftInset();
         // int numberY = r.y + g.getFontMetrics().getAscent();
         int numberY = r.y + lineAscent;
@@ -50,4 +50,17 @@ public class NumberedParagraphView extends ParagraphView {
       }
     }
   }
+
+  /**
+   * Returns the line number of this paragraph. The line index of the document is used if
+   * available; the paragraphs are painted from top to bottom, so the index finds the line of the
+   * next paragraph without a search.
+   */
+  private int getLineNumber() {
+    Document doc = getDocument();
+    if (doc instanceof PieceTableDocument) {
+      return ((PieceTableDocument) doc).getLineIndex().getLineOfOffset(getStartOffset());
+    }
+    return doc.getDefaultRootElement().getElementIndex(getStartOffset());
+  }
 }
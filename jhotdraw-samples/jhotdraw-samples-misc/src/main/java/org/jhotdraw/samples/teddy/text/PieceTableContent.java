@@ -0,0 +1,861 @@
+/*
+ * @(#)PieceTableContent.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An implementation of {@link AbstractDocument.Content} which stores the text in a piece table.
+ *
+ * <p>The text is a sequence of pieces. Each piece refers to a range of characters in the original
+ * text, or in an append buffer which holds all inserted characters. Inserting and removing text
+ * only changes the sequence of pieces, the characters themselves are never moved. The original
+ * text can be mapped into memory from a file, so that a large file can be opened without copying
+ * it to the heap.
+ *
+ * <p>Positions follow the same rules as in {@link javax.swing.text.StringContent}: a position
+ * moves when text is inserted at its offset, unless its offset is 0.
+ *
+ * <p>If a mapped file is truncated by another program, reading the missing characters throws an
+ * {@link UncheckedIOException}.
+ *
+ * <p>Like the other content implementations, this class is not thread safe. The document
+ * serializes changes with its write lock. Reads may run concurrently under the read lock, which
+ * is why the most recently located piece is cached in an immutable object.
+ */
+public class PieceTableContent implements AbstractDocument.Content {
+
+  /** The maximal number of characters which are copied for a partial return of mapped text. */
+  private static final int MAX_PARTIAL_COPY = 8192;
+
+  /** The original text. The original text is never modified. */
+  private volatile Source original;
+
+  /** The file from which the original text is mapped, or null. */
+  private File file;
+
+  /** The append buffer. Characters are only appended to the buffer. */
+  private char[] added = new char[256];
+
+  private int addedLength;
+
+  /** The pieces in text order. */
+  private ArrayList<Piece> pieces = new ArrayList<>();
+
+  /** The length of the text, including the implied line break at the end. */
+  private int length;
+
+  /** The most recently located piece. */
+  private volatile PieceCursor cursor = PieceCursor.FIRST;
+
+  /** The marks of the positions sorted by offset. */
+  private ArrayList<Mark> marks = new ArrayList<>();
+
+  private final ReferenceQueue<StickyPosition> queue = new ReferenceQueue<>();
+
+  private int collectedMarks;
+
+  /** A source of characters. */
+  private abstract static class Source {
+
+    abstract int length();
+
+    abstract char charAt(int index);
+
+    /**
+     * Returns an array which holds the characters of the source at the returned offset in the
+     * array, or null if the source is not backed by an array.
+     */
+    abstract char[] array();
+
+    abstract void getChars(int start, int end, char[] dst, int dstBegin);
+
+    /** Checks that the characters can still be read. */
+    void validate() {}
+  }
+
+  private static class CharSource extends Source {
+
+    final char[] chars;
+    final int length;
+
+    CharSource(char[] chars, int length) {
+      this.chars = chars;
+      this.length = length;
+    }
+
+    @Override
+    int length() {
+      return length;
+    }
+
+    @Override
+    char charAt(int index) {
+      return chars[index];
+    }
+
+    @Override
+    char[] array() {
+      return chars;
+    }
+
+    @Override
+    void getChars(int start, int end, char[] dst, int dstBegin) {
+      System.arraycopy(chars, start, dst, dstBegin, end - start);
+    }
+  }
+
+  /** A source of bytes in a single byte character set. */
+  private static class ByteSource extends Source {
+
+    final ByteBuffer bytes;
+    final char[] table;
+    final File file;
+
+    /** The channel of the file. It is kept open to detect when the file is truncated. */
+    final FileChannel channel;
+
+    ByteSource(ByteBuffer bytes, char[] table, File file, FileChannel channel) {
+      this.bytes = bytes;
+      this.table = table;
+      this.file = file;
+      this.channel = channel;
+    }
+
+    @Override
+    int length() {
+      return bytes.limit();
+    }
+
+    @Override
+    char charAt(int index) {
+      return table[bytes.get(index) & 0xff];
+    }
+
+    @Override
+    char[] array() {
+      return null;
+    }
+
+    @Override
+    void getChars(int start, int end, char[] dst, int dstBegin) {
+      byte[] buf = new byte[Math.min(end - start, MAX_PARTIAL_COPY)];
+      for (int i = start; i < end; ) {
+        int n = Math.min(buf.length, end - i);
+        bytes.get(i, buf, 0, n);
+        for (int j = 0; j < n; j++) {
+          dst[dstBegin++] = table[buf[j] & 0xff];
+        }
+        i += n;
+      }
+    }
+
+    /**
+     * Reading beyond the end of a truncated file faults. The JVM reports the fault as an internal
+     * error, which may be thrown later in a caller, so the size of the file is checked before the
+     * characters are read.
+     */
+    @Override
+    void validate() {
+      IOException cause = null;
+      try {
+        if (channel.size() >= bytes.limit()) {
+          return;
+        }
+      } catch (IOException e) {
+        cause = e;
+      }
+      throw new UncheckedIOException(
+          new IOException("The file has been truncated by another program: " + file, cause));
+    }
+  }
+
+  /** The index and the start offset of a piece. */
+  private static class PieceCursor {
+
+    static final PieceCursor FIRST = new PieceCursor(0, 0);
+
+    final int index;
+    final int start;
+
+    PieceCursor(int index, int start) {
+      this.index = index;
+      this.start = start;
+    }
+  }
+
+  /** A range of characters in the original text or in the append buffer. */
+  private static class Piece {
+
+    final boolean isAdded;
+    final int start;
+    final int length;
+
+    Piece(boolean isAdded, int start, int length) {
+      this.isAdded = isAdded;
+      this.start = start;
+      this.length = length;
+    }
+  }
+
+  /** The offset of a position. */
+  private static class Mark extends WeakReference<StickyPosition> {
+
+    int offset;
+
+    Mark(int offset, StickyPosition position, ReferenceQueue<StickyPosition> queue) {
+      super(position, queue);
+      this.offset = offset;
+    }
+  }
+
+  private static class StickyPosition implements Position {
+
+    Mark mark;
+
+    @Override
+    public int getOffset() {
+      return mark.offset;
+    }
+
+    @Override
+    public String toString() {
+      return Integer.toString(getOffset());
+    }
+  }
+
+  /** Creates an empty content. */
+  public PieceTableContent() {
+    this(new CharSource(new char[0], 0));
+  }
+
+  private PieceTableContent(Source original) {
+    this.original = original;
+    if (original.length() > 0) {
+      pieces.add(new Piece(false, 0, original.length()));
+    }
+    length = original.length();
+    // The implied line break at the end of the text
+    appendAdded("\n");
+    pieces.add(new Piece(true, 0, 1));
+    length++;
+  }
+
+  /**
+   * Reads the content from a file.
+   *
+   * <p>If the file only contains line feeds as line separators, and the character set maps every
+   * byte of the file to a single character, the file is mapped into memory, and is not copied.
+   * Otherwise the file is decoded, and carriage returns are converted into line feeds.
+   *
+   * @param file the file
+   * @param charset the character set of the file
+   */
+  public static PieceTableContent read(File file, Charset charset) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      if (channel.size() > Integer.MAX_VALUE - 1) {
+        throw new IOException("File is too large: " + file);
+      }
+      ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      char[] table = getSingleByteTable(charset);
+      if (table != null && canMap(bytes, table, charset)) {
+        ByteSource src = new ByteSource(bytes, table, file, channel);
+        src.validate();
+        PieceTableContent content = new PieceTableContent(src);
+        content.file = file;
+        channel = null;
+        return content;
+      }
+      CharBuffer chars = charset.decode(bytes);
+      return new PieceTableContent(new CharSource(chars.array(), toLineFeeds(chars)));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Returns a table which maps each byte to a character, or null if the character set is not a
+   * single byte character set. For UTF-8 the table contains only the ASCII characters.
+   */
+  private static char[] getSingleByteTable(Charset charset) {
+    if (charset.equals(StandardCharsets.UTF_8)) {
+      char[] table = new char[128];
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (char) i;
+      }
+      return table;
+    }
+    if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1f) {
+      return null;
+    }
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    CharBuffer chars = charset.decode(ByteBuffer.wrap(bytes));
+    if (chars.remaining() != bytes.length) {
+      return null;
+    }
+    char[] table = new char[bytes.length];
+    chars.get(table);
+    return table;
+  }
+
+  /** Returns true, if the bytes contain no carriage returns, and all bytes are in the table. */
+  private static boolean canMap(ByteBuffer bytes, char[] table, Charset charset) {
+    byte cr = charset.encode("\r").get(0);
+    byte[] buf = new byte[MAX_PARTIAL_COPY];
+    for (int i = 0, n = bytes.limit(); i < n; ) {
+      int len = Math.min(buf.length, n - i);
+      bytes.get(i, buf, 0, len);
+      for (int j = 0; j < len; j++) {
+        int b = buf[j] & 0xff;
+        if (b >= table.length || buf[j] == cr) {
+          return false;
+        }
+      }
+      i += len;
+    }
+    return true;
+  }
+
+  /**
+   * Converts CR and CRLF line separators into LF in place.
+   *
+   * @return the new length of the characters
+   */
+  private static int toLineFeeds(CharBuffer chars) {
+    char[] a = chars.array();
+    int n = chars.limit();
+    int j = 0;
+    for (int i = 0; i < n; i++) {
+      char c = a[i];
+      if (c == '\r') {
+        c = '\n';
+        if (i + 1 < n && a[i + 1] == '\n') {
+          i++;
+        }
+      }
+      a[j++] = c;
+    }
+    return j;
+  }
+
+  /**
+   * Copies the original text into memory, if it is mapped from the specified file. This must be
+   * done before the file is overwritten.
+   *
+   * @throws IOException if the file has been truncated by another program
+   */
+  public void detach(File file) throws IOException {
+    if (this.file != null && this.file.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+      ByteSource src = (ByteSource) original;
+      char[] chars = new char[src.length()];
+      try {
+        src.validate();
+        src.getChars(0, chars.length, chars, 0);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } finally {
+        src.channel.close();
+      }
+      original = new CharSource(chars, chars.length);
+      this.file = null;
+    }
+  }
+
+  private void appendAdded(String str) {
+    int n = str.length();
+    if (addedLength + n > added.length) {
+      added = Arrays.copyOf(added, Math.max(added.length * 2, addedLength + n));
+    }
+    str.getChars(0, n, added, addedLength);
+    addedLength += n;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  /** Returns the piece which contains the specified offset, and caches it. */
+  private PieceCursor findPiece(int offset) {
+    PieceCursor c = cursor;
+    int i = c.index;
+    int start = c.start;
+    if (i >= pieces.size() || offset < start / 2) {
+      i = 0;
+      start = 0;
+    }
+    while (offset < start) {
+      i--;
+      start -= pieces.get(i).length;
+    }
+    while (offset >= start + pieces.get(i).length) {
+      start += pieces.get(i).length;
+      i++;
+    }
+    c = new PieceCursor(i, start);
+    cursor = c;
+    return c;
+  }
+
+  /**
+   * Splits the piece at the specified offset, if the offset is inside of a piece.
+   *
+   * @return the index of the piece which starts at the offset
+   */
+  private int split(int offset) {
+    if (offset == length) {
+      return pieces.size();
+    }
+    PieceCursor c = findPiece(offset);
+    int i = c.index;
+    int start = c.start;
+    if (start == offset) {
+      return i;
+    }
+    Piece p = pieces.get(i);
+    int head = offset - start;
+    pieces.set(i, new Piece(p.isAdded, p.start, head));
+    pieces.add(i + 1, new Piece(p.isAdded, p.start + head, p.length - head));
+    return i + 1;
+  }
+
+  private void insertPieces(int where, List<Piece> newPieces) {
+    int i = split(where);
+    pieces.addAll(i, newPieces);
+    for (Piece p : newPieces) {
+      length += p.length;
+    }
+    cursor = PieceCursor.FIRST;
+  }
+
+  private List<Piece> removePieces(int where, int nitems) {
+    int i = split(where);
+    int j = split(where + nitems);
+    List<Piece> range = pieces.subList(i, j);
+    List<Piece> removed = new ArrayList<>(range);
+    range.clear();
+    length -= nitems;
+    cursor = PieceCursor.FIRST;
+    return removed;
+  }
+
+  @Override
+  public UndoableEdit insertString(int where, String str) throws BadLocationException {
+    if (where > length || where < 0) {
+      throw new BadLocationException("Invalid insert", length);
+    }
+    int n = str.length();
+    if (n == 0) {
+      return null;
+    }
+    int addedStart = addedLength;
+    appendAdded(str);
+    boolean isExtended = false;
+    if (where > 0) {
+      // Typing appends to the piece which has been inserted last
+      PieceCursor c = findPiece(where - 1);
+      Piece p = pieces.get(c.index);
+      if (p.isAdded && c.start + p.length == where && p.start + p.length == addedStart) {
+        pieces.set(c.index, new Piece(true, p.start, p.length + n));
+        length += n;
+        isExtended = true;
+      }
+    }
+    if (!isExtended) {
+      insertPieces(where, List.of(new Piece(true, addedStart, n)));
+    }
+    updateMarksForInsert(where, n);
+    return new InsertUndo(where, n);
+  }
+
+  @Override
+  public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+    if (where < 0 || nitems < 0 || where + nitems >= length) {
+      throw new BadLocationException("Invalid remove", length + 1);
+    }
+    if (nitems == 0) {
+      return null;
+    }
+    List<Mark> positions = getMarksInRange(where, nitems);
+    int[] positionOffsets = getOffsets(positions);
+    List<Piece> removed = removePieces(where, nitems);
+    updateMarksForRemove(where, nitems);
+    return new RemoveUndo(where, nitems, removed, positions, positionOffsets);
+  }
+
+  @Override
+  public String getString(int where, int len) throws BadLocationException {
+    Segment s = new Segment();
+    getChars(where, len, s);
+    return new String(s.array, s.offset, s.count);
+  }
+
+  @Override
+  public void getChars(int where, int len, Segment txt) throws BadLocationException {
+    if (where < 0 || len < 0 || where + len > length) {
+      throw new BadLocationException("Invalid location", length);
+    }
+    if (len == 0) {
+      txt.array = added;
+      txt.offset = 0;
+      txt.count = 0;
+      return;
+    }
+    Source src = original;
+    PieceCursor c = findPiece(where);
+    int i = c.index;
+    Piece p = pieces.get(i);
+    int inPiece = where - c.start;
+    int available = p.length - inPiece;
+    char[] array = p.isAdded ? added : src.array();
+    if (array != null && (available >= len || txt.isPartialReturn())) {
+      txt.array = array;
+      txt.offset = p.start + inPiece;
+      txt.count = Math.min(len, available);
+      return;
+    }
+    if (txt.isPartialReturn()) {
+      len = Math.min(len, Math.min(available, MAX_PARTIAL_COPY));
+    }
+    src.validate();
+    char[] chars = new char[len];
+    for (int done = 0; done < len; ) {
+      int n = Math.min(p.length - inPiece, len - done);
+      if (p.isAdded) {
+        System.arraycopy(added, p.start + inPiece, chars, done, n);
+      } else {
+        src.getChars(p.start + inPiece, p.start + inPiece + n, chars, done);
+      }
+      done += n;
+      if (done < len) {
+        p = pieces.get(++i);
+        inPiece = 0;
+      }
+    }
+    txt.array = chars;
+    txt.offset = 0;
+    txt.count = len;
+  }
+
+  /**
+   * Returns the offset of the first occurrence of a character at or after the specified offset.
+   *
+   * @return the offset, or -1 if the character does not occur
+   */
+  public int indexOf(char c, int fromIndex) {
+    if (fromIndex >= length) {
+      return -1;
+    }
+    Source src = original;
+    src.validate();
+    PieceCursor found = findPiece(Math.max(0, fromIndex));
+    int i = found.index;
+    int start = found.start;
+    for (int offset = Math.max(0, fromIndex); i < pieces.size(); i++) {
+      Piece p = pieces.get(i);
+      for (int j = p.start + offset - start, end = p.start + p.length; j < end; j++) {
+        if ((p.isAdded ? added[j] : src.charAt(j)) == c) {
+          return start + j - p.start;
+        }
+      }
+      start += p.length;
+      offset = start;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a range of the text as a character sequence. Only the pieces of the range are copied,
+   * not the characters. The sequence does not change when the content is changed, and unlike the
+   * content it can be read from any thread.
+   */
+  public CharSequence getCharSequence(int where, int len) throws BadLocationException {
+    if (where < 0 || len < 0 || where + len > length) {
+      throw new BadLocationException("Invalid location", length);
+    }
+    ArrayList<Piece> range = new ArrayList<>();
+    if (len > 0) {
+      PieceCursor c = findPiece(where);
+      int inPiece = where - c.start;
+      for (int i = c.index, done = 0; done < len; i++) {
+        Piece p = pieces.get(i);
+        int n = Math.min(p.length - inPiece, len - done);
+        range.add(new Piece(p.isAdded, p.start + inPiece, n));
+        done += n;
+        inPiece = 0;
+      }
+    }
+    return new Snapshot(range.toArray(new Piece[range.size()]), added, len);
+  }
+
+  /** An immutable sequence of pieces. */
+  private class Snapshot implements CharSequence {
+
+    private final Piece[] pieces;
+
+    /** The start offsets of the pieces in the sequence. */
+    private final int[] starts;
+
+    /** The append buffer. Appending never changes the characters of the pieces. */
+    private final char[] added;
+
+    private final int length;
+
+    Snapshot(Piece[] pieces, char[] added, int length) {
+      this.pieces = pieces;
+      this.added = added;
+      this.length = length;
+      starts = new int[pieces.length];
+      for (int i = 1; i < pieces.length; i++) {
+        starts[i] = starts[i - 1] + pieces[i - 1].length;
+      }
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      int lo = 0;
+      int hi = pieces.length - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (starts[mid] <= index) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      Piece p = pieces[lo];
+      int j = p.start + index - starts[lo];
+      // The original is read each time, because detach replaces it with a copy
+      return p.isAdded ? added[j] : original.charAt(j);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || start > end || end > length) {
+        throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+      }
+      char[] chars = new char[end - start];
+      for (int i = start; i < end; i++) {
+        chars[i - start] = charAt(i);
+      }
+      return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length).toString();
+    }
+  }
+
+  // POSITIONS
+
+  /**
+   * Creates a position with its own mark. Marks are not shared, because a mark which has been
+   * collapsed by a remove moves back when the remove is undone, but a position which has been
+   * created after the remove must stay where it is.
+   */
+  @Override
+  public Position createPosition(int offset) throws BadLocationException {
+    expungeCollectedMarks();
+    int i = findMark(offset);
+    StickyPosition p = new StickyPosition();
+    p.mark = new Mark(offset, p, queue);
+    marks.add(i, p.mark);
+    return p;
+  }
+
+  /** Returns the index of the first mark with an offset greater than or equal to the offset. */
+  private int findMark(int offset) {
+    int lo = 0;
+    int hi = marks.size();
+    if (hi > 0 && marks.get(hi - 1).offset < offset) {
+      return hi;
+    }
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (marks.get(mid).offset < offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /** Removes the marks of positions which have been garbage collected. */
+  private void expungeCollectedMarks() {
+    while (queue.poll() != null) {
+      collectedMarks++;
+    }
+    if (collectedMarks > 64 && collectedMarks > marks.size() / 4) {
+      marks.removeIf(m -> m.get() == null);
+      collectedMarks = 0;
+    }
+  }
+
+  private void updateMarksForInsert(int offset, int length) {
+    if (offset == 0) {
+      // zero is a special case where we update only marks after it
+      offset = 1;
+    }
+    for (int i = findMark(offset), n = marks.size(); i < n; i++) {
+      marks.get(i).offset += length;
+    }
+  }
+
+  private void updateMarksForRemove(int offset, int length) {
+    int end = offset + length;
+    for (int i = findMark(offset), n = marks.size(); i < n; i++) {
+      Mark m = marks.get(i);
+      m.offset = (m.offset >= end) ? m.offset - length : offset;
+    }
+  }
+
+  /** Returns the marks in the range from offset to offset + length inclusive. */
+  private List<Mark> getMarksInRange(int offset, int length) {
+    ArrayList<Mark> range = new ArrayList<>();
+    for (int i = findMark(offset), n = marks.size(); i < n; i++) {
+      Mark m = marks.get(i);
+      if (m.offset > offset + length) {
+        break;
+      }
+      range.add(m);
+    }
+    return range;
+  }
+
+  /** Restores the offsets of marks which have been collapsed by a remove. */
+  private void restoreMarks(List<Mark> range, int[] offsets) {
+    for (int i = 0; i < offsets.length; i++) {
+      range.get(i).offset = offsets[i];
+    }
+    marks.sort((a, b) -> Integer.compare(a.offset, b.offset));
+  }
+
+  private static int[] getOffsets(List<Mark> range) {
+    int[] offsets = new int[range.size()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = range.get(i).offset;
+    }
+    return offsets;
+  }
+
+  // UNDO
+
+  /** Undoes an insert by removing the inserted pieces, without copying characters. */
+  private class InsertUndo extends AbstractUndoableEdit {
+
+    private static final long serialVersionUID = 1L;
+    private final int offset;
+    private final int length;
+    private List<Piece> inserted;
+    private List<Mark> positions;
+    private int[] positionOffsets;
+
+    InsertUndo(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public void undo() throws CannotUndoException {
+      super.undo();
+      positions = getMarksInRange(offset, length);
+      positionOffsets = getOffsets(positions);
+      inserted = removePieces(offset, length);
+      updateMarksForRemove(offset, length);
+    }
+
+    @Override
+    public void redo() throws CannotRedoException {
+      super.redo();
+      insertPieces(offset, inserted);
+      updateMarksForInsert(offset, length);
+      restoreMarks(positions, positionOffsets);
+      inserted = null;
+      positions = null;
+      positionOffsets = null;
+    }
+  }
+
+  /** Undoes a remove by inserting the removed pieces, without copying characters. */
+  private class RemoveUndo extends AbstractUndoableEdit {
+
+    private static final long serialVersionUID = 1L;
+    private final int offset;
+    private final int length;
+    private final List<Piece> removed;
+    private List<Mark> positions;
+    private int[] positionOffsets;
+
+    RemoveUndo(
+        int offset, int length, List<Piece> removed, List<Mark> positions, int[] positionOffsets) {
+      this.offset = offset;
+      this.length = length;
+      this.removed = removed;
+      this.positions = positions;
+      this.positionOffsets = positionOffsets;
+    }
+
+    @Override
+    public void undo() throws CannotUndoException {
+      super.undo();
+      insertPieces(offset, removed);
+      updateMarksForInsert(offset, length);
+      restoreMarks(positions, positionOffsets);
+      positions = null;
+      positionOffsets = null;
+    }
+
+    @Override
+    public void redo() throws CannotRedoException {
+      super.redo();
+      positions = getMarksInRange(offset, length);
+      positionOffsets = getOffsets(positions);
+      removePieces(offset, length);
+      updateMarksForRemove(offset, length);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * @(#)PieceTableDocument.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.teddy.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
+import javax.swing.text.StyleContext;
+
+/**
+ * A styled document which stores its text in a {@link PieceTableContent}.
+ *
+ * <p>The document is created with the text of its content. The paragraph elements for the lines of
+ * the text are built in a single pass, without inserting the text line by line. All paragraphs and
+ * all text have the same attributes.
+ *
+ * <p>The document maintains a {@link LineIndex} of its lines.
+ */
+public class PieceTableDocument extends DefaultStyledDocument {
+
+  private static final long serialVersionUID = 1L;
+  private LineIndex lineIndex;
+
+  /** Creates an empty document. */
+  public PieceTableDocument(AttributeSet attrs) {
+    this(new PieceTableContent(), attrs);
+  }
+
+  /**
+   * Creates a document with the text of the specified content.
+   *
+   * @param content the content
+   * @param attrs the paragraph and character attributes of the text
+   */
+  public PieceTableDocument(PieceTableContent content, AttributeSet attrs) {
+    super(content, new StyleContext());
+    writeLock();
+    try {
+      BranchElement root = (BranchElement) getDefaultRootElement();
+      ArrayList<Element> paragraphs = new ArrayList<>();
+      int[] lineStarts = new int[16];
+      for (int start = 0, end; start < content.length(); start = end) {
+        if (paragraphs.size() == lineStarts.length) {
+          lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[paragraphs.size()] = start;
+        end = content.indexOf('\n', start) + 1;
+        BranchElement paragraph = (BranchElement) createBranchElement(root, attrs);
+        paragraph.replace(
+            0, 0, new Element[] {createLeafElement(paragraph, attrs, start, end)});
+        paragraphs.add(paragraph);
+      }
+      root.replace(0, root.getElementCount(), paragraphs.toArray(new Element[paragraphs.size()]));
+      lineIndex = new LineIndex(lineStarts, paragraphs.size(), getLength());
+    } finally {
+      writeUnlock();
+    }
+  }
+
+  /**
+   * Returns the text of this document as a character sequence, without copying the characters.
+   * The sequence does not change when the document is changed, and can be read from any thread.
+   */
+  public CharSequence getCharSequence() {
+    readLock();
+    try {
+      return ((PieceTableContent) getContent()).getCharSequence(0, getLength());
+    } catch (BadLocationException e) {
+      throw new InternalError(e);
+    } finally {
+      readUnlock();
+    }
+  }
+
+  /** Returns the index of the lines of this document. */
+  public LineIndex getLineIndex() {
+    return lineIndex;
+  }
+
+  /** Updates the line index before the listeners are notified. */
+  @Override
+  protected void fireInsertUpdate(DocumentEvent e) {
+    lineIndex.insertUpdate(e);
+    super.fireInsertUpdate(e);
+  }
+
+  /** Updates the line index before the listeners are notified. */
+  @Override
+  protected void fireRemoveUpdate(DocumentEvent e) {
+    lineIndex.removeUpdate(e);
+    super.fireRemoveUpdate(e);
+  }
+
+  /**
+   * Copies the text which is mapped from the specified file into memory. This must be done before
+   * the file is overwritten.
+   *
+   * @throws IOException if the file has been truncated by another program
+   */
+  public void detach(File file) throws IOException {
+    ((PieceTableContent) getContent()).detach(file);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.samples.teddy.regex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Test;
+
+public class MatchFinderTest {
+
+  private static int[] findAll(String text, String findString, MatchType matchType) {
+    return new MatchFinder(findString, true, matchType).findAll(text);
+  }
+
+  /** Returns the non-overlapping occurrences of a string, searched from start to end. */
+  private static List<Integer> indexesOf(String text, String str) {
+    List<Integer> found = new ArrayList<>();
+    for (int i = text.indexOf(str); i != -1; i = text.indexOf(str, i + str.length())) {
+      found.add(i);
+      found.add(i + str.length());
+    }
+    return found;
+  }
+
+  @Test
+  public void testContains() {
+    assertThat(findAll("abcabcab", "abc", MatchType.CONTAINS)).containsExactly(0, 3, 3, 6);
+    assertThat(findAll("xyz", "abc", MatchType.CONTAINS)).isEmpty();
+    assertThat(findAll("", "abc", MatchType.CONTAINS)).isEmpty();
+  }
+
+  @Test
+  public void testOverlappingMatchesAreDropped() {
+    assertThat(findAll("aaaaa", "aa", MatchType.CONTAINS)).containsExactly(0, 2, 2, 4);
+  }
+
+  @Test
+  public void testIgnoreCase() {
+    MatchFinder finder = new MatchFinder("abc", false, MatchType.CONTAINS);
+    assertThat(finder.findAll("ABC aBc abc")).containsExactly(0, 3, 4, 7, 8, 11);
+    assertThat(findAll("ABC aBc abc", "abc", MatchType.CONTAINS)).containsExactly(8, 11);
+  }
+
+  @Test
+  public void testStartsWithAndFullWord() {
+    String text = "cat concat cats cat";
+    assertThat(findAll(text, "cat", MatchType.STARTS_WITH)).containsExactly(0, 3, 11, 14, 16, 19);
+    assertThat(findAll(text, "cat", MatchType.FULL_WORD)).containsExactly(0, 3, 16, 19);
+  }
+
+  @Test
+  public void testRegex() {
+    assertThat(findAll("a12b345", "\\d+", MatchType.REGEX)).containsExactly(1, 3, 4, 7);
+    // Empty matches are skipped
+    assertThat(findAll("axxb", "x*", MatchType.REGEX)).containsExactly(1, 3);
+  }
+
+  @Test
+  public void testChunksAreSearchedLikeOneSequence() {
+    StringBuilder buf = new StringBuilder();
+    while (buf.length() < 3 * MatchFinder.CHUNK_SIZE) {
+      buf.append("abc ab").append(buf.length() % 7 == 0 ? "cab" : "xyz");
+    }
+    // An occurrence which spans the boundary of the first two chunks
+    buf.replace(MatchFinder.CHUNK_SIZE - 2, MatchFinder.CHUNK_SIZE + 1, "abc");
+    String text = buf.toString();
+    assertThat(findAll(text, "abc", MatchType.CONTAINS))
+        .containsExactlyElementsOf(indexesOf(text, "abc"));
+  }
+
+  @Test
+  public void testRegexMatchExtendsIntoNextChunk() {
+    StringBuilder buf = new StringBuilder();
+    buf.append("a".repeat(MatchFinder.CHUNK_SIZE - 10));
+    buf.append("b".repeat(20));
+    buf.append("a".repeat(10)).append("b").append("a".repeat(10));
+    int[] found = findAll(buf.toString(), "b+", MatchType.REGEX);
+    int start = MatchFinder.CHUNK_SIZE - 10;
+    assertThat(found).containsExactly(start, start + 20, start + 30, start + 31);
+  }
+
+  @Test
+  public void testRegexMatchNeedsMoreThanTheOverlap() {
+    StringBuilder buf = new StringBuilder();
+    buf.append("a".repeat(MatchFinder.CHUNK_SIZE - 10));
+    buf.append("b".repeat(2 * MatchFinder.CHUNK_SIZE)).append("c");
+    buf.append("a".repeat(10));
+    int[] found = findAll(buf.toString(), "(?<!b)b+c", MatchType.REGEX);
+    int start = MatchFinder.CHUNK_SIZE - 10;
+    assertThat(found).containsExactly(start, start + 2 * MatchFinder.CHUNK_SIZE + 1);
+  }
+
+  @Test
+  public void testConsumerReceivesAllMatches() {
+    String text = "abc ".repeat(MatchFinder.CHUNK_SIZE / 2);
+    List<Integer> streamed = new ArrayList<>();
+    int[] found =
+        new MatchFinder("abc", true, MatchType.CONTAINS)
+            .findAll(
+                text,
+                batch -> {
+                  for (int offset : batch) {
+                    streamed.add(offset);
+                  }
+                });
+    assertThat(found.length).isEqualTo(MatchFinder.CHUNK_SIZE);
+    assertThat(streamed).containsExactlyElementsOf(indexesOf(text, "abc"));
+  }
+
+  @Test
+  public void testCancelledFinderThrows() {
+    MatchFinder finder = new MatchFinder("abc", true, MatchType.CONTAINS);
+    finder.cancel();
+    assertThatThrownBy(() -> finder.findAll("abc abc"))
+        .isInstanceOf(CancellationException.class);
+  }
+
+  @Test
+  public void testIndexOfNextAndPrevious() {
+    int[] matches = {2, 4, 6, 8, 10, 12, -1, -1};
+    assertThat(MatchFinder.indexOfNext(matches, 6, 0)).isEqualTo(0);
+    assertThat(MatchFinder.indexOfNext(matches, 6, 3)).isEqualTo(2);
+    assertThat(MatchFinder.indexOfNext(matches, 6, 6)).isEqualTo(2);
+    assertThat(MatchFinder.indexOfNext(matches, 6, 11)).isEqualTo(-1);
+    assertThat(MatchFinder.indexOfPrevious(matches, 6, 2)).isEqualTo(-1);
+    assertThat(MatchFinder.indexOfPrevious(matches, 6, 7)).isEqualTo(2);
+    assertThat(MatchFinder.indexOfPrevious(matches, 6, 100)).isEqualTo(4);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package org.jhotdraw.samples.teddy.regex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.regex.PatternSyntaxException;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import org.junit.jupiter.api.Test;
+
+public class MatcherTest {
+
+  private static Matcher createMatcher(String text, String findString, MatchType matchType)
+      throws BadLocationException {
+    PlainDocument doc = new PlainDocument();
+    doc.insertString(0, text, null);
+    return new Matcher(doc, findString, true, matchType);
+  }
+
+  @Test
+  public void testFindNextAndPrevious() throws BadLocationException {
+    Matcher matcher = createMatcher("cat concat cats", "cat", MatchType.STARTS_WITH);
+    assertThat(matcher.findNext(0)).isEqualTo(0);
+    assertThat(matcher.findNext(1)).isEqualTo(11);
+    assertThat(matcher.findPrevious(14)).isEqualTo(11);
+    assertThat(matcher.findPrevious(10)).isEqualTo(0);
+  }
+
+  @Test
+  public void testRegexIsSearchedWithMatchFinder() throws BadLocationException {
+    Matcher matcher = createMatcher("a12b345c6", "\\d+", MatchType.REGEX);
+    assertThat(matcher.findNext(0)).isEqualTo(1);
+    assertThat(matcher.findNext(2)).isEqualTo(4);
+    assertThat(matcher.findNext(9)).isEqualTo(-1);
+    assertThat(matcher.findPrevious(8)).isEqualTo(8);
+    assertThat(matcher.findPrevious(7)).isEqualTo(4);
+    assertThat(matcher.findPrevious(0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void testInvalidRegexIsRejected() {
+    assertThatThrownBy(() -> createMatcher("abc", "(", MatchType.REGEX))
+        .isInstanceOf(PatternSyntaxException.class);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package org.jhotdraw.samples.teddy.text;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.undo.UndoManager;
+import org.junit.jupiter.api.Test;
+
+/** Compares the {@link LineIndex} of a document with the paragraphs of the document. */
+public class LineIndexTest {
+
+  private static final String[] INSERTS = {
+    "x", "abc", "\n", "a\nb", "\r\n", "one\r\ntwo\r\n", "\n\n\n", "\n".repeat(40)
+  };
+
+  private static PieceTableDocument createDocument(String text) throws BadLocationException {
+    PieceTableDocument doc = new PieceTableDocument(SimpleAttributeSet.EMPTY);
+    doc.insertString(0, text, null);
+    return doc;
+  }
+
+  private static void check(PieceTableDocument doc) {
+    LineIndex index = doc.getLineIndex();
+    Element root = doc.getDefaultRootElement();
+    assertThat(index.getLineCount()).isEqualTo(root.getElementCount());
+    for (int i = 0; i < root.getElementCount(); i++) {
+      assertThat(index.getLineStartOffset(i))
+          .as("line %d", i)
+          .isEqualTo(root.getElement(i).getStartOffset());
+    }
+    for (int offset = 0; offset <= doc.getLength(); offset++) {
+      assertThat(index.getLineOfOffset(offset))
+          .as("offset %d", offset)
+          .isEqualTo(root.getElementIndex(offset));
+    }
+  }
+
+  @Test
+  public void testInsertAndRemoveLines() throws BadLocationException {
+    PieceTableDocument doc = createDocument("one\ntwo\nthree");
+    check(doc);
+    doc.insertString(4, "inserted\nlines\n", null);
+    check(doc);
+    doc.insertString(0, "\r\n", null);
+    check(doc);
+    // Removes two line feeds
+    doc.remove(3, 16);
+    check(doc);
+    doc.remove(0, doc.getLength());
+    check(doc);
+  }
+
+  @Test
+  public void testGapGrowsAndMoves() throws BadLocationException {
+    PieceTableDocument doc = createDocument("");
+    for (int i = 0; i < 100; i++) {
+      doc.insertString(0, "line\n", null);
+    }
+    check(doc);
+    for (int i = 0; i < 100; i++) {
+      doc.insertString(doc.getLength(), "\nline", null);
+      doc.insertString(doc.getLength() / 2, "a\nb", null);
+    }
+    check(doc);
+  }
+
+  @Test
+  public void testRandomEditsUndosAndRedos() throws BadLocationException {
+    Random r = new Random(1);
+    PieceTableDocument doc = createDocument("first\nsecond\r\nthird\n");
+    UndoManager undo = new UndoManager();
+    undo.setLimit(-1);
+    doc.addUndoableEditListener(undo);
+    for (int step = 0; step < 1000; step++) {
+      int length = doc.getLength();
+      switch (r.nextInt(5)) {
+        case 0:
+        case 1:
+          doc.insertString(r.nextInt(length + 1), INSERTS[r.nextInt(INSERTS.length)], null);
+          break;
+        case 2:
+          if (length > 0) {
+            int where = r.nextInt(length);
+            doc.remove(where, 1 + r.nextInt(Math.min(20, length - where)));
+          }
+          break;
+        case 3:
+          if (undo.canUndo()) {
+            undo.undo();
+          }
+          break;
+        default:
+          if (undo.canRedo()) {
+            undo.redo();
+          }
+          break;
+      }
+      check(doc);
+    }
+  }
+}
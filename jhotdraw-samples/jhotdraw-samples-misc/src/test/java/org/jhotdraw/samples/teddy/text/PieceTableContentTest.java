@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.samples.teddy.text;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.GapContent;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+import org.junit.jupiter.api.Test;
+
+/** Compares {@link PieceTableContent} with {@link GapContent}. */
+public class PieceTableContentTest {
+
+  /** Applies the same changes to a piece table and to a gap content. */
+  private static class Mirror {
+
+    final AbstractDocument.Content actual;
+    final AbstractDocument.Content expected = new GapContent();
+    final List<Position[]> positions = new ArrayList<>();
+    final List<UndoableEdit[]> edits = new ArrayList<>();
+    int undone;
+
+    Mirror(AbstractDocument.Content actual) throws BadLocationException {
+      this.actual = actual;
+      expected.insertString(0, actual.getString(0, actual.length() - 1));
+    }
+
+    void insertString(int where, String str) throws BadLocationException {
+      addEdit(actual.insertString(where, str), expected.insertString(where, str));
+    }
+
+    void remove(int where, int nitems) throws BadLocationException {
+      addEdit(actual.remove(where, nitems), expected.remove(where, nitems));
+    }
+
+    void createPosition(int offset) throws BadLocationException {
+      positions.add(
+          new Position[] {actual.createPosition(offset), expected.createPosition(offset)});
+    }
+
+    private void addEdit(UndoableEdit a, UndoableEdit e) {
+      edits.subList(edits.size() - undone, edits.size()).clear();
+      undone = 0;
+      edits.add(new UndoableEdit[] {a, e});
+    }
+
+    boolean undo() {
+      if (undone == edits.size()) {
+        return false;
+      }
+      undone++;
+      for (UndoableEdit e : edits.get(edits.size() - undone)) {
+        e.undo();
+      }
+      return true;
+    }
+
+    boolean redo() {
+      if (undone == 0) {
+        return false;
+      }
+      for (UndoableEdit e : edits.get(edits.size() - undone)) {
+        e.redo();
+      }
+      undone--;
+      return true;
+    }
+
+    void check() throws BadLocationException {
+      assertThat(actual.length()).isEqualTo(expected.length());
+      assertThat(actual.getString(0, actual.length()))
+          .isEqualTo(expected.getString(0, expected.length()));
+      for (int i = 0; i < positions.size(); i++) {
+        Position[] p = positions.get(i);
+        assertThat(p[0].getOffset()).as("position %d", i).isEqualTo(p[1].getOffset());
+      }
+    }
+  }
+
+  private static File createFile(String name, String text) throws IOException {
+    File dir = new File("target/test-output");
+    dir.mkdirs();
+    File file = new File(dir, name);
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  public void testInsertAndRemove() throws BadLocationException {
+    Mirror m = new Mirror(new PieceTableContent());
+    m.insertString(0, "hello");
+    m.insertString(5, " world");
+    m.insertString(0, ">");
+    m.insertString(3, "--");
+    m.check();
+    m.remove(2, 4);
+    m.remove(0, 1);
+    m.check();
+    assertThat(m.actual.getString(0, m.actual.length() - 1)).isEqualTo("hlo world");
+  }
+
+  @Test
+  public void testUndoAndRedo() throws BadLocationException {
+    Mirror m = new Mirror(new PieceTableContent());
+    m.insertString(0, "hello world");
+    m.remove(2, 6);
+    m.insertString(2, "XY");
+    while (m.undo()) {
+      m.check();
+    }
+    while (m.redo()) {
+      m.check();
+    }
+  }
+
+  @Test
+  public void testPositionsMoveWithTheText() throws BadLocationException {
+    Mirror m = new Mirror(new PieceTableContent());
+    m.insertString(0, "hello world");
+    for (int i = 0; i <= 11; i++) {
+      m.createPosition(i);
+    }
+    m.insertString(0, "abc");
+    m.insertString(5, "abc");
+    m.check();
+    m.remove(3, 6);
+    m.check();
+    m.undo();
+    m.check();
+    m.undo();
+    m.check();
+    m.redo();
+    m.redo();
+    m.check();
+  }
+
+  @Test
+  public void testPositionCreatedAfterRemoveStaysOnUndo() throws BadLocationException {
+    Mirror m = new Mirror(new PieceTableContent());
+    m.insertString(0, "hello world");
+    m.createPosition(1);
+    m.remove(0, 5);
+    m.createPosition(0);
+    m.undo();
+    m.check();
+    assertThat(m.positions.get(0)[0].getOffset()).isEqualTo(1);
+    assertThat(m.positions.get(1)[0].getOffset()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCharSequenceDoesNotChangeWithTheContent() throws BadLocationException {
+    PieceTableContent content = new PieceTableContent();
+    content.insertString(0, "hello world");
+    content.insertString(5, ",");
+    content.insertString(0, ">");
+    CharSequence text = content.getCharSequence(1, 9);
+    assertThat(text.toString()).isEqualTo("hello, wo");
+    assertThat(text.charAt(5)).isEqualTo(',');
+    assertThat(text.subSequence(3, 7).toString()).isEqualTo("lo, ");
+
+    content.remove(0, 8);
+    content.insertString(0, "x".repeat(1000));
+    assertThat(text.toString()).isEqualTo("hello, wo");
+    assertThat(content.getCharSequence(1000, 4).toString()).isEqualTo("worl");
+  }
+
+  @Test
+  public void testRandomChanges() throws BadLocationException {
+    Random r = new Random(1);
+    Mirror m = new Mirror(new PieceTableContent());
+    for (int step = 0; step < 2000; step++) {
+      int length = m.actual.length();
+      switch (r.nextInt(6)) {
+        case 0:
+        case 1:
+          m.insertString(r.nextInt(length), "abcdefgh".substring(r.nextInt(8)) + step);
+          break;
+        case 2:
+          if (length > 1) {
+            int where = r.nextInt(length - 1);
+            m.remove(where, 1 + r.nextInt(Math.min(10, length - where - 1)));
+          }
+          break;
+        case 3:
+          m.createPosition(r.nextInt(length));
+          break;
+        case 4:
+          m.undo();
+          break;
+        default:
+          m.redo();
+          break;
+      }
+      m.check();
+    }
+  }
+
+  @Test
+  public void testMappedFile() throws IOException, BadLocationException {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      buf.append("line ").append(i).append('\n');
+    }
+    File file = createFile("mapped.txt", buf.toString());
+    Mirror m = new Mirror(PieceTableContent.read(file, StandardCharsets.UTF_8));
+    m.check();
+    m.createPosition(100);
+    m.insertString(50, "inserted");
+    m.remove(10, 5000);
+    m.check();
+    m.undo();
+    m.check();
+
+    // Read the text piece by piece
+    Segment s = new Segment();
+    s.setPartialReturn(true);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0, n = m.actual.length(); i < n; i += s.count) {
+      m.actual.getChars(i, n - i, s);
+      text.append(s.array, s.offset, s.count);
+    }
+    assertThat(text.toString()).isEqualTo(m.expected.getString(0, m.expected.length()));
+
+    ((PieceTableContent) m.actual).detach(file);
+    Files.write(file.toPath(), new byte[0]);
+    m.check();
+  }
+
+  @Test
+  public void testFileWithCarriageReturnsIsDecoded() throws IOException, BadLocationException {
+    File file = createFile("crlf.txt", "one\r\ntwo\rthree\n");
+    PieceTableContent content = PieceTableContent.read(file, StandardCharsets.UTF_8);
+    assertThat(content.getString(0, content.length())).isEqualTo("one\ntwo\nthree\n\n");
+  }
+
+  @Test
+  public void testTruncatedFileIsReported() throws IOException, BadLocationException {
+    File file = createFile("truncated.txt", "x".repeat(100000));
+    PieceTableContent content = PieceTableContent.read(file, StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+    } catch (IOException e) {
+      // The file system does not allow to truncate a mapped file
+      return;
+    }
+    assertThatThrownBy(() -> content.getString(90000, 10))
+        .isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> content.detach(file)).isInstanceOf(IOException.class);
+  }
+}
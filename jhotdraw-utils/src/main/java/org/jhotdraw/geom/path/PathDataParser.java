@@ -0,0 +1,386 @@
+/*
+ * @(#)PathDataParser.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom.path;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses SVG path data into {@link BezierPath}s, as specified in
+ * http://www.w3.org/TR/SVGMobile12/paths.html#PathDataBNF
+ *
+ * <p>Also supports elliptical arc commands 'a' and 'A' as specified in
+ * http://www.w3.org/TR/SVG/paths.html#PathDataEllipticalArcCommands
+ *
+ * <p>The parser scans the characters of the path data directly. Numbers are converted without
+ * creating intermediate strings, and nodes are added to the bezier paths as soon as their
+ * coordinates have been read. A parser can be reused for many path data strings, but it is not
+ * thread safe.
+ *
+ * <p>Each moveto command starts a new bezier path. Parsing stops silently at an illegal command,
+ * keeping the paths which have been read so far, which matches the error handling of SVG
+ * renderers.
+ */
+public class PathDataParser {
+
+  /** Powers of ten which can be represented exactly by a double. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /** Mantissas up to this value can be represented exactly by a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /** The path data. Only used for error messages. */
+  private String data;
+
+  /** The characters of the path data. The buffer is reused for the next path data. */
+  private char[] buf = new char[64];
+
+  private int pos;
+  private int end;
+
+  /** Parses path data. */
+  public BezierPath[] parse(String data) throws ParseException {
+    List<BezierPath> paths = new ArrayList<>();
+    parse(data, paths);
+    return paths.toArray(new BezierPath[paths.size()]);
+  }
+
+  /**
+   * Parses path data and adds the bezier paths to the specified list.
+   *
+   * @throws ParseException if a coordinate is missing, or if the path data does not start with a
+   *     moveto command
+   */
+  public void parse(String data, List<BezierPath> paths) throws ParseException {
+    this.data = data;
+    end = data.length();
+    if (buf.length < end) {
+      buf = new char[Math.max(end, buf.length * 2)];
+    }
+    data.getChars(0, end, buf, 0);
+    pos = 0;
+    try {
+      parsePathData(paths);
+    } finally {
+      this.data = null;
+    }
+  }
+
+  private void parsePathData(List<BezierPath> paths) throws ParseException {
+    BezierPath path = null;
+    double px = 0;
+    double py = 0;
+    double c1x;
+    double c1y;
+    double c2x;
+    double c2y;
+    BezierPath.Node node;
+    char nextCommand = 'M';
+    char command;
+    Commands:
+    while (skipSeparators()) {
+      char c = buf[pos];
+      if (isNumberStart(c)) {
+        command = nextCommand;
+      } else {
+        command = c;
+        pos++;
+      }
+      if (path == null && command != 'M' && command != 'm') {
+        throw new ParseException(
+            "Path data must start with 'M' at position " + (pos - 1) + " in " + data, pos - 1);
+      }
+      switch (command) {
+        case 'M':
+          // absolute-moveto x y
+          path = new BezierPath();
+          paths.add(path);
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.moveTo(px, py);
+          nextCommand = 'L';
+          break;
+        case 'm':
+          // relative-moveto dx dy
+          path = new BezierPath();
+          paths.add(path);
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.moveTo(px, py);
+          nextCommand = 'l';
+          break;
+        case 'Z':
+        case 'z':
+          // close path
+          px = path.nodes().get(0).x[0];
+          py = path.nodes().get(0).y[0];
+          // If the last point and the first point are the same, we
+          // can merge them
+          if (path.size() > 1) {
+            BezierPath.Node first = path.nodes().get(0);
+            BezierPath.Node last = path.nodes().get(path.size() - 1);
+            if (first.x[0] == last.x[0] && first.y[0] == last.y[0]) {
+              if ((last.mask & BezierPath.C1_MASK) != 0) {
+                first.mask |= BezierPath.C1_MASK;
+                first.x[1] = last.x[1];
+                first.y[1] = last.y[1];
+              }
+              path.remove(path.size() - 1);
+            }
+          }
+          path.setClosed(true);
+          break;
+        case 'L':
+          // absolute-lineto x y
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'L';
+          break;
+        case 'l':
+          // relative-lineto dx dy
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'l';
+          break;
+        case 'H':
+          // absolute-horizontal-lineto x
+          px = nextNumber("x coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'H';
+          break;
+        case 'h':
+          // relative-horizontal-lineto dx
+          px += nextNumber("dx coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'h';
+          break;
+        case 'V':
+          // absolute-vertical-lineto y
+          py = nextNumber("y coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'V';
+          break;
+        case 'v':
+          // relative-vertical-lineto dy
+          py += nextNumber("dy coordinate", command);
+          path.lineTo(px, py);
+          nextCommand = 'v';
+          break;
+        case 'C':
+          // absolute-curveto x1 y1 x2 y2 x y
+          c1x = nextNumber("x1 coordinate", command);
+          c1y = nextNumber("y1 coordinate", command);
+          c2x = nextNumber("x2 coordinate", command);
+          c2y = nextNumber("y2 coordinate", command);
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.curveTo(c1x, c1y, c2x, c2y, px, py);
+          nextCommand = 'C';
+          break;
+        case 'c':
+          // relative-curveto dx1 dy1 dx2 dy2 dx dy
+          c1x = px + nextNumber("dx1 coordinate", command);
+          c1y = py + nextNumber("dy1 coordinate", command);
+          c2x = px + nextNumber("dx2 coordinate", command);
+          c2y = py + nextNumber("dy2 coordinate", command);
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.curveTo(c1x, c1y, c2x, c2y, px, py);
+          nextCommand = 'c';
+          break;
+        case 'S':
+          // absolute-shorthand-curveto x2 y2 x y
+          node = path.nodes().get(path.size() - 1);
+          c1x = node.x[0] * 2d - node.x[1];
+          c1y = node.y[0] * 2d - node.y[1];
+          c2x = nextNumber("x2 coordinate", command);
+          c2y = nextNumber("y2 coordinate", command);
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.curveTo(c1x, c1y, c2x, c2y, px, py);
+          nextCommand = 'S';
+          break;
+        case 's':
+          // relative-shorthand-curveto dx2 dy2 dx dy
+          node = path.nodes().get(path.size() - 1);
+          c1x = node.x[0] * 2d - node.x[1];
+          c1y = node.y[0] * 2d - node.y[1];
+          c2x = px + nextNumber("dx2 coordinate", command);
+          c2y = py + nextNumber("dy2 coordinate", command);
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.curveTo(c1x, c1y, c2x, c2y, px, py);
+          nextCommand = 's';
+          break;
+        case 'Q':
+          // absolute-quadto x1 y1 x y
+          c1x = nextNumber("x1 coordinate", command);
+          c1y = nextNumber("y1 coordinate", command);
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.quadTo(c1x, c1y, px, py);
+          nextCommand = 'Q';
+          break;
+        case 'q':
+          // relative-quadto dx1 dy1 dx dy
+          c1x = px + nextNumber("dx1 coordinate", command);
+          c1y = py + nextNumber("dy1 coordinate", command);
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.quadTo(c1x, c1y, px, py);
+          nextCommand = 'q';
+          break;
+        case 'T':
+          // absolute-shorthand-quadto x y
+          node = path.nodes().get(path.size() - 1);
+          c1x = node.x[0] * 2d - node.x[1];
+          c1y = node.y[0] * 2d - node.y[1];
+          px = nextNumber("x coordinate", command);
+          py = nextNumber("y coordinate", command);
+          path.quadTo(c1x, c1y, px, py);
+          nextCommand = 'T';
+          break;
+        case 't':
+          // relative-shorthand-quadto dx dy
+          node = path.nodes().get(path.size() - 1);
+          c1x = node.x[0] * 2d - node.x[1];
+          c1y = node.y[0] * 2d - node.y[1];
+          px += nextNumber("dx coordinate", command);
+          py += nextNumber("dy coordinate", command);
+          path.quadTo(c1x, c1y, px, py);
+          nextCommand = 't';
+          break;
+        case 'A':
+        case 'a':
+          {
+            // elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
+            // If rX or rY have negative signs, these are dropped;
+            // the absolute value is used instead.
+            double rx = nextNumber("rx", command);
+            double ry = nextNumber("ry", command);
+            double xAxisRotation = nextNumber("x-axis-rotation", command);
+            boolean largeArcFlag = nextFlag("large-arc-flag", command);
+            boolean sweepFlag = nextFlag("sweep-flag", command);
+            if (command == 'A') {
+              px = nextNumber("x coordinate", command);
+              py = nextNumber("y coordinate", command);
+            } else {
+              px += nextNumber("dx coordinate", command);
+              py += nextNumber("dy coordinate", command);
+            }
+            path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, px, py);
+            nextCommand = command;
+            break;
+          }
+        default:
+          break Commands;
+      }
+    }
+  }
+
+  /** Skips whitespace and commas. Returns false if the end of the path data has been reached. */
+  private boolean skipSeparators() {
+    while (pos < end && (buf[pos] <= ' ' || buf[pos] == ',')) {
+      pos++;
+    }
+    return pos < end;
+  }
+
+  private static boolean isNumberStart(char c) {
+    return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+';
+  }
+
+  /** Reads a flag of an arc command, which is a single '0' or '1'. */
+  private boolean nextFlag(String name, char command) throws ParseException {
+    if (!skipSeparators() || (buf[pos] != '0' && buf[pos] != '1')) {
+      throw missing(name, command);
+    }
+    return buf[pos++] == '1';
+  }
+
+  /** Reads a number. */
+  private double nextNumber(String name, char command) throws ParseException {
+    if (!skipSeparators()) {
+      throw missing(name, command);
+    }
+    int start = pos;
+    boolean isNegative = false;
+    if (buf[pos] == '+' || buf[pos] == '-') {
+      isNegative = buf[pos] == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    boolean isTruncated = false;
+    for (; pos < end && buf[pos] >= '0' && buf[pos] <= '9'; pos++) {
+      hasDigits = true;
+      if (mantissa < MAX_EXACT_MANTISSA) {
+        mantissa = mantissa * 10 + (buf[pos] - '0');
+      } else {
+        isTruncated = true;
+        exponent++;
+      }
+    }
+    if (pos < end && buf[pos] == '.') {
+      pos++;
+      for (; pos < end && buf[pos] >= '0' && buf[pos] <= '9'; pos++) {
+        hasDigits = true;
+        if (mantissa < MAX_EXACT_MANTISSA) {
+          mantissa = mantissa * 10 + (buf[pos] - '0');
+          exponent--;
+        } else {
+          isTruncated = true;
+        }
+      }
+    }
+    if (!hasDigits) {
+      pos = start;
+      throw missing(name, command);
+    }
+    if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+      // The exponent is optional, an 'e' which is not followed by digits is not consumed
+      int i = pos + 1;
+      boolean isNegativeExponent = false;
+      if (i < end && (buf[i] == '+' || buf[i] == '-')) {
+        isNegativeExponent = buf[i] == '-';
+        i++;
+      }
+      if (i < end && buf[i] >= '0' && buf[i] <= '9') {
+        int exp = 0;
+        for (; i < end && buf[i] >= '0' && buf[i] <= '9'; i++) {
+          exp = Math.min(exp * 10 + (buf[i] - '0'), 9999);
+        }
+        exponent += isNegativeExponent ? -exp : exp;
+        pos = i;
+      }
+    }
+    double value;
+    if (!isTruncated
+        && mantissa <= MAX_EXACT_MANTISSA
+        && Math.abs(exponent) < POWERS_OF_TEN.length) {
+      // Both operands are exact, so the result is correctly rounded
+      value = (exponent >= 0)
+          ? mantissa * POWERS_OF_TEN[exponent]
+          : mantissa / POWERS_OF_TEN[-exponent];
+      return isNegative ? -value : value;
+    }
+    return Double.parseDouble(new String(buf, start, pos - start));
+  }
+
+  private ParseException missing(String name, char command) {
+    return new ParseException(
+        name + " missing for '" + command + "' at position " + pos + " in " + data, pos);
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * @(#)PathDataWriter.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom.path;
+
+/**
+ * Writes {@link BezierPath}s as SVG path data, as specified in
+ * http://www.w3.org/TR/SVGMobile12/paths.html#PathDataBNF
+ *
+ * <p>By default, numbers are written exactly, so that a reader gets back the same double values.
+ * Optionally, numbers can be rounded to a fixed number of fraction digits, which results in
+ * shorter path data. Trailing zeros, leading zeros and separators which are not needed are
+ * omitted. Each segment is written with absolute or with relative coordinates, whichever is
+ * shorter, and command letters are omitted when a command is repeated. Horizontal and vertical
+ * lines are written with the 'H' and 'V' commands.
+ *
+ * <p>Relative coordinates are computed from the rounded coordinates which a reader sees, so that
+ * rounding errors do not accumulate along a path. Exact numbers are always written with absolute
+ * coordinates, because the sum of relative coordinates is not exact. Each subpath starts with an
+ * absolute moveto, and a curve which closes a subpath is written with absolute coordinates, so
+ * that {@link PathDataParser} can merge its end point with the first node of the subpath.
+ *
+ * <p>A writer can be reused for many paths, but it is not thread safe.
+ */
+public class PathDataWriter {
+
+  /** Powers of ten which can be represented exactly by a double. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+  };
+
+  private static final long[] LONG_POWERS_OF_TEN = {
+    1L,
+    10L,
+    100L,
+    1000L,
+    10000L,
+    100000L,
+    1000000L,
+    10000000L,
+    100000000L,
+    1000000000L,
+    10000000000L,
+    100000000000L,
+    1000000000000L,
+    10000000000000L,
+    100000000000000L,
+    1000000000000000L
+  };
+
+  /** Scaled values below this limit can be rounded exactly to a long. */
+  private static final double MAX_EXACT_SCALED = 1e15;
+
+  /**
+   * Number of fraction digits which specifies that numbers are not rounded. Each number is written
+   * with the shortest representation which is read back as the same double value.
+   */
+  public static final int EXACT = -1;
+
+  private int fractionDigits;
+
+  /** The output of the path which is currently being written. */
+  private StringBuilder buf;
+
+  /** Holds the alternative encoding of the current segment. */
+  private final StringBuilder scratch = new StringBuilder();
+
+  /** The last command letter, or 0 if the next command needs a letter. */
+  private char command;
+
+  /** The current point, as it is seen by a reader of the path data. */
+  private double cx;
+
+  private double cy;
+
+  /** Coordinates of the control points and of the end point of the current segment. */
+  private final double[] xs = new double[3];
+
+  private final double[] ys = new double[3];
+
+  /** Creates a writer which writes numbers exactly. */
+  public PathDataWriter() {
+    this(EXACT);
+  }
+
+  /**
+   * Creates a writer which writes numbers with up to the specified number of fraction digits, or
+   * exactly if the value is {@link #EXACT}.
+   */
+  public PathDataWriter(int fractionDigits) {
+    setFractionDigits(fractionDigits);
+  }
+
+  public int getFractionDigits() {
+    return fractionDigits;
+  }
+
+  /**
+   * Sets the maximal number of fraction digits, or {@link #EXACT} if numbers are not rounded.
+   *
+   * @throws IllegalArgumentException if the value is neither EXACT nor in the range 0 to 15
+   */
+  public void setFractionDigits(int newValue) {
+    if (newValue < EXACT || newValue >= POWERS_OF_TEN.length) {
+      throw new IllegalArgumentException("fractionDigits out of range: " + newValue);
+    }
+    fractionDigits = newValue;
+  }
+
+  /** Returns the specified paths as path data. */
+  public String write(BezierPath[] paths) {
+    StringBuilder out = new StringBuilder();
+    write(paths, out);
+    return out.toString();
+  }
+
+  /** Appends the specified paths as path data to the specified string builder. */
+  public void write(BezierPath[] paths, StringBuilder out) {
+    buf = out;
+    command = 0;
+    try {
+      for (BezierPath path : paths) {
+        writePath(path);
+      }
+    } finally {
+      buf = null;
+    }
+  }
+
+  private void writePath(BezierPath path) {
+    int n = path.size();
+    if (n == 0) {
+      return;
+    }
+    BezierPath.Node first = path.nodes().get(0);
+    cx = round(first.x[0]);
+    cy = round(first.y[0]);
+    buf.append('M');
+    appendNumber(first.x[0]);
+    appendNumber(first.y[0]);
+    command = 'L';
+    if (n == 1) {
+      // A single node is written as a line with a length of 1
+      xs[0] = first.x[0];
+      ys[0] = first.y[0] + 1;
+      writeSegment('L', 1);
+      return;
+    }
+    BezierPath.Node previous = first;
+    for (int i = 1; i < n; i++) {
+      BezierPath.Node current = path.nodes().get(i);
+      writeSegment(previous, current, false);
+      previous = current;
+    }
+    if (path.isClosed()) {
+      if ((previous.mask & BezierPath.C2_MASK) != 0 || (first.mask & BezierPath.C1_MASK) != 0) {
+        writeSegment(previous, first, true);
+      }
+      buf.append('z');
+      command = 0;
+    }
+  }
+
+  /** Writes the segment from the previous to the current node. */
+  private void writeSegment(BezierPath.Node previous, BezierPath.Node current, boolean isClosing) {
+    char segmentCommand;
+    int count;
+    if ((previous.mask & BezierPath.C2_MASK) == 0) {
+      if ((current.mask & BezierPath.C1_MASK) == 0) {
+        segmentCommand = 'L';
+        count = 1;
+      } else {
+        segmentCommand = 'Q';
+        xs[0] = current.x[1];
+        ys[0] = current.y[1];
+        count = 2;
+      }
+    } else {
+      xs[0] = previous.x[2];
+      ys[0] = previous.y[2];
+      if ((current.mask & BezierPath.C1_MASK) == 0) {
+        segmentCommand = 'Q';
+        count = 2;
+      } else {
+        segmentCommand = 'C';
+        xs[1] = current.x[1];
+        ys[1] = current.y[1];
+        count = 3;
+      }
+    }
+    xs[count - 1] = current.x[0];
+    ys[count - 1] = current.y[0];
+    if (isClosing) {
+      writeCandidate(segmentCommand, count, false);
+    } else {
+      writeSegment(segmentCommand, count);
+    }
+  }
+
+  /**
+   * Writes a segment with the coordinates in {@code xs} and {@code ys}, using absolute or relative
+   * coordinates, whichever is shorter.
+   */
+  private void writeSegment(char segmentCommand, int count) {
+    int mark = buf.length();
+    char previousCommand = command;
+    writeCandidate(segmentCommand, count, false);
+    if (fractionDigits == EXACT) {
+      cx = xs[count - 1];
+      cy = ys[count - 1];
+      return;
+    }
+    char absoluteCommand = command;
+    scratch.setLength(0);
+    scratch.append(buf, mark, buf.length());
+    buf.setLength(mark);
+    command = previousCommand;
+    double ex = xs[count - 1];
+    double ey = ys[count - 1];
+    writeCandidate(Character.toLowerCase(segmentCommand), count, true);
+    if (buf.length() - mark > scratch.length()) {
+      buf.setLength(mark);
+      buf.append(scratch);
+      command = absoluteCommand;
+      cx = round(ex);
+      cy = round(ey);
+    } else {
+      cx += round(ex - cx);
+      cy += round(ey - cy);
+    }
+  }
+
+  /** Appends a segment with absolute or relative coordinates. Does not update the current point. */
+  private void writeCandidate(char segmentCommand, int count, boolean isRelative) {
+    double x0 = isRelative ? cx : 0;
+    double y0 = isRelative ? cy : 0;
+    if (count == 1) {
+      boolean isHorizontal = isRelative ? round(ys[0] - cy) == 0 : round(ys[0]) == cy;
+      boolean isVertical = isRelative ? round(xs[0] - cx) == 0 : round(xs[0]) == cx;
+      if (isHorizontal != isVertical) {
+        appendCommand(isRelative ? (isHorizontal ? 'h' : 'v') : (isHorizontal ? 'H' : 'V'));
+        appendNumber(isHorizontal ? xs[0] - x0 : ys[0] - y0);
+        return;
+      }
+    }
+    appendCommand(segmentCommand);
+    for (int i = 0; i < count; i++) {
+      appendNumber(xs[i] - x0);
+      appendNumber(ys[i] - y0);
+    }
+  }
+
+  private void appendCommand(char c) {
+    if (c != command) {
+      buf.append(c);
+      command = c;
+    }
+  }
+
+  /** Appends a number to the path data, preceded by a separator if needed. */
+  private void appendNumber(double value) {
+    int start = buf.length();
+    appendNumber(buf, value, fractionDigits);
+    // Omit the leading zero of a fraction
+    if (buf.charAt(start) == '0' && start + 1 < buf.length() && buf.charAt(start + 1) == '.') {
+      buf.deleteCharAt(start);
+    } else if (buf.charAt(start) == '-'
+        && buf.charAt(start + 1) == '0'
+        && start + 2 < buf.length()
+        && buf.charAt(start + 2) == '.') {
+      buf.deleteCharAt(start + 1);
+    }
+    if (start > 0 && needsSeparator(start)) {
+      buf.insert(start, ' ');
+    }
+  }
+
+  /** Returns true if the number at the specified index can not follow the preceding output. */
+  private boolean needsSeparator(int start) {
+    char previous = buf.charAt(start - 1);
+    if (!(previous >= '0' && previous <= '9') && previous != '.') {
+      return false;
+    }
+    char c = buf.charAt(start);
+    if (c == '-') {
+      return false;
+    }
+    if (c == '.') {
+      // A fraction can follow a number which already has a decimal point
+      int i = start - 1;
+      while (i >= 0 && buf.charAt(i) >= '0' && buf.charAt(i) <= '9') {
+        i--;
+      }
+      return i < 0 || buf.charAt(i) != '.';
+    }
+    return true;
+  }
+
+  /** Rounds a value to the number which a reader of the path data sees. */
+  private double round(double value) {
+    if (fractionDigits == EXACT) {
+      return value;
+    }
+    double scaled = value * POWERS_OF_TEN[fractionDigits];
+    if (!(Math.abs(scaled) < MAX_EXACT_SCALED)) {
+      return value;
+    }
+    return Math.round(scaled) / POWERS_OF_TEN[fractionDigits];
+  }
+
+  /**
+   * Appends a number with up to the specified number of fraction digits. Trailing zeros and a
+   * trailing decimal point are omitted. Numbers which are too large for a fixed point
+   * representation are appended in scientific notation.
+   *
+   * @param buf the string builder
+   * @param value the number
+   * @param fractionDigits the maximal number of fraction digits in the range 0 to 15, or {@link
+   *     #EXACT} to append the number without rounding
+   * @return the string builder
+   */
+  public static StringBuilder appendNumber(StringBuilder buf, double value, int fractionDigits) {
+    if (fractionDigits == EXACT) {
+      buf.append(value);
+      int n = buf.length();
+      if (buf.charAt(n - 1) == '0' && buf.charAt(n - 2) == '.') {
+        buf.setLength(n - 2);
+      }
+      return buf;
+    }
+    double scaled = value * POWERS_OF_TEN[fractionDigits];
+    if (!(Math.abs(scaled) < MAX_EXACT_SCALED)) {
+      return buf.append(value);
+    }
+    long n = Math.round(scaled);
+    if (n < 0) {
+      buf.append('-');
+      n = -n;
+    }
+    long unit = LONG_POWERS_OF_TEN[fractionDigits];
+    buf.append(n / unit);
+    long fraction = n % unit;
+    if (fraction != 0) {
+      int digits = fractionDigits;
+      while (fraction % 10 == 0) {
+        fraction /= 10;
+        digits--;
+      }
+      buf.append('.');
+      for (long p = LONG_POWERS_OF_TEN[digits - 1]; p > fraction; p /= 10) {
+        buf.append('0');
+      }
+      buf.append(fraction);
+    }
+    return buf;
+  }
+}
@@ -62,6 +62,9 @@ public class Base64 {
   /** Maximum line length (76) of Base64 output. */
   private static final int MAX_LINE_LENGTH = 76;
 
+  /** Number of Base64 characters which the streams convert at once. */
+  private static final int CHUNK_SIZE = 4096;
+
   /** The equals sign (=) as a byte. */
   private static final byte EQUALS_SIGN = (byte) '=';
 
@@ -301,6 +304,19 @@ public class Base64 {
   private static final byte WHITE_SPACE_ENC = -5; // Indicates white space in encoding
   private static final byte EQUALS_SIGN_ENC = -1; // Indicates equals sign in encoding
 
+  /** DECODABET for all byte values. Bytes which are not ASCII are invalid. */
+  private static final byte[] DECODABET_256 = new byte[256];
+
+  static {
+    java.util.Arrays.fill(DECODABET_256, (byte) -9);
+    System.arraycopy(DECODABET, 0, DECODABET_256, 0, Math.min(DECODABET.length, 128));
+  }
+
+  /** Returns the DECODABET value of a byte, or -9 if it is not ASCII. */
+  private static byte decodabet(byte b) {
+    return DECODABET_256[b & 0xff];
+  }
+
   /** Defeats instantiation. */
   private Base64() {}
 
@@ -982,6 +998,10 @@ public class Base64 {
     private int numSigBytes; // Number of meaningful bytes in the buffer
     private int lineLength;
     private boolean breakLines; // Break lines at less than 80 characters
+    private byte[] raw; // Base64 characters read from the stream when decoding
+    private byte[] quad; // Meaningful characters which have not been decoded yet
+    private int quadLength;
+    private boolean isEndOfData;
 
     /**
      * Constructs a {@link Base64.InputStream} in DECODE mode.
@@ -1019,9 +1039,57 @@ public class Base64 {
       this.breakLines = (options & DONT_BREAK_LINES) != DONT_BREAK_LINES;
       this.encode = (options & ENCODE) == ENCODE;
       this.bufferLength = encode ? 4 : 3;
-      this.buffer = new byte[bufferLength];
-      this.position = -1;
       this.lineLength = 0;
+      if (encode) {
+        this.buffer = new byte[bufferLength];
+        this.position = -1;
+      } else {
+        // Decoding works on chunks, so that bulk reads do not go through read()
+        this.raw = new byte[CHUNK_SIZE];
+        this.buffer = new byte[CHUNK_SIZE / 4 * 3 + 3];
+        this.quad = new byte[4];
+        this.position = 0;
+      }
+    }
+
+    /**
+     * Decodes the next chunk of the input stream into the buffer.
+     *
+     * @return false if the end of the data has been reached
+     */
+    private boolean fillDecoded() throws java.io.IOException {
+      position = 0;
+      numSigBytes = 0;
+      while (numSigBytes == 0) {
+        if (isEndOfData) {
+          return false;
+        }
+        int n = in.read(raw, 0, raw.length);
+        if (n < 0) {
+          isEndOfData = true;
+          if (quadLength != 0) {
+            throw new java.io.IOException("Improperly padded Base64 input.");
+          }
+          return false;
+        }
+        for (int i = 0; i < n; i++) {
+          byte b = raw[i];
+          if (decodabet(b) > WHITE_SPACE_ENC) {
+            quad[quadLength++] = b;
+            if (quadLength == 4) {
+              int count = decode4to3(quad, 0, buffer, numSigBytes);
+              numSigBytes += count;
+              quadLength = 0;
+              if (count < 3) {
+                // Padding marks the end of the data
+                isEndOfData = true;
+                break;
+              }
+            }
+          }
+        }
+      }
+      return true;
     }
 
     /**
@@ -1032,6 +1100,12 @@ public class Base64 {
      */
     @Override
     public int read() throws java.io.IOException {
+      if (!encode) {
+        if (position >= numSigBytes && !fillDecoded()) {
+          return -1;
+        }
+        return buffer[position++] & 0xff;
+      }
       // Do we need to get data?
       if (position < 0) {
         if (encode) {
@@ -1123,6 +1197,15 @@ public class Base64 {
      */
     @Override
     public int read(byte[] dest, int off, int len) throws java.io.IOException {
+      if (!encode && len > 0) {
+        if (position >= numSigBytes && !fillDecoded()) {
+          return -1;
+        }
+        int n = Math.min(len, numSigBytes - position);
+        System.arraycopy(buffer, position, dest, off, n);
+        position += n;
+        return n;
+      }
       int i;
       int b;
       for (i = 0; i < len; i++) {
@@ -1159,6 +1242,7 @@ public class Base64 {
     private boolean breakLines;
     private byte[] b4; // Scratch used in a few places
     private boolean suspendEncoding;
+    private byte[] chunk; // Converted data of bulk writes
 
     /**
      * Constructs a {@link Base64.OutputStream} in ENCODE mode.
@@ -1232,7 +1316,7 @@ public class Base64 {
         }
       } else {
         // Meaningful Base64 character?
-        if (DECODABET[theByte & 0x7f] > WHITE_SPACE_ENC) {
+        if (decodabet((byte) theByte) > WHITE_SPACE_ENC) {
           buffer[position++] = (byte) theByte;
           if (position >= bufferLength) {
             int len = Base64.decode4to3(buffer, 0, b4, 0);
@@ -1240,7 +1324,7 @@ public class Base64 {
             // out.write( Base64.decode4to3( buffer ) );
             position = 0;
           }
-        } else if (DECODABET[theByte & 0x7f] != WHITE_SPACE_ENC) {
+        } else if (decodabet((byte) theByte) != WHITE_SPACE_ENC) {
           throw new java.io.IOException("Invalid character in Base64 data.");
         }
       }
@@ -1261,8 +1345,98 @@ public class Base64 {
         super.out.write(theBytes, off, len);
         return;
       }
-      for (int i = 0; i < len; i++) {
-        write(theBytes[off + i]);
+      if (chunk == null) {
+        chunk = new byte[CHUNK_SIZE + CHUNK_SIZE / MAX_LINE_LENGTH + 4];
+      }
+      int end = off + len;
+      int count = 0;
+      if (encode) {
+        // Complete a partial group of three bytes
+        while (position != 0 && off < end) {
+          write(theBytes[off++]);
+        }
+        while (end - off >= 3) {
+          encode3to4(theBytes, off, 3, chunk, count);
+          off += 3;
+          count += 4;
+          lineLength += 4;
+          if (breakLines && lineLength >= MAX_LINE_LENGTH) {
+            chunk[count++] = NEW_LINE;
+            lineLength = 0;
+          }
+          if (count >= CHUNK_SIZE) {
+            out.write(chunk, 0, count);
+            count = 0;
+          }
+        }
+        if (count > 0) {
+          out.write(chunk, 0, count);
+        }
+        while (off < end) {
+          write(theBytes[off++]);
+        }
+      } else {
+        for (; off < end; off++) {
+          if (position == 0 && end - off >= 4) {
+            // Fast path for four meaningful characters without padding
+            int d0 = decodabet(theBytes[off]);
+            int d1 = decodabet(theBytes[off + 1]);
+            int d2 = decodabet(theBytes[off + 2]);
+            int d3 = decodabet(theBytes[off + 3]);
+            if ((d0 | d1 | d2 | d3) >= 0) {
+              int outBuff = (d0 << 18) | (d1 << 12) | (d2 << 6) | d3;
+              chunk[count++] = (byte) (outBuff >> 16);
+              chunk[count++] = (byte) (outBuff >> 8);
+              chunk[count++] = (byte) outBuff;
+              off += 3;
+              if (count >= CHUNK_SIZE) {
+                out.write(chunk, 0, count);
+                count = 0;
+              }
+              continue;
+            }
+          }
+          byte b = theBytes[off];
+          byte decoded = decodabet(b);
+          if (decoded > WHITE_SPACE_ENC) {
+            buffer[position++] = b;
+            if (position >= bufferLength) {
+              count += Base64.decode4to3(buffer, 0, chunk, count);
+              position = 0;
+              if (count >= CHUNK_SIZE) {
+                out.write(chunk, 0, count);
+                count = 0;
+              }
+            }
+          } else if (decoded != WHITE_SPACE_ENC) {
+            throw new java.io.IOException("Invalid character in Base64 data.");
+          }
+        }
+        if (count > 0) {
+          out.write(chunk, 0, count);
+        }
+      }
+    }
+
+    /**
+     * Writes the characters of a char sequence, which must contain Base64 notation when decoding.
+     * This allows to decode text without converting it into a byte array first.
+     *
+     * @param s the characters
+     * @param start the index of the first character
+     * @param end the index after the last character
+     */
+    public void write(CharSequence s, int start, int end) throws java.io.IOException {
+      byte[] bytes = new byte[Math.min(CHUNK_SIZE, end - start)];
+      while (start < end) {
+        int n = Math.min(bytes.length, end - start);
+        for (int i = 0; i < n; i++) {
+          char c = s.charAt(start + i);
+          // Characters which are not ASCII are never valid Base64 notation
+          bytes[i] = (c < 0x80) ? (byte) c : (byte) '?';
+        }
+        write(bytes, 0, n);
+        start += n;
       }
     }
 
@@ -28,7 +28,7 @@ import javax.swing.undo.*;
  * fireUndoableEditEvent(ce);
  * </pre>
  */
-public class CompositeEdit extends CompoundEdit {
+public class CompositeEdit extends CompoundEdit implements MemoryEstimatable {
 
   private static final long serialVersionUID = 1L;
   private String presentationName;
@@ -155,4 +155,14 @@ public class CompositeEdit extends CompoundEdit {
   public void setSignificant(boolean newValue) {
     isSignificant = newValue;
   }
+
+  /** Returns the sum of the estimated sizes of the edits contained in this edit. */
+  @Override
+  public long getEstimatedSize() {
+    long size = MemoryEstimator.OBJECT_SIZE;
+    for (UndoableEdit edit : edits) {
+      size += MemoryEstimator.REFERENCE_SIZE + MemoryEstimator.estimate(edit);
+    }
+    return size;
+  }
 }
@@ -0,0 +1,23 @@
+/*
+ * @(#)MemoryEstimatable.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.undo;
+
+/**
+ * Interface for objects which can estimate the number of bytes they retain on the heap.
+ *
+ * <p>{@link UndoRedoManager} uses the estimates of its edits to keep the undo history within a
+ * memory budget. The estimate does not need to be exact, but it should grow with the amount of
+ * data the object keeps alive, and it should be cheap to compute.
+ *
+ * @see MemoryEstimator
+ */
+public interface MemoryEstimatable {
+
+  /** Returns the estimated number of bytes retained by this object. */
+  long getEstimatedSize();
+}
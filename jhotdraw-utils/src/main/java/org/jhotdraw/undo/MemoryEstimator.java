@@ -0,0 +1,139 @@
+/*
+ * @(#)MemoryEstimator.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.undo;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.RectangularShape;
+import java.util.Collection;
+import java.util.Map;
+import org.jhotdraw.geom.path.BezierPath;
+
+/**
+ * Computes rough estimates of the heap memory retained by the data held in undoable edits.
+ *
+ * <p>The estimates assume a 64-bit VM with compressed references. They are meant for budgeting the
+ * undo history, not for exact accounting: objects of unknown classes are counted with a fixed
+ * size, and nested collections are only followed to a limited depth.
+ */
+public final class MemoryEstimator {
+
+  /** Estimated size of a reference. */
+  public static final int REFERENCE_SIZE = 8;
+
+  /** Estimated size of an object of unknown class. */
+  public static final int OBJECT_SIZE = 64;
+
+  /** Estimated size of an array header. */
+  private static final int ARRAY_HEADER_SIZE = 16;
+
+  /** Estimated size of a {@code BezierPath.Node} including its coordinate arrays. */
+  public static final int BEZIER_NODE_SIZE = 120;
+
+  /** Estimated size of an {@code AffineTransform}. */
+  private static final int AFFINE_TRANSFORM_SIZE = 72;
+
+  /** Collections and arrays nested deeper than this are counted as references only. */
+  private static final int MAX_DEPTH = 4;
+
+  private MemoryEstimator() {}
+
+  /** Returns the estimated number of bytes retained by the specified object. */
+  public static long estimate(Object o) {
+    return estimate(o, 0);
+  }
+
+  /** Returns the estimated number of bytes retained by a {@code BezierPath} with n nodes. */
+  public static long estimateBezierPath(int n) {
+    return OBJECT_SIZE + ARRAY_HEADER_SIZE + (long) n * (BEZIER_NODE_SIZE + REFERENCE_SIZE);
+  }
+
+  private static long estimate(Object o, int depth) {
+    if (o == null || o instanceof Enum || o instanceof Boolean) {
+      return 0;
+    }
+    if (o instanceof MemoryEstimatable) {
+      return ((MemoryEstimatable) o).getEstimatedSize();
+    }
+    if (o instanceof String) {
+      return 40 + ((String) o).length();
+    }
+    if (o instanceof Number || o instanceof Character) {
+      return 16;
+    }
+    if (o instanceof BezierPath) {
+      return estimateBezierPath(((BezierPath) o).size());
+    }
+    if (o instanceof BezierPath.Node) {
+      return BEZIER_NODE_SIZE;
+    }
+    if (o instanceof AffineTransform) {
+      return AFFINE_TRANSFORM_SIZE;
+    }
+    if (o instanceof Point2D) {
+      return 32;
+    }
+    if (o instanceof RectangularShape) {
+      return 48;
+    }
+    if (o instanceof Path2D) {
+      // Path2D keeps up to six coordinates and one type byte per segment
+      long segments = 0;
+      for (PathIterator i = ((Path2D) o).getPathIterator(null); !i.isDone(); i.next()) {
+        segments++;
+      }
+      return OBJECT_SIZE + 2 * ARRAY_HEADER_SIZE + 49L * segments;
+    }
+    if (o instanceof double[]) {
+      return ARRAY_HEADER_SIZE + 8L * ((double[]) o).length;
+    }
+    if (o instanceof float[]) {
+      return ARRAY_HEADER_SIZE + 4L * ((float[]) o).length;
+    }
+    if (o instanceof int[]) {
+      return ARRAY_HEADER_SIZE + 4L * ((int[]) o).length;
+    }
+    if (o instanceof byte[]) {
+      return ARRAY_HEADER_SIZE + ((byte[]) o).length;
+    }
+    if (o instanceof Object[]) {
+      Object[] a = (Object[]) o;
+      long size = ARRAY_HEADER_SIZE + (long) REFERENCE_SIZE * a.length;
+      if (depth < MAX_DEPTH) {
+        for (Object e : a) {
+          size += estimate(e, depth + 1);
+        }
+      }
+      return size;
+    }
+    if (o instanceof Collection) {
+      Collection<?> c = (Collection<?>) o;
+      // Hashed collections need roughly four times the space of an array for their entries
+      long size = OBJECT_SIZE + (long) REFERENCE_SIZE * 4 * c.size();
+      if (depth < MAX_DEPTH) {
+        for (Object e : c) {
+          size += estimate(e, depth + 1);
+        }
+      }
+      return size;
+    }
+    if (o instanceof Map) {
+      Map<?, ?> m = (Map<?, ?>) o;
+      long size = OBJECT_SIZE + (long) REFERENCE_SIZE * 5 * m.size();
+      if (depth < MAX_DEPTH) {
+        for (Map.Entry<?, ?> e : m.entrySet()) {
+          size += estimate(e.getKey(), depth + 1) + estimate(e.getValue(), depth + 1);
+        }
+      }
+      return size;
+    }
+    return OBJECT_SIZE;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * @(#)SpilledEdit.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.undo;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * Stands in for an edit which has been written to an {@link UndoJournal}.
+ *
+ * <p>The edit is read back from the journal when it is undone, and it stays in memory until {@link
+ * UndoRedoManager} unloads it again. Only edits which have been done are spilled, so the journal
+ * always contains the edit in its done state.
+ */
+class SpilledEdit implements UndoableEdit, MemoryEstimatable {
+
+  private static final Logger LOG = Logger.getLogger(SpilledEdit.class.getName());
+
+  private final UndoJournal journal;
+  private final long position;
+  private final boolean isSignificant;
+  private final String presentationName;
+  private final String undoPresentationName;
+  private final String redoPresentationName;
+
+  /** The estimated size of the edit, when it was spilled. */
+  private final long spilledSize;
+
+  /** The edit if it is loaded, or null if it only exists in the journal. */
+  private UndoableEdit edit;
+
+  private boolean alive = true;
+
+  SpilledEdit(UndoJournal journal, long position, UndoableEdit edit) {
+    this.journal = journal;
+    this.position = position;
+    this.isSignificant = edit.isSignificant();
+    this.presentationName = edit.getPresentationName();
+    this.undoPresentationName = edit.getUndoPresentationName();
+    this.redoPresentationName = edit.getRedoPresentationName();
+    this.spilledSize = MemoryEstimator.estimate(edit);
+  }
+
+  /** Returns true if the edit is in memory. */
+  boolean isLoaded() {
+    return edit != null;
+  }
+
+  /**
+   * Releases the in-memory edit. This is only done if the edit is in its done state, which is the
+   * state in which it has been written to the journal.
+   */
+  void unload() {
+    if (edit != null && edit.canUndo()) {
+      edit = null;
+    }
+  }
+
+  private UndoableEdit load() {
+    if (edit == null) {
+      try {
+        edit = journal.read(position);
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Could not read edit from undo journal", e);
+      }
+    }
+    return edit;
+  }
+
+  @Override
+  public void undo() throws CannotUndoException {
+    if (!alive || load() == null) {
+      throw new CannotUndoException();
+    }
+    edit.undo();
+  }
+
+  @Override
+  public boolean canUndo() {
+    return alive && (edit == null || edit.canUndo());
+  }
+
+  @Override
+  public void redo() throws CannotRedoException {
+    if (!alive || load() == null) {
+      throw new CannotRedoException();
+    }
+    edit.redo();
+  }
+
+  @Override
+  public boolean canRedo() {
+    return alive && edit != null && edit.canRedo();
+  }
+
+  @Override
+  public void die() {
+    if (alive) {
+      alive = false;
+      journal.release(position);
+    }
+    if (edit != null) {
+      edit.die();
+      edit = null;
+    }
+  }
+
+  @Override
+  public boolean addEdit(UndoableEdit anEdit) {
+    return false;
+  }
+
+  @Override
+  public boolean replaceEdit(UndoableEdit anEdit) {
+    return false;
+  }
+
+  @Override
+  public boolean isSignificant() {
+    return isSignificant;
+  }
+
+  @Override
+  public String getPresentationName() {
+    return presentationName;
+  }
+
+  @Override
+  public String getUndoPresentationName() {
+    return undoPresentationName;
+  }
+
+  @Override
+  public String getRedoPresentationName() {
+    return redoPresentationName;
+  }
+
+  /**
+   * Returns the estimated size of the placeholder, and of the shared objects which the journal
+   * keeps reachable for the edit. Shared objects may be large, such as a whole drawing, which stays
+   * reachable anyway. Therefore, they are counted with at most the size of the edit when it was
+   * spilled. If the edit is loaded, its own estimate is added.
+   */
+  @Override
+  public long getEstimatedSize() {
+    long size = MemoryEstimator.OBJECT_SIZE
+        + MemoryEstimator.estimate(presentationName)
+        + MemoryEstimator.estimate(undoPresentationName)
+        + MemoryEstimator.estimate(redoPresentationName)
+        + Math.min(spilledSize, journal.getRetainedSize(position));
+    return (edit == null) ? size : size + MemoryEstimator.estimate(edit);
+  }
+}
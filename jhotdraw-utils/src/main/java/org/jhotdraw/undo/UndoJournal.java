@@ -0,0 +1,461 @@
+/*
+ * @(#)UndoJournal.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.undo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.function.Predicate;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An append-only file into which {@link UndoRedoManager} spills edits which are too old to be kept
+ * in memory.
+ *
+ * <p>Edits are written with Java serialization. Most edits refer to objects which are part of the
+ * live model, such as figures, drawings or views. These objects must not be copied into the
+ * journal, because the edit would operate on a copy when it is read back. The predicate passed to
+ * the constructor identifies these <i>shared</i> objects. The journal writes a reference to a
+ * shared object instead of the object itself, and resolves the reference to the very same object
+ * when the edit is read back. Shared objects are kept reachable by the journal as long as an edit
+ * which refers to them is in the journal, that is until the edit is {@link #release released}.
+ *
+ * <p>A shared object may have been removed from the model by the edit, such as the figures of a
+ * delete edit. Such a <i>detached</i> object is only kept reachable by the edit. The journal writes
+ * its state along with the edit, and stops keeping it reachable. When the edit is read back, the
+ * copy takes the place of the detached object, also for the other edits in the journal which refer
+ * to it. From then on the copy is kept reachable like any other shared object. If the detached
+ * object itself is still in use at this time, because an edit which has not been spilled has put it
+ * back into the model, it is used instead of the copy.
+ *
+ * <p>Usage in a drawing application:
+ *
+ * <pre>
+ * UndoJournal journal = UndoJournal.createTempJournal(
+ *     o -&gt; o instanceof Figure || o instanceof Drawing || o instanceof DrawingView
+ *         || o instanceof Handle,
+ *     o -&gt; o instanceof AbstractAttributedFigure &amp;&amp; !(o instanceof Drawing)
+ *         &amp;&amp; ((AbstractAttributedFigure) o).getDrawing() == null);
+ * undoManager.setLimit(10000);
+ * undoManager.setJournal(journal);
+ * </pre>
+ *
+ * <p>Edits which can not be serialized are kept in memory by the manager.
+ */
+public class UndoJournal implements Closeable {
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final Predicate<Object> isShared;
+  private final Predicate<Object> isDetached;
+
+  /** Shared objects by id. */
+  private final HashMap<Integer, Object> sharedObjects = new HashMap<>();
+
+  /** Ids of the shared objects. */
+  private final IdentityHashMap<Object, Integer> sharedIds = new IdentityHashMap<>();
+
+  /** Detached objects by id. The journal does not keep them reachable. */
+  private final HashMap<Integer, DetachedReference> detachedObjects = new HashMap<>();
+
+  /** Ids of the detached objects. */
+  private final HashMap<DetachedReference, Integer> detachedIds = new HashMap<>();
+
+  private final ReferenceQueue<Object> detachedQueue = new ReferenceQueue<>();
+
+  /** The number of edits which refer to a shared object, by id. */
+  private final HashMap<Integer, Integer> sharedRefCounts = new HashMap<>();
+
+  /** The edits in the journal by position. */
+  private final HashMap<Long, Entry> entries = new HashMap<>();
+
+  /** The ids of the shared objects referred to by the edit which is being written. */
+  private LinkedHashSet<Integer> writtenSharedIds;
+
+  /** The detached objects referred to by the edit which is being written, by id. */
+  private LinkedHashMap<Integer, Object> writtenDetached;
+
+  private int nextSharedId;
+
+  /**
+   * Creates a new journal which writes to the specified file. The file is truncated if it exists.
+   *
+   * @param file the journal file
+   * @param isShared returns true for objects which are part of the live model
+   */
+  public UndoJournal(File file, Predicate<Object> isShared) throws IOException {
+    this(file, isShared, o -> false);
+  }
+
+  /**
+   * Creates a new journal which writes to the specified file. The file is truncated if it exists.
+   *
+   * @param file the journal file
+   * @param isShared returns true for objects which are part of the live model
+   * @param isDetached returns true for shared objects which have been removed from the model
+   */
+  public UndoJournal(File file, Predicate<Object> isShared, Predicate<Object> isDetached)
+      throws IOException {
+    this.file = file;
+    this.isShared = isShared;
+    this.isDetached = isDetached;
+    raf = new RandomAccessFile(file, "rw");
+    raf.setLength(0);
+  }
+
+  /** Creates a journal in a temporary file, which is deleted when the VM exits. */
+  public static UndoJournal createTempJournal(Predicate<Object> isShared) throws IOException {
+    return createTempJournal(isShared, o -> false);
+  }
+
+  /** Creates a journal in a temporary file, which is deleted when the VM exits. */
+  public static UndoJournal createTempJournal(
+      Predicate<Object> isShared, Predicate<Object> isDetached) throws IOException {
+    File f = File.createTempFile("undo", ".journal");
+    f.deleteOnExit();
+    return new UndoJournal(f, isShared, isDetached);
+  }
+
+  /** Returns the journal file. */
+  public File getFile() {
+    return file;
+  }
+
+  /** Returns the number of bytes written to the journal. */
+  public synchronized long length() throws IOException {
+    return raf.length();
+  }
+
+  /**
+   * Appends the specified edit to the journal.
+   *
+   * @return the position of the edit in the journal
+   * @throws IOException if the edit can not be serialized or written
+   */
+  public synchronized long append(UndoableEdit edit) throws IOException {
+    expungeDetached();
+    LinkedHashSet<Integer> ids = new LinkedHashSet<>();
+    LinkedHashMap<Integer, Object> detached = new LinkedHashMap<>();
+    writtenSharedIds = ids;
+    writtenDetached = detached;
+    long pos;
+    try {
+      ByteArrayOutputStream buf = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new JournalOutputStream(buf, false)) {
+        out.writeObject(edit);
+      }
+      ByteArrayOutputStream detachedBuf = new ByteArrayOutputStream();
+      if (!detached.isEmpty()) {
+        writeDetached(detachedBuf, detached);
+      }
+      pos = raf.length();
+      raf.seek(pos);
+      raf.writeInt(buf.size());
+      raf.write(buf.toByteArray());
+      raf.writeInt(detachedBuf.size());
+      raf.write(detachedBuf.toByteArray());
+    } catch (IOException | RuntimeException e) {
+      // Forget shared objects which were only registered by the failed edit
+      for (Integer id : ids) {
+        if (!sharedRefCounts.containsKey(id)) {
+          sharedIds.remove(sharedObjects.remove(id));
+          detachedIds.remove(detachedObjects.remove(id));
+        }
+      }
+      throw e;
+    } finally {
+      writtenSharedIds = null;
+      writtenDetached = null;
+    }
+    int[] entryIds = new int[ids.size()];
+    long retainedSize = 0;
+    int i = 0;
+    for (Integer id : ids) {
+      sharedRefCounts.merge(id, 1, Integer::sum);
+      if (detached.containsKey(id)) {
+        // The state of the object is in the journal now
+        sharedIds.remove(sharedObjects.remove(id));
+      } else {
+        retainedSize +=
+            MemoryEstimator.REFERENCE_SIZE + MemoryEstimator.estimate(sharedObjects.get(id));
+      }
+      entryIds[i++] = id;
+    }
+    entries.put(pos, new Entry(entryIds, !detached.isEmpty(), retainedSize));
+    return pos;
+  }
+
+  /**
+   * Writes the state of the detached objects. The detached objects, which are found while writing
+   * their state, are added to the specified map. Their ids and the objects are written after the
+   * state, so that they refer to the objects which have just been written.
+   */
+  private void writeDetached(OutputStream buf, LinkedHashMap<Integer, Object> detached)
+      throws IOException {
+    try (ObjectOutputStream out = new JournalOutputStream(buf, true)) {
+      out.writeObject(detached.values().toArray());
+      int[] detachedIds = new int[detached.size()];
+      int i = 0;
+      for (Integer id : detached.keySet()) {
+        detachedIds[i++] = id;
+      }
+      out.writeObject(detachedIds);
+      out.writeObject(detached.values().toArray());
+    }
+  }
+
+  /**
+   * Reads the copies of the detached objects, and makes them take the place of the detached
+   * objects, unless these are still reachable. From then on, they are kept reachable.
+   */
+  private void readDetached(Entry entry, byte[] buf) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new JournalInputStream(new ByteArrayInputStream(buf))) {
+      in.readObject();
+      int[] ids = (int[]) in.readObject();
+      Object[] copies = (Object[]) in.readObject();
+      for (int i = 0; i < ids.length; i++) {
+        if (!sharedObjects.containsKey(ids[i])) {
+          DetachedReference ref = detachedObjects.get(ids[i]);
+          Object obj = (ref == null || ref.get() == null) ? copies[i] : ref.get();
+          sharedObjects.put(ids[i], obj);
+          sharedIds.put(obj, ids[i]);
+          entry.retainedSize += MemoryEstimator.REFERENCE_SIZE + MemoryEstimator.estimate(obj);
+        }
+      }
+    }
+  }
+
+  /** Forgets the detached objects which are no longer reachable. */
+  private void expungeDetached() {
+    for (Object ref; (ref = detachedQueue.poll()) != null; ) {
+      detachedIds.remove(ref);
+      detachedObjects.remove(((DetachedReference) ref).id);
+    }
+  }
+
+  /**
+   * Reads the edit at the specified position of the journal.
+   *
+   * @param pos a position returned by {@link #append}
+   * @throws IOException if the edit can not be read, or if it has been released
+   */
+  public synchronized UndoableEdit read(long pos) throws IOException {
+    Entry entry = entries.get(pos);
+    if (entry == null) {
+      throw new IOException("No edit at " + pos + " in " + file);
+    }
+    raf.seek(pos);
+    byte[] buf = new byte[raf.readInt()];
+    raf.readFully(buf);
+    try {
+      if (entry.hasDetached) {
+        byte[] detachedBuf = new byte[raf.readInt()];
+        raf.readFully(detachedBuf);
+        readDetached(entry, detachedBuf);
+      }
+      try (ObjectInputStream in = new JournalInputStream(new ByteArrayInputStream(buf))) {
+        return (UndoableEdit) in.readObject();
+      }
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Could not read edit at " + pos + " from " + file, e);
+    }
+  }
+
+  /**
+   * Releases the edit at the specified position. This is done when the edit dies. The journal stops
+   * keeping the shared objects reachable, which are not referred to by any other edit in the
+   * journal. The edit can not be read afterwards.
+   *
+   * @param pos a position returned by {@link #append}
+   */
+  public synchronized void release(long pos) {
+    Entry entry = entries.remove(pos);
+    if (entry != null) {
+      for (int id : entry.sharedIds) {
+        if (sharedRefCounts.merge(id, -1, Integer::sum) == 0) {
+          sharedRefCounts.remove(id);
+          sharedIds.remove(sharedObjects.remove(id));
+          detachedIds.remove(detachedObjects.remove(id));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the estimated number of bytes of the shared objects, which the journal keeps reachable
+   * for the edit at the specified position. Objects which are shared by several edits are counted
+   * for each of them.
+   *
+   * @param pos a position returned by {@link #append}
+   * @return the estimated size, or 0 if the edit has been released
+   */
+  public synchronized long getRetainedSize(long pos) {
+    Entry entry = entries.get(pos);
+    return (entry == null) ? 0 : entry.retainedSize;
+  }
+
+  /** Returns the number of shared objects, which the journal keeps reachable. */
+  public synchronized int getSharedObjectCount() {
+    return sharedObjects.size();
+  }
+
+  /** Removes all edits from the journal, and releases all shared objects. */
+  public synchronized void clear() throws IOException {
+    raf.setLength(0);
+    releaseAll();
+  }
+
+  /** Closes and deletes the journal file. */
+  @Override
+  public synchronized void close() throws IOException {
+    releaseAll();
+    raf.close();
+    file.delete();
+  }
+
+  private void releaseAll() {
+    entries.clear();
+    sharedObjects.clear();
+    sharedIds.clear();
+    sharedRefCounts.clear();
+    detachedObjects.clear();
+    detachedIds.clear();
+  }
+
+  /** The shared objects of an edit in the journal. */
+  private static class Entry {
+
+    private final int[] sharedIds;
+    private final boolean hasDetached;
+    private long retainedSize;
+
+    Entry(int[] sharedIds, boolean hasDetached, long retainedSize) {
+      this.sharedIds = sharedIds;
+      this.hasDetached = hasDetached;
+      this.retainedSize = retainedSize;
+    }
+  }
+
+  /** A weak reference to a detached object, which compares the object by identity. */
+  private static class DetachedReference extends WeakReference<Object> {
+
+    private final int id;
+    private final int hash;
+
+    DetachedReference(Object obj, int id, ReferenceQueue<Object> queue) {
+      super(obj, queue);
+      this.id = id;
+      this.hash = System.identityHashCode(obj);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      Object obj = get();
+      return obj != null && o instanceof DetachedReference && ((DetachedReference) o).get() == obj;
+    }
+  }
+
+  /** Placeholder for a shared object in the serialized data. */
+  private static class SharedReference implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final int id;
+
+    SharedReference(int id) {
+      this.id = id;
+    }
+  }
+
+  private class JournalOutputStream extends ObjectOutputStream {
+
+    /** Whether the state of detached objects is written, instead of a reference. */
+    private final boolean isWritingDetached;
+
+    JournalOutputStream(OutputStream out, boolean isWritingDetached) throws IOException {
+      super(out);
+      this.isWritingDetached = isWritingDetached;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) throws IOException {
+      if (obj != null && isShared.test(obj)) {
+        if (isDetached.test(obj)) {
+          // The detached object may have been shared when an earlier edit was written
+          Integer id = sharedIds.get(obj);
+          if (id == null) {
+            id = detachedIds.get(new DetachedReference(obj, -1, null));
+          }
+          if (id == null) {
+            id = nextSharedId++;
+          }
+          if (!detachedObjects.containsKey(id)) {
+            DetachedReference ref = new DetachedReference(obj, id, detachedQueue);
+            detachedObjects.put(id, ref);
+            detachedIds.put(ref, id);
+          }
+          writtenSharedIds.add(id);
+          writtenDetached.putIfAbsent(id, obj);
+          return isWritingDetached ? obj : new SharedReference(id);
+        }
+        Integer id = sharedIds.get(obj);
+        if (id == null) {
+          id = nextSharedId++;
+          sharedObjects.put(id, obj);
+          sharedIds.put(obj, id);
+        }
+        writtenSharedIds.add(id);
+        return new SharedReference(id);
+      }
+      return obj;
+    }
+  }
+
+  private class JournalInputStream extends ObjectInputStream {
+
+    JournalInputStream(InputStream in) throws IOException {
+      super(in);
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      if (obj instanceof SharedReference) {
+        int id = ((SharedReference) obj).id;
+        Object shared = sharedObjects.get(id);
+        if (shared == null && detachedObjects.containsKey(id)) {
+          shared = detachedObjects.get(id).get();
+        }
+        return shared;
+      }
+      return obj;
+    }
+  }
+}
@@ -10,7 +10,10 @@ package org.jhotdraw.undo;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.util.IdentityHashMap;
 import java.util.Locale;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -22,7 +25,19 @@ import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
 import org.jhotdraw.util.ResourceBundleUtil;
 
-/** Same as javax.swing.UndoManager but provides actions for undo and redo operations. */
+/**
+ * Same as javax.swing.UndoManager but provides actions for undo and redo operations.
+ *
+ * <p>In addition to the edit count limit of {@code UndoManager}, the history is kept within a
+ * memory budget. The manager estimates the retained size of each edit with {@link
+ * MemoryEstimator}, and discards the oldest edits when the estimated size of the history exceeds
+ * {@link #getMemoryLimit}. Consecutive compatible edits are merged by the edits themselves through
+ * {@code addEdit}, see {@link #COALESCE_INTERVAL}.
+ *
+ * <p>Optionally, the manager spills edits which are older than the in-memory window to an {@link
+ * UndoJournal}, and reads them back when the user undoes that far. Since the manager also discards
+ * edits beyond its edit count limit, the limit should be raised when a journal is used.
+ */
 public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManager {
 
   private static final long serialVersionUID = 1L;
@@ -43,6 +58,37 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
    */
   private boolean undoOrRedoInProgress;
 
+  /**
+   * The maximal time in milliseconds between two edits which may be coalesced into one, for
+   * example successive nudges of the same figures with the arrow keys.
+   */
+  public static final long COALESCE_INTERVAL = 1000;
+
+  /** The default memory budget of the undo history in bytes. */
+  public static final long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+  /** The memory budget of the undo history in bytes. */
+  private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+  /** The estimated size of the undo history in bytes. */
+  private long estimatedSize;
+
+  /**
+   * The size estimates of the edits, which add up to {@link #estimatedSize}. The estimate of an
+   * edit is updated when it may have changed, that is when the edit absorbs incoming edits, when
+   * it is undone or redone, and when it is spilled to the journal.
+   */
+  private final IdentityHashMap<UndoableEdit, Long> sizeCache = new IdentityHashMap<>();
+
+  /** The journal to which old edits are spilled, or null. */
+  private UndoJournal journal;
+
+  /** The default number of most recent undoable edits which are kept in memory. */
+  public static final int DEFAULT_IN_MEMORY_WINDOW = 50;
+
+  /** The number of most recent undoable edits which are kept in memory if a journal is set. */
+  private int inMemoryWindow = DEFAULT_IN_MEMORY_WINDOW;
+
   /**
    * Sending this UndoableEdit event to the UndoRedoManager disables the Undo and Redo functions of
    * the manager.
@@ -132,10 +178,182 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
   @Override
   public void discardAllEdits() {
     super.discardAllEdits();
+    sizeCache.clear();
+    if (journal != null) {
+      try {
+        journal.clear();
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Could not clear undo journal", e);
+      }
+    }
+    updateEstimatedSize(0);
     updateActions();
     setHasSignificantEdits(false);
   }
 
+  /**
+   * Sets the memory budget of the undo history in bytes. If the estimated size of the history
+   * exceeds the budget, the oldest edits are discarded. The most recent edit is always kept.
+   */
+  public void setMemoryLimit(long newValue) {
+    long oldValue = memoryLimit;
+    memoryLimit = newValue;
+    firePropertyChange("memoryLimit", oldValue, newValue);
+    trimForMemoryLimit();
+    updateActions();
+  }
+
+  /** Returns the memory budget of the undo history in bytes. */
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /** Returns the estimated number of bytes retained by the undo history. */
+  public long getEstimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * Sets the journal to which edits older than the in-memory window are spilled. Set this to null
+   * to keep all edits in memory. Edits which have already been spilled to a previous journal stay
+   * in that journal, so the previous journal should only be closed after discarding all edits.
+   */
+  public void setJournal(UndoJournal newValue) {
+    UndoJournal oldValue = journal;
+    journal = newValue;
+    firePropertyChange("journal", oldValue, newValue);
+    spillToJournal(0, indexOfEditToBeUndone() - inMemoryWindow);
+    trimForMemoryLimit();
+  }
+
+  /** Returns the journal to which old edits are spilled, or null. */
+  public UndoJournal getJournal() {
+    return journal;
+  }
+
+  /**
+   * Sets the number of most recent undoable edits which are kept in memory when a journal is set.
+   */
+  public void setInMemoryWindow(int newValue) {
+    if (newValue < 1) {
+      throw new IllegalArgumentException("inMemoryWindow must be at least 1: " + newValue);
+    }
+    int oldValue = inMemoryWindow;
+    inMemoryWindow = newValue;
+    firePropertyChange("inMemoryWindow", oldValue, newValue);
+    spillToJournal(0, indexOfEditToBeUndone() - inMemoryWindow);
+    trimForMemoryLimit();
+  }
+
+  /** Returns the number of most recent undoable edits which are kept in memory. */
+  public int getInMemoryWindow() {
+    return inMemoryWindow;
+  }
+
+  /**
+   * Spills the edits in the specified index range to the journal, or unloads them if they have
+   * already been spilled and paged back in. Edits which can not be serialized stay in memory.
+   */
+  protected void spillToJournal(int from, int to) {
+    if (journal == null) {
+      return;
+    }
+    for (int i = Math.max(0, from); i <= to; i++) {
+      UndoableEdit edit = edits.elementAt(i);
+      if (edit instanceof SpilledEdit) {
+        ((SpilledEdit) edit).unload();
+        updateSize(edit);
+      } else if (edit.canUndo()) {
+        try {
+          long position = journal.append(edit);
+          SpilledEdit spilled = new SpilledEdit(journal, position, edit);
+          edits.setElementAt(spilled, i);
+          removeSize(edit);
+          updateSize(spilled);
+        } catch (IOException e) {
+          LOG.log(Level.FINE, "Could not spill edit to undo journal: " + edit, e);
+        }
+      }
+    }
+  }
+
+  /** Spills the edit which has just left the in-memory window. */
+  private void spillOldestInMemory() {
+    if (journal != null) {
+      int index = indexOfEditToBeUndone() - inMemoryWindow;
+      spillToJournal(index, index);
+    }
+  }
+
+  /**
+   * Returns the index of the edit to be undone, or -1. The edit is searched from the end, because
+   * it is usually one of the most recent edits.
+   */
+  private int indexOfEditToBeUndone() {
+    UndoableEdit edit = editToBeUndone();
+    return (edit == null) ? -1 : edits.lastIndexOf(edit);
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by the specified edit. Subclasses may override
+   * this method to provide estimates for edits which do not implement {@link MemoryEstimatable}.
+   */
+  protected long estimateSize(UndoableEdit edit) {
+    return MemoryEstimator.estimate(edit);
+  }
+
+  /**
+   * Discards the oldest edits until the estimated size of the history is within the memory limit.
+   */
+  protected void trimForMemoryLimit() {
+    while (estimatedSize > memoryLimit
+        && edits.size() > 1
+        && edits.elementAt(0) != editToBeUndone()) {
+      trimEdits(0, 0);
+    }
+  }
+
+  /**
+   * Removes the edits in the specified index range, and subtracts their estimated sizes from the
+   * estimated size of the history. All edits which leave the history pass through this method,
+   * except for edits which are replaced by their successor, see {@link #addEdit}.
+   */
+  @Override
+  protected void trimEdits(int from, int to) {
+    for (int i = from; i <= to; i++) {
+      removeSize(edits.elementAt(i));
+    }
+    super.trimEdits(from, to);
+  }
+
+  /** Estimates the size of the specified edit, and updates the estimated size of the history. */
+  private void updateSize(UndoableEdit edit) {
+    long size = estimateSize(edit);
+    Long oldSize = sizeCache.put(edit, size);
+    updateEstimatedSize(estimatedSize + size - ((oldSize == null) ? 0 : oldSize));
+  }
+
+  /** Subtracts the size of an edit, which leaves the history, from the estimated size. */
+  private void removeSize(UndoableEdit edit) {
+    Long oldSize = sizeCache.remove(edit);
+    if (oldSize != null) {
+      updateEstimatedSize(estimatedSize - oldSize);
+    }
+  }
+
+  /** Updates the estimated sizes of the edits in the specified index range. */
+  private void updateSizes(int from, int to) {
+    for (int i = Math.max(0, from), n = Math.min(to, edits.size() - 1); i <= n; i++) {
+      updateSize(edits.elementAt(i));
+    }
+  }
+
+  private void updateEstimatedSize(long newValue) {
+    long oldValue = estimatedSize;
+    estimatedSize = newValue;
+    firePropertyChange("estimatedSize", oldValue, newValue);
+  }
+
   public void setHasSignificantEdits(boolean newValue) {
     boolean oldValue = hasSignificantEdits;
     hasSignificantEdits = newValue;
@@ -168,7 +386,20 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
       anEdit.die();
       return true;
     }
+    UndoableEdit lastEdit = lastEdit();
     boolean success = super.addEdit(anEdit);
+    int last = edits.size() - 1;
+    if (lastEdit != null
+        && sizeCache.containsKey(lastEdit)
+        && (last < 0 || edits.elementAt(last) != lastEdit)
+        && (last < 1 || edits.elementAt(last - 1) != lastEdit)) {
+      // The previous last edit has been replaced by the new edit
+      removeSize(lastEdit);
+    }
+    // The last edit may have absorbed the new edit
+    updateSizes(last - 1, last);
+    spillOldestInMemory();
+    trimForMemoryLimit();
     updateActions();
     if (success && anEdit.isSignificant() && editToBeUndone() == anEdit) {
       setHasSignificantEdits(true);
@@ -230,6 +461,15 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
       super.undo();
     } finally {
       undoOrRedoInProgress = false;
+      // Update the undone edit, and the insignificant edits which have been undone with it
+      int from = edits.lastIndexOf(editToBeRedone());
+      if (from >= 0) {
+        int to = from;
+        while (to + 1 < edits.size() && !edits.elementAt(to + 1).isSignificant()) {
+          to++;
+        }
+        updateSizes(from, to);
+      }
       updateActions();
     }
   }
@@ -245,6 +485,14 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
       super.redo();
     } finally {
       undoOrRedoInProgress = false;
+      // Update the redone edit, and the insignificant edits which have been redone with it
+      int to = indexOfEditToBeUndone();
+      int from = to;
+      while (from > 0 && !edits.elementAt(from - 1).isSignificant()) {
+        from--;
+      }
+      updateSizes(from, to);
+      spillOldestInMemory();
       updateActions();
     }
   }
@@ -255,12 +503,11 @@ public class UndoRedoManager extends UndoManager { // javax.swing.undo.UndoManag
    */
   @Override
   public void undoOrRedo() throws CannotUndoException, CannotRedoException {
-    undoOrRedoInProgress = true;
-    try {
-      super.undoOrRedo();
-    } finally {
-      undoOrRedoInProgress = false;
-      updateActions();
+    // Dispatch to undo and redo, which update the size estimates and spill old edits
+    if (editToBeRedone() == null) {
+      undo();
+    } else {
+      redo();
     }
   }
 
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom.path;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jhotdraw.io.StreamPosTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link PathDataParser} with tokenizing the same path data with the {@link
+ * StreamPosTokenizer} setup that the SVG and ODG importers used before. The tokenizer run only
+ * scans the numbers and does not build any paths, so it is a lower bound for the previous parser.
+ *
+ * <p>The JMH annotation processor generates the benchmark classes when the test sources are
+ * compiled. Run with {@code java org.jhotdraw.geom.path.PathDataParserBenchmark} on the test
+ * class path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathDataParserBenchmark {
+
+  @Param({"2000"})
+  public int pathCount;
+
+  @Param({"200"})
+  public int segmentCount;
+
+  private List<String> data;
+  private PathDataParser parser;
+  private StreamPosTokenizer tt;
+
+  @Setup
+  public void setUp() {
+    data = createPathData(pathCount, segmentCount);
+    parser = new PathDataParser();
+    tt = new StreamPosTokenizer(new StringReader(""));
+    tt.resetSyntax();
+    tt.parseNumbers();
+    tt.parseExponents();
+    tt.parsePlusAsNumber();
+    tt.whitespaceChars(0, ' ');
+    tt.whitespaceChars(',', ',');
+  }
+
+  /** Returns the number of nodes, so that the parsed paths are not optimized away. */
+  @Benchmark
+  public int pathDataParser() throws ParseException {
+    int nodes = 0;
+    for (String str : data) {
+      for (BezierPath path : parser.parse(str)) {
+        nodes += path.size();
+      }
+    }
+    return nodes;
+  }
+
+  /** Returns the number of numbers, so that the tokens are not optimized away. */
+  @Benchmark
+  public int streamPosTokenizer() throws IOException {
+    int numbers = 0;
+    for (String str : data) {
+      tt.setReader(new StringReader(str));
+      while (tt.nextToken() != StreamPosTokenizer.TT_EOF) {
+        if (tt.ttype == StreamPosTokenizer.TT_NUMBER) {
+          numbers++;
+        }
+      }
+    }
+    return numbers;
+  }
+
+  /** Creates path data like it is written by drawing programs. */
+  private static List<String> createPathData(int pathCount, int segmentCount) {
+    Random r = new Random(0);
+    List<String> data = new ArrayList<>();
+    for (int i = 0; i < pathCount; i++) {
+      StringBuilder buf = new StringBuilder();
+      buf.append(String.format(
+          Locale.ENGLISH, "M%.3f,%.3f", r.nextDouble() * 1000, r.nextDouble() * 1000));
+      for (int j = 0; j < segmentCount; j++) {
+        switch (j % 3) {
+          case 0:
+            buf.append(String.format(
+                Locale.ENGLISH, "l%.2f,%.2f", r.nextGaussian() * 10, r.nextGaussian() * 10));
+            break;
+          case 1:
+            buf.append(String.format(
+                Locale.ENGLISH,
+                "c%.2f %.2f %.2f %.2f %.2f %.2f",
+                r.nextGaussian(),
+                r.nextGaussian(),
+                r.nextGaussian() * 5,
+                r.nextGaussian() * 5,
+                r.nextGaussian() * 10,
+                r.nextGaussian() * 10));
+            break;
+          default:
+            buf.append(String.format(
+                Locale.ENGLISH, "H%.1fV%.1f", r.nextDouble() * 1000, r.nextDouble() * 1000));
+            break;
+        }
+      }
+      data.add(buf.append('z').toString());
+    }
+    return data;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PathDataParserBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
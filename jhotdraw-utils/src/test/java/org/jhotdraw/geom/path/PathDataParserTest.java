@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom.path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.geom.Point2D;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class PathDataParserTest {
+
+  private final PathDataParser parser = new PathDataParser();
+
+  @Test
+  void testAbsoluteAndRelativeCommands() throws ParseException {
+    BezierPath[] paths = parser.parse("M10,20L30 40h5v-5l-10-10zm1 1 2 2");
+    assertThat(paths).hasSize(2);
+    assertThat(paths[0].isClosed()).isTrue();
+    assertThat(paths[0].size()).isEqualTo(5);
+    assertThat(paths[0].get(4, 0)).isEqualTo(new Point2D.Double(25, 25));
+    // After 'z' the current point is the start of the subpath
+    assertThat(paths[1].get(0, 0)).isEqualTo(new Point2D.Double(11, 21));
+    assertThat(paths[1].get(1, 0)).isEqualTo(new Point2D.Double(13, 23));
+  }
+
+  @Test
+  void testCompactNumbers() throws ParseException {
+    BezierPath[] paths = parser.parse("M.5.5L-1e1+2E-1 1.5e2.25");
+    assertThat(paths[0].get(0, 0)).isEqualTo(new Point2D.Double(0.5, 0.5));
+    assertThat(paths[0].get(1, 0)).isEqualTo(new Point2D.Double(-10, 0.2));
+    assertThat(paths[0].get(2, 0)).isEqualTo(new Point2D.Double(150, 0.25));
+  }
+
+  @Test
+  void testCompactArcFlags() throws ParseException {
+    BezierPath[] paths = parser.parse("M0 0a10 10 0 0110 10");
+    BezierPath.Node last = paths[0].nodes().get(paths[0].size() - 1);
+    assertThat(last.x[0]).isEqualTo(10d);
+    assertThat(last.y[0]).isEqualTo(10d);
+  }
+
+  @Test
+  void testNumbersMatchParseDouble() throws ParseException {
+    Random r = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      double x = (r.nextDouble() - 0.5) * Math.pow(10, r.nextInt(12) - 6);
+      String s = (i % 2 == 0) ? Double.toString(x) : String.format(Locale.ROOT, "%.3f", x);
+      BezierPath[] paths = parser.parse("M" + s + " 0");
+      assertThat(paths[0].get(0, 0).x).isEqualTo(Double.parseDouble(s));
+    }
+  }
+
+  @Test
+  void testIllegalCommandStopsParsing() throws ParseException {
+    BezierPath[] paths = parser.parse("M0 0L1 1X2 2");
+    assertThat(paths).hasSize(1);
+    assertThat(paths[0].size()).isEqualTo(2);
+  }
+
+  @Test
+  void testMissingCoordinate() {
+    assertThatThrownBy(() -> parser.parse("M0 0L1")).isInstanceOf(ParseException.class);
+    assertThatThrownBy(() -> parser.parse("L1 1")).isInstanceOf(ParseException.class);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom.path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class PathDataWriterTest {
+
+  private final PathDataWriter writer = new PathDataWriter(3);
+  private final PathDataParser parser = new PathDataParser();
+
+  @Test
+  void testAppendNumber() {
+    assertThat(number(0)).isEqualTo("0");
+    assertThat(number(-0.0001)).isEqualTo("0");
+    assertThat(number(2)).isEqualTo("2");
+    assertThat(number(-0.05)).isEqualTo("-0.05");
+    assertThat(number(123.4567)).isEqualTo("123.457");
+    assertThat(number(0.0005)).isEqualTo("0.001");
+  }
+
+  @Test
+  void testCompactPathData() throws ParseException {
+    assertThat(writer.write(parser.parse("M 10 20 L 30 20 L 30 40 Z"))).isEqualTo("M10 20h20v20z");
+    // A lineto after a moveto is implicit
+    assertThat(writer.write(parser.parse("M 0.5 0.25 L -1 -2"))).isEqualTo("M.5.25-1-2");
+  }
+
+  @Test
+  void testRoundTrip() throws ParseException {
+    Random r = new Random(1);
+    for (int k = 0; k < 100; k++) {
+      BezierPath path = new BezierPath();
+      path.moveTo(r.nextDouble() * 1000, r.nextDouble() * 1000);
+      for (int i = 0; i < 50; i++) {
+        double x = r.nextDouble() * 1000;
+        double y = r.nextDouble() * 1000;
+        switch (r.nextInt(3)) {
+          case 0:
+            path.lineTo(x, y);
+            break;
+          case 1:
+            path.quadTo(r.nextDouble() * 1000, r.nextDouble() * 1000, x, y);
+            break;
+          default:
+            path.curveTo(
+                r.nextDouble() * 1000,
+                r.nextDouble() * 1000,
+                r.nextDouble() * 1000,
+                r.nextDouble() * 1000,
+                x,
+                y);
+            break;
+        }
+      }
+      path.setClosed(r.nextBoolean());
+      BezierPath read = parser.parse(writer.write(new BezierPath[] {path}))[0];
+      assertThat(read.size()).isEqualTo(path.size());
+      assertThat(read.isClosed()).isEqualTo(path.isClosed());
+      for (int i = 0; i < path.size(); i++) {
+        BezierPath.Node expected = path.nodes().get(i);
+        BezierPath.Node actual = read.nodes().get(i);
+        assertThat(actual.mask).isEqualTo(expected.mask);
+        for (int j = 0; j < 3; j++) {
+          // Rounding errors do not accumulate along the path
+          assertThat(Math.abs(actual.x[j] - expected.x[j]) <= 0.0005 + 1e-9).isTrue();
+          assertThat(Math.abs(actual.y[j] - expected.y[j]) <= 0.0005 + 1e-9).isTrue();
+        }
+      }
+    }
+  }
+
+  @Test
+  void testExactNumbers() throws ParseException {
+    assertThat(PathDataWriter.appendNumber(new StringBuilder(), 2, PathDataWriter.EXACT).toString())
+        .isEqualTo("2");
+    assertThat(new PathDataWriter().write(parser.parse("M 0.1 -2.5 L 1 2")))
+        .isEqualTo("M.1-2.5 1 2");
+
+    Random r = new Random(1);
+    BezierPath path = new BezierPath();
+    path.moveTo(r.nextDouble() * 1000, r.nextDouble() * 1000);
+    for (int i = 0; i < 100; i++) {
+      path.curveTo(
+          r.nextDouble() * 1000,
+          r.nextDouble() / 1000,
+          r.nextDouble() * 1e9,
+          -r.nextDouble(),
+          r.nextDouble() * 1000,
+          r.nextDouble() * 1000);
+    }
+    BezierPath read = parser.parse(new PathDataWriter().write(new BezierPath[] {path}))[0];
+    assertThat(read.size()).isEqualTo(path.size());
+    for (int i = 0; i < path.size(); i++) {
+      BezierPath.Node expected = path.nodes().get(i);
+      BezierPath.Node actual = read.nodes().get(i);
+      for (int j = 0; j < 3; j++) {
+        assertThat(actual.x[j]).isEqualTo(expected.x[j]);
+        assertThat(actual.y[j]).isEqualTo(expected.y[j]);
+      }
+    }
+  }
+
+  private static String number(double value) {
+    return PathDataWriter.appendNumber(new StringBuilder(), value, 3).toString();
+  }
+}
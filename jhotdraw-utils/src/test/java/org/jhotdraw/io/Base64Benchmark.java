@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the {@link Base64} streams with {@link java.util.Base64} on image sized data. Each round
+ * encodes the data into a string and decodes it again, like an image is written to and read from
+ * a drawing file.
+ *
+ * <p>Run with {@code java org.jhotdraw.io.Base64Benchmark [kilobytes] [images]}.
+ */
+public class Base64Benchmark {
+
+  public static void main(String[] args) throws Exception {
+    int size = ((args.length > 0) ? Integer.parseInt(args[0]) : 512) * 1024;
+    int imageCount = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+    byte[] data = new byte[size];
+    new Random(0).nextBytes(data);
+    for (int round = 0; round < 5; round++) {
+      long start = System.nanoTime();
+      long check = 0;
+      for (int i = 0; i < imageCount; i++) {
+        check += streams(data).length;
+      }
+      long streamed = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < imageCount; i++) {
+        check += strings(data).length;
+      }
+      long stringified = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < imageCount; i++) {
+        check -= javaUtil(data).length;
+      }
+      long javaUtil = System.nanoTime() - start;
+      System.out.printf(
+          "%d x %d kB: streams %.1f ms, encodeBytes/decode %.1f ms, java.util.Base64 %.1f ms (%d)%n",
+          imageCount,
+          size / 1024,
+          streamed / 1e6,
+          stringified / 1e6,
+          javaUtil / 1e6,
+          check);
+    }
+  }
+
+  private static byte[] streams(byte[] data) throws IOException {
+    StringBuilder text = new StringBuilder(data.length / 3 * 4 + data.length / 57 + 4);
+    try (Base64.OutputStream out =
+        new Base64.OutputStream(
+            new java.io.OutputStream() {
+              @Override
+              public void write(int b) {
+                text.append((char) b);
+              }
+
+              @Override
+              public void write(byte[] b, int off, int len) {
+                for (int end = off + len; off < end; off++) {
+                  text.append((char) b[off]);
+                }
+              }
+            },
+            Base64.ENCODE)) {
+      out.write(data);
+    }
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length);
+    try (Base64.OutputStream out = new Base64.OutputStream(buf, Base64.DECODE)) {
+      out.write(text, 0, text.length());
+    }
+    return buf.toByteArray();
+  }
+
+  private static byte[] strings(byte[] data) {
+    return Base64.decode(Base64.encodeBytes(data));
+  }
+
+  private static byte[] javaUtil(byte[] data) {
+    return java.util.Base64.getMimeDecoder()
+        .decode(java.util.Base64.getMimeEncoder().encodeToString(data));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class Base64Test {
+
+  private static byte[] randomBytes(int length) {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    return data;
+  }
+
+  private static byte[] encode(byte[] data, int writeSize) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (Base64.OutputStream out = new Base64.OutputStream(buf, Base64.ENCODE)) {
+      for (int off = 0; off < data.length; off += writeSize) {
+        out.write(data, off, Math.min(writeSize, data.length - off));
+      }
+    }
+    return buf.toByteArray();
+  }
+
+  private static byte[] decode(String text) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (Base64.OutputStream out = new Base64.OutputStream(buf, Base64.DECODE)) {
+      out.write(text, 0, text.length());
+    }
+    return buf.toByteArray();
+  }
+
+  @Test
+  void testOutputStreamEncodesLikeEncodeBytes() throws IOException {
+    for (int length : new int[] {0, 1, 2, 3, 56, 57, 58, 4095, 4096, 4097, 100000}) {
+      byte[] data = randomBytes(length);
+      String expected = Base64.encodeBytes(data);
+      for (int writeSize : new int[] {1, 2, 7, 4096, 100000}) {
+        assertThat(new String(encode(data, writeSize), StandardCharsets.US_ASCII))
+            .isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  void testOutputStreamDecodesLikeJavaUtilBase64() throws IOException {
+    for (int length : new int[] {0, 1, 2, 3, 4095, 4096, 4097, 100000}) {
+      byte[] data = randomBytes(length);
+      assertThat(decode(java.util.Base64.getEncoder().encodeToString(data))).isEqualTo(data);
+      assertThat(decode(java.util.Base64.getMimeEncoder().encodeToString(data))).isEqualTo(data);
+    }
+  }
+
+  @Test
+  void testInputStreamDecodesInChunks() throws IOException {
+    byte[] data = randomBytes(20000);
+    byte[] text = java.util.Base64.getMimeEncoder().encode(data);
+    try (Base64.InputStream in = new Base64.InputStream(new ByteArrayInputStream(text))) {
+      ByteArrayOutputStream buf = new ByteArrayOutputStream();
+      byte[] b = new byte[1000];
+      buf.write(in.read());
+      for (int n; (n = in.read(b, 0, b.length)) != -1; ) {
+        buf.write(b, 0, n);
+      }
+      assertThat(buf.toByteArray()).isEqualTo(data);
+    }
+  }
+
+  @Test
+  void testPaddingEndsTheData() throws IOException {
+    byte[] text = "YWI=YWJj".getBytes(StandardCharsets.US_ASCII);
+    try (Base64.InputStream in = new Base64.InputStream(new ByteArrayInputStream(text))) {
+      assertThat(in.readAllBytes()).isEqualTo("ab".getBytes(StandardCharsets.US_ASCII));
+    }
+  }
+
+  @Test
+  void testInvalidInput() {
+    assertThatThrownBy(() -> decode("YW\u00e4I=")).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> decode("YWJjZ")).isInstanceOf(IOException.class);
+    byte[] text = "YWJjZ".getBytes(StandardCharsets.US_ASCII);
+    assertThatThrownBy(
+            () -> new Base64.InputStream(new ByteArrayInputStream(text)).readAllBytes())
+        .isInstanceOf(IOException.class);
+  }
+}
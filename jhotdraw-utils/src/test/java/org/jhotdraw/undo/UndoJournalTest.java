@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.undo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import javax.swing.undo.AbstractUndoableEdit;
+import org.junit.jupiter.api.Test;
+
+public class UndoJournalTest {
+
+  /** A part of the live model, which must not be copied into the journal. */
+  private static class Model implements MemoryEstimatable {
+
+    final StringBuilder text = new StringBuilder();
+    final long size;
+
+    Model(long size) {
+      this.size = size;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+      return size;
+    }
+  }
+
+  /** Appends text to a model. The edit keeps the model alive, like a deletion keeps figures. */
+  private static class AppendEdit extends AbstractUndoableEdit implements MemoryEstimatable {
+
+    private static final long serialVersionUID = 1L;
+    private final Model model;
+    private final String text;
+
+    AppendEdit(Model model, String text) {
+      this.model = model;
+      this.text = text;
+      model.text.append(text);
+    }
+
+    @Override
+    public void undo() {
+      super.undo();
+      model.text.setLength(model.text.length() - text.length());
+    }
+
+    @Override
+    public void redo() {
+      super.redo();
+      model.text.append(text);
+    }
+
+    @Override
+    public long getEstimatedSize() {
+      return MemoryEstimator.OBJECT_SIZE + model.getEstimatedSize();
+    }
+  }
+
+  private static UndoJournal createJournal() throws IOException {
+    return UndoJournal.createTempJournal(o -> o instanceof Model);
+  }
+
+  @Test
+  public void testSpillAndRestoreRoundTrip() throws IOException {
+    try (UndoJournal journal = createJournal()) {
+      UndoRedoManager manager = new UndoRedoManager();
+      manager.setInMemoryWindow(2);
+      manager.setJournal(journal);
+      Model model = new Model(100);
+      for (char c = 'a'; c <= 'e'; c++) {
+        manager.addEdit(new AppendEdit(model, String.valueOf(c)));
+      }
+      assertThat(journal.length()).isPositive();
+      assertThat(journal.getSharedObjectCount()).isEqualTo(1);
+
+      while (manager.canUndo()) {
+        manager.undo();
+      }
+      // The spilled edits have been read back, and operate on the very same model
+      assertThat(model.text.toString()).isEmpty();
+      while (manager.canRedo()) {
+        manager.redo();
+      }
+      assertThat(model.text.toString()).isEqualTo("abcde");
+      manager.undo();
+      assertThat(model.text.toString()).isEqualTo("abcd");
+    }
+  }
+
+  @Test
+  public void testUndoOrRedoSpillsLikeRedo() throws IOException {
+    try (UndoJournal journal1 = createJournal();
+        UndoJournal journal2 = createJournal()) {
+      UndoRedoManager manager1 = createUndoneManager(journal1);
+      UndoRedoManager manager2 = createUndoneManager(journal2);
+      long undoneSize = manager1.getEstimatedSize();
+      for (int i = 0; i < 3; i++) {
+        manager1.redo();
+        manager2.undoOrRedo();
+      }
+      // The edits which have left the in-memory window are unloaded again
+      assertThat(manager2.getEstimatedSize()).isEqualTo(manager1.getEstimatedSize());
+      assertThat(manager2.getEstimatedSize()).isLessThan(undoneSize);
+    }
+  }
+
+  /** Returns a manager with four spilled edits, which have all been undone. */
+  private static UndoRedoManager createUndoneManager(UndoJournal journal) {
+    UndoRedoManager manager = new UndoRedoManager();
+    manager.setInMemoryWindow(1);
+    manager.setJournal(journal);
+    for (int i = 0; i < 4; i++) {
+      manager.addEdit(new AppendEdit(new Model(10000), "x"));
+    }
+    while (manager.canUndo()) {
+      manager.undo();
+    }
+    return manager;
+  }
+
+  @Test
+  public void testSharedObjectsAreReleasedWhenEditsDie() throws IOException {
+    try (UndoJournal journal = createJournal()) {
+      Model a = new Model(100);
+      Model b = new Model(100);
+      long posA1 = journal.append(new AppendEdit(a, "1"));
+      long posA2 = journal.append(new AppendEdit(a, "2"));
+      long posB = journal.append(new AppendEdit(b, "3"));
+      assertThat(journal.getSharedObjectCount()).isEqualTo(2);
+
+      journal.release(posA1);
+      assertThat(journal.getSharedObjectCount()).isEqualTo(2);
+      journal.release(posA2);
+      assertThat(journal.getSharedObjectCount()).isEqualTo(1);
+      journal.release(posB);
+      assertThat(journal.getSharedObjectCount()).isZero();
+    }
+  }
+
+  @Test
+  public void testTrimmedSpilledEditsReleaseTheirModels() throws IOException {
+    try (UndoJournal journal = createJournal()) {
+      UndoRedoManager manager = new UndoRedoManager();
+      manager.setLimit(4);
+      manager.setInMemoryWindow(1);
+      manager.setJournal(journal);
+      for (int i = 0; i < 20; i++) {
+        manager.addEdit(new AppendEdit(new Model(100), "x"));
+      }
+      // Only the spilled edits within the edit limit keep their models reachable
+      assertThat(journal.getSharedObjectCount()).isLessThanOrEqualTo(4);
+
+      manager.discardAllEdits();
+      assertThat(journal.getSharedObjectCount()).isZero();
+    }
+  }
+
+  @Test
+  public void testSpilledEditsCountTheModelsTheyRetain() throws IOException {
+    try (UndoJournal journal = createJournal()) {
+      UndoRedoManager manager = new UndoRedoManager();
+      manager.setInMemoryWindow(1);
+      manager.setJournal(journal);
+      for (int i = 0; i < 5; i++) {
+        manager.addEdit(new AppendEdit(new Model(10000), "x"));
+      }
+      assertThat(manager.getEstimatedSize()).isGreaterThanOrEqualTo(5 * 10000);
+
+      manager.setMemoryLimit(25000);
+      assertThat(manager.getEstimatedSize()).isLessThanOrEqualTo(25000);
+      assertThat(journal.getSharedObjectCount()).isLessThanOrEqualTo(2);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.undo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.UndoableEdit;
+import org.junit.jupiter.api.Test;
+
+public class UndoRedoManagerTest {
+
+  /** An edit with a fixed size, which absorbs edits with the same key. */
+  private static class SizedEdit extends AbstractUndoableEdit implements MemoryEstimatable {
+
+    private static final long serialVersionUID = 1L;
+    private final String key;
+    private long size;
+
+    SizedEdit(String key, long size) {
+      this.key = key;
+      this.size = size;
+    }
+
+    @Override
+    public boolean addEdit(UndoableEdit anEdit) {
+      if (key != null && anEdit instanceof SizedEdit && key.equals(((SizedEdit) anEdit).key)) {
+        size += ((SizedEdit) anEdit).size;
+        anEdit.die();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+      return size;
+    }
+  }
+
+  private static int undoAll(UndoRedoManager manager) {
+    int count = 0;
+    while (manager.canUndo()) {
+      manager.undo();
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void testOldestEditsAreDiscardedWhenOverBudget() {
+    UndoRedoManager manager = new UndoRedoManager();
+    manager.setMemoryLimit(1000);
+    for (int i = 0; i < 5; i++) {
+      manager.addEdit(new SizedEdit(null, 300));
+    }
+    assertThat(manager.getEstimatedSize()).isEqualTo(900);
+    assertThat(undoAll(manager)).isEqualTo(3);
+  }
+
+  @Test
+  public void testMostRecentEditIsKeptWhenOverBudget() {
+    UndoRedoManager manager = new UndoRedoManager();
+    manager.setMemoryLimit(100);
+    manager.addEdit(new SizedEdit(null, 50));
+    manager.addEdit(new SizedEdit(null, 500));
+    assertThat(manager.getEstimatedSize()).isEqualTo(500);
+    assertThat(undoAll(manager)).isEqualTo(1);
+  }
+
+  @Test
+  public void testEstimatedSizeFollowsAbsorbedEdits() {
+    UndoRedoManager manager = new UndoRedoManager();
+    manager.addEdit(new SizedEdit(null, 10));
+    manager.addEdit(new SizedEdit("nudge", 100));
+    manager.addEdit(new SizedEdit("nudge", 100));
+    manager.addEdit(new SizedEdit("nudge", 100));
+    assertThat(manager.getEstimatedSize()).isEqualTo(310);
+
+    manager.setMemoryLimit(300);
+    assertThat(manager.getEstimatedSize()).isEqualTo(300);
+    assertThat(undoAll(manager)).isEqualTo(1);
+  }
+
+  @Test
+  public void testEstimatedSizeAfterUndoRedoAndDiscard() {
+    UndoRedoManager manager = new UndoRedoManager();
+    for (int i = 0; i < 4; i++) {
+      manager.addEdit(new SizedEdit(null, 100));
+    }
+    manager.undo();
+    manager.undo();
+    manager.redo();
+    assertThat(manager.getEstimatedSize()).isEqualTo(400);
+
+    // Adding an edit discards the edit which could have been redone
+    manager.addEdit(new SizedEdit(null, 50));
+    assertThat(manager.getEstimatedSize()).isEqualTo(350);
+
+    manager.discardAllEdits();
+    assertThat(manager.getEstimatedSize()).isZero();
+    manager.addEdit(new SizedEdit(null, 20));
+    assertThat(manager.getEstimatedSize()).isEqualTo(20);
+  }
+}
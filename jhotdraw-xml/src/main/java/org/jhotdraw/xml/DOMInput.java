@@ -7,7 +7,9 @@
  */
 package org.jhotdraw.xml;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import org.jhotdraw.io.Base64;
 
 /**
  * DOMInput.
@@ -38,6 +40,27 @@ public interface DOMInput {
   /** Gets the text of the current element of the DOM Document. */
   public String getText(String defaultValue);
 
+  /**
+   * Gets the text of the current element of the DOM Document, decoded from Base64 notation.
+   *
+   * <p>Implementations should override this method if they can decode the text without holding
+   * all of it in a string.
+   *
+   * @return the decoded bytes, or null if the element has no text
+   * @throws IOException if the text is not in Base64 notation
+   */
+  public default byte[] getBase64Text() throws IOException {
+    String text = getText();
+    if (text == null) {
+      return null;
+    }
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(text.length() / 4 * 3);
+    try (Base64.OutputStream out = new Base64.OutputStream(buf, Base64.DECODE)) {
+      out.write(text, 0, text.length());
+    }
+    return buf.toByteArray();
+  }
+
   /** Gets an attribute of the current element of the DOM Document. */
   public int getAttribute(String name, int defaultValue);
 
@@ -58,6 +81,16 @@ public interface DOMInput {
   /** Returns the number of child elements with the specified tag name of the current element. */
   public int getElementCount(String tagName);
 
+  /**
+   * Returns true if the current element has a child element with the specified index.
+   *
+   * <p>Streaming implementations only read the document up to the requested child, whereas {@link
+   * #getElementCount()} needs to read all children of the current element.
+   */
+  public default boolean hasElement(int index) throws IOException {
+    return index < getElementCount();
+  }
+
   /** Opens the element with the specified index and makes it the current node. */
   public void openElement(int index) throws IOException;
 
@@ -8,6 +8,7 @@
 package org.jhotdraw.xml;
 
 import java.io.IOException;
+import org.jhotdraw.io.Base64;
 
 /**
  * DOMOutput.
@@ -54,6 +55,16 @@ public interface DOMOutput {
    */
   public void addText(String text);
 
+  /**
+   * Adds data in Base64 notation as text to the current element of the DOM Document.
+   *
+   * <p>Implementations should override this method if they can write the data without converting
+   * all of it into a string first.
+   */
+  public default void addBase64Text(byte[] data) {
+    addText(Base64.encodeBytes(data));
+  }
+
   /** Adds an attribute to current element of the DOM Document. */
   public void addAttribute(String name, String value);
 
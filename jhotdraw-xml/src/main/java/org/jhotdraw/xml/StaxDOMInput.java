@@ -0,0 +1,447 @@
+/*
+ * @(#)StaxDOMInput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jhotdraw.io.Base64;
+
+/**
+ * A {@link DOMInput} which reads an XML document with a {@code javax.xml.stream} parser.
+ *
+ * <p>Unlike {@link JavaxDOMInput}, this class does not build a DOM of the entire document. Elements
+ * are parsed lazily, only as far as they are needed to answer a request. An element which has been
+ * read with {@link #readObject(int)} is released as soon as the object has been created from it.
+ * When the children of an element are read in document order, for example the figures of a
+ * drawing, the reader therefore only keeps the current element path and the element of the object
+ * which is currently being read in memory.
+ *
+ * <p>Use {@link #hasElement(int)} instead of {@link #getElementCount()} to iterate over a large
+ * number of children: {@code getElementCount} has to parse all children of the current element.
+ *
+ * <p>Elements released by {@code readObject(int)} can not be opened again. This matches the
+ * id/ref mechanism, which does not allow to read the same object element twice. Released elements
+ * are still counted like in {@link JavaxDOMInput}, so that the indices of the following elements
+ * do not change.
+ */
+public class StaxDOMInput implements DOMInput {
+
+  /**
+   * This map is used to unmarshall references to objects to the XML DOM. A key in this map is a
+   * String representing a marshalled reference. A value in this map is an unmarshalled Object.
+   */
+  private HashMap<String, Object> idobjects = new HashMap<String, Object>();
+
+  /** The factory used to create objects from XML tag names. */
+  private DOMFactory factory;
+
+  private XMLStreamReader reader;
+
+  /** The document node. It has no tag name and no attributes. */
+  private final Node document = new Node(null, null);
+
+  /** The current node used for input. */
+  private Node current = document;
+
+  /** The innermost element which is being parsed, or null if the document has been parsed. */
+  private Node parsing = document;
+
+  /**
+   * Receives the text which is parsed while {@link #getBase64Text} completes the current element,
+   * or null.
+   */
+  private Base64.OutputStream base64Sink;
+
+  /** Set to true when text has been written to the base64 sink. */
+  private boolean isBase64TextFound;
+
+  /** An element which has been parsed partially. */
+  private static class Node {
+
+    final Node parent;
+    final String tagName;
+    final LinkedHashMap<String, String> attributes = new LinkedHashMap<>();
+
+    /** Child elements in document order. Released elements are replaced by an empty node. */
+    final ArrayList<Node> elements = new ArrayList<>();
+
+    /** Text and child elements in document order. Released elements are null. */
+    final ArrayList<Object> content = new ArrayList<>();
+
+    int contentIndex;
+    boolean isComplete;
+
+    /** Set to true if the element has been read with {@link #readObject(int)}. */
+    boolean isReleased;
+
+    Node(Node parent, String tagName) {
+      this.parent = parent;
+      this.tagName = tagName;
+    }
+  }
+
+  protected static XMLInputFactory createInputFactory() {
+    XMLInputFactory f = XMLInputFactory.newInstance();
+    f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    // Large texts are delivered in chunks, so that Base64 data can be decoded as it is parsed
+    f.setProperty(XMLInputFactory.IS_COALESCING, false);
+    f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return f;
+  }
+
+  public StaxDOMInput(DOMFactory factory, InputStream in) throws IOException {
+    this.factory = factory;
+    try {
+      reader = createInputFactory().createXMLStreamReader(in);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  public StaxDOMInput(DOMFactory factory, Reader in) throws IOException {
+    this.factory = factory;
+    try {
+      reader = createInputFactory().createXMLStreamReader(in);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  /** Parses the next event of the document. Returns false if the document has been parsed. */
+  private boolean parseNext() throws IOException {
+    if (parsing == null) {
+      return false;
+    }
+    try {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          Node n = new Node(parsing, qualifiedName(reader.getPrefix(), reader.getLocalName()));
+          for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            n.attributes.put(
+                qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                reader.getAttributeValue(i));
+          }
+          n.contentIndex = parsing.content.size();
+          parsing.content.add(n);
+          parsing.elements.add(n);
+          parsing = n;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          parsing.isComplete = true;
+          parsing = parsing.parent;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if (base64Sink != null) {
+            isBase64TextFound = true;
+            base64Sink.write(
+                CharBuffer.wrap(
+                    reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength()),
+                0,
+                reader.getTextLength());
+          } else if (parsing != document) {
+            parsing.content.add(reader.getText());
+          }
+          break;
+        case XMLStreamConstants.END_DOCUMENT:
+          document.isComplete = true;
+          parsing = null;
+          reader.close();
+          break;
+        default:
+          break;
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+    return true;
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+  }
+
+  /** Parses the document until the node has a child element with the specified index. */
+  private boolean ensureElement(Node node, int index) throws IOException {
+    while (node.elements.size() <= index && !node.isComplete) {
+      if (!parseNext()) {
+        break;
+      }
+    }
+    return index < node.elements.size();
+  }
+
+  /** Parses the document until the node is complete. */
+  private void ensureComplete(Node node) {
+    try {
+      while (!node.isComplete && parseNext()) {
+        // keep parsing
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /** Returns the tag name of the current element. */
+  @Override
+  public String getTagName() {
+    return current.tagName;
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public String getAttribute(String name, String defaultValue) {
+    String value = current.attributes.get(name);
+    return (value == null || value.length() == 0) ? defaultValue : value;
+  }
+
+  /** Gets the text of the current element of the DOM Document. */
+  @Override
+  public String getText() {
+    return getText(null);
+  }
+
+  /** Gets the text of the current element of the DOM Document. */
+  @Override
+  public String getText(String defaultValue) {
+    ensureComplete(current);
+    if (current.content.isEmpty()) {
+      return defaultValue;
+    }
+    StringBuilder buf = new StringBuilder();
+    getText(current, buf);
+    return buf.toString();
+  }
+
+  /**
+   * Gets the text of the current element of the DOM Document, decoded from Base64 notation.
+   *
+   * <p>Text which has not been parsed yet is decoded as it is parsed, without building a string.
+   * The text is not kept, so it can only be read once.
+   */
+  @Override
+  public byte[] getBase64Text() throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    Base64.OutputStream out = new Base64.OutputStream(buf, Base64.DECODE);
+    StringBuilder parsed = new StringBuilder();
+    getText(current, parsed);
+    out.write(parsed, 0, parsed.length());
+    boolean hasText = !current.content.isEmpty();
+    base64Sink = out;
+    isBase64TextFound = false;
+    try {
+      while (!current.isComplete && parseNext()) {
+        // keep parsing
+      }
+      hasText |= isBase64TextFound;
+    } finally {
+      base64Sink = null;
+    }
+    out.flushBase64();
+    return hasText ? buf.toByteArray() : null;
+  }
+
+  private static void getText(Node n, StringBuilder buf) {
+    for (Object o : n.content) {
+      if (o instanceof String) {
+        buf.append((String) o);
+      } else if (o != null) {
+        getText((Node) o, buf);
+      }
+    }
+  }
+
+  /**
+   * Gets an attribute of the current element of the DOM Document and of all parent DOM elements.
+   */
+  @Override
+  public List<String> getInheritedAttribute(String name) {
+    List<String> values = new ArrayList<>();
+    for (Node node = current; node != document; node = node.parent) {
+      String value = node.attributes.get(name);
+      values.add(0, value == null ? "" : value);
+    }
+    return values;
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public int getAttribute(String name, int defaultValue) {
+    String value = getAttribute(name, (String) null);
+    return (value == null) ? defaultValue : Long.decode(value).intValue();
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public double getAttribute(String name, double defaultValue) {
+    String value = getAttribute(name, (String) null);
+    return (value == null) ? defaultValue : Double.parseDouble(value);
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public boolean getAttribute(String name, boolean defaultValue) {
+    String value = getAttribute(name, (String) null);
+    return (value == null) ? defaultValue : Boolean.valueOf(value).booleanValue();
+  }
+
+  /**
+   * Returns the number of child elements of the current element. This method parses all children
+   * of the current element.
+   */
+  @Override
+  public int getElementCount() {
+    ensureComplete(current);
+    return current.elements.size();
+  }
+
+  /**
+   * Returns the number of child elements with the specified tag name of the current element. This
+   * method parses all children of the current element.
+   */
+  @Override
+  public int getElementCount(String tagName) {
+    ensureComplete(current);
+    int count = 0;
+    for (Node node : current.elements) {
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns true if the current element has a child element with the specified index. This method
+   * only parses the document up to this child.
+   */
+  @Override
+  public boolean hasElement(int index) throws IOException {
+    return ensureElement(current, index);
+  }
+
+  /** Opens the element with the specified index and makes it the current node. */
+  @Override
+  public void openElement(int index) throws IOException {
+    if (!ensureElement(current, index)) {
+      throw new IOException("no such child [" + index + "] in <" + current.tagName + ">");
+    }
+    open(current.elements.get(index));
+  }
+
+  /** Makes the specified child of the current node the current node. */
+  private void open(Node node) throws IOException {
+    if (node.isReleased) {
+      throw new IOException(
+          "<" + node.tagName + "> in <" + current.tagName + "> has already been read");
+    }
+    current = node;
+  }
+
+  /** Opens the first element with the specified name and makes it the current node. */
+  @Override
+  public void openElement(String tagName) throws IOException {
+    for (int i = 0; ensureElement(current, i); i++) {
+      Node node = current.elements.get(i);
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        open(node);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("element not found:" + tagName);
+  }
+
+  /** Opens the element with the specified name and index and makes it the current node. */
+  @Override
+  public void openElement(String tagName, int index) throws IOException {
+    int count = 0;
+    for (int i = 0; ensureElement(current, i); i++) {
+      Node node = current.elements.get(i);
+      if (node.tagName.equalsIgnoreCase(tagName)) {
+        if (count++ == index) {
+          open(node);
+          return;
+        }
+      }
+    }
+    throw new IllegalArgumentException("no such child " + tagName + "[" + index + "]");
+  }
+
+  /**
+   * Closes the current element of the DOM Document. The parent of the current element becomes the
+   * current element.
+   */
+  @Override
+  public void closeElement() {
+    current = current.parent;
+  }
+
+  /** Reads an object from the current element. */
+  @Override
+  public Object readObject() throws IOException {
+    return readObject(0);
+  }
+
+  /**
+   * Reads an object from the child element with the specified index, and releases the child
+   * element.
+   */
+  @Override
+  public Object readObject(int index) throws IOException {
+    openElement(index);
+    Object o;
+    String ref = getAttribute("ref", null);
+    String id = getAttribute("id", null);
+    if (ref != null && id != null) {
+      throw new IOException("Element has both an id and a ref attribute: <"
+          + getTagName()
+          + " id="
+          + id
+          + " ref="
+          + ref
+          + ">");
+    }
+    if (id != null && idobjects.containsKey(id)) {
+      throw new IOException("Duplicate id attribute: <" + getTagName() + " id=" + id + ">");
+    }
+    if (ref != null && !idobjects.containsKey(ref)) {
+      throw new IOException("Illegal ref attribute value: <" + getTagName() + " ref=" + ref + ">");
+    }
+    // Keep track of objects which have an ID
+    if (ref != null) {
+      o = idobjects.get(ref);
+    } else {
+      o = factory.read(this);
+      if (id != null) {
+        idobjects.put(id, o);
+      }
+    }
+    Node node = current;
+    closeElement();
+    Node released = new Node(current, node.tagName);
+    released.isComplete = true;
+    released.isReleased = true;
+    current.elements.set(index, released);
+    current.content.set(node.contentIndex, null);
+    return o;
+  }
+}
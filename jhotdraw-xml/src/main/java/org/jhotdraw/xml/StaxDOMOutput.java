@@ -0,0 +1,467 @@
+/*
+ * @(#)StaxDOMOutput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.xml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.jhotdraw.io.Base64;
+
+/**
+ * A {@link DOMOutput} which writes an XML document with a {@code javax.xml.stream} writer.
+ *
+ * <p>Unlike {@link JavaxDOMOutput}, this class does not build a DOM of the entire document. The
+ * {@code DOMOutput} interface allows to add attributes to an element after child elements have
+ * been added to it, so elements are collected in a lightweight tree until the outermost {@link
+ * #writeObject} call returns. Then everything that has been collected so far is written to the
+ * stream and discarded. When a drawing is written, only the figure which is currently being
+ * written is kept in memory.
+ *
+ * <p>The elements which enclose the outermost objects, for example the {@code drawing} and {@code
+ * figures} elements, are written when their first object has been written. Attributes can not be
+ * added to them afterwards.
+ *
+ * <p>The document is completed with {@link #close}, which does not close the underlying stream.
+ */
+public class StaxDOMOutput implements DOMOutput, Closeable {
+
+  /** The doctype of the XML document. */
+  private String doctype;
+
+  /**
+   * This map is used to marshall references to objects to the XML DOM. A key in this map is a Java
+   * Object, a value in this map is String representing a marshalled reference to that object.
+   */
+  private HashMap<Object, String> objectids = new HashMap<Object, String>();
+
+  /** This map is used to cache prototype objects. */
+  private HashMap<String, Object> prototypes;
+
+  /** The factory used to create objects. */
+  private DOMFactory factory;
+
+  private XMLStreamWriter writer;
+
+  /** The document node. */
+  private final Node document = new Node(null, null);
+
+  /** The current node used for output. */
+  private Node current = document;
+
+  /** Nesting depth of {@link #writeObject} calls. */
+  private int objectDepth;
+
+  private boolean isDocumentStarted;
+
+  /** An element which has not been written completely. */
+  private static class Node {
+
+    final Node parent;
+    final String tagName;
+    final LinkedHashMap<String, String> attributes = new LinkedHashMap<>();
+
+    /** Child nodes which have not been written yet: Node, text, Comment or Base64Text. */
+    final ArrayList<Object> content = new ArrayList<>();
+
+    /** Set to true when the start tag has been written. */
+    boolean isStarted;
+
+    boolean isClosed;
+
+    Node(Node parent, String tagName) {
+      this.parent = parent;
+      this.tagName = tagName;
+    }
+  }
+
+  private static class Comment {
+
+    final String text;
+
+    Comment(String text) {
+      this.text = text;
+    }
+  }
+
+  /** Binary data which is written as text in Base64 notation. */
+  private static class Base64Text {
+
+    final byte[] data;
+
+    Base64Text(byte[] data) {
+      this.data = data;
+    }
+  }
+
+  public StaxDOMOutput(DOMFactory factory, OutputStream out) throws IOException {
+    this.factory = factory;
+    try {
+      writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    document.isStarted = true;
+  }
+
+  public StaxDOMOutput(DOMFactory factory, Writer out) throws IOException {
+    this.factory = factory;
+    try {
+      writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    document.isStarted = true;
+  }
+
+  /**
+   * Writes all elements which have not been written yet, closes all open elements and ends the
+   * document. The underlying stream is flushed but not closed.
+   */
+  @Override
+  public void close() throws IOException {
+    while (current != document) {
+      closeElement();
+    }
+    try {
+      startDocument();
+      writeContent(document);
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private void startDocument() throws XMLStreamException {
+    if (!isDocumentStarted) {
+      isDocumentStarted = true;
+      writer.writeStartDocument("UTF-8", "1.0");
+      if (doctype != null) {
+        writer.writeDTD("<!DOCTYPE " + doctype + ">");
+      }
+    }
+  }
+
+  /**
+   * Writes the start tags and the complete content of the current element path, and removes the
+   * written nodes from the tree.
+   */
+  private void flush() throws IOException {
+    try {
+      startDocument();
+      Node node = document;
+      while (node != null) {
+        if (!node.isStarted) {
+          writeStartTag(node, false);
+        }
+        Node open = null;
+        for (Iterator<Object> i = node.content.iterator(); i.hasNext(); ) {
+          Object o = i.next();
+          if (o instanceof Node && !((Node) o).isClosed) {
+            open = (Node) o;
+            break;
+          }
+          writeNode(o);
+          i.remove();
+        }
+        node = open;
+      }
+      writer.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private void writeStartTag(Node node, boolean isEmpty) throws XMLStreamException {
+    if (isEmpty) {
+      writer.writeEmptyElement(node.tagName);
+    } else {
+      writer.writeStartElement(node.tagName);
+    }
+    for (Map.Entry<String, String> entry : node.attributes.entrySet()) {
+      writer.writeAttribute(entry.getKey(), entry.getValue());
+    }
+    node.isStarted = true;
+  }
+
+  private void writeNode(Object o) throws XMLStreamException {
+    if (o instanceof Node) {
+      Node node = (Node) o;
+      writeStartTag(node, node.content.isEmpty());
+      if (!node.content.isEmpty()) {
+        writeContent(node);
+        writer.writeEndElement();
+      }
+    } else if (o instanceof Comment) {
+      writer.writeComment(((Comment) o).text);
+    } else if (o instanceof Base64Text) {
+      writeBase64(((Base64Text) o).data);
+    } else {
+      writer.writeCharacters((String) o);
+    }
+  }
+
+  /**
+   * Writes data in Base64 notation. The data is encoded in chunks, which are passed to the writer
+   * as they are produced.
+   */
+  private void writeBase64(byte[] data) throws XMLStreamException {
+    OutputStream chars =
+        new OutputStream() {
+          private final char[] buf = new char[4096];
+          private int count;
+
+          @Override
+          public void write(int b) throws IOException {
+            if (count == buf.length) {
+              flush();
+            }
+            buf[count++] = (char) b;
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            for (int end = off + len; off < end; ) {
+              if (count == buf.length) {
+                flush();
+              }
+              int n = Math.min(end - off, buf.length - count);
+              for (int i = 0; i < n; i++) {
+                buf[count++] = (char) b[off++];
+              }
+            }
+          }
+
+          @Override
+          public void flush() throws IOException {
+            try {
+              writer.writeCharacters(buf, 0, count);
+            } catch (XMLStreamException e) {
+              throw new IOException(e.getMessage(), e);
+            }
+            count = 0;
+          }
+        };
+    try {
+      Base64.OutputStream out = new Base64.OutputStream(chars, Base64.ENCODE);
+      out.write(data);
+      out.flushBase64();
+      chars.flush();
+    } catch (IOException e) {
+      throw new XMLStreamException(e.getMessage(), e);
+    }
+  }
+
+  private void writeContent(Node node) throws XMLStreamException {
+    for (Object o : node.content) {
+      writeNode(o);
+    }
+    node.content.clear();
+  }
+
+  /**
+   * Puts a new element into the DOM Document. The new element is added as a child to the current
+   * element in the DOM document. Then it becomes the current element. The element must be closed
+   * using closeElement.
+   */
+  @Override
+  public void openElement(String tagName) {
+    Node newElement = new Node(current, tagName);
+    current.content.add(newElement);
+    current = newElement;
+  }
+
+  /**
+   * Closes the current element of the DOM Document. The parent of the current element becomes the
+   * current element.
+   */
+  @Override
+  public void closeElement() {
+    Node node = current;
+    node.isClosed = true;
+    current = node.parent;
+    if (node.isStarted) {
+      // The start tag is already in the stream, so the element can be completed right away
+      try {
+        writeContent(node);
+        writer.writeEndElement();
+      } catch (XMLStreamException e) {
+        throw new UncheckedIOException(new IOException(e.getMessage(), e));
+      }
+      current.content.remove(node);
+    }
+  }
+
+  /** Adds a comment to the current element of the DOM Document. */
+  @Override
+  public void addComment(String comment) {
+    current.content.add(new Comment(comment));
+  }
+
+  /**
+   * Adds a text to current element of the DOM Document. Note: Multiple consecutives texts will be
+   * merged.
+   */
+  @Override
+  public void addText(String text) {
+    current.content.add(text);
+  }
+
+  /**
+   * Adds data in Base64 notation as text to the current element of the DOM Document. The data is
+   * encoded when the element is written to the stream.
+   */
+  @Override
+  public void addBase64Text(byte[] data) {
+    current.content.add(new Base64Text(data));
+  }
+
+  /**
+   * Adds an attribute to current element of the DOM Document.
+   *
+   * @throws IllegalStateException if the start tag of the current element has already been
+   *     written
+   */
+  @Override
+  public void addAttribute(String name, String value) {
+    if (value != null) {
+      if (current.isStarted) {
+        throw new IllegalStateException(
+            "Attribute " + name + " added after content of <" + current.tagName + ">");
+      }
+      current.attributes.put(name, value);
+    }
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, int value) {
+    addAttribute(name, Integer.toString(value));
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, boolean value) {
+    addAttribute(name, Boolean.toString(value));
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, float value) {
+    // Remove the awkard .0 at the end of each number
+    String str = Float.toString(value);
+    if (str.endsWith(".0")) {
+      str = str.substring(0, str.length() - 2);
+    }
+    addAttribute(name, str);
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, double value) {
+    // Remove the awkard .0 at the end of each number
+    String str = Double.toString(value);
+    if (str.endsWith(".0")) {
+      str = str.substring(0, str.length() - 2);
+    }
+    addAttribute(name, str);
+  }
+
+  /**
+   * Writes an object. When the outermost call returns, the collected elements are written to the
+   * stream.
+   */
+  @Override
+  public void writeObject(Object o) throws IOException {
+    String tagName = factory.getName(o);
+    if (tagName == null) {
+      throw new IllegalArgumentException("no tag name for:" + o);
+    }
+    objectDepth++;
+    try {
+      openElement(tagName);
+      if (objectids.containsKey(o)) {
+        addAttribute("ref", objectids.get(o));
+      } else {
+        String id = Integer.toString(objectids.size(), 16);
+        objectids.put(o, id);
+        addAttribute("id", id);
+        factory.write(this, o);
+      }
+      closeElement();
+    } finally {
+      objectDepth--;
+    }
+    if (objectDepth == 0) {
+      flush();
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, float value, float defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, int value, int defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, double value, double defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, boolean value, boolean defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, String value, String defaultValue) {
+    if (!value.equals(defaultValue)) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public Object getPrototype() {
+    if (prototypes == null) {
+      prototypes = new HashMap<String, Object>();
+    }
+    if (!prototypes.containsKey(current.tagName)) {
+      prototypes.put(current.tagName, factory.createPrototype(current.tagName));
+    }
+    return prototypes.get(current.tagName);
+  }
+
+  /** Sets the doctype. This must be done before the first object is written. */
+  @Override
+  public void setDoctype(String doctype) {
+    this.doctype = doctype;
+  }
+}
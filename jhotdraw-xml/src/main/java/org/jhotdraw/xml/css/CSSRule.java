@@ -23,22 +23,34 @@ import org.w3c.dom.Element;
  *   <li><code>name</code> matches an element name.
  *   <li><code>.name</code> matches the value of the attribute "class".
  *   <li><code>#name</code> matches the value of the attribute "id".
+ *   <li>Compound selectors without whitespace, like <code>rect.shape.red</code> or <code>
+ *       g#layer1</code>, match elements which satisfy all of their parts.
  * </ul>
  *
+ * Selectors with combinators or pseudo classes are not supported and match no element.
+ *
+ * <p>The specificity of a selector is used by {@link StyleManager} to order matching rules.
+ *
  * This class supports net.n3.nanoxml as well as org.w3c.dom.
  */
 public class CSSRule {
 
   private String selector;
 
-  private static enum SelectorType {
-    ALL,
-    ELEMENT_NAME,
-    CLASS_ATTRIBUTE,
-    ID_ATTRIBUTE
-  }
+  /** The element name, or null if the selector matches elements with any name. */
+  private String elementName;
+
+  /** The id, or null if the selector does not test the id. */
+  private String id;
+
+  /** The class names which an element must have. */
+  private String[] classNames = new String[0];
+
+  /** Set to false if the selector can not be parsed. */
+  private boolean isSupported;
+
+  private int specificity;
 
-  private SelectorType type;
   protected Map<String, String> properties;
 
   public CSSRule(String name, String value) {
@@ -58,51 +70,128 @@ public class CSSRule {
   }
 
   public void setSelector(String selector) {
-    switch (selector.charAt(0)) {
-      case '*':
-        type = SelectorType.ALL;
-        break;
-      case '.':
-        type = SelectorType.CLASS_ATTRIBUTE;
-        break;
-      case '#':
-        type = SelectorType.ID_ATTRIBUTE;
-        break;
-      default:
-        type = SelectorType.ELEMENT_NAME;
+    this.selector = selector.trim();
+    elementName = null;
+    id = null;
+    isSupported = true;
+    ArrayList<String> classes = new ArrayList<String>();
+    String s = this.selector;
+    int i;
+    if (s.startsWith("*")) {
+      i = 1;
+    } else {
+      i = scanName(s, 0);
+      if (i > 0) {
+        elementName = s.substring(0, i);
+      }
+    }
+    while (i < s.length() && isSupported) {
+      char prefix = s.charAt(i);
+      int end = scanName(s, i + 1);
+      if (end == i + 1 || (prefix != '.' && prefix != '#') || (prefix == '#' && id != null)) {
+        isSupported = false;
+      } else if (prefix == '.') {
+        classes.add(s.substring(i + 1, end));
+      } else {
+        id = s.substring(i + 1, end);
+      }
+      i = end;
+    }
+    if (s.isEmpty()) {
+      isSupported = false;
+    }
+    classNames = classes.toArray(new String[classes.size()]);
+    specificity = (id == null ? 0 : 1 << 20)
+        + (Math.min(classNames.length, 1023) << 10)
+        + (elementName == null ? 0 : 1);
+  }
+
+  /** Returns the end index of the identifier starting at the specified index. */
+  private static int scanName(String s, int start) {
+    int i = start;
+    while (i < s.length()) {
+      char c = s.charAt(i);
+      if (Character.isLetterOrDigit(c) || c == '-' || c == '_' || c > 127) {
+        i++;
+      } else {
         break;
+      }
     }
-    this.selector = (type == SelectorType.ELEMENT_NAME) ? selector : selector.substring(1);
+    return i;
+  }
+
+  /** Returns the element name, or null if the selector matches elements with any name. */
+  String getElementName() {
+    return elementName;
+  }
+
+  /** Returns the id, or null if the selector does not test the id. */
+  String getId() {
+    return id;
+  }
+
+  /** Returns the class names which an element must have. */
+  String[] getClassNames() {
+    return classNames;
+  }
+
+  /** Returns false if the selector is not supported and can never match. */
+  boolean isSupported() {
+    return isSupported;
+  }
+
+  /**
+   * Returns the specificity of the selector. Ids weigh more than classes, and classes weigh more
+   * than element names.
+   */
+  public int getSpecificity() {
+    return specificity;
   }
 
   public boolean matches(Element elem) {
-    boolean isMatch = false;
-    switch (type) {
-      case ALL:
-        isMatch = true;
-        break;
-      case ELEMENT_NAME:
-        String name = elem.getLocalName();
-        isMatch = name.equals(selector);
-        break;
-      case CLASS_ATTRIBUTE:
-        String value = elem.getAttribute("class");
-        if (value != null) {
-          String[] clazzes = value.split(" ");
-          for (String clazz : clazzes) {
-            if (clazz.equals(selector)) {
-              isMatch = true;
-              break;
-            }
-          }
+    return matches(elem.getLocalName(), elem.getAttribute("id"), splitClasses(elem));
+  }
+
+  /**
+   * Returns true if the selector matches an element with the specified properties.
+   *
+   * @param name the local name of the element
+   * @param elemId the value of the "id" attribute
+   * @param elemClasses the class names of the element
+   */
+  boolean matches(String name, String elemId, Collection<String> elemClasses) {
+    if (!isSupported
+        || (elementName != null && !elementName.equals(name))
+        || (id != null && !id.equals(elemId))) {
+      return false;
+    }
+    for (String clazz : classNames) {
+      if (!elemClasses.contains(clazz)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Splits the "class" attribute of an element into class names. */
+  static List<String> splitClasses(Element elem) {
+    String value = elem.getAttribute("class");
+    if (value == null || value.isEmpty()) {
+      return Collections.emptyList();
+    }
+    ArrayList<String> classes = new ArrayList<String>(2);
+    int start = -1;
+    for (int i = 0, n = value.length(); i <= n; i++) {
+      if (i == n || Character.isWhitespace(value.charAt(i))) {
+        if (start != -1) {
+          classes.add(value.substring(start, i));
+          start = -1;
         }
-        break;
-      case ID_ATTRIBUTE:
-        name = elem.getAttribute("id");
-        isMatch = name != null && name.equals(selector);
-        break;
+      } else if (start == -1) {
+        start = i;
+      }
     }
-    return isMatch;
+    return classes;
   }
 
   public void apply(Element elem) {
@@ -16,28 +16,111 @@ import org.w3c.dom.Element;
 /**
  * StyleManager applies styling Rules to an XML DOM. This class supports net.n3.nanoxml as well as
  * org.w3c.dom.
+ *
+ * <p>Rules are indexed by the most selective part of their selector: the id, else the first class
+ * name, else the element name. {@link #applyStylesTo} only tests the rules which are indexed by
+ * the id, the class names and the name of the element, and the rules which match any element.
+ *
+ * <p>Matching rules are applied in the order of decreasing specificity, and rules with the same
+ * specificity in the reverse order in which they have been added. Since a rule does not replace
+ * attributes which are already present, the most specific rule, and among equally specific rules
+ * the last one, wins.
  */
 public class StyleManager {
 
+  /** A rule together with the order in which it has been added. */
+  private static class Entry {
+
+    final CSSRule rule;
+    final int order;
+
+    Entry(CSSRule rule, int order) {
+      this.rule = rule;
+      this.order = order;
+    }
+  }
+
+  private static final Comparator<Entry> CASCADE_ORDER = (a, b) -> {
+    int cmp = Integer.compare(b.rule.getSpecificity(), a.rule.getSpecificity());
+    return (cmp != 0) ? cmp : Integer.compare(b.order, a.order);
+  };
+
   private java.util.List<CSSRule> rules;
 
+  private HashMap<String, ArrayList<Entry>> rulesById = new HashMap<String, ArrayList<Entry>>();
+
+  private HashMap<String, ArrayList<Entry>> rulesByClass =
+      new HashMap<String, ArrayList<Entry>>();
+
+  private HashMap<String, ArrayList<Entry>> rulesByName = new HashMap<String, ArrayList<Entry>>();
+
+  private ArrayList<Entry> universalRules = new ArrayList<Entry>();
+
   public StyleManager() {
     rules = new ArrayList<CSSRule>();
   }
 
   public void add(CSSRule rule) {
+    if (!rule.isSupported()) {
+      return;
+    }
+    Entry entry = new Entry(rule, rules.size());
     rules.add(rule);
+    if (rule.getId() != null) {
+      rulesById.computeIfAbsent(rule.getId(), k -> new ArrayList<Entry>()).add(entry);
+    } else if (rule.getClassNames().length > 0) {
+      rulesByClass
+          .computeIfAbsent(rule.getClassNames()[0], k -> new ArrayList<Entry>())
+          .add(entry);
+    } else if (rule.getElementName() != null) {
+      rulesByName.computeIfAbsent(rule.getElementName(), k -> new ArrayList<Entry>()).add(entry);
+    } else {
+      universalRules.add(entry);
+    }
   }
 
   public void applyStylesTo(Element elem) {
-    for (CSSRule rule : rules) {
-      if (rule.matches(elem)) {
-        rule.apply(elem);
+    if (rules.isEmpty()) {
+      return;
+    }
+    String name = elem.getLocalName();
+    String id = elem.getAttribute("id");
+    List<String> classes = CSSRule.splitClasses(elem);
+    ArrayList<Entry> candidates = new ArrayList<Entry>();
+    candidates.addAll(universalRules);
+    addCandidates(rulesByName, name, candidates);
+    addCandidates(rulesById, id, candidates);
+    for (int i = 0, n = classes.size(); i < n; i++) {
+      // An element may list the same class twice
+      if (classes.indexOf(classes.get(i)) == i) {
+        addCandidates(rulesByClass, classes.get(i), candidates);
+      }
+    }
+    if (candidates.size() > 1) {
+      candidates.sort(CASCADE_ORDER);
+    }
+    for (Entry entry : candidates) {
+      if (entry.rule.matches(name, id, classes)) {
+        entry.rule.apply(elem);
+      }
+    }
+  }
+
+  private static void addCandidates(
+      Map<String, ArrayList<Entry>> index, String key, List<Entry> candidates) {
+    if (key != null && !key.isEmpty()) {
+      ArrayList<Entry> entries = index.get(key);
+      if (entries != null) {
+        candidates.addAll(entries);
       }
     }
   }
 
   public void clear() {
     rules.clear();
+    rulesById.clear();
+    rulesByClass.clear();
+    rulesByName.clear();
+    universalRules.clear();
   }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Stores {@link Item}s as {@code item} elements, for comparing DOM inputs and outputs. */
+class ItemDOMFactory implements DOMFactory {
+
+  /** An object with a name and child objects. */
+  static class Item {
+
+    final String name;
+    final List<Item> children = new ArrayList<>();
+
+    Item(String name, Item... children) {
+      this.name = name;
+      this.children.addAll(Arrays.asList(children));
+    }
+  }
+
+  @Override
+  public String getName(Object o) {
+    return "item";
+  }
+
+  @Override
+  public Object createPrototype(String name) {
+    return new Item(null);
+  }
+
+  @Override
+  public void write(DOMOutput out, Object o) throws IOException {
+    Item item = (Item) o;
+    out.addAttribute("name", item.name);
+    for (Item child : item.children) {
+      out.writeObject(child);
+    }
+  }
+
+  @Override
+  public Object read(DOMInput in) throws IOException {
+    Item item = new Item(in.getAttribute("name", null));
+    for (int i = 0, n = in.getElementCount(); i < n; i++) {
+      item.children.add((Item) in.readObject(i));
+    }
+    return item;
+  }
+}
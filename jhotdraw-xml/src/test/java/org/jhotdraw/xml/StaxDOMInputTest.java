@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.xml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.jhotdraw.xml.ItemDOMFactory.Item;
+import org.junit.jupiter.api.Test;
+
+/** Compares {@link StaxDOMInput} with {@link JavaxDOMInput}. */
+public class StaxDOMInputTest {
+
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<drawing w=\"10\" ratio=\"0.5\" visible=\"true\" title=\"\">\n"
+      + "  <!-- figures -->\n"
+      + "  <figures name=\"all\">\n"
+      + "    <item id=\"0\" name=\"a\"><item id=\"1\" name=\"b\"/></item>\n"
+      + "    <line name=\"l\">x &amp; y</line>\n"
+      + "    <item ref=\"1\"/>\n"
+      + "    <item id=\"2\" name=\"c\">text<![CDATA[ <more>]]></item>\n"
+      + "  </figures>\n"
+      + "  <item ref=\"0\"/>\n"
+      + "</drawing>\n";
+
+  /** Navigates a DOM input, and records what it finds. */
+  private interface Navigation {
+
+    void navigate(DOMInput in, List<Object> found) throws IOException;
+  }
+
+  /** Applies the navigation to both inputs, and returns what the StAX input has found. */
+  private static List<Object> navigateBoth(Navigation navigation) throws IOException {
+    ItemDOMFactory factory = new ItemDOMFactory();
+    List<Object> expected = new ArrayList<>();
+    navigation.navigate(new JavaxDOMInput(factory, new StringReader(XML)), expected);
+    List<Object> actual = new ArrayList<>();
+    navigation.navigate(new StaxDOMInput(factory, new StringReader(XML)), actual);
+    assertThat(actual).containsExactlyElementsOf(expected);
+    return actual;
+  }
+
+  @Test
+  public void testAttributes() throws IOException {
+    List<Object> found = navigateBoth((in, f) -> {
+      in.openElement("drawing");
+      f.add(in.getTagName());
+      f.add(in.getAttribute("w", 0));
+      f.add(in.getAttribute("ratio", 0.0));
+      f.add(in.getAttribute("visible", false));
+      f.add(in.getAttribute("title", "untitled"));
+      f.add(in.getAttribute("missing", 42));
+      in.openElement("figures");
+      in.openElement("line");
+      f.add(in.getText());
+    });
+    assertThat(found.get(1)).isEqualTo(10);
+    assertThat(found.get(4)).isEqualTo("untitled");
+    assertThat(found.get(6)).isEqualTo("x & y");
+  }
+
+  @Test
+  public void testInheritedAttribute() throws IOException {
+    StaxDOMInput in = new StaxDOMInput(new ItemDOMFactory(), new StringReader(XML));
+    in.openElement("drawing");
+    in.openElement("figures");
+    in.openElement("line");
+    assertThat(in.getInheritedAttribute("name")).containsExactly("", "all", "l");
+  }
+
+  @Test
+  public void testElementNavigation() throws IOException {
+    navigateBoth((in, f) -> {
+      in.openElement(0);
+      f.add(in.getElementCount());
+      f.add(in.getElementCount("item"));
+      in.openElement("figures");
+      f.add(in.getElementCount());
+      f.add(in.getElementCount("ITEM"));
+      for (int i = 0; i < 3; i++) {
+        in.openElement("item", i);
+        f.add(in.getAttribute("name", in.getAttribute("ref", null)));
+        in.closeElement();
+      }
+      in.openElement(1);
+      f.add(in.getTagName());
+      in.closeElement();
+      in.openElement("item", 2);
+      f.add(in.getText());
+      in.closeElement();
+      in.closeElement();
+      in.openElement(1);
+      f.add(in.getAttribute("ref", null));
+    });
+  }
+
+  @Test
+  public void testIdsAndRefsResolveToTheSameObject() throws IOException {
+    navigateBoth((in, f) -> {
+      in.openElement("drawing");
+      in.openElement("figures");
+      Item a = (Item) in.readObject(0);
+      Item b = (Item) in.readObject(2);
+      f.add(a.name);
+      f.add(b.name);
+      f.add(a.children.get(0) == b);
+      in.closeElement();
+      f.add(in.readObject(1) == a);
+    });
+  }
+
+  @Test
+  public void testReadElementsAreStillCounted() throws IOException {
+    navigateBoth((in, f) -> {
+      in.openElement("drawing");
+      in.openElement("figures");
+      in.readObject(0);
+      f.add(in.getElementCount());
+      f.add(in.getElementCount("item"));
+      // The indices of the following elements do not change
+      in.openElement("item", 1);
+      f.add(in.getAttribute("ref", null));
+      in.closeElement();
+      in.openElement(2);
+      f.add(in.getAttribute("ref", null));
+    });
+  }
+
+  @Test
+  public void testReadElementCanNotBeOpenedAgain() throws IOException {
+    StaxDOMInput in = new StaxDOMInput(new ItemDOMFactory(), new StringReader(XML));
+    in.openElement("drawing");
+    in.openElement("figures");
+    in.readObject(0);
+    assertThatThrownBy(() -> in.openElement(0)).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> in.openElement("item")).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> in.openElement("item", 0)).isInstanceOf(IOException.class);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.xml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.jhotdraw.xml.ItemDOMFactory.Item;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/** Compares {@link StaxDOMOutput} with {@link JavaxDOMOutput}. */
+public class StaxDOMOutputTest {
+
+  private static void writeDrawing(DOMOutput out, Item... figures) throws IOException {
+    out.openElement("drawing");
+    out.addAttribute("w", 10);
+    out.addAttribute("ratio", 0.5);
+    out.addAttribute("visible", true);
+    out.addAttribute("zoom", 2.0f);
+    out.addAttribute("title", "a < b & \"c\"");
+    out.addComment("figures");
+    out.openElement("figures");
+    for (Item figure : figures) {
+      out.writeObject(figure);
+    }
+    out.closeElement();
+    out.openElement("text");
+    out.addText("x & y");
+    out.closeElement();
+    out.closeElement();
+  }
+
+  private static String writeStax(Item... figures) throws IOException {
+    StringWriter w = new StringWriter();
+    StaxDOMOutput out = new StaxDOMOutput(new ItemDOMFactory(), w);
+    writeDrawing(out, figures);
+    out.close();
+    return w.toString();
+  }
+
+  private static String writeJavax(Item... figures) throws IOException {
+    StringWriter w = new StringWriter();
+    JavaxDOMOutput out = new JavaxDOMOutput(new ItemDOMFactory());
+    writeDrawing(out, figures);
+    out.save(w);
+    return w.toString();
+  }
+
+  private static Document parse(String xml) throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance()
+        .newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml)));
+    doc.normalizeDocument();
+    return doc;
+  }
+
+  @Test
+  public void testWritesTheSameDocument() throws Exception {
+    Item b = new Item("b");
+    Item a = new Item("a", b, new Item("c"));
+    Document expected = parse(writeJavax(a, b, a));
+    Document actual = parse(writeStax(a, b, a));
+    assertThat(actual.getDocumentElement().isEqualNode(expected.getDocumentElement())).isTrue();
+  }
+
+  @Test
+  public void testIdsAndRefsResolveToTheSameObject() throws IOException {
+    Item b = new Item("b");
+    Item a = new Item("a", b);
+    String xml = writeStax(a, b);
+    DOMInput in = new StaxDOMInput(new ItemDOMFactory(), new StringReader(xml));
+    in.openElement("drawing");
+    assertThat(in.getAttribute("title", null)).isEqualTo("a < b & \"c\"");
+    in.openElement("figures");
+    Item readA = (Item) in.readObject(0);
+    Item readB = (Item) in.readObject(1);
+    assertThat(readA.name).isEqualTo("a");
+    assertThat(readA.children.get(0)).isSameAs(readB);
+  }
+
+  @Test
+  public void testAttributeAfterWrittenContentIsRejected() throws IOException {
+    StaxDOMOutput out = new StaxDOMOutput(new ItemDOMFactory(), new StringWriter());
+    out.openElement("drawing");
+    out.writeObject(new Item("a"));
+    assertThatThrownBy(() -> out.addAttribute("w", 10)).isInstanceOf(IllegalStateException.class);
+  }
+}
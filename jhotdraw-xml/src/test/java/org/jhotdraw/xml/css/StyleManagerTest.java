@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.xml.css;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class StyleManagerTest {
+
+  private Document doc;
+  private StyleManager manager;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    manager = new StyleManager();
+  }
+
+  private Element element(String name, String id, String clazz) {
+    Element elem = doc.createElementNS(null, name);
+    if (id != null) {
+      elem.setAttribute("id", id);
+    }
+    if (clazz != null) {
+      elem.setAttribute("class", clazz);
+    }
+    return elem;
+  }
+
+  @Test
+  void testMoreSpecificRuleWins() {
+    manager.add(new CSSRule("#r1", "fill", "id"));
+    manager.add(new CSSRule(".shape", "fill", "class"));
+    manager.add(new CSSRule("rect", "fill", "name"));
+    manager.add(new CSSRule("*", "fill", "all"));
+
+    Element elem = element("rect", "r1", "shape");
+    manager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("id");
+
+    elem = element("rect", "r2", "shape");
+    manager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("class");
+
+    elem = element("circle", null, null);
+    manager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("all");
+  }
+
+  @Test
+  void testLaterRuleWinsWithSameSpecificity() {
+    manager.add(new CSSRule(".a", "fill", "a"));
+    manager.add(new CSSRule(".b", "fill", "b"));
+
+    Element elem = element("rect", null, "b  a a");
+    manager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("b");
+  }
+
+  @Test
+  void testCompoundSelector() {
+    manager.add(new CSSRule("rect.a.b", "fill", "compound"));
+    manager.add(new CSSRule("g#a", "stroke", "compound"));
+
+    Element elem = element("rect", null, "b a");
+    manager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("compound");
+
+    elem = element("rect", "a", "a");
+    manager.applyStylesTo(elem);
+    assertThat(elem.hasAttribute("fill")).isFalse();
+    assertThat(elem.hasAttribute("stroke")).isFalse();
+  }
+
+  @Test
+  void testUnsupportedSelectorMatchesNothing() {
+    CSSRule rule = new CSSRule("g > rect", "fill", "red");
+    assertThat(rule.matches(element("rect", null, null))).isFalse();
+    manager.add(rule);
+
+    Element elem = element("rect", null, null);
+    manager.applyStylesTo(elem);
+    assertThat(elem.hasAttribute("fill")).isFalse();
+  }
+
+  @Test
+  void testGeneratedStylesheet() {
+    int ruleCount = 10000;
+    for (int i = 0; i < ruleCount; i++) {
+      manager.add(new CSSRule(".c" + i, Collections.singletonMap("fill", "v" + i)));
+    }
+    for (int i = 0; i < ruleCount; i += 7) {
+      int j = (i * 31) % ruleCount;
+      Element elem = element("path", null, "c" + i + " c" + j);
+      manager.applyStylesTo(elem);
+      assertThat(elem.getAttribute("fill")).isEqualTo("v" + Math.max(i, j));
+    }
+  }
+}